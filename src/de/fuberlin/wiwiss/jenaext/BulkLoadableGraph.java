@@ -0,0 +1,49 @@
+package de.fuberlin.wiwiss.jenaext;
+
+
+/**
+ * An identifier-based graph that can add triples given by the identifiers
+ * of their nodes. A bulk loader that has encoded the nodes already uses
+ * this method to avoid a second dictionary lookup per node.
+ * Graph listeners are not notified about triples added this way.
+ *
+ * @author Olaf Hartig
+ */
+public interface BulkLoadableGraph extends IdBasedGraph
+{
+	/**
+	 * Adds the triple with the given identifiers of subject, predicate, and
+	 * object (if it is not already contained in this graph). The identifiers
+	 * must have been created by the node dictionary of this graph.
+	 *
+	 * @return true if the triple has been added
+	 */
+	public boolean add ( int sId, int pId, int oId );
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
@@ -10,6 +10,8 @@ import com.hp.hpl.jena.util.iterator.NiceIterator;
 /**
  * This iterator converts the elements of an iterator over ID-based triples to
  * actual triples.
+ * ID-based triples that do not carry the represented triple are decoded by
+ * using a node dictionary.
  *
  * @author Olaf Hartig
  */
@@ -20,13 +22,22 @@ public class DecodingTriplesIterator extends NiceIterator<Triple> implements Ext
 	/** the iterator that is being converted */
 	final private Iterator<IdBasedTriple> base;
 
+	/** the node dictionary used to decode ID-based triples (may be null) */
+	final private NodeDictionary nodeDict;
+
 
 	// initialization
 
 	public DecodingTriplesIterator ( Iterator<IdBasedTriple> base )
+	{
+		this( base, null );
+	}
+
+	public DecodingTriplesIterator ( Iterator<IdBasedTriple> base, NodeDictionary nodeDict )
 	{
 		assert base != null;
 		this.base = base;
+		this.nodeDict = nodeDict;
 	}
 
 
@@ -47,7 +58,14 @@ public class DecodingTriplesIterator extends NiceIterator<Triple> implements Ext
 	@Override
 	final public Triple next ()
 	{
-		return base.next().triple;
+		IdBasedTriple t = base.next();
+		if ( t.triple != null ) {
+			return t.triple;
+		}
+
+		return new Triple( nodeDict.getNode(t.s),
+		                   nodeDict.getNode(t.p),
+		                   nodeDict.getNode(t.o) );
 	}
 
 	/* (non-Javadoc)
@@ -0,0 +1,77 @@
+package de.fuberlin.wiwiss.jenaext;
+
+
+/**
+ * Statistics about the triples in an {@link IdBasedGraph}. Nodes are
+ * referred to by their identifiers (see {@link NodeDictionary}).
+ * Implementations for graphs that consist of other graphs (e.g. unions) may
+ * report upper bounds for the numbers of distinct nodes.
+ *
+ * @author Olaf Hartig
+ */
+public interface GraphStatistics
+{
+	/**
+	 * Returns the number of triples.
+	 */
+	public int getTripleCount ();
+
+	/**
+	 * Returns the number of distinct subjects.
+	 */
+	public int getDistinctSubjectCount ();
+
+	/**
+	 * Returns the number of distinct objects.
+	 */
+	public int getDistinctObjectCount ();
+
+	/**
+	 * Returns the identifiers of all predicates of the triples.
+	 */
+	public int[] getPredicates ();
+
+	/**
+	 * Returns the number of triples with the given predicate.
+	 */
+	public int getTripleCount ( int pId );
+
+	/**
+	 * Returns the number of distinct subjects of the triples with the given
+	 * predicate.
+	 */
+	public int getDistinctSubjectCount ( int pId );
+
+	/**
+	 * Returns the number of distinct objects of the triples with the given
+	 * predicate.
+	 */
+	public int getDistinctObjectCount ( int pId );
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
@@ -37,6 +37,25 @@ public interface IdBasedGraph extends Graph
 	 * @param oId the identifier for the object of the triple pattern
 	 */
 	public Iterator<IdBasedTriple> find ( int sId, int pId, int oId );
+
+	/**
+	 * Returns the number of triples that match the triple pattern specified
+	 * by the given identifiers. Implementations should answer this request
+	 * using their indexes (i.e. without iterating over the matching triples);
+	 * hence, they may return an upper bound instead of the exact number.
+	 * An identifier of -1 represents a wildcard.
+	 *
+	 * @param sId the identifier for the subject of the triple pattern
+	 * @param pId the identifier for the predicate of the triple pattern
+	 * @param oId the identifier for the object of the triple pattern
+	 */
+	public int getCardinality ( int sId, int pId, int oId );
+
+	/**
+	 * Returns statistics about the triples in this graph. The returned object
+	 * may reflect later changes of the graph; hence, it should not be kept.
+	 */
+	public GraphStatistics getStatistics ();
 }
 
 /*
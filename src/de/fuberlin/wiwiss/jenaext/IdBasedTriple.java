@@ -22,7 +22,10 @@ public class IdBasedTriple
 	/** The identifier for the object node. */
 	final public int o;
 
-	/** The represented triple. */
+	/**
+	 * The represented triple (may be null for triples of graphs that do not
+	 * keep Jena triples, see {@link DecodingTriplesIterator}).
+	 */
 	final public Triple triple;
 
 
@@ -42,6 +45,21 @@ public class IdBasedTriple
 		this.o = o;
 	}
 
+	/**
+	 * Creates an ID-based triple without the represented Jena triple.
+	 */
+	public IdBasedTriple ( int s, int p, int o )
+	{
+		assert s >= 0;
+		assert p >= 0;
+		assert o >= 0;
+
+		this.triple = null;
+		this.s = s;
+		this.p = p;
+		this.o = o;
+	}
+
 
 	// redefinition of Object methods
 
@@ -0,0 +1,648 @@
+package de.fuberlin.wiwiss.jenaext.impl;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.hp.hpl.jena.graph.BulkUpdateHandler;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.graph.TripleMatch;
+import com.hp.hpl.jena.graph.impl.GraphBase;
+import com.hp.hpl.jena.graph.impl.SimpleBulkUpdateHandler;
+import com.hp.hpl.jena.graph.query.QueryHandler;
+import com.hp.hpl.jena.shared.ReificationStyle;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+
+import de.fuberlin.wiwiss.jenaext.BulkLoadableGraph;
+import de.fuberlin.wiwiss.jenaext.DecodingTriplesIterator;
+import de.fuberlin.wiwiss.jenaext.EmptyIterator;
+import de.fuberlin.wiwiss.jenaext.GraphStatistics;
+import de.fuberlin.wiwiss.jenaext.IdBasedGraph;
+import de.fuberlin.wiwiss.jenaext.IdBasedTriple;
+import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+
+
+/**
+ * A main memory-based RDF graph that stores the identifiers of its triples in
+ * three parallel int arrays (columns for S, P, and O).
+ * In contrast to {@link IdBasedGraphMem} there is no object per triple. The
+ * three indexes (S, P, O) hold row numbers, i.e. positions in the columns
+ * (see {@link RowIndex}). Triple patterns with more than one bound component
+ * are answered by following the shortest of the relevant index chains and
+ * by checking the other components in the columns. Hence, this implementation
+ * needs considerably less memory for large graphs.
+ *
+ * Use {@link #findRows} to iterate over matching triples without allocating
+ * an object per triple. The identifier-based {@link #find} method creates
+ * {@link IdBasedTriple}s without a Jena triple; these triples are decoded
+ * only if they are requested through the Jena graph API.
+ *
+ * This graph does not contain duplicate triples.
+ *
+ * @author Olaf Hartig
+ */
+public class ColumnarIdBasedGraphMem extends GraphBase
+                                     implements BulkLoadableGraph
+{
+	// members
+
+	static final private int INITIAL_CAPACITY = 16;
+
+	/** the node dictionary */
+	final protected NodeDictionary nodeDict;
+
+	/** the subject column */
+	protected int[] subjects = new int [INITIAL_CAPACITY];
+	/** the predicate column */
+	protected int[] predicates = new int [INITIAL_CAPACITY];
+	/** the object column */
+	protected int[] objects = new int [INITIAL_CAPACITY];
+
+	/** the number of rows (i.e. triples) in the columns */
+	protected int rowCount = 0;
+
+	final protected RowIndex indexS = new RowIndex ();
+	final protected RowIndex indexP = new RowIndex ();
+	final protected RowIndex indexO = new RowIndex ();
+
+	/**
+	 * the statistics; computed on demand and discarded by every modification
+	 * (the indexes cannot tell whether a subject or an object occurs with a
+	 * predicate in constant time, so the statistics are not maintained
+	 * incrementally)
+	 */
+	protected StatisticsCatalog statistics = null;
+
+
+	// initialization
+
+	/**
+	 * Creates a graph with reification style Minimal.
+	 *
+	 * @param nodeDict the node dictionary used to get and create identifiers
+	 *                 for RDF nodes that occur in triple pattern queries issued
+	 *                 to this graph ({@link #graphBaseFind}) and for RDF nodes
+	 *                 that occur in triples added to this graph
+	 */
+	public ColumnarIdBasedGraphMem ( NodeDictionary nodeDict )
+	{
+		super();
+
+		assert nodeDict != null;
+		this.nodeDict = nodeDict;
+	}
+
+	/**
+	 * Creates a graph with the given reification style.
+	 *
+	 * @param nodeDict the node dictionary used to get and create identifiers
+	 *                 for RDF nodes that occur in triple pattern queries issued
+	 *                 to this graph ({@link #graphBaseFind}) and for RDF nodes
+	 *                 that occur in triples added to this graph
+	 * @param style the reification style to be used for this graph
+	 */
+	public ColumnarIdBasedGraphMem ( NodeDictionary nodeDict, ReificationStyle style )
+	{
+		super( style );
+
+		assert nodeDict != null;
+		this.nodeDict = nodeDict;
+	}
+
+
+	// implementation of the GraphBase abstract methods
+
+	/* (non-Javadoc)
+	 * @see com.hp.hpl.jena.graph.impl.GraphBase#graphBaseFind(com.hp.hpl.jena.graph.TripleMatch)
+	 */
+	@Override
+	protected ExtendedIterator<Triple> graphBaseFind ( TripleMatch m )
+	{
+		Node matchSubject = m.getMatchSubject();
+		Node matchPredicate = m.getMatchPredicate();
+		Node matchObject = m.getMatchObject();
+
+		int sId = ( matchSubject == null ) ? -1 : nodeDict.getId( matchSubject );
+		int pId = ( matchPredicate == null ) ? -1 : nodeDict.getId( matchPredicate );
+		int oId = ( matchObject == null ) ? -1 : nodeDict.getId( matchObject );
+
+		if (    ( matchSubject != null && sId < 0 )
+		     || ( matchPredicate != null && pId < 0 )
+		     || ( matchObject != null && oId < 0 ) ) {
+			return new DecodingTriplesIterator( EmptyIterator.emptyIdBasedTripleIterator );
+		}
+
+		return new DecodingTriplesIterator( find(sId,pId,oId), nodeDict );
+	}
+
+	/**
+	 * Adds the given triple to this graph (if it is not already contained).
+	 * Uses the node dictionary to obtain or (if necessary) create identifiers
+	 * for the RDF nodes in the given triple.
+	 *
+	 * @see com.hp.hpl.jena.graph.impl.GraphBase#performAdd(com.hp.hpl.jena.graph.Triple)
+	 */
+	@Override
+	public void performAdd ( Triple t )
+	{
+		assert ( t.isConcrete() );
+
+		add( nodeDict.createId(t.getSubject()),
+		     nodeDict.createId(t.getPredicate()),
+		     nodeDict.createId(t.getObject()) );
+	}
+
+	/**
+	 * Deletes the given triple from this graph.
+	 * The last row of the columns is moved to the row of the deleted triple.
+	 *
+	 * @see com.hp.hpl.jena.graph.impl.GraphBase#performDelete(com.hp.hpl.jena.graph.Triple)
+	 */
+	@Override
+	public void performDelete ( Triple t )
+	{
+		assert ( t.isConcrete() );
+
+		int sId = nodeDict.getId( t.getSubject() );
+		int pId = nodeDict.getId( t.getPredicate() );
+		int oId = nodeDict.getId( t.getObject() );
+		if ( sId < 0 || pId < 0 || oId < 0 ) {
+			return;
+		}
+
+		int row = findRow( sId, pId, oId );
+		if ( row >= 0 ) {
+			deleteRow( row );
+		}
+	}
+
+	/**
+	 * Returns a query handler (see {@link IdBasedQueryHandler}).
+	 *
+	 * @see com.hp.hpl.jena.graph.impl.GraphBase#queryHandler()
+	 */
+	@Override
+	public QueryHandler queryHandler ()
+	{
+		if ( queryHandler == null ) {
+			queryHandler = new IdBasedQueryHandler( this );
+		}
+		return queryHandler;
+	}
+
+	/**
+	 * Returns a bulk update handler that removes all triples by means of
+	 * {@link #clear}.
+	 *
+	 * @see com.hp.hpl.jena.graph.impl.GraphBase#getBulkUpdateHandler()
+	 */
+	@Override
+	public BulkUpdateHandler getBulkUpdateHandler ()
+	{
+		if ( bulkHandler == null ) {
+			bulkHandler = new ColumnarBulkUpdateHandler( this );
+		}
+		return bulkHandler;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.hp.hpl.jena.graph.impl.GraphBase#graphBaseSize()
+	 */
+	@Override
+	protected int graphBaseSize ()
+	{
+		return rowCount;
+	}
+
+
+	// implementation of the IdBasedGraph interface
+
+	/* (non-Javadoc)
+	 * @see de.fuberlin.wiwiss.jenaext.IdBasedGraph#getNodeDictionary()
+	 */
+	public NodeDictionary getNodeDictionary ()
+	{
+		return nodeDict;
+	}
+
+	/* (non-Javadoc)
+	 * @see de.fuberlin.wiwiss.jenaext.IdBasedGraph#contains(int, int, int)
+	 */
+	public boolean contains ( int sId, int pId, int oId )
+	{
+		return findRows( sId, pId, oId ).hasNext();
+	}
+
+	/**
+	 * Creates an {@link IdBasedTriple} (without a Jena triple) for every
+	 * matching row.
+	 *
+	 * @see de.fuberlin.wiwiss.jenaext.IdBasedGraph#find(int, int, int)
+	 */
+	public Iterator<IdBasedTriple> find ( int sId, int pId, int oId )
+	{
+		return new IdBasedTriplesIterator( findRows(sId,pId,oId) );
+	}
+
+
+	/**
+	 * Returns the length of the shortest index chain for the bound components
+	 * (an upper bound if more than one component is bound).
+	 *
+	 * @see de.fuberlin.wiwiss.jenaext.IdBasedGraph#getCardinality(int, int, int)
+	 */
+	public int getCardinality ( int sId, int pId, int oId )
+	{
+		int count = rowCount;
+		if ( sId >= 0 ) {
+			count = Math.min( count, indexS.count(sId) );
+		}
+		if ( pId >= 0 ) {
+			count = Math.min( count, indexP.count(pId) );
+		}
+		if ( oId >= 0 ) {
+			count = Math.min( count, indexO.count(oId) );
+		}
+		return count;
+	}
+
+	/**
+	 * Returns statistics that are computed by a walk over the chains of the
+	 * P index when they are requested for the first time after a
+	 * modification.
+	 *
+	 * @see de.fuberlin.wiwiss.jenaext.IdBasedGraph#getStatistics()
+	 */
+	public synchronized GraphStatistics getStatistics ()
+	{
+		if ( statistics == null ) {
+			statistics = computeStatistics();
+		}
+		return statistics;
+	}
+
+
+	// implementation of the BulkLoadableGraph interface
+
+	/**
+	 * @see de.fuberlin.wiwiss.jenaext.BulkLoadableGraph#add(int, int, int)
+	 */
+	public boolean add ( int sId, int pId, int oId )
+	{
+		checkOpen();
+
+		if ( findRow(sId,pId,oId) >= 0 ) {
+			return false;
+		}
+
+		if ( rowCount == subjects.length )
+		{
+			int newCapacity = rowCount + ( rowCount >> 1 );
+			subjects = grow( subjects, newCapacity );
+			predicates = grow( predicates, newCapacity );
+			objects = grow( objects, newCapacity );
+		}
+
+		int row = rowCount++;
+		subjects[row] = sId;
+		predicates[row] = pId;
+		objects[row] = oId;
+
+		indexS.put( sId, row );
+		indexP.put( pId, row );
+		indexO.put( oId, row );
+
+		statistics = null;
+		return true;
+	}
+
+
+	// accessors
+
+	/**
+	 * Removes all triples from this graph. Instead of deleting the rows one
+	 * by one the columns, the indexes, and the statistics are reset.
+	 * Listeners are not notified (use the bulk update handler for that).
+	 */
+	public void clear ()
+	{
+		subjects = new int [INITIAL_CAPACITY];
+		predicates = new int [INITIAL_CAPACITY];
+		objects = new int [INITIAL_CAPACITY];
+		rowCount = 0;
+
+		indexS.clear();
+		indexP.clear();
+		indexO.clear();
+
+		statistics = null;
+	}
+
+	/**
+	 * Executes a triple pattern query specified by the given identifiers and
+	 * returns an iterator over the row numbers of the matching triples.
+	 * An identifier of -1 represents a wildcard.
+	 * Use {@link #getSubject}, {@link #getPredicate}, and {@link #getObject}
+	 * to access the identifiers of a row.
+	 */
+	public RowIterator findRows ( int sId, int pId, int oId )
+	{
+		checkOpen();
+
+		if ( sId < 0 && pId < 0 && oId < 0 ) {
+			return new RowIterator( rowCount );
+		}
+
+		// Select the index with the shortest chain for the bound components.
+		RowIndex index = null;
+		int key = -1;
+		int count = Integer.MAX_VALUE;
+		if ( sId >= 0 ) {
+			index = indexS; key = sId; count = indexS.count( sId );
+		}
+		if ( pId >= 0 && count > 0 )
+		{
+			int c = indexP.count( pId );
+			if ( c < count ) { index = indexP; key = pId; count = c; }
+		}
+		if ( oId >= 0 && count > 0 )
+		{
+			int c = indexO.count( oId );
+			if ( c < count ) { index = indexO; key = oId; count = c; }
+		}
+
+		// The components not covered by the selected index are checked in the
+		// columns.
+		return new RowIterator( index,
+		                        index.first(key),
+		                        ( index != indexS ) ? sId : -1, subjects,
+		                        ( index != indexP ) ? pId : -1, predicates,
+		                        ( index != indexO ) ? oId : -1, objects );
+	}
+
+	/**
+	 * Returns the identifier of the subject in the given row.
+	 */
+	final public int getSubject ( int row )
+	{
+		return subjects[row];
+	}
+
+	/**
+	 * Returns the identifier of the predicate in the given row.
+	 */
+	final public int getPredicate ( int row )
+	{
+		return predicates[row];
+	}
+
+	/**
+	 * Returns the identifier of the object in the given row.
+	 */
+	final public int getObject ( int row )
+	{
+		return objects[row];
+	}
+
+
+	// helpers
+
+	/**
+	 * Returns the row of the triple with the given identifiers or -1 if there
+	 * is no such triple.
+	 */
+	final protected int findRow ( int sId, int pId, int oId )
+	{
+		RowIterator it = findRows( sId, pId, oId );
+		return it.hasNext() ? it.nextRow() : -1;
+	}
+
+	/**
+	 * Removes the given row. The last row is moved into the freed row so that
+	 * the columns stay dense.
+	 */
+	protected void deleteRow ( int row )
+	{
+		int sId = subjects[row];
+		int pId = predicates[row];
+		int oId = objects[row];
+
+		indexS.remove( sId, row );
+		indexP.remove( pId, row );
+		indexO.remove( oId, row );
+
+		int last = --rowCount;
+		if ( row != last )
+		{
+			indexS.replace( subjects[last], last, row );
+			indexP.replace( predicates[last], last, row );
+			indexO.replace( objects[last], last, row );
+
+			subjects[row] = subjects[last];
+			predicates[row] = predicates[last];
+			objects[row] = objects[last];
+		}
+
+		statistics = null;
+	}
+
+	/**
+	 * Computes the statistics. The overall counts are provided by the
+	 * indexes. For each predicate the chain of the P index is walked once and
+	 * the subjects and objects found in the chain are sorted to count the
+	 * distinct ones.
+	 */
+	protected StatisticsCatalog computeStatistics ()
+	{
+		StatisticsCatalog catalog = new StatisticsCatalog ();
+		catalog.setCounts( rowCount, indexS.keyCount(), indexO.keyCount() );
+
+		int[] pIds = indexP.keys();
+		int maxCount = 0;
+		for ( int i = 0; i < pIds.length; ++i ) {
+			maxCount = Math.max( maxCount, indexP.count(pIds[i]) );
+		}
+
+		int[] sIds = new int [maxCount];
+		int[] oIds = new int [maxCount];
+		for ( int i = 0; i < pIds.length; ++i )
+		{
+			int n = 0;
+			for ( int row = indexP.first(pIds[i]); row != RowIndex.NO_ROW; row = indexP.next(row) )
+			{
+				sIds[n] = subjects[row];
+				oIds[n] = objects[row];
+				n++;
+			}
+
+			catalog.setCounts( pIds[i], n, countDistinct(sIds,n), countDistinct(oIds,n) );
+		}
+
+		return catalog;
+	}
+
+	/**
+	 * Sorts the first n identifiers of the given array and returns the
+	 * number of distinct identifiers among them.
+	 */
+	static private int countDistinct ( int[] ids, int n )
+	{
+		Arrays.sort( ids, 0, n );
+		int distinct = 0;
+		for ( int i = 0; i < n; ++i )
+		{
+			if ( i == 0 || ids[i] != ids[i-1] ) {
+				distinct++;
+			}
+		}
+		return distinct;
+	}
+
+	static private int[] grow ( int[] column, int newCapacity )
+	{
+		int[] tmp = new int [newCapacity];
+		System.arraycopy( column, 0, tmp, 0, column.length );
+		return tmp;
+	}
+
+
+	/**
+	 * An iterator over row numbers that does not allocate objects per row.
+	 * The row numbers are taken from a chain of one of the indexes or, if
+	 * there is no index, all rows are provided. Only the rows that have the
+	 * requested identifiers in the given columns are provided; an identifier
+	 * of -1 represents a wildcard.
+	 */
+	static public class RowIterator
+	{
+		final private RowIndex index;
+		final private int rowCount;
+		final private int sId, pId, oId;
+		final private int[] subjects, predicates, objects;
+		private int curRow;
+		private int nextRow = RowIndex.NO_ROW;
+
+		/** Creates an iterator over all rows. */
+		protected RowIterator ( int rowCount )
+		{
+			this.index = null;
+			this.rowCount = rowCount;
+			this.curRow = 0;
+			this.sId = this.pId = this.oId = -1;
+			this.subjects = this.predicates = this.objects = null;
+		}
+
+		/** Creates an iterator over the chain that starts with the given row. */
+		protected RowIterator ( RowIndex index, int firstRow,
+		                        int sId, int[] subjects,
+		                        int pId, int[] predicates,
+		                        int oId, int[] objects )
+		{
+			this.index = index;
+			this.rowCount = -1;
+			this.curRow = firstRow;
+			this.sId = sId; this.subjects = subjects;
+			this.pId = pId; this.predicates = predicates;
+			this.oId = oId; this.objects = objects;
+		}
+
+		/**
+		 * Returns true if there is another matching row.
+		 */
+		final public boolean hasNext ()
+		{
+			if ( index == null )
+			{
+				if ( nextRow == RowIndex.NO_ROW && curRow < rowCount ) {
+					nextRow = curRow++;
+				}
+				return ( nextRow != RowIndex.NO_ROW );
+			}
+
+			while ( nextRow == RowIndex.NO_ROW && curRow != RowIndex.NO_ROW )
+			{
+				int row = curRow;
+				curRow = index.next( row );
+				if (    ( sId < 0 || subjects[row] == sId )
+				     && ( pId < 0 || predicates[row] == pId )
+				     && ( oId < 0 || objects[row] == oId ) ) {
+					nextRow = row;
+				}
+			}
+
+			return ( nextRow != RowIndex.NO_ROW );
+		}
+
+		/**
+		 * Returns the number of the next matching row.
+		 */
+		final public int nextRow ()
+		{
+			if ( ! hasNext() ) {
+				throw new NoSuchElementException();
+			}
+
+			int row = nextRow;
+			nextRow = RowIndex.NO_ROW;
+			return row;
+		}
+	}
+
+	/**
+	 * Removes all triples by means of {@link ColumnarIdBasedGraphMem#clear}
+	 * instead of deleting them one by one.
+	 */
+	static class ColumnarBulkUpdateHandler extends SimpleBulkUpdateHandler
+	{
+		public ColumnarBulkUpdateHandler ( ColumnarIdBasedGraphMem graph ) { super( graph ); }
+
+		@Override
+		public void removeAll ()
+		{
+			( (ColumnarIdBasedGraphMem) graph ).clear();
+			notifyRemoveAll();
+		}
+	}
+
+	/**
+	 * Converts the row numbers provided by a {@link RowIterator} to
+	 * {@link IdBasedTriple}s.
+	 */
+	class IdBasedTriplesIterator implements Iterator<IdBasedTriple>
+	{
+		final protected RowIterator base;
+		public IdBasedTriplesIterator ( RowIterator base ) { this.base = base; }
+		public boolean hasNext () { return base.hasNext(); }
+		public IdBasedTriple next () { int row = base.nextRow(); return new IdBasedTriple( subjects[row], predicates[row], objects[row] ); }
+		public void remove () { throw new UnsupportedOperationException(); }
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
@@ -0,0 +1,126 @@
+package de.fuberlin.wiwiss.jenaext.impl;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.fuberlin.wiwiss.jenaext.GraphStatistics;
+
+
+/**
+ * Statistics for a combination of graphs (e.g. a union). The numbers are the
+ * sums of the numbers of the given statistics. Hence, the numbers of
+ * distinct nodes (and, if the graphs have triples in common, the numbers of
+ * triples) are upper bounds.
+ *
+ * The sums are computed once when the combination is created; later changes
+ * of the given statistics are not reflected.
+ *
+ * @author Olaf Hartig
+ */
+public class CombinedGraphStatistics implements GraphStatistics
+{
+	// members
+
+	static final private int TRIPLES = 0;
+	static final private int SUBJECTS = 1;
+	static final private int OBJECTS = 2;
+
+	final protected StatisticsCatalog sums = new StatisticsCatalog ();
+
+
+	// initialization
+
+	public CombinedGraphStatistics ( List<GraphStatistics> members )
+	{
+		long tripleCount = 0L;
+		long distinctSubjectCount = 0L;
+		long distinctObjectCount = 0L;
+		Map<Integer,long[]> predicateSums = new HashMap<Integer,long[]> ();
+		for ( GraphStatistics s : members )
+		{
+			tripleCount += s.getTripleCount();
+			distinctSubjectCount += s.getDistinctSubjectCount();
+			distinctObjectCount += s.getDistinctObjectCount();
+
+			for ( int pId : s.getPredicates() )
+			{
+				Integer key = Integer.valueOf( pId );
+				long[] counters = predicateSums.get( key );
+				if ( counters == null ) {
+					counters = new long [3];
+					predicateSums.put( key, counters );
+				}
+
+				counters[TRIPLES] += s.getTripleCount( pId );
+				counters[SUBJECTS] += s.getDistinctSubjectCount( pId );
+				counters[OBJECTS] += s.getDistinctObjectCount( pId );
+			}
+		}
+
+		sums.setCounts( toInt(tripleCount),
+		                toInt(distinctSubjectCount),
+		                toInt(distinctObjectCount) );
+		for ( Map.Entry<Integer,long[]> e : predicateSums.entrySet() )
+		{
+			long[] counters = e.getValue();
+			sums.setCounts( e.getKey().intValue(),
+			                toInt(counters[TRIPLES]),
+			                toInt(counters[SUBJECTS]),
+			                toInt(counters[OBJECTS]) );
+		}
+	}
+
+
+	// implementation of the GraphStatistics interface
+
+	public int getTripleCount () { return sums.getTripleCount(); }
+
+	public int getDistinctSubjectCount () { return sums.getDistinctSubjectCount(); }
+
+	public int getDistinctObjectCount () { return sums.getDistinctObjectCount(); }
+
+	public int[] getPredicates () { return sums.getPredicates(); }
+
+	public int getTripleCount ( int pId ) { return sums.getTripleCount( pId ); }
+
+	public int getDistinctSubjectCount ( int pId ) { return sums.getDistinctSubjectCount( pId ); }
+
+	public int getDistinctObjectCount ( int pId ) { return sums.getDistinctObjectCount( pId ); }
+
+
+	// helpers
+
+	static private int toInt ( long l )
+	{
+		return (int) Math.min( l, Integer.MAX_VALUE );
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
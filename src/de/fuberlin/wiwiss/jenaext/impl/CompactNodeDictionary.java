@@ -0,0 +1,576 @@
+package de.fuberlin.wiwiss.jenaext.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.hp.hpl.jena.datatypes.TypeMapper;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.rdf.model.AnonId;
+
+import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+
+
+/**
+ * A memory-compact dictionary that assigns identifiers to RDF nodes.
+ * In contrast to {@link NodeDictionaryImpl} this dictionary neither keeps
+ * the Jena nodes nor strings for them. Instead, each node is encoded as a
+ * byte sequence in an append-only byte arena:
+ * <ul>
+ * <li>URIs are split into a namespace and a local name; the namespace is
+ *     replaced by a reference into a table of shared strings,</li>
+ * <li>language tags and datatype URIs of literals are references into the
+ *     same table of shared strings,</li>
+ * <li>local names, lexical forms, and blank node labels are stored as
+ *     UTF-8.</li>
+ * </ul>
+ * The reverse mapping (node to identifier) is a hash table of identifiers
+ * (open addressing) that compares the encoded bytes. Nodes are materialized
+ * on request by {@link #getNode}; recently requested nodes are kept in a
+ * small LRU cache.
+ *
+ * @author Olaf Hartig
+ */
+public class CompactNodeDictionary implements NodeDictionary
+{
+	// members
+
+	static final public int DEFAULT_CACHE_SIZE = 10000;
+
+	static final private byte URI = 0;
+	static final private byte BLANK = 1;
+	static final private byte PLAIN_LITERAL = 2;
+	static final private byte LANG_LITERAL = 3;
+	static final private byte TYPED_LITERAL = 4;
+
+	/** the arena consists of chunks of 4 MB; an address is (chunk, position) */
+	static final private int CHUNK_BITS = 22;
+	static final private int CHUNK_SIZE = 1 << CHUNK_BITS;
+	static final private int POS_MASK = CHUNK_SIZE - 1;
+
+	/** the table of shared strings (namespaces, language tags, datatypes) */
+	final protected ArrayList<String> sharedStrings = new ArrayList<String> ();
+	final protected Map<String,Integer> sharedString2Id = new HashMap<String,Integer> ();
+
+	/** the chunks of the byte arena */
+	private byte[][] chunks = new byte [16][];
+	private int chunkCount = 0;
+	/** the next free position in the current (last) chunk */
+	private int chunkPos = CHUNK_SIZE;
+
+	/** the arena address of the encoded node for each identifier */
+	private int[] addresses = new int [1024];
+	/** the number of identifiers */
+	private int size = 0;
+
+	/** the hash table of identifiers; -1 marks a free slot */
+	private int[] table;
+
+	/** buffer for the encoding of the node currently looked up */
+	private byte[] buffer = new byte [256];
+	private int bufferLength;
+
+	/** cache of materialized nodes (null if there is no cache) */
+	final protected Map<Integer,Node> cache;
+
+
+	// initialization
+
+	public CompactNodeDictionary ()
+	{
+		this( DEFAULT_CACHE_SIZE );
+	}
+
+	/**
+	 * @param cacheSize the number of materialized nodes kept in the LRU cache
+	 *                  (0 disables the cache)
+	 */
+	public CompactNodeDictionary ( final int cacheSize )
+	{
+		table = new int [2048];
+		java.util.Arrays.fill( table, -1 );
+
+		if ( cacheSize > 0 )
+		{
+			cache = new LinkedHashMap<Integer,Node> ( 16, 0.75f, true ) {
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected boolean removeEldestEntry ( Map.Entry<Integer,Node> eldest ) {
+					return size() > cacheSize;
+				}
+			};
+		}
+		else {
+			cache = null;
+		}
+	}
+
+
+	// implementation of the NodeDictionary interface
+
+	synchronized final public Node getNode ( int id )
+	{
+		if ( id < 0 || id >= size ) {
+			return null;
+		}
+
+		Node n;
+		if ( cache != null )
+		{
+			Integer key = Integer.valueOf( id );
+			n = cache.get( key );
+			if ( n == null )
+			{
+				n = decode( addresses[id] );
+				cache.put( key, n );
+			}
+		}
+		else {
+			n = decode( addresses[id] );
+		}
+
+		return n;
+	}
+
+	synchronized final public int getId ( Node n )
+	{
+		if ( ! encode(n,false) ) {
+			return -1;
+		}
+
+		return table[ findSlot(hashBuffer()) ];
+	}
+
+	synchronized final public int createId ( Node n )
+	{
+		if ( ! encode(n,true) ) {
+			throw new IllegalArgumentException( "Cannot create an identifier for " + n.toString() + "." );
+		}
+
+		int hash = hashBuffer();
+		int slot = findSlot( hash );
+		if ( table[slot] >= 0 ) {
+			return table[slot];
+		}
+
+		int id = size++;
+		if ( id == addresses.length )
+		{
+			int[] tmp = new int [id + (id >> 1)];
+			System.arraycopy( addresses, 0, tmp, 0, id );
+			addresses = tmp;
+		}
+		addresses[id] = append();
+		table[slot] = id;
+
+		if ( size > (table.length >> 1) + (table.length >> 2) ) {
+			rehash();
+		}
+
+		return id;
+	}
+
+
+	// accessors
+
+	/**
+	 * Returns the number of identifiers in this dictionary.
+	 */
+	synchronized public int size ()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns the number of bytes used by the encoded nodes.
+	 */
+	synchronized public long getArenaSize ()
+	{
+		return ( chunkCount == 0 ) ? 0 : (long) (chunkCount - 1) * CHUNK_SIZE + chunkPos;
+	}
+
+
+	// helpers
+
+	/**
+	 * Encodes the given node into {@link #buffer}.
+	 *
+	 * @param createSharedStrings if false, nodes that require a shared string
+	 *                            which is not in the table are not encoded
+	 * @return false if the node could not be encoded
+	 */
+	final protected boolean encode ( Node n, boolean createSharedStrings )
+	{
+		bufferLength = 0;
+		if ( n.isURI() )
+		{
+			String uri = n.getURI();
+			int split = Math.max( uri.lastIndexOf('#'), uri.lastIndexOf('/') ) + 1;
+			int ns = getSharedStringId( uri.substring(0,split), createSharedStrings );
+			if ( ns < 0 ) {
+				return false;
+			}
+
+			writeByte( URI );
+			writeVarInt( ns );
+			writeChars( uri, split );
+		}
+		else if ( n.isBlank() )
+		{
+			writeByte( BLANK );
+			writeChars( n.getBlankNodeId().getLabelString(), 0 );
+		}
+		else if ( n.isLiteral() )
+		{
+			String dt = n.getLiteralDatatypeURI();
+			String lang = n.getLiteralLanguage();
+			if ( dt != null )
+			{
+				int dtId = getSharedStringId( dt, createSharedStrings );
+				if ( dtId < 0 ) {
+					return false;
+				}
+
+				writeByte( TYPED_LITERAL );
+				writeVarInt( dtId );
+			}
+			else if ( lang != null && lang.length() > 0 )
+			{
+				int langId = getSharedStringId( lang, createSharedStrings );
+				if ( langId < 0 ) {
+					return false;
+				}
+
+				writeByte( LANG_LITERAL );
+				writeVarInt( langId );
+			}
+			else {
+				writeByte( PLAIN_LITERAL );
+			}
+
+			writeChars( n.getLiteralLexicalForm(), 0 );
+		}
+		else {
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Materializes the node encoded at the given arena address.
+	 */
+	final protected Node decode ( int address )
+	{
+		byte[] chunk = chunks[address >>> CHUNK_BITS];
+		int pos = address & POS_MASK;
+
+		// skip the length
+		int length = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = chunk[pos++];
+			length |= ( b & 0x7F ) << shift;
+			shift += 7;
+		} while ( b < 0 );
+
+		int end = pos + length;
+		byte kind = chunk[pos++];
+		int[] posHolder = new int[] { pos };
+		switch ( kind )
+		{
+		case URI:
+			String ns = sharedStrings.get( readVarInt(chunk,posHolder) );
+			return Node.createURI( ns + readChars(chunk,posHolder[0],end) );
+		case BLANK:
+			return Node.createAnon( new AnonId(readChars(chunk,pos,end)) );
+		case PLAIN_LITERAL:
+			return Node.createLiteral( readChars(chunk,pos,end) );
+		case LANG_LITERAL:
+			String lang = sharedStrings.get( readVarInt(chunk,posHolder) );
+			return Node.createLiteral( readChars(chunk,posHolder[0],end), lang, false );
+		case TYPED_LITERAL:
+			String dt = sharedStrings.get( readVarInt(chunk,posHolder) );
+			return Node.createLiteral( readChars(chunk,posHolder[0],end),
+			                           null,
+			                           TypeMapper.getInstance().getSafeTypeByName(dt) );
+		default:
+			throw new IllegalStateException( "Unknown kind of node (" + kind + ")." );
+		}
+	}
+
+	final protected int getSharedStringId ( String s, boolean create )
+	{
+		Integer i = sharedString2Id.get( s );
+		if ( i != null ) {
+			return i.intValue();
+		}
+
+		if ( ! create ) {
+			return -1;
+		}
+
+		int id = sharedStrings.size();
+		sharedStrings.add( s );
+		sharedString2Id.put( s, Integer.valueOf(id) );
+		return id;
+	}
+
+	/**
+	 * Appends the content of {@link #buffer} (prefixed by its length) to the
+	 * arena and returns the address.
+	 */
+	final private int append ()
+	{
+		int needed = bufferLength + 5;
+		if ( chunkPos + needed > CHUNK_SIZE || chunkCount == 0 )
+		{
+			if ( chunkCount == chunks.length )
+			{
+				byte[][] tmp = new byte [chunkCount << 1][];
+				System.arraycopy( chunks, 0, tmp, 0, chunkCount );
+				chunks = tmp;
+			}
+			if ( chunkCount == (1 << (32 - CHUNK_BITS)) ) {
+				throw new IllegalStateException( "The dictionary is full." );
+			}
+
+			// encoded nodes that are larger than a chunk get a chunk of their own
+			chunks[chunkCount++] = new byte [Math.max( CHUNK_SIZE, needed )];
+			chunkPos = 0;
+		}
+
+		byte[] chunk = chunks[chunkCount - 1];
+		int address = ( (chunkCount - 1) << CHUNK_BITS ) | chunkPos;
+
+		int len = bufferLength;
+		while ( len >= 0x80 )
+		{
+			chunk[chunkPos++] = (byte) ( (len & 0x7F) | 0x80 );
+			len >>>= 7;
+		}
+		chunk[chunkPos++] = (byte) len;
+
+		System.arraycopy( buffer, 0, chunk, chunkPos, bufferLength );
+		chunkPos += bufferLength;
+		if ( chunkPos > CHUNK_SIZE ) {
+			chunkPos = CHUNK_SIZE; // an oversized chunk is full
+		}
+
+		return address;
+	}
+
+	/**
+	 * Returns the slot of the hash table that holds the identifier of the node
+	 * encoded in {@link #buffer} or, if there is no such identifier, the free
+	 * slot where it has to be inserted.
+	 */
+	final private int findSlot ( int hash )
+	{
+		int mask = table.length - 1;
+		int slot = hash & mask;
+		while ( table[slot] >= 0 && ! bufferEquals(addresses[table[slot]]) ) {
+			slot = ( slot + 1 ) & mask;
+		}
+		return slot;
+	}
+
+	final private void rehash ()
+	{
+		int[] newTable = new int [table.length << 1];
+		java.util.Arrays.fill( newTable, -1 );
+		int mask = newTable.length - 1;
+		for ( int id = 0; id < size; ++id )
+		{
+			int slot = hashAddress( addresses[id] ) & mask;
+			while ( newTable[slot] >= 0 ) {
+				slot = ( slot + 1 ) & mask;
+			}
+			newTable[slot] = id;
+		}
+		table = newTable;
+	}
+
+	final private boolean bufferEquals ( int address )
+	{
+		byte[] chunk = chunks[address >>> CHUNK_BITS];
+		int pos = address & POS_MASK;
+
+		int length = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = chunk[pos++];
+			length |= ( b & 0x7F ) << shift;
+			shift += 7;
+		} while ( b < 0 );
+
+		if ( length != bufferLength ) {
+			return false;
+		}
+
+		for ( int i = 0; i < length; ++i )
+		{
+			if ( chunk[pos+i] != buffer[i] ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	final private int hashBuffer ()
+	{
+		return hash( buffer, 0, bufferLength );
+	}
+
+	final private int hashAddress ( int address )
+	{
+		byte[] chunk = chunks[address >>> CHUNK_BITS];
+		int pos = address & POS_MASK;
+
+		int length = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = chunk[pos++];
+			length |= ( b & 0x7F ) << shift;
+			shift += 7;
+		} while ( b < 0 );
+
+		return hash( chunk, pos, pos + length );
+	}
+
+	/** FNV-1a hash of the given bytes */
+	static private int hash ( byte[] bytes, int from, int to )
+	{
+		int h = 0x811C9DC5;
+		for ( int i = from; i < to; ++i ) {
+			h = ( h ^ (bytes[i] & 0xFF) ) * 0x01000193;
+		}
+		return h ^ ( h >>> 16 );
+	}
+
+	final private void ensureBuffer ( int additional )
+	{
+		if ( bufferLength + additional > buffer.length )
+		{
+			byte[] tmp = new byte [Math.max( buffer.length << 1, bufferLength + additional )];
+			System.arraycopy( buffer, 0, tmp, 0, bufferLength );
+			buffer = tmp;
+		}
+	}
+
+	final private void writeByte ( byte b )
+	{
+		ensureBuffer( 1 );
+		buffer[bufferLength++] = b;
+	}
+
+	final private void writeVarInt ( int i )
+	{
+		ensureBuffer( 5 );
+		while ( i >= 0x80 )
+		{
+			buffer[bufferLength++] = (byte) ( (i & 0x7F) | 0x80 );
+			i >>>= 7;
+		}
+		buffer[bufferLength++] = (byte) i;
+	}
+
+	/**
+	 * Writes the characters of the given string, starting at the given index,
+	 * as UTF-8 (surrogates are encoded separately).
+	 */
+	final private void writeChars ( String s, int from )
+	{
+		int length = s.length();
+		ensureBuffer( 3 * (length - from) );
+		for ( int i = from; i < length; ++i )
+		{
+			char c = s.charAt( i );
+			if ( c < 0x80 ) {
+				buffer[bufferLength++] = (byte) c;
+			}
+			else if ( c < 0x800 )
+			{
+				buffer[bufferLength++] = (byte) ( 0xC0 | (c >> 6) );
+				buffer[bufferLength++] = (byte) ( 0x80 | (c & 0x3F) );
+			}
+			else
+			{
+				buffer[bufferLength++] = (byte) ( 0xE0 | (c >> 12) );
+				buffer[bufferLength++] = (byte) ( 0x80 | ((c >> 6) & 0x3F) );
+				buffer[bufferLength++] = (byte) ( 0x80 | (c & 0x3F) );
+			}
+		}
+	}
+
+	static private int readVarInt ( byte[] chunk, int[] posHolder )
+	{
+		int pos = posHolder[0];
+		int result = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = chunk[pos++];
+			result |= ( b & 0x7F ) << shift;
+			shift += 7;
+		} while ( b < 0 );
+
+		posHolder[0] = pos;
+		return result;
+	}
+
+	static private String readChars ( byte[] chunk, int from, int to )
+	{
+		char[] chars = new char [to - from];
+		int length = 0;
+		int pos = from;
+		while ( pos < to )
+		{
+			int b = chunk[pos++] & 0xFF;
+			if ( b < 0x80 ) {
+				chars[length++] = (char) b;
+			}
+			else if ( b < 0xE0 ) {
+				chars[length++] = (char) ( ((b & 0x1F) << 6) | (chunk[pos++] & 0x3F) );
+			}
+			else
+			{
+				chars[length++] = (char) ( ((b & 0x0F) << 12) | ((chunk[pos] & 0x3F) << 6) | (chunk[pos+1] & 0x3F) );
+				pos += 2;
+			}
+		}
+		return new String( chars, 0, length );
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
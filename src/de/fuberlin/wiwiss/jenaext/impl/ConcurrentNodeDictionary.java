@@ -0,0 +1,201 @@
+package de.fuberlin.wiwiss.jenaext.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.hp.hpl.jena.graph.Node;
+
+import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+
+
+/**
+ * A dictionary that assigns identifiers to RDF nodes and that can be used
+ * by many threads concurrently.
+ * In contrast to {@link NodeDictionaryImpl} there is no global lock:
+ * <ul>
+ * <li>{@link #getNode} reads from an append-only array of chunks and never
+ *     blocks,</li>
+ * <li>{@link #getId} reads from concurrent hash maps and never blocks,</li>
+ * <li>{@link #createId} only locks one of several stripes (selected by the
+ *     hash of the node) when it has to create a new identifier.</li>
+ * </ul>
+ *
+ * @author Olaf Hartig
+ */
+public class ConcurrentNodeDictionary implements NodeDictionary
+{
+	// members
+
+	/** number of bits of an identifier that select the position in a chunk */
+	static final private int CHUNK_BITS = 16;
+	static final private int CHUNK_SIZE = 1 << CHUNK_BITS;
+	static final private int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	/** the maximum number of chunks (enough for 2^31 identifiers) */
+	static final private int MAX_CHUNKS = 1 << ( 31 - CHUNK_BITS );
+
+	static final private int STRIPES = 64;
+
+	/** the chunks of the identifier to node mapping; created on demand */
+	final protected AtomicReferenceArray<AtomicReferenceArray<Node>> dictId2Node = new AtomicReferenceArray<AtomicReferenceArray<Node>> ( MAX_CHUNKS );
+
+	final protected ConcurrentHashMap<String,Integer> dictURINode2Id;
+	final protected ConcurrentHashMap<String,Integer> dictBlankNode2Id;
+	final protected ConcurrentHashMap<String,Integer> dictLitNode2Id;
+
+	/** the next identifier to be assigned */
+	final protected AtomicInteger nextId = new AtomicInteger( 0 );
+
+	/** the locks that serialize the creation of identifiers for equal nodes */
+	final private Object[] stripes = new Object [STRIPES];
+
+
+	// initialization
+
+	public ConcurrentNodeDictionary ()
+	{
+		this( Runtime.getRuntime().availableProcessors() );
+	}
+
+	/**
+	 * @param concurrencyLevel the estimated number of concurrently updating
+	 *                         threads
+	 */
+	public ConcurrentNodeDictionary ( int concurrencyLevel )
+	{
+		dictURINode2Id = new ConcurrentHashMap<String,Integer> ( 1024, 0.75f, concurrencyLevel );
+		dictBlankNode2Id = new ConcurrentHashMap<String,Integer> ( 1024, 0.75f, concurrencyLevel );
+		dictLitNode2Id = new ConcurrentHashMap<String,Integer> ( 1024, 0.75f, concurrencyLevel );
+
+		for ( int i = 0; i < STRIPES; ++i ) {
+			stripes[i] = new Object ();
+		}
+	}
+
+
+	// implementation of the NodeDictionary interface
+
+	final public Node getNode ( int id )
+	{
+		if ( id < 0 || id >= nextId.get() ) {
+			return null;
+		}
+
+		AtomicReferenceArray<Node> chunk = dictId2Node.get( id >>> CHUNK_BITS );
+		return ( chunk == null ) ? null : chunk.get( id & CHUNK_MASK );
+	}
+
+	final public int getId ( Node n )
+	{
+		ConcurrentHashMap<String,Integer> map = getMap( n );
+		if ( map == null ) {
+			return -1;
+		}
+
+		Integer i = map.get( getKey(n) );
+		return ( i == null ) ? -1 : i.intValue();
+	}
+
+	final public int createId ( Node n )
+	{
+		ConcurrentHashMap<String,Integer> map = getMap( n );
+		String key = getKey( n );
+
+		Integer i = map.get( key );
+		if ( i != null ) {
+			return i.intValue();
+		}
+
+		synchronized ( stripes[(key.hashCode() & 0x7FFFFFFF) % STRIPES] )
+		{
+			i = map.get( key );
+			if ( i != null ) {
+				return i.intValue();
+			}
+
+			int id = nextId.getAndIncrement();
+			if ( id < 0 ) {
+				throw new IllegalStateException( "The dictionary is full." );
+			}
+
+			// publish the node before the identifier becomes visible
+			getOrCreateChunk( id >>> CHUNK_BITS ).set( id & CHUNK_MASK, n );
+			map.put( key, Integer.valueOf(id) );
+			return id;
+		}
+	}
+
+
+	// helpers
+
+	/**
+	 * Returns the map responsible for the given node (or null if the node is
+	 * neither a URI, nor a blank node, nor a literal).
+	 */
+	final protected ConcurrentHashMap<String,Integer> getMap ( Node n )
+	{
+		if ( n.isURI() ) {
+			return dictURINode2Id;
+		} else if ( n.isBlank() ) {
+			return dictBlankNode2Id;
+		} else if ( n.isLiteral() ) {
+			return dictLitNode2Id;
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the string that represents the given node in its map.
+	 */
+	static final protected String getKey ( Node n )
+	{
+		if ( n.isURI() ) {
+			return n.getURI();
+		} else if ( n.isBlank() ) {
+			return n.getBlankNodeId().getLabelString();
+		} else {
+			return n.getLiteral().toString( true );
+		}
+	}
+
+	final private AtomicReferenceArray<Node> getOrCreateChunk ( int chunkIdx )
+	{
+		AtomicReferenceArray<Node> chunk = dictId2Node.get( chunkIdx );
+		if ( chunk == null )
+		{
+			dictId2Node.compareAndSet( chunkIdx, null, new AtomicReferenceArray<Node>(CHUNK_SIZE) );
+			chunk = dictId2Node.get( chunkIdx );
+		}
+		return chunk;
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
@@ -1,9 +1,7 @@
 package de.fuberlin.wiwiss.jenaext.impl;
 
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
-import java.util.Set;
 
 import com.hp.hpl.jena.graph.BulkUpdateHandler;
 import com.hp.hpl.jena.graph.Node;
@@ -14,8 +12,10 @@ import com.hp.hpl.jena.graph.query.QueryHandler;
 import com.hp.hpl.jena.shared.ReificationStyle;
 import com.hp.hpl.jena.util.iterator.ExtendedIterator;
 
+import de.fuberlin.wiwiss.jenaext.BulkLoadableGraph;
 import de.fuberlin.wiwiss.jenaext.DecodingTriplesIterator;
 import de.fuberlin.wiwiss.jenaext.EmptyIterator;
+import de.fuberlin.wiwiss.jenaext.GraphStatistics;
 import de.fuberlin.wiwiss.jenaext.IdBasedGraph;
 import de.fuberlin.wiwiss.jenaext.IdBasedTriple;
 import de.fuberlin.wiwiss.jenaext.NodeDictionary;
@@ -30,7 +30,7 @@ import de.fuberlin.wiwiss.jenaext.NodeDictionary;
  * @author Olaf Hartig
  */
 public class IdBasedGraphMem extends GraphBase
-                             implements IdBasedGraph
+                             implements BulkLoadableGraph
 {
 	// members
 
@@ -41,18 +41,12 @@ public class IdBasedGraphMem extends GraphBase
 	final protected Index2 indexSO = new Index2 ();
 	final protected Index2 indexPO = new Index2 ();
 
+	/** the statistics, maintained by {@link #index} and {@link #delete} */
+	final protected StatisticsCatalog statistics = new StatisticsCatalog ();
+
 	/** the node dictionary */
 	final protected NodeDictionary nodeDict;
 
-	/**
-	 * A set that holds the identifiers of all nodes that occur in the triples
-	 * of this graph.
-	 * This set allows to answer triple pattern queries (i.e. find queries) that
-	 * contain unknown nodes (unknown to this graph) very fast because for this
-	 * graph cannot contain triples that match the pattern.
-	 */
-	final protected Set<Integer> containedIds = new HashSet<Integer> ();
-
 
 	// initialization
 
@@ -104,13 +98,15 @@ public class IdBasedGraphMem extends GraphBase
 	@Override
 	protected ExtendedIterator<Triple> graphBaseFind ( TripleMatch m )
 	{
-		return new DecodingTriplesIterator( findIdBased(m) );
+		// triples added via add(int,int,int) do not keep a Jena triple
+		return new DecodingTriplesIterator( findIdBased(m), nodeDict );
 	}
 
 	/**
 	 * Adds the given triple to this graph.
 	 * Uses the node dictionary to obtain or (if necessary) create identifiers
-	 * for the RDF nodes in the given triple.
+	 * for the RDF nodes in the given triple. Triples that are already
+	 * contained in this graph are not added again.
 	 * 
 	 * @see com.hp.hpl.jena.graph.impl.GraphBase#performAdd(com.hp.hpl.jena.graph.Triple)
 	 */
@@ -124,17 +120,11 @@ public class IdBasedGraphMem extends GraphBase
 		                                        nodeDict.createId(t.getSubject()),
 		                                        nodeDict.createId(t.getPredicate()),
 		                                        nodeDict.createId(t.getObject()) );
+		if ( contains(tIDb.s,tIDb.p,tIDb.o) ) {
+			return;
+		}
 
-		indexS.put( tIDb.s, tIDb );
-		indexP.put( tIDb.p, tIDb );
-		indexO.put( tIDb.o, tIDb );
-		indexSP.put( tIDb.s, tIDb.p, tIDb );
-		indexSO.put( tIDb.s, tIDb.o, tIDb );
-		indexPO.put( tIDb.p, tIDb.o, tIDb );
-
-		containedIds.add( tIDb.s );
-		containedIds.add( tIDb.p );
-		containedIds.add( tIDb.o );
+		index( tIDb );
 	}
 
 	/**
@@ -151,13 +141,7 @@ public class IdBasedGraphMem extends GraphBase
 
 		Iterator<IdBasedTriple> it = findIdBased( t );
 		if ( it.hasNext() ) {
-			IdBasedTriple tIDb = it.next();
-			indexS.remove( tIDb.s, tIDb );
-			indexP.remove( tIDb.p, tIDb );
-			indexO.remove( tIDb.o, tIDb );
-			indexSP.remove( tIDb.s, tIDb.p, tIDb );
-			indexSO.remove( tIDb.s, tIDb.o, tIDb );
-			indexPO.remove( tIDb.p, tIDb.o, tIDb );
+			delete( it.next() );
 		}
 	}
 
@@ -224,16 +208,9 @@ public class IdBasedGraphMem extends GraphBase
 	{
 		checkOpen();
 
-		if ( sId != -1 && ! containedIds.contains(sId) ) {
-			return EmptyIterator.emptyIdBasedTripleIterator;
-		}
-		if ( pId != -1 && ! containedIds.contains(pId) ) {
-			return EmptyIterator.emptyIdBasedTripleIterator;
-		}
-		if ( oId != -1 && ! containedIds.contains(oId) ) {
-			return EmptyIterator.emptyIdBasedTripleIterator;
-		}
-
+		// Since the indexes are exact, a pattern with a node that does not
+		// occur in this graph (at the requested position) is answered by a
+		// single lookup in the corresponding index.
 		if ( sId < 0 )          // PO, P, O, or none
 		{
 			if ( pId < 0 )       // O or none
@@ -241,15 +218,15 @@ public class IdBasedGraphMem extends GraphBase
 				if ( oId < 0 ) {  // none !
 					return indexS.getAll();
 				} else {            // O !
-					return new IteratorO( indexO, oId );
+					return indexO.get( oId );
 				}
 			}
 			else                   // PO or P
 			{
 				if ( oId < 0 ) {  // P !
-					return new IteratorP( indexP, pId );
+					return indexP.get( pId );
 				} else {            // PO !
-					return new IteratorPO( indexPO, pId, oId );
+					return indexPO.get( pId, oId );
 				}
 			}
 		}
@@ -258,15 +235,15 @@ public class IdBasedGraphMem extends GraphBase
 			if ( pId < 0 )       // SO or S
 			{
 				if ( oId < 0 ) {  // S !
-					return new IteratorS( indexS, sId );
+					return indexS.get( sId );
 				} else {            // SO !
-					return new IteratorSO( indexSO, sId, oId );
+					return indexSO.get( sId, oId );
 				}
 			}
 			else                   // SPO or SP
 			{
 				if ( oId < 0 ) {  // SP !
-					return new IteratorSP( indexSP, sId, pId );
+					return indexSP.get( sId, pId );
 				} else {                      // SPO !
 					return findOne( sId, pId, oId );
 				}
@@ -275,8 +252,87 @@ public class IdBasedGraphMem extends GraphBase
 	}
 
 
+	/**
+	 * Returns the size of the posting list for the bound components or, if
+	 * all three components are bound, the size of the posting list of the SP
+	 * index (an upper bound).
+	 *
+	 * @see de.fuberlin.wiwiss.jenaext.IdBasedGraph#getCardinality(int, int, int)
+	 */
+	public int getCardinality ( int sId, int pId, int oId )
+	{
+		if ( sId < 0 )
+		{
+			if ( pId < 0 ) {
+				return ( oId < 0 ) ? indexS.size() : indexO.count( oId );
+			} else {
+				return ( oId < 0 ) ? indexP.count( pId ) : indexPO.count( pId, oId );
+			}
+		}
+		else
+		{
+			if ( pId < 0 ) {
+				return ( oId < 0 ) ? indexS.count( sId ) : indexSO.count( sId, oId );
+			} else {
+				return indexSP.count( sId, pId );
+			}
+		}
+	}
+
+	/**
+	 * Returns the statistics that are maintained incrementally when triples
+	 * are added or deleted.
+	 *
+	 * @see de.fuberlin.wiwiss.jenaext.IdBasedGraph#getStatistics()
+	 */
+	public GraphStatistics getStatistics ()
+	{
+		return statistics;
+	}
+
+
+	// implementation of the BulkLoadableGraph interface
+
+	/**
+	 * The {@link IdBasedTriple} created for the added triple does not keep
+	 * a Jena triple.
+	 *
+	 * @see de.fuberlin.wiwiss.jenaext.BulkLoadableGraph#add(int, int, int)
+	 */
+	public boolean add ( int sId, int pId, int oId )
+	{
+		checkOpen();
+
+		if ( contains(sId,pId,oId) ) {
+			return false;
+		}
+
+		index( new IdBasedTriple(sId,pId,oId) );
+		return true;
+	}
+
+
 	// helpers
 
+	/**
+	 * Adds the given triple to all indexes and updates the statistics.
+	 */
+	final private void index ( IdBasedTriple tIDb )
+	{
+		indexS.put( tIDb.s, tIDb );
+		indexP.put( tIDb.p, tIDb );
+		indexO.put( tIDb.o, tIDb );
+		indexSP.put( tIDb.s, tIDb.p, tIDb );
+		indexSO.put( tIDb.s, tIDb.o, tIDb );
+		indexPO.put( tIDb.p, tIDb.o, tIDb );
+
+		statistics.added( tIDb.p,
+		                  indexS.count(tIDb.s) == 1,
+		                  indexO.count(tIDb.o) == 1,
+		                  indexSP.count(tIDb.s,tIDb.p) == 1,
+		                  indexPO.count(tIDb.p,tIDb.o) == 1 );
+	}
+
 	/**
 	 * Executes a triple pattern query and {@link IdBasedTriple}s that encode
 	 * matching triples.
@@ -311,12 +367,21 @@ public class IdBasedGraphMem extends GraphBase
 
 	void delete ( IdBasedTriple t )
 	{
-		indexS.remove( t.s, t );
+		if ( ! indexS.remove(t.s,t) ) {
+			return;
+		}
+
 		indexP.remove( t.p, t );
 		indexO.remove( t.o, t );
 		indexSP.remove( t.s, t.p, t );
 		indexSO.remove( t.s, t.o, t );
 		indexPO.remove( t.p, t.o, t );
+
+		statistics.deleted( t.p,
+		                    indexS.count(t.s) == 0,
+		                    indexO.count(t.o) == 0,
+		                    indexSP.count(t.s,t.p) == 0,
+		                    indexPO.count(t.p,t.o) == 0 );
 	}
 
 	/**
@@ -346,7 +411,8 @@ public class IdBasedGraphMem extends GraphBase
 	}
 
 	/**
-	 * Base class for all iterators over one of the indexes.
+	 * Base class for all iterators that filter the triples provided by one of
+	 * the indexes.
 	 */
 	static abstract class IteratorIndex1 implements Iterator<IdBasedTriple>
 	{
@@ -354,12 +420,6 @@ public class IdBasedGraphMem extends GraphBase
 		final protected int reqId;
 		private IdBasedTriple nextTriple;
 
-		public IteratorIndex1 ( Index<IdBasedTriple> index, int reqId )
-		{
-			this.base = index.get( reqId );
-			this.reqId = reqId;
-		}
-
 		protected IteratorIndex1 ( Iterator<IdBasedTriple> base, int reqId )
 		{
 			this.base = base;
@@ -411,60 +471,19 @@ public class IdBasedGraphMem extends GraphBase
 		abstract protected boolean matches ( IdBasedTriple t );
 	}
 
-	static class IteratorS extends IteratorIndex1
-	{
-		public IteratorS ( Index<IdBasedTriple> index, int reqId ) { super(index,reqId); }
-		final protected boolean matches ( IdBasedTriple t ) { return t.s == reqId; }
-	}
-
-	static class IteratorP extends IteratorIndex1
-	{
-		public IteratorP ( Index<IdBasedTriple> index, int reqId ) { super(index,reqId); }
-		final protected boolean matches ( IdBasedTriple t ) { return t.p == reqId; }
-	}
-
-	static class IteratorO extends IteratorIndex1
-	{
-		public IteratorO ( Index<IdBasedTriple> index, int reqId ) { super(index,reqId); }
-		final protected boolean matches ( IdBasedTriple t ) { return t.o == reqId; }
-	}
-
-	static abstract class IteratorIndex2 extends IteratorIndex1
+	/**
+	 * Provides the triples with the requested subject and predicate (as given
+	 * by the SP index) that also have the requested object.
+	 */
+	static class IteratorSPO extends IteratorIndex1
 	{
 		final protected int reqId2;
-
-		protected IteratorIndex2 ( Index2 index, int reqId1, int reqId2 )
-		{
-			super( index.get(reqId1,reqId2), reqId1 );
-			this.reqId2 = reqId2;
-		}
-	}
-
-	static class IteratorSP extends IteratorIndex2
-	{
-		public IteratorSP ( Index2 index, int reqId1, int reqId2 ) { super(index,reqId1,reqId2); }
-		final protected boolean matches ( IdBasedTriple t ) { return (t.s == reqId) && (t.p == reqId2); }
-	}
-
-	static class IteratorSO extends IteratorIndex2
-	{
-		public IteratorSO ( Index2 index, int reqId1, int reqId2 ) { super(index,reqId1,reqId2); }
-		final protected boolean matches ( IdBasedTriple t ) { return (t.s == reqId) && (t.o == reqId2); }
-	}
-
-	static class IteratorPO extends IteratorIndex2
-	{
-		public IteratorPO ( Index2 index, int reqId1, int reqId2 ) { super(index,reqId1,reqId2); }
-		final protected boolean matches ( IdBasedTriple t ) { return (t.p == reqId) && (t.o == reqId2); }
-	}
-
-	static class IteratorSPO extends IteratorIndex2
-	{
 		final protected int reqId3;
 
 		public IteratorSPO ( Index2 index, int sId, int pId, int oId )
 		{
-			super( index, sId, pId );
+			super( index.get(sId,pId), sId );
+			this.reqId2 = pId;
 			this.reqId3 = oId;
 		}
 
@@ -474,7 +493,7 @@ public class IdBasedGraphMem extends GraphBase
 		@Override
 		final protected boolean matches ( IdBasedTriple t )
 		{
-			return (t.o == reqId3) && (t.s == reqId) && (t.p == reqId2);
+			return t.o == reqId3;
 		}
 	}
 
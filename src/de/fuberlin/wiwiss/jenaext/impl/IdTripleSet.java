@@ -0,0 +1,167 @@
+package de.fuberlin.wiwiss.jenaext.impl;
+
+
+/**
+ * A set of identifier-based triples, each of which is represented by the
+ * identifiers of its subject, predicate and object only. The set is a hash
+ * table with open addressing (linear probing) in a single int array that
+ * stores the three identifiers of each triple next to each other; hence,
+ * adding a triple does not allocate an object (except when the table grows).
+ *
+ * @author Olaf Hartig
+ */
+public class IdTripleSet
+{
+	// members
+
+	static final private int DEFAULT_INITIAL_CAPACITY = 64;
+
+	/**
+	 * the hash table; slot i consists of positions 3i to 3i+2, which contain
+	 * the subject, predicate and object identifier plus 1 (0 marks an empty
+	 * slot)
+	 */
+	private int[] table;
+
+	private int size = 0;
+
+
+	// initialization
+
+	public IdTripleSet ()
+	{
+		table = new int [3*DEFAULT_INITIAL_CAPACITY];
+	}
+
+
+	// accessors
+
+	/**
+	 * Returns the number of triples in this set.
+	 */
+	public int size ()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns true if this set contains the given triple.
+	 */
+	public boolean contains ( int sId, int pId, int oId )
+	{
+		return table[ findSlot(table, sId+1, pId+1, oId+1) ] != 0;
+	}
+
+
+	// operations
+
+	/**
+	 * Adds the given triple to this set.
+	 *
+	 * @return false if the set already contained the triple
+	 */
+	public boolean add ( int sId, int pId, int oId )
+	{
+		int pos = findSlot( table, sId+1, pId+1, oId+1 );
+		if ( table[pos] != 0 ) {
+			return false;
+		}
+
+		table[pos] = sId + 1;
+		table[pos+1] = pId + 1;
+		table[pos+2] = oId + 1;
+		size++;
+
+		// keep the load factor below 1/2
+		if ( 2*size > table.length/3 ) {
+			grow();
+		}
+		return true;
+	}
+
+	/**
+	 * Removes all triples from this set.
+	 */
+	public void clear ()
+	{
+		table = new int [3*DEFAULT_INITIAL_CAPACITY];
+		size = 0;
+	}
+
+
+	// helpers
+
+	/**
+	 * Returns the position of the slot that contains the given triple (whose
+	 * identifiers are already incremented by 1) or, if there is no such slot,
+	 * the position of the empty slot where the triple would be inserted.
+	 */
+	static private int findSlot ( int[] table, int s, int p, int o )
+	{
+		int mask = table.length/3 - 1;
+		int slot = hash( s, p, o ) & mask;
+		while ( true )
+		{
+			int pos = 3*slot;
+			if ( table[pos] == 0 ) {
+				return pos;
+			}
+			if ( table[pos] == s && table[pos+1] == p && table[pos+2] == o ) {
+				return pos;
+			}
+			slot = ( slot + 1 ) & mask;
+		}
+	}
+
+	private void grow ()
+	{
+		int[] old = table;
+		table = new int [2*old.length];
+		for ( int pos = 0; pos < old.length; pos += 3 )
+		{
+			if ( old[pos] != 0 )
+			{
+				int newPos = findSlot( table, old[pos], old[pos+1], old[pos+2] );
+				table[newPos] = old[pos];
+				table[newPos+1] = old[pos+1];
+				table[newPos+2] = old[pos+2];
+			}
+		}
+	}
+
+	static private int hash ( int s, int p, int o )
+	{
+		int h = s * 0x9E3779B1;
+		h = ( h ^ (h >>> 15) ) + p * 0x85EBCA77;
+		h = ( h ^ (h >>> 13) ) + o * 0xC2B2AE3D;
+		return h ^ ( h >>> 16 );
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
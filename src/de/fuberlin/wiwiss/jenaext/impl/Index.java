@@ -1,8 +1,6 @@
 package de.fuberlin.wiwiss.jenaext.impl;
 
-import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.List;
 import java.util.NoSuchElementException;
 
 import de.fuberlin.wiwiss.jenaext.EmptyIterator;
@@ -15,31 +13,67 @@ import de.fuberlin.wiwiss.jenaext.EmptyIterator;
  * node identifiers. This class can be used to create S, P, and O indexes
  * of triples.
  *
+ * The index is a hash table with open addressing (linear probing) on the
+ * keys. Each key has its own list of entries (posting list). Hence, a lookup
+ * for a key provides exactly the objects indexed with this key and costs
+ * about the number of these objects. The table grows with the number of
+ * distinct keys.
+ *
  * @author Olaf Hartig
  */
 public class Index<T>
 {
 	// members
 
-	/** Bitmask that selects the bits of identifiers used for hash keys. */
-	static final private int DEFAULT_KEYMASKSIZE = 4;
-	final private int indexKeyMask;
+	static final private int DEFAULT_INITIAL_CAPACITY = 16;
+
+	/** the initial capacity of the posting list of a new key */
+	static final private int INITIAL_POSTINGS_CAPACITY = 2;
+
+	/**
+	 * The keys of the hash table. Keys are stored as long values so that
+	 * subclasses can index objects by composite keys (see {@link Index2}).
+	 */
+	private long[] keys;
+
+	/**
+	 * The posting lists of the hash table (one for each key in {@link #keys}).
+	 * A slot of the hash table is free iff its posting list is null.
+	 */
+	private Object[][] postings;
+
+	/** the number of entries in each of the posting lists */
+	private int[] postingsSizes;
 
-	/** the hash table */
-	final private List<T> [] index;
+	/** the number of keys currently in the hash table */
+	private int keyCount = 0;
+
+	/** the number of entries in this index */
+	private int size = 0;
+
+	/** the number of keys at which the hash table has to grow */
+	private int threshold;
 
 
 	// initialization
 
 	public Index ()
 	{
-		this( DEFAULT_KEYMASKSIZE );
+		this( DEFAULT_INITIAL_CAPACITY );
 	}
 
-	public Index ( int keyMaskSize )
+	/**
+	 * @param initialCapacity the number of slots initially reserved for keys
+	 *                        (rounded up to the next power of two)
+	 */
+	public Index ( int initialCapacity )
 	{
-		indexKeyMask = ( 1 << keyMaskSize ) - 1;
-		index = new List [indexKeyMask+1];
+		int capacity = DEFAULT_INITIAL_CAPACITY;
+		while ( capacity < initialCapacity ) {
+			capacity <<= 1;
+		}
+
+		allocate( capacity );
 	}
 
 
@@ -50,26 +84,20 @@ public class Index<T>
 	 */
 	public void put ( int key, T t )
 	{
-		int indexKey = getIndexKey( key );
-		if ( index[indexKey] == null ) {
-			index[indexKey] = new ArrayList<T> ();
-		}
-
-		index[indexKey].add( t );
+		putKey( key, t );
 	}
 
 	/**
 	 * Removes the given object with the given key.
+	 * This method only searches the posting list of the given key. It replaces
+	 * the removed object by the last entry of that list. Hence, the order of
+	 * the objects indexed with the same key may change.
 	 *
 	 * @return true if this index contained the given object
 	 */
 	public boolean remove ( int key, T t )
 	{
-		int indexKey = getIndexKey( key );
-		if ( index[indexKey] != null ) {
-			return index[indexKey].remove( t );
-		}
-		return false;
+		return removeKey( key, t );
 	}
 
 	/**
@@ -77,23 +105,25 @@ public class Index<T>
 	 */
 	public void clear ()
 	{
-		for ( int i = index.length - 1; i >= 0; --i ) {
-			if ( index[i] != null ) {
-				index[i].clear();
-			}
-
-			index[i] = null;
-		}
+		allocate( DEFAULT_INITIAL_CAPACITY );
+		keyCount = 0;
+		size = 0;
 	}
 
 	/**
-	 * Returns all objects indexed with a key from the class of the given key.
-	 * Attention: the given iterator may provide more object as requested.
+	 * Returns all objects indexed with the given key.
 	 */
 	public Iterator<T> get ( int key )
 	{
-		int indexKey = getIndexKey( key );
-		return ( index[indexKey] == null ) ? new EmptyIterator<T>() : index[indexKey].iterator();
+		return getKey( key );
+	}
+
+	/**
+	 * Returns the number of objects indexed with the given key.
+	 */
+	public int count ( int key )
+	{
+		return countKey( key );
 	}
 
 	/**
@@ -109,77 +139,261 @@ public class Index<T>
 	 */
 	public int size ()
 	{
-		int result = 0;
-		int buckets = index.length;
-		for ( int i = 0; i< buckets; ++i )
+		return size;
+	}
+
+
+	// helpers
+
+	/**
+	 * Indexes the given object using the given (possibly composite) key.
+	 */
+	final protected void putKey ( long key, T t )
+	{
+		int slot = findSlot( key );
+		if ( postings[slot] == null )
 		{
-			if ( index[i] != null ) {
-				result += index[i].size();
+			if ( keyCount >= threshold )
+			{
+				rehash( keys.length << 1 );
+				slot = findSlot( key );
 			}
+
+			keys[slot] = key;
+			postings[slot] = new Object [INITIAL_POSTINGS_CAPACITY];
+			postingsSizes[slot] = 0;
+			keyCount++;
 		}
-		return result;
+
+		Object[] entries = postings[slot];
+		int entriesSize = postingsSizes[slot];
+		if ( entriesSize == entries.length )
+		{
+			Object[] tmp = new Object [entriesSize << 1];
+			System.arraycopy( entries, 0, tmp, 0, entriesSize );
+			entries = tmp;
+			postings[slot] = entries;
+		}
+
+		entries[entriesSize] = t;
+		postingsSizes[slot] = entriesSize + 1;
+		size++;
 	}
 
+	/**
+	 * Removes the given object with the given (possibly composite) key.
+	 *
+	 * @return true if this index contained the given object
+	 */
+	final protected boolean removeKey ( long key, T t )
+	{
+		int slot = findSlot( key );
+		if ( postings[slot] == null ) {
+			return false;
+		}
 
-	// helpers
+		Object[] entries = postings[slot];
+		int last = postingsSizes[slot] - 1;
+		for ( int i = last; i >= 0; --i )
+		{
+			if ( t.equals(entries[i]) )
+			{
+				entries[i] = entries[last];
+				entries[last] = null;
+				postingsSizes[slot] = last;
+				size--;
+
+				if ( last == 0 ) {
+					removeSlot( slot );
+				}
+				return true;
+			}
+		}
+
+		return false;
+	}
 
 	/**
-	 * Calculates the hash key from the given key.
+	 * Returns all objects indexed with the given (possibly composite) key.
 	 */
-	final protected int getIndexKey ( int key )
+	final protected Iterator<T> getKey ( long key )
 	{
-		return key & indexKeyMask;
+		int slot = findSlot( key );
+		if ( postings[slot] == null ) {
+			return new EmptyIterator<T>();
+		}
+
+		return new PostingsIterator( postings[slot], postingsSizes[slot] );
 	}
 
+	/**
+	 * Returns the number of objects indexed with the given (possibly
+	 * composite) key.
+	 */
+	final protected int countKey ( long key )
+	{
+		return postingsSizes[ findSlot(key) ];
+	}
 
 	/**
-	 * This iterator provides all objects in this index.
+	 * Calculates the home slot of the given key in a hash table with the
+	 * given bit mask.
 	 */
-	protected class AllEntriesIterator implements Iterator<T>
+	static final protected int hash ( long key, int mask )
 	{
-		private int curBucketIdx = -1;
-		private Iterator<T> itCurEntry = null;
-		private T curEntry = null;
+		long h = key * 0x9E3779B97F4A7C15L;
+		int i = (int) ( h ^ (h >>> 32) );
+		return ( i ^ (i >>> 16) ) & mask;
+	}
 
-		public boolean hasNext ()
+	/**
+	 * Returns the slot that holds the given key or, if the key is not in the
+	 * hash table, the free slot where the key would have to be inserted.
+	 */
+	final private int findSlot ( long key )
+	{
+		int mask = keys.length - 1;
+		int slot = hash( key, mask );
+		while ( postings[slot] != null && keys[slot] != key ) {
+			slot = ( slot + 1 ) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Frees the given slot and moves subsequent keys of the same probe
+	 * sequence back so that no tombstones are required.
+	 */
+	final private void removeSlot ( int slot )
+	{
+		int mask = keys.length - 1;
+		int free = slot;
+		int cur = slot;
+		while ( true )
 		{
-			if ( curEntry != null ) {
-				return true;
+			cur = ( cur + 1 ) & mask;
+			if ( postings[cur] == null ) {
+				break;
 			}
 
-			if ( itCurEntry == null || ! itCurEntry.hasNext() )
+			int home = hash( keys[cur], mask );
+			boolean stays = ( free <= cur ) ? ( free < home && home <= cur )
+			                                : ( free < home || home <= cur );
+			if ( ! stays )
 			{
-				if ( curBucketIdx == indexKeyMask ) {
-					return false;
-				}
+				keys[free] = keys[cur];
+				postings[free] = postings[cur];
+				postingsSizes[free] = postingsSizes[cur];
+				free = cur;
+			}
+		}
+
+		postings[free] = null;
+		postingsSizes[free] = 0;
+		keyCount--;
+	}
+
+	final private void allocate ( int capacity )
+	{
+		keys = new long [capacity];
+		postings = new Object [capacity][];
+		postingsSizes = new int [capacity];
+		threshold = ( capacity >> 1 ) + ( capacity >> 2 ); // load factor 0.75
+	}
+
+	final private void rehash ( int newCapacity )
+	{
+		long[] oldKeys = keys;
+		Object[][] oldPostings = postings;
+		int[] oldPostingsSizes = postingsSizes;
+
+		allocate( newCapacity );
+		for ( int i = oldKeys.length - 1; i >= 0; --i )
+		{
+			if ( oldPostings[i] != null )
+			{
+				int slot = findSlot( oldKeys[i] );
+				keys[slot] = oldKeys[i];
+				postings[slot] = oldPostings[i];
+				postingsSizes[slot] = oldPostingsSizes[i];
+			}
+		}
+	}
+
+
+	/**
+	 * This iterator provides the objects in a posting list.
+	 */
+	protected class PostingsIterator implements Iterator<T>
+	{
+		final private Object[] entries;
+		final private int entriesSize;
+		private int curIdx = 0;
+
+		public PostingsIterator ( Object[] entries, int entriesSize )
+		{
+			this.entries = entries;
+			this.entriesSize = entriesSize;
+		}
+
+		public boolean hasNext ()
+		{
+			return curIdx < entriesSize;
+		}
+
+		@SuppressWarnings("unchecked")
+		public T next ()
+		{
+			if ( ! hasNext() ) {
+				throw new NoSuchElementException();
+			}
 
+			return (T) entries[curIdx++];
+		}
+
+		public void remove () { throw new UnsupportedOperationException(); }
+	}
+
+	/**
+	 * This iterator provides all objects in this index.
+	 */
+	protected class AllEntriesIterator implements Iterator<T>
+	{
+		final private Object[][] slots = postings;
+		final private int[] slotsSizes = postingsSizes;
+		private int curSlot = -1;
+		private Object[] curEntries = null;
+		private int curEntriesSize = 0;
+		private int curIdx = 0;
+
+		public boolean hasNext ()
+		{
+			while ( curIdx >= curEntriesSize )
+			{
 				do {
-					curBucketIdx++;
-				} while ( curBucketIdx <= indexKeyMask && index[curBucketIdx] == null );
+					curSlot++;
+				} while ( curSlot < slots.length && slots[curSlot] == null );
 
-				if ( curBucketIdx > indexKeyMask ) {
+				if ( curSlot >= slots.length ) {
 					return false;
 				}
 
-				itCurEntry = index[curBucketIdx].iterator();
-			}
-
-			if ( itCurEntry.hasNext() ) {
-				curEntry = itCurEntry.next();
+				curEntries = slots[curSlot];
+				curEntriesSize = slotsSizes[curSlot];
+				curIdx = 0;
 			}
 
-			return ( curEntry != null );
+			return true;
 		}
 
+		@SuppressWarnings("unchecked")
 		public T next ()
 		{
 			if ( ! hasNext() ) {
 				throw new NoSuchElementException();
 			}
 
-			T t = curEntry;
-			curEntry = null;
-			return t;
+			return (T) curEntries[curIdx++];
 		}
 
 		public void remove () { throw new UnsupportedOperationException(); }
@@ -9,6 +9,8 @@ import de.fuberlin.wiwiss.jenaext.IdBasedTriple;
  * Indexes ID-based triples ({@link IdBasedTriple} objects) by two node
  * identifiers.
  * This class can be used to create SP, PO, and SO indexes of triples.
+ * The two identifiers are packed into a single 64 bit key. Hence, in
+ * contrast to a hash of the two identifiers, lookups are exact.
  *
  * @author Olaf Hartig
  */
@@ -21,7 +23,7 @@ public class Index2 extends Index<IdBasedTriple>
 	 */
 	public void put ( int key1, int key2, IdBasedTriple t )
 	{
-		put( key1*key2, t );
+		putKey( getCompositeKey(key1,key2), t );
 	}
 
 	/**
@@ -31,17 +33,34 @@ public class Index2 extends Index<IdBasedTriple>
 	 */
 	public boolean remove ( int key1, int key2, IdBasedTriple t )
 	{
-		return remove( key1*key2, t );
+		return removeKey( getCompositeKey(key1,key2), t );
 	}
 
 	/**
-	 * Returns all triples indexed with keys from the class of the two given
-	 * keys.
-	 * Attention: the given iterator may provide more triples as requested.
+	 * Returns all triples indexed with the two given keys.
 	 */
 	public Iterator<IdBasedTriple> get ( int key1, int key2 )
 	{
-		return get( key1*key2 );
+		return getKey( getCompositeKey(key1,key2) );
+	}
+
+	/**
+	 * Returns the number of triples indexed with the two given keys.
+	 */
+	public int count ( int key1, int key2 )
+	{
+		return countKey( getCompositeKey(key1,key2) );
+	}
+
+
+	// helpers
+
+	/**
+	 * Packs the two given keys into a single composite key.
+	 */
+	static final protected long getCompositeKey ( int key1, int key2 )
+	{
+		return ( ((long) key1) << 32 ) | ( key2 & 0xFFFFFFFFL );
 	}
 }
 
@@ -0,0 +1,443 @@
+package de.fuberlin.wiwiss.jenaext.impl;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.graph.TripleMatch;
+import com.hp.hpl.jena.graph.impl.GraphBase;
+import com.hp.hpl.jena.graph.query.QueryHandler;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+
+import de.fuberlin.wiwiss.jenaext.DecodingTriplesIterator;
+import de.fuberlin.wiwiss.jenaext.EmptyIterator;
+import de.fuberlin.wiwiss.jenaext.GraphStatistics;
+import de.fuberlin.wiwiss.jenaext.IdBasedGraph;
+import de.fuberlin.wiwiss.jenaext.IdBasedTriple;
+import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+
+
+/**
+ * A read-only RDF graph that is read from a (memory-mapped) file. The file
+ * section that contains the graph is written by {@link #write}.
+ * Pages of the file are loaded by the operating system when they are
+ * accessed; hence, opening such a graph is cheap.
+ *
+ * The triples are stored as identifiers, sorted in SPO order. Two additional
+ * permutations of the row numbers provide the POS and the OSP order. Every
+ * triple pattern is answered by a binary search for the range of rows in one
+ * of these three orders.
+ *
+ * The layout of the file section is:
+ * <pre>
+ * int       number of triples (n)
+ * int[3n]   subject, predicate, and object identifier of each triple (SPO order)
+ * int[n]    rows in POS order
+ * int[n]    rows in OSP order
+ * </pre>
+ *
+ * This graph does not support adding or deleting triples.
+ *
+ * @author Olaf Hartig
+ */
+public class MappedIdBasedGraph extends GraphBase
+                                implements IdBasedGraph
+{
+	// members
+
+	static final private int[] SPO = new int[] { 0, 1, 2 };
+	static final private int[] POS = new int[] { 1, 2, 0 };
+	static final private int[] OSP = new int[] { 2, 0, 1 };
+
+	/** the node dictionary */
+	final protected NodeDictionary nodeDict;
+
+	/** the mapped file section */
+	final protected ByteBuffer buffer;
+
+	/** the number of triples */
+	final protected int tripleCount;
+
+	final private int posBase;
+	final private int ospBase;
+
+	/** the statistics; created on demand */
+	private StatisticsCatalog statistics = null;
+
+
+	// initialization
+
+	/**
+	 * Maps the graph section that starts at the given position of the given
+	 * file.
+	 * The file may be closed after the graph has been created.
+	 *
+	 * @param nodeDict the node dictionary that provides the nodes for the
+	 *                 identifiers in the file
+	 */
+	public MappedIdBasedGraph ( NodeDictionary nodeDict, FileChannel channel, long position ) throws IOException
+	{
+		super();
+
+		assert nodeDict != null;
+		this.nodeDict = nodeDict;
+
+		ByteBuffer header = channel.map( FileChannel.MapMode.READ_ONLY, position, 4 );
+		tripleCount = header.getInt( 0 );
+		buffer = channel.map( FileChannel.MapMode.READ_ONLY, position, getSectionSize(tripleCount) );
+
+		posBase = 4 + 12 * tripleCount;
+		ospBase = posBase + 4 * tripleCount;
+	}
+
+
+	// implementation of the GraphBase abstract methods
+
+	/* (non-Javadoc)
+	 * @see com.hp.hpl.jena.graph.impl.GraphBase#graphBaseFind(com.hp.hpl.jena.graph.TripleMatch)
+	 */
+	@Override
+	protected ExtendedIterator<Triple> graphBaseFind ( TripleMatch m )
+	{
+		Node matchSubject = m.getMatchSubject();
+		Node matchPredicate = m.getMatchPredicate();
+		Node matchObject = m.getMatchObject();
+
+		int sId = ( matchSubject == null ) ? -1 : nodeDict.getId( matchSubject );
+		int pId = ( matchPredicate == null ) ? -1 : nodeDict.getId( matchPredicate );
+		int oId = ( matchObject == null ) ? -1 : nodeDict.getId( matchObject );
+
+		if (    ( matchSubject != null && sId < 0 )
+		     || ( matchPredicate != null && pId < 0 )
+		     || ( matchObject != null && oId < 0 ) ) {
+			return new DecodingTriplesIterator( EmptyIterator.emptyIdBasedTripleIterator );
+		}
+
+		return new DecodingTriplesIterator( find(sId,pId,oId), nodeDict );
+	}
+
+	/**
+	 * Returns a query handler (see {@link IdBasedQueryHandler}).
+	 *
+	 * @see com.hp.hpl.jena.graph.impl.GraphBase#queryHandler()
+	 */
+	@Override
+	public QueryHandler queryHandler ()
+	{
+		if ( queryHandler == null ) {
+			queryHandler = new IdBasedQueryHandler( this );
+		}
+		return queryHandler;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.hp.hpl.jena.graph.impl.GraphBase#graphBaseSize()
+	 */
+	@Override
+	protected int graphBaseSize ()
+	{
+		return tripleCount;
+	}
+
+
+	// implementation of the IdBasedGraph interface
+
+	/* (non-Javadoc)
+	 * @see de.fuberlin.wiwiss.jenaext.IdBasedGraph#getNodeDictionary()
+	 */
+	public NodeDictionary getNodeDictionary ()
+	{
+		return nodeDict;
+	}
+
+	/* (non-Javadoc)
+	 * @see de.fuberlin.wiwiss.jenaext.IdBasedGraph#contains(int, int, int)
+	 */
+	public boolean contains ( int sId, int pId, int oId )
+	{
+		return find( sId, pId, oId ).hasNext();
+	}
+
+	/**
+	 * Creates an {@link IdBasedTriple} (without a Jena triple) for every
+	 * matching row.
+	 *
+	 * @see de.fuberlin.wiwiss.jenaext.IdBasedGraph#find(int, int, int)
+	 */
+	public Iterator<IdBasedTriple> find ( int sId, int pId, int oId )
+	{
+		checkOpen();
+
+		int[] range = findRange( sId, pId, oId );
+		return new RangeIterator( range[0], range[1], range[2] );
+	}
+
+	/**
+	 * Returns the exact number of matching triples; the range of matching
+	 * rows is determined by binary search.
+	 *
+	 * @see de.fuberlin.wiwiss.jenaext.IdBasedGraph#getCardinality(int, int, int)
+	 */
+	public int getCardinality ( int sId, int pId, int oId )
+	{
+		int[] range = findRange( sId, pId, oId );
+		return range[2] - range[1];
+	}
+
+
+	/**
+	 * Returns statistics that are created by a scan over all triples when
+	 * they are requested for the first time.
+	 *
+	 * @see de.fuberlin.wiwiss.jenaext.IdBasedGraph#getStatistics()
+	 */
+	public synchronized GraphStatistics getStatistics ()
+	{
+		if ( statistics == null ) {
+			statistics = StatisticsCatalog.create( this );
+		}
+		return statistics;
+	}
+
+
+	// operations
+
+	/**
+	 * Writes a graph section for the given triples to the given output.
+	 * The given arrays are reordered; duplicate triples are written only once.
+	 *
+	 * @param subjects the subject identifiers of the triples
+	 * @param predicates the predicate identifiers of the triples
+	 * @param objects the object identifiers of the triples
+	 * @param count the number of triples in the arrays
+	 * @return the number of bytes written
+	 */
+	static public long write ( DataOutput out, int[] subjects, int[] predicates, int[] objects, int count ) throws IOException
+	{
+		int[][] columns = new int[][] { subjects, predicates, objects };
+
+		// sort the triples in SPO order and remove duplicates
+		int[] rows = sortedRows( columns, SPO, count );
+		int[][] sorted = new int [3][count];
+		int n = 0;
+		for ( int i = 0; i < count; ++i )
+		{
+			int r = rows[i];
+			if (    n > 0
+			     && sorted[0][n-1] == subjects[r]
+			     && sorted[1][n-1] == predicates[r]
+			     && sorted[2][n-1] == objects[r] ) {
+				continue;
+			}
+			sorted[0][n] = subjects[r];
+			sorted[1][n] = predicates[r];
+			sorted[2][n] = objects[r];
+			n++;
+		}
+
+		out.writeInt( n );
+		for ( int i = 0; i < n; ++i )
+		{
+			out.writeInt( sorted[0][i] );
+			out.writeInt( sorted[1][i] );
+			out.writeInt( sorted[2][i] );
+		}
+
+		rows = sortedRows( sorted, POS, n );
+		for ( int i = 0; i < n; ++i ) {
+			out.writeInt( rows[i] );
+		}
+
+		rows = sortedRows( sorted, OSP, n );
+		for ( int i = 0; i < n; ++i ) {
+			out.writeInt( rows[i] );
+		}
+
+		return getSectionSize( n );
+	}
+
+
+	// helpers
+
+	/**
+	 * Returns the range of positions of the matching triples in one of the
+	 * three orders as an array (base of the permutation or -1 for the SPO
+	 * order, first position, position after the last one).
+	 */
+	final private int[] findRange ( int sId, int pId, int oId )
+	{
+		// Select the order in which the bound components form a prefix.
+		int[] order;
+		int base;
+		if ( sId >= 0 && (pId >= 0 || oId < 0) ) {
+			order = SPO; base = -1;
+		} else if ( sId >= 0 ) {
+			order = OSP; base = ospBase;
+		} else if ( pId >= 0 ) {
+			order = POS; base = posBase;
+		} else if ( oId >= 0 ) {
+			order = OSP; base = ospBase;
+		} else {
+			return new int[] { -1, 0, tripleCount };
+		}
+
+		int[] ids = new int[] { sId, pId, oId };
+		int[] key = new int [3];
+		int keyLength = 0;
+		while ( keyLength < 3 && ids[order[keyLength]] >= 0 ) {
+			key[keyLength] = ids[order[keyLength]];
+			keyLength++;
+		}
+
+		return new int[] { base,
+		                   search( base, order, key, keyLength, false ),
+		                   search( base, order, key, keyLength, true ) };
+	}
+
+	static private long getSectionSize ( int tripleCount )
+	{
+		return 4L + 20L * tripleCount;
+	}
+
+	final private int getRow ( int base, int i )
+	{
+		return ( base < 0 ) ? i : buffer.getInt( base + 4 * i );
+	}
+
+	final private int getId ( int row, int component )
+	{
+		return buffer.getInt( 4 + 12 * row + 4 * component );
+	}
+
+	/**
+	 * Returns the first position (in the given order) whose row is not less
+	 * than (or, if <code>upper</code> is true, greater than) the given key.
+	 */
+	final private int search ( int base, int[] order, int[] key, int keyLength, boolean upper )
+	{
+		int low = 0;
+		int high = tripleCount;
+		while ( low < high )
+		{
+			int mid = ( low + high ) >>> 1;
+			int row = getRow( base, mid );
+
+			int cmp = 0;
+			for ( int i = 0; i < keyLength && cmp == 0; ++i )
+			{
+				int id = getId( row, order[i] );
+				cmp = ( id < key[i] ) ? -1 : ( (id == key[i]) ? 0 : 1 );
+			}
+
+			if ( cmp < 0 || (upper && cmp == 0) ) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the numbers of the given rows sorted by the components in the
+	 * given order (merge sort).
+	 */
+	static private int[] sortedRows ( int[][] columns, int[] order, int count )
+	{
+		int[] rows = new int [count];
+		for ( int i = 0; i < count; ++i ) {
+			rows[i] = i;
+		}
+
+		int[] tmp = new int [count];
+		for ( int width = 1; width < count; width <<= 1 )
+		{
+			for ( int from = 0; from < count; from += 2 * width )
+			{
+				int mid = Math.min( from + width, count );
+				int to = Math.min( from + 2 * width, count );
+				int i = from, j = mid, k = from;
+				while ( i < mid && j < to ) {
+					tmp[k++] = ( compare(columns,order,rows[j],rows[i]) < 0 ) ? rows[j++] : rows[i++];
+				}
+				while ( i < mid ) {
+					tmp[k++] = rows[i++];
+				}
+				while ( j < to ) {
+					tmp[k++] = rows[j++];
+				}
+			}
+			int[] swap = rows; rows = tmp; tmp = swap;
+		}
+		return rows;
+	}
+
+	static private int compare ( int[][] columns, int[] order, int row1, int row2 )
+	{
+		for ( int i = 0; i < 3; ++i )
+		{
+			int id1 = columns[order[i]][row1];
+			int id2 = columns[order[i]][row2];
+			if ( id1 != id2 ) {
+				return ( id1 < id2 ) ? -1 : 1;
+			}
+		}
+		return 0;
+	}
+
+
+	/**
+	 * Provides an {@link IdBasedTriple} (without a Jena triple) for each
+	 * position of a range in one of the orders.
+	 */
+	class RangeIterator implements Iterator<IdBasedTriple>
+	{
+		final protected int base;
+		final protected int to;
+		protected int cur;
+		public RangeIterator ( int base, int from, int to ) { this.base = base; this.cur = from; this.to = to; }
+		public boolean hasNext () { return cur < to; }
+		public IdBasedTriple next ()
+		{
+			if ( cur >= to ) {
+				throw new NoSuchElementException();
+			}
+			int row = getRow( base, cur++ );
+			return new IdBasedTriple( getId(row,0), getId(row,1), getId(row,2) );
+		}
+		public void remove () { throw new UnsupportedOperationException(); }
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
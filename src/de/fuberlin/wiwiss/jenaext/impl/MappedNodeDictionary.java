@@ -0,0 +1,434 @@
+package de.fuberlin.wiwiss.jenaext.impl;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.hp.hpl.jena.datatypes.TypeMapper;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.rdf.model.AnonId;
+
+import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+
+
+/**
+ * A node dictionary that is read from a (memory-mapped) file. The file
+ * section that contains the dictionary is written by {@link #write}.
+ * Nodes are decoded lazily when they are requested; recently requested
+ * nodes are kept in a small LRU cache. The lookup of identifiers for nodes
+ * uses a hash table that is part of the file section.
+ *
+ * The dictionary in the file cannot be changed. Identifiers for nodes that
+ * are not in the file are created by an additional in-memory dictionary
+ * ({@link NodeDictionaryImpl}); these identifiers start after the
+ * identifiers in the file.
+ *
+ * The layout of the file section is:
+ * <pre>
+ * int      number of nodes (n)
+ * int      size of the hash table (t, a power of two)
+ * int[t]   hash table with the identifiers of the nodes (-1 for free slots)
+ * long[n+1] offsets of the node records (the last offset is the end)
+ * byte[]   node records (see {@link #encode})
+ * </pre>
+ *
+ * @author Olaf Hartig
+ */
+public class MappedNodeDictionary implements NodeDictionary
+{
+	// members
+
+	static final public int DEFAULT_CACHE_SIZE = 10000;
+
+	static final private byte URI = 0;
+	static final private byte BLANK = 1;
+	static final private byte PLAIN_LITERAL = 2;
+	static final private byte LANG_LITERAL = 3;
+	static final private byte TYPED_LITERAL = 4;
+
+	/** the number of nodes in the file */
+	final protected int nodeCount;
+
+	final private int tableMask;
+	final private ByteBuffer table;
+	final private ByteBuffer offsets;
+	final private ByteBuffer records;
+
+	/** the dictionary for nodes that are not in the file */
+	final protected NodeDictionaryImpl additionalNodes = new NodeDictionaryImpl ();
+
+	/** cache of decoded nodes */
+	final protected Map<Integer,Node> cache;
+
+
+	// initialization
+
+	/**
+	 * Maps the dictionary section that starts at the given position of the
+	 * given file.
+	 * The file may be closed after the dictionary has been created.
+	 */
+	public MappedNodeDictionary ( FileChannel channel, long position ) throws IOException
+	{
+		this( channel, position, DEFAULT_CACHE_SIZE );
+	}
+
+	/**
+	 * Maps the dictionary section that starts at the given position of the
+	 * given file.
+	 * The file may be closed after the dictionary has been created.
+	 *
+	 * @param cacheSize the number of decoded nodes kept in the LRU cache
+	 *                  (0 disables the cache)
+	 */
+	public MappedNodeDictionary ( FileChannel channel, long position, final int cacheSize ) throws IOException
+	{
+		ByteBuffer header = channel.map( FileChannel.MapMode.READ_ONLY, position, 8 );
+		nodeCount = header.getInt( 0 );
+		int tableSize = header.getInt( 4 );
+		tableMask = tableSize - 1;
+		position += 8;
+
+		table = channel.map( FileChannel.MapMode.READ_ONLY, position, 4L * tableSize );
+		position += 4L * tableSize;
+
+		offsets = channel.map( FileChannel.MapMode.READ_ONLY, position, 8L * (nodeCount + 1) );
+		position += 8L * ( nodeCount + 1 );
+
+		records = channel.map( FileChannel.MapMode.READ_ONLY, position, offsets.getLong(8 * nodeCount) );
+
+		if ( cacheSize > 0 )
+		{
+			cache = new LinkedHashMap<Integer,Node> ( 16, 0.75f, true ) {
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected boolean removeEldestEntry ( Map.Entry<Integer,Node> eldest ) {
+					return size() > cacheSize;
+				}
+			};
+		}
+		else {
+			cache = null;
+		}
+	}
+
+
+	// implementation of the NodeDictionary interface
+
+	final public Node getNode ( int id )
+	{
+		if ( id < 0 ) {
+			return null;
+		}
+
+		if ( id >= nodeCount ) {
+			return additionalNodes.getNode( id - nodeCount );
+		}
+
+		if ( cache == null ) {
+			return decode( id );
+		}
+
+		Integer key = Integer.valueOf( id );
+		Node n;
+		synchronized ( cache ) {
+			n = cache.get( key );
+		}
+
+		if ( n == null )
+		{
+			n = decode( id );
+			synchronized ( cache ) {
+				cache.put( key, n );
+			}
+		}
+
+		return n;
+	}
+
+	final public int getId ( Node n )
+	{
+		byte[] record = encode( n );
+		if ( record == null ) {
+			return -1;
+		}
+
+		int slot = hash( record ) & tableMask;
+		int id;
+		while ( (id = table.getInt(4 * slot)) >= 0 )
+		{
+			if ( recordEquals(id,record) ) {
+				return id;
+			}
+			slot = ( slot + 1 ) & tableMask;
+		}
+
+		id = additionalNodes.getId( n );
+		return ( id < 0 ) ? -1 : nodeCount + id;
+	}
+
+	final public int createId ( Node n )
+	{
+		int id = getId( n );
+		if ( id >= 0 ) {
+			return id;
+		}
+
+		return nodeCount + additionalNodes.createId( n );
+	}
+
+
+	// accessors
+
+	/**
+	 * Returns the number of nodes in the file.
+	 */
+	public int getNodeCount ()
+	{
+		return nodeCount;
+	}
+
+
+	// operations
+
+	/**
+	 * Writes a dictionary section for the given nodes to the given output.
+	 * The identifier of each node is its position in the given array.
+	 *
+	 * @param records the node records as created by {@link #encode}
+	 * @param count the number of node records
+	 * @return the number of bytes written
+	 */
+	static public long write ( DataOutput out, byte[][] records, int count ) throws IOException
+	{
+		int tableSize = 16;
+		while ( tableSize < 2 * count ) {
+			tableSize <<= 1;
+		}
+
+		int[] table = new int [tableSize];
+		java.util.Arrays.fill( table, -1 );
+		for ( int id = 0; id < count; ++id )
+		{
+			int slot = hash( records[id] ) & ( tableSize - 1 );
+			while ( table[slot] >= 0 ) {
+				slot = ( slot + 1 ) & ( tableSize - 1 );
+			}
+			table[slot] = id;
+		}
+
+		out.writeInt( count );
+		out.writeInt( tableSize );
+		for ( int i = 0; i < tableSize; ++i ) {
+			out.writeInt( table[i] );
+		}
+
+		long offset = 0L;
+		for ( int id = 0; id < count; ++id )
+		{
+			out.writeLong( offset );
+			offset += records[id].length;
+		}
+		out.writeLong( offset );
+
+		for ( int id = 0; id < count; ++id ) {
+			out.write( records[id] );
+		}
+
+		return 8L + 4L * tableSize + 8L * ( count + 1 ) + offset;
+	}
+
+	/**
+	 * Returns the record that represents the given node in the file or null
+	 * if the node cannot be represented (e.g. variables).
+	 * A record consists of a byte that indicates the kind of the node followed
+	 * by the UTF-8 encoded URI or blank node label. For literals, the kind is
+	 * followed by the length of the lexical form (variable-length int), the
+	 * lexical form, and the language tag or the datatype URI (if any).
+	 */
+	static public byte[] encode ( Node n )
+	{
+		if ( n.isURI() ) {
+			return concat( URI, null, utf8(n.getURI()) );
+		}
+
+		if ( n.isBlank() ) {
+			return concat( BLANK, null, utf8(n.getBlankNodeId().getLabelString()) );
+		}
+
+		if ( n.isLiteral() )
+		{
+			byte[] lex = utf8( n.getLiteralLexicalForm() );
+			String dt = n.getLiteralDatatypeURI();
+			String lang = n.getLiteralLanguage();
+			if ( dt != null ) {
+				return concat( TYPED_LITERAL, lex, utf8(dt) );
+			}
+			if ( lang != null && lang.length() > 0 ) {
+				return concat( LANG_LITERAL, lex, utf8(lang) );
+			}
+			return concat( PLAIN_LITERAL, lex, new byte [0] );
+		}
+
+		return null;
+	}
+
+
+	// helpers
+
+	final protected Node decode ( int id )
+	{
+		int start = (int) offsets.getLong( 8 * id );
+		int end = (int) offsets.getLong( 8 * (id + 1) );
+
+		byte kind = records.get( start++ );
+		switch ( kind )
+		{
+		case URI:
+			return Node.createURI( string(start,end) );
+		case BLANK:
+			return Node.createAnon( new AnonId(string(start,end)) );
+		}
+
+		int lexLength = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = records.get( start++ );
+			lexLength |= ( b & 0x7F ) << shift;
+			shift += 7;
+		} while ( b < 0 );
+
+		String lex = string( start, start + lexLength );
+		switch ( kind )
+		{
+		case PLAIN_LITERAL:
+			return Node.createLiteral( lex );
+		case LANG_LITERAL:
+			return Node.createLiteral( lex, string(start + lexLength, end), false );
+		case TYPED_LITERAL:
+			return Node.createLiteral( lex,
+			                           null,
+			                           TypeMapper.getInstance().getSafeTypeByName(string(start + lexLength, end)) );
+		default:
+			throw new IllegalStateException( "Unknown kind of node (" + kind + ")." );
+		}
+	}
+
+	final private boolean recordEquals ( int id, byte[] record )
+	{
+		int start = (int) offsets.getLong( 8 * id );
+		int end = (int) offsets.getLong( 8 * (id + 1) );
+		if ( end - start != record.length ) {
+			return false;
+		}
+
+		for ( int i = 0; i < record.length; ++i )
+		{
+			if ( records.get(start + i) != record[i] ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	final private String string ( int start, int end )
+	{
+		byte[] bytes = new byte [end - start];
+		for ( int i = 0; i < bytes.length; ++i ) {
+			bytes[i] = records.get( start + i );
+		}
+
+		try {
+			return new String( bytes, "UTF-8" );
+		}
+		catch ( UnsupportedEncodingException e ) {
+			throw new Error( e ); // UTF-8 is always supported
+		}
+	}
+
+	static private byte[] utf8 ( String s )
+	{
+		try {
+			return s.getBytes( "UTF-8" );
+		}
+		catch ( UnsupportedEncodingException e ) {
+			throw new Error( e ); // UTF-8 is always supported
+		}
+	}
+
+	static private byte[] concat ( byte kind, byte[] lex, byte[] rest )
+	{
+		int length = 1 + rest.length;
+		int lexLength = 0;
+		if ( lex != null )
+		{
+			lexLength = lex.length;
+			length += lexLength;
+			for ( int l = lexLength; l >= 0x80; l >>>= 7 ) {
+				length++;
+			}
+			length++;
+		}
+
+		byte[] record = new byte [length];
+		int pos = 0;
+		record[pos++] = kind;
+		if ( lex != null )
+		{
+			int l = lexLength;
+			while ( l >= 0x80 )
+			{
+				record[pos++] = (byte) ( (l & 0x7F) | 0x80 );
+				l >>>= 7;
+			}
+			record[pos++] = (byte) l;
+			System.arraycopy( lex, 0, record, pos, lexLength );
+			pos += lexLength;
+		}
+		System.arraycopy( rest, 0, record, pos, rest.length );
+		return record;
+	}
+
+	/** FNV-1a hash of the given record */
+	static private int hash ( byte[] record )
+	{
+		int h = 0x811C9DC5;
+		for ( int i = 0; i < record.length; ++i ) {
+			h = ( h ^ (record[i] & 0xFF) ) * 0x01000193;
+		}
+		return h ^ ( h >>> 16 );
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
@@ -0,0 +1,345 @@
+package de.fuberlin.wiwiss.jenaext.impl;
+
+
+/**
+ * Indexes row numbers by identifiers.
+ * This is the counterpart of {@link Index} for RDF graph implementations that
+ * store their triples in columns of primitive identifiers (see
+ * {@link ColumnarIdBasedGraphMem}) and, thus, refer to a triple by its row
+ * number.
+ *
+ * To keep the memory footprint small there are no posting lists. Instead,
+ * the rows with the same key are chained: a hash table (open addressing on
+ * the keys) holds the first row and the number of rows for each key, and two
+ * int arrays hold the next and the previous row of the chain for each row
+ * (so that a row can be unlinked without walking its chain). Hence, this
+ * index needs two ints per row plus a few ints per distinct key.
+ *
+ * @author Olaf Hartig
+ */
+public class RowIndex
+{
+	// members
+
+	static final private int DEFAULT_INITIAL_CAPACITY = 16;
+
+	/** marks the end of a chain */
+	static final public int NO_ROW = -1;
+
+	/** the keys of the hash table */
+	private int[] keys;
+
+	/** the first row of the chain of each key in {@link #keys} */
+	private int[] heads;
+
+	/**
+	 * The number of rows in the chain of each key in {@link #keys}.
+	 * A slot of the hash table is free iff this number is 0.
+	 */
+	private int[] counts;
+
+	/** the number of keys currently in the hash table */
+	private int keyCount = 0;
+
+	/** the number of keys at which the hash table has to grow */
+	private int threshold;
+
+	/** the next row in the chain of each row */
+	private int[] next = new int [DEFAULT_INITIAL_CAPACITY];
+
+	/** the previous row in the chain of each row */
+	private int[] prev = new int [DEFAULT_INITIAL_CAPACITY];
+
+
+	// initialization
+
+	public RowIndex ()
+	{
+		allocate( DEFAULT_INITIAL_CAPACITY );
+	}
+
+
+	// accessors
+
+	/**
+	 * Indexes the given row number using the given key.
+	 * The given row must not be indexed already.
+	 */
+	public void put ( int key, int row )
+	{
+		if ( row >= next.length )
+		{
+			int newCapacity = Math.max( row + 1, next.length + (next.length >> 1) );
+			next = grow( next, newCapacity );
+			prev = grow( prev, newCapacity );
+		}
+
+		int slot = findSlot( key );
+		if ( counts[slot] == 0 )
+		{
+			if ( keyCount >= threshold )
+			{
+				rehash( keys.length << 1 );
+				slot = findSlot( key );
+			}
+
+			keys[slot] = key;
+			heads[slot] = NO_ROW;
+			keyCount++;
+		}
+
+		int head = heads[slot];
+		if ( head != NO_ROW ) {
+			prev[head] = row;
+		}
+		next[row] = head;
+		prev[row] = NO_ROW;
+		heads[slot] = row;
+		counts[slot]++;
+	}
+
+	/**
+	 * Removes the given row number with the given key.
+	 * The given row must be indexed with the given key (only the case of a
+	 * row at the head of a chain of another key is detected).
+	 *
+	 * @return true if this index contained the given row number
+	 */
+	public boolean remove ( int key, int row )
+	{
+		int slot = findSlot( key );
+		if ( counts[slot] == 0 ) {
+			return false;
+		}
+
+		int pred = prev[row];
+		int succ = next[row];
+		if ( pred == NO_ROW )
+		{
+			if ( heads[slot] != row ) {
+				return false;
+			}
+			heads[slot] = succ;
+		}
+		else {
+			next[pred] = succ;
+		}
+		if ( succ != NO_ROW ) {
+			prev[succ] = pred;
+		}
+
+		if ( --counts[slot] == 0 ) {
+			removeSlot( slot );
+		}
+		return true;
+	}
+
+	/**
+	 * Replaces the given old row number with the given key by the given new
+	 * row number (without changing the order of the chain).
+	 * The old row must be indexed with the given key (only the case of a row
+	 * at the head of a chain of another key is detected) and the new row must
+	 * not be indexed.
+	 *
+	 * @return true if this index contained the old row number
+	 */
+	public boolean replace ( int key, int oldRow, int newRow )
+	{
+		int slot = findSlot( key );
+		if ( counts[slot] == 0 ) {
+			return false;
+		}
+
+		int pred = prev[oldRow];
+		int succ = next[oldRow];
+		if ( pred == NO_ROW )
+		{
+			if ( heads[slot] != oldRow ) {
+				return false;
+			}
+			heads[slot] = newRow;
+		}
+		else {
+			next[pred] = newRow;
+		}
+		if ( succ != NO_ROW ) {
+			prev[succ] = newRow;
+		}
+
+		next[newRow] = succ;
+		prev[newRow] = pred;
+		return true;
+	}
+
+	/**
+	 * Clears the index completely.
+	 */
+	public void clear ()
+	{
+		allocate( DEFAULT_INITIAL_CAPACITY );
+		next = new int [DEFAULT_INITIAL_CAPACITY];
+		prev = new int [DEFAULT_INITIAL_CAPACITY];
+		keyCount = 0;
+	}
+
+	/**
+	 * Returns the first row indexed with the given key or {@link #NO_ROW}.
+	 */
+	public int first ( int key )
+	{
+		int slot = findSlot( key );
+		return ( counts[slot] == 0 ) ? NO_ROW : heads[slot];
+	}
+
+	/**
+	 * Returns the row that follows the given row in the chain of its key or
+	 * {@link #NO_ROW}.
+	 */
+	final public int next ( int row )
+	{
+		return next[row];
+	}
+
+	/**
+	 * Returns the number of row numbers indexed with the given key.
+	 */
+	public int count ( int key )
+	{
+		return counts[ findSlot(key) ];
+	}
+
+	/**
+	 * Returns the number of distinct keys in this index.
+	 */
+	public int keyCount ()
+	{
+		return keyCount;
+	}
+
+	/**
+	 * Returns the distinct keys in this index (in no particular order).
+	 */
+	public int[] keys ()
+	{
+		int[] result = new int [keyCount];
+		int i = 0;
+		for ( int slot = 0; slot < keys.length; ++slot )
+		{
+			if ( counts[slot] != 0 ) {
+				result[i++] = keys[slot];
+			}
+		}
+		return result;
+	}
+
+
+	// helpers
+
+	/**
+	 * Returns the slot that holds the given key or, if the key is not in the
+	 * hash table, the free slot where the key would have to be inserted.
+	 */
+	final private int findSlot ( int key )
+	{
+		int mask = keys.length - 1;
+		int slot = Index.hash( key, mask );
+		while ( counts[slot] != 0 && keys[slot] != key ) {
+			slot = ( slot + 1 ) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Frees the given slot and moves subsequent keys of the same probe
+	 * sequence back so that no tombstones are required.
+	 */
+	final private void removeSlot ( int slot )
+	{
+		int mask = keys.length - 1;
+		int free = slot;
+		int cur = slot;
+		while ( true )
+		{
+			cur = ( cur + 1 ) & mask;
+			if ( counts[cur] == 0 ) {
+				break;
+			}
+
+			int home = Index.hash( keys[cur], mask );
+			boolean stays = ( free <= cur ) ? ( free < home && home <= cur )
+			                                : ( free < home || home <= cur );
+			if ( ! stays )
+			{
+				keys[free] = keys[cur];
+				heads[free] = heads[cur];
+				counts[free] = counts[cur];
+				free = cur;
+			}
+		}
+
+		counts[free] = 0;
+		keyCount--;
+	}
+
+	static private int[] grow ( int[] array, int newCapacity )
+	{
+		int[] tmp = new int [newCapacity];
+		System.arraycopy( array, 0, tmp, 0, array.length );
+		return tmp;
+	}
+
+	final private void allocate ( int capacity )
+	{
+		keys = new int [capacity];
+		heads = new int [capacity];
+		counts = new int [capacity];
+		threshold = ( capacity >> 1 ) + ( capacity >> 2 ); // load factor 0.75
+	}
+
+	final private void rehash ( int newCapacity )
+	{
+		int[] oldKeys = keys;
+		int[] oldHeads = heads;
+		int[] oldCounts = counts;
+
+		allocate( newCapacity );
+		for ( int i = oldKeys.length - 1; i >= 0; --i )
+		{
+			if ( oldCounts[i] != 0 )
+			{
+				int slot = findSlot( oldKeys[i] );
+				keys[slot] = oldKeys[i];
+				heads[slot] = oldHeads[i];
+				counts[slot] = oldCounts[i];
+			}
+		}
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
@@ -0,0 +1,261 @@
+package de.fuberlin.wiwiss.jenaext.impl;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import de.fuberlin.wiwiss.jenaext.GraphStatistics;
+import de.fuberlin.wiwiss.jenaext.IdBasedGraph;
+import de.fuberlin.wiwiss.jenaext.IdBasedTriple;
+
+
+/**
+ * Keeps the statistics of a graph. The catalog is updated for every added
+ * and every deleted triple in constant time; to this end, the graph has to
+ * tell whether the subject and the object of the triple are new (or removed)
+ * in the graph and for the predicate of the triple. Graphs that cannot tell
+ * this in constant time compute the counts instead and record them with
+ * the setCounts methods (see {@link ColumnarIdBasedGraphMem}).
+ *
+ * @author Olaf Hartig
+ */
+public class StatisticsCatalog implements GraphStatistics
+{
+	// members
+
+	static final private int TRIPLES = 0;
+	static final private int SUBJECTS = 1;
+	static final private int OBJECTS = 2;
+
+	protected int tripleCount = 0;
+	protected int distinctSubjectCount = 0;
+	protected int distinctObjectCount = 0;
+
+	/** the counters for each predicate (triples, distinct subjects, distinct objects) */
+	final protected Map<Integer,int[]> predicateCounters = new HashMap<Integer,int[]> ();
+
+
+	// implementation of the GraphStatistics interface
+
+	public int getTripleCount () { return tripleCount; }
+
+	public int getDistinctSubjectCount () { return distinctSubjectCount; }
+
+	public int getDistinctObjectCount () { return distinctObjectCount; }
+
+	public int[] getPredicates ()
+	{
+		int[] result = new int [predicateCounters.size()];
+		int i = 0;
+		for ( Integer pId : predicateCounters.keySet() ) {
+			result[i++] = pId.intValue();
+		}
+		return result;
+	}
+
+	public int getTripleCount ( int pId ) { return getCounter( pId, TRIPLES ); }
+
+	public int getDistinctSubjectCount ( int pId ) { return getCounter( pId, SUBJECTS ); }
+
+	public int getDistinctObjectCount ( int pId ) { return getCounter( pId, OBJECTS ); }
+
+
+	// operations
+
+	/**
+	 * Records an added triple with the given predicate.
+	 *
+	 * @param isNewSubject true if the subject of the triple did not occur as
+	 *                     a subject in the graph before
+	 * @param isNewObject true if the object of the triple did not occur as
+	 *                    an object in the graph before
+	 * @param isNewSubjectForPredicate true if the subject of the triple did
+	 *                                 not occur with the predicate before
+	 * @param isNewObjectForPredicate true if the object of the triple did
+	 *                                not occur with the predicate before
+	 */
+	public void added ( int pId,
+	                    boolean isNewSubject,
+	                    boolean isNewObject,
+	                    boolean isNewSubjectForPredicate,
+	                    boolean isNewObjectForPredicate )
+	{
+		tripleCount++;
+		if ( isNewSubject ) { distinctSubjectCount++; }
+		if ( isNewObject ) { distinctObjectCount++; }
+
+		Integer key = Integer.valueOf( pId );
+		int[] counters = predicateCounters.get( key );
+		if ( counters == null ) {
+			counters = new int [3];
+			predicateCounters.put( key, counters );
+		}
+
+		counters[TRIPLES]++;
+		if ( isNewSubjectForPredicate ) { counters[SUBJECTS]++; }
+		if ( isNewObjectForPredicate ) { counters[OBJECTS]++; }
+	}
+
+	/**
+	 * Records a deleted triple with the given predicate.
+	 *
+	 * @param wasLastSubject true if the subject of the triple does not occur
+	 *                       as a subject in the graph anymore
+	 * @param wasLastObject true if the object of the triple does not occur
+	 *                      as an object in the graph anymore
+	 * @param wasLastSubjectForPredicate true if the subject of the triple does
+	 *                                   not occur with the predicate anymore
+	 * @param wasLastObjectForPredicate true if the object of the triple does
+	 *                                  not occur with the predicate anymore
+	 */
+	public void deleted ( int pId,
+	                      boolean wasLastSubject,
+	                      boolean wasLastObject,
+	                      boolean wasLastSubjectForPredicate,
+	                      boolean wasLastObjectForPredicate )
+	{
+		tripleCount--;
+		if ( wasLastSubject ) { distinctSubjectCount--; }
+		if ( wasLastObject ) { distinctObjectCount--; }
+
+		Integer key = Integer.valueOf( pId );
+		int[] counters = predicateCounters.get( key );
+		if ( counters == null ) {
+			return;
+		}
+
+		if ( --counters[TRIPLES] == 0 ) {
+			predicateCounters.remove( key );
+			return;
+		}
+		if ( wasLastSubjectForPredicate ) { counters[SUBJECTS]--; }
+		if ( wasLastObjectForPredicate ) { counters[OBJECTS]--; }
+	}
+
+	/**
+	 * Sets the overall counters.
+	 */
+	public void setCounts ( int tripleCount,
+	                        int distinctSubjectCount,
+	                        int distinctObjectCount )
+	{
+		this.tripleCount = tripleCount;
+		this.distinctSubjectCount = distinctSubjectCount;
+		this.distinctObjectCount = distinctObjectCount;
+	}
+
+	/**
+	 * Sets the counters for the given predicate. A triple count of 0 removes
+	 * the predicate from this catalog.
+	 */
+	public void setCounts ( int pId,
+	                        int tripleCount,
+	                        int distinctSubjectCount,
+	                        int distinctObjectCount )
+	{
+		Integer key = Integer.valueOf( pId );
+		if ( tripleCount == 0 ) {
+			predicateCounters.remove( key );
+			return;
+		}
+
+		int[] counters = predicateCounters.get( key );
+		if ( counters == null ) {
+			counters = new int [3];
+			predicateCounters.put( key, counters );
+		}
+
+		counters[TRIPLES] = tripleCount;
+		counters[SUBJECTS] = distinctSubjectCount;
+		counters[OBJECTS] = distinctObjectCount;
+	}
+
+	/**
+	 * Resets all counters.
+	 */
+	public void clear ()
+	{
+		tripleCount = 0;
+		distinctSubjectCount = 0;
+		distinctObjectCount = 0;
+		predicateCounters.clear();
+	}
+
+	/**
+	 * Creates a catalog for the given graph by iterating over all triples.
+	 * This is meant for graphs whose indexes cannot tell whether a node is new
+	 * in constant time.
+	 */
+	static public StatisticsCatalog create ( IdBasedGraph g )
+	{
+		StatisticsCatalog catalog = new StatisticsCatalog();
+		Set<Integer> subjects = new HashSet<Integer> ();
+		Set<Integer> objects = new HashSet<Integer> ();
+		Set<Long> subjectsForPredicates = new HashSet<Long> ();
+		Set<Long> objectsForPredicates = new HashSet<Long> ();
+
+		Iterator<IdBasedTriple> it = g.find( -1, -1, -1 );
+		while ( it.hasNext() )
+		{
+			IdBasedTriple t = it.next();
+			catalog.added( t.p,
+			               subjects.add(Integer.valueOf(t.s)),
+			               objects.add(Integer.valueOf(t.o)),
+			               subjectsForPredicates.add(Long.valueOf(Index2.getCompositeKey(t.p,t.s))),
+			               objectsForPredicates.add(Long.valueOf(Index2.getCompositeKey(t.p,t.o))) );
+		}
+
+		return catalog;
+	}
+
+
+	// helpers
+
+	final private int getCounter ( int pId, int counter )
+	{
+		int[] counters = predicateCounters.get( Integer.valueOf(pId) );
+		return ( counters == null ) ? 0 : counters[counter];
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString ()
+	{
+		return "GraphStatistics with " + tripleCount + " triples, "
+		       + distinctSubjectCount + " distinct subjects, "
+		       + distinctObjectCount + " distinct objects, and "
+		       + predicateCounters.size() + " predicates";
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
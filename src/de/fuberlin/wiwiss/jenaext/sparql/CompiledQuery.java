@@ -0,0 +1,160 @@
+package de.fuberlin.wiwiss.jenaext.sparql;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.hp.hpl.jena.query.ARQ;
+import com.hp.hpl.jena.sparql.algebra.Algebra;
+import com.hp.hpl.jena.sparql.algebra.Op;
+import com.hp.hpl.jena.sparql.algebra.OpVisitorBase;
+import com.hp.hpl.jena.sparql.algebra.OpWalker;
+import com.hp.hpl.jena.sparql.algebra.op.OpBGP;
+
+import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+import de.fuberlin.wiwiss.jenaext.impl.IdBasedQueryPlan.IdBasedTriplePattern;
+
+
+/**
+ * A query that has been compiled for the {@link IdBasedQueryEngine} once and
+ * that can be executed any number of times (see {@link PreparedQuery}). A
+ * compiled query consists of the optimized algebra expression of the query
+ * and the dictionary of its variables. Furthermore, the encoded triple
+ * patterns of the basic graph patterns of the query are kept once they have
+ * been created for a node dictionary. The (data dependent) join order is
+ * still determined for every execution.
+ *
+ * Compiled queries are immutable (apart from their cache of encoded triple
+ * patterns) and may be executed concurrently.
+ *
+ * @author Olaf Hartig
+ */
+public class CompiledQuery
+{
+	// members
+
+	final protected Op op;
+
+	final protected VarDictionary varDict;
+
+	/**
+	 * the encoded triple patterns of the basic graph patterns of the query
+	 * (initially null); the keys are the operators of the query (i.e. the
+	 * identity of the operators counts)
+	 */
+	final protected Map<OpBGP,EncodedPatterns> encodedPatterns = new IdentityHashMap<OpBGP,EncodedPatterns> ();
+
+
+	// initialization
+
+	/**
+	 * Creates a compiled query for the given algebra expression, which must
+	 * already be optimized (see {@link #compile}).
+	 */
+	public CompiledQuery ( Op op )
+	{
+		this.op = op;
+		this.varDict = IdBasedQueryEngine.initializeVarDictionary( op );
+
+		OpWalker.walk( op, new OpVisitorBase() {
+			@Override
+			public void visit ( OpBGP opBGP ) { encodedPatterns.put( opBGP, null ); }
+		} );
+	}
+
+	/**
+	 * Optimizes the given algebra expression (as the query engine does with
+	 * the global context of ARQ) and returns the compiled query.
+	 */
+	static public CompiledQuery compile ( Op op )
+	{
+		return new CompiledQuery( Algebra.optimize(op,ARQ.getContext()) );
+	}
+
+
+	// accessors
+
+	/**
+	 * Returns the optimized algebra expression of this query.
+	 */
+	public Op getOp ()
+	{
+		return op;
+	}
+
+	public VarDictionary getVarDictionary ()
+	{
+		return varDict;
+	}
+
+	/**
+	 * Returns the encoded triple patterns of the given basic graph pattern of
+	 * this query for the given node dictionary, or null if they have not been
+	 * kept (see {@link #setEncodedPatterns}).
+	 */
+	synchronized public List<IdBasedTriplePattern> getEncodedPatterns ( OpBGP opBGP, NodeDictionary nodeDict )
+	{
+		EncodedPatterns e = encodedPatterns.get( opBGP );
+		if ( e == null || e.nodeDict != nodeDict ) {
+			return null;
+		}
+		return e.patterns;
+	}
+
+	/**
+	 * Keeps the given encoded triple patterns of the given basic graph pattern
+	 * (for the given node dictionary). Basic graph patterns that are not an
+	 * operator of this query (e.g. patterns that have been substituted during
+	 * query execution) are ignored.
+	 */
+	synchronized public void setEncodedPatterns ( OpBGP opBGP, NodeDictionary nodeDict, List<IdBasedTriplePattern> patterns )
+	{
+		if ( encodedPatterns.containsKey(opBGP) ) {
+			encodedPatterns.put( opBGP, new EncodedPatterns(nodeDict,patterns) );
+		}
+	}
+
+
+	// helpers
+
+	static protected class EncodedPatterns
+	{
+		final public NodeDictionary nodeDict;
+		final public List<IdBasedTriplePattern> patterns;
+
+		public EncodedPatterns ( NodeDictionary nodeDict, List<IdBasedTriplePattern> patterns )
+		{
+			this.nodeDict = nodeDict;
+			this.patterns = Collections.unmodifiableList( patterns );
+		}
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
@@ -0,0 +1,160 @@
+package de.fuberlin.wiwiss.jenaext.sparql;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.hp.hpl.jena.sparql.algebra.Op;
+
+
+/**
+ * A bounded cache of {@link CompiledQuery}s. The keys of the cache are the
+ * algebra expressions of the queries before optimization; i.e. queries that
+ * differ only in their syntax (whitespace, prefixes, etc.) share a compiled
+ * query. If the cache is full, the compiled query that has been used least
+ * recently is removed.
+ *
+ * @author Olaf Hartig
+ */
+public class CompiledQueryCache
+{
+	// members
+
+	static final public int DEFAULT_CAPACITY = 100;
+
+	static private CompiledQueryCache defaultCache = null;
+
+	final protected int capacity;
+
+	final protected Map<Op,CompiledQuery> cache;
+
+	protected long hits = 0;
+	protected long misses = 0;
+
+
+	// initialization
+
+	public CompiledQueryCache ( int capacity )
+	{
+		if ( capacity < 1 ) {
+			throw new IllegalArgumentException( "Capacity must be positive (" + capacity + ")." );
+		}
+
+		this.capacity = capacity;
+		cache = new LinkedHashMap<Op,CompiledQuery> ( 16, 0.75f, true ) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry ( Map.Entry<Op,CompiledQuery> eldest ) {
+				return size() > CompiledQueryCache.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cache that is shared by all {@link PreparedQuery}s created
+	 * without a cache of their own (its capacity is {@link #DEFAULT_CAPACITY}).
+	 */
+	synchronized static public CompiledQueryCache getDefault ()
+	{
+		if ( defaultCache == null ) {
+			defaultCache = new CompiledQueryCache( DEFAULT_CAPACITY );
+		}
+		return defaultCache;
+	}
+
+
+	// accessors
+
+	public int getCapacity ()
+	{
+		return capacity;
+	}
+
+	synchronized public int size ()
+	{
+		return cache.size();
+	}
+
+	/**
+	 * Returns the number of calls of {@link #get} that found the query in
+	 * the cache.
+	 */
+	synchronized public long getHitCount ()
+	{
+		return hits;
+	}
+
+	/**
+	 * Returns the number of calls of {@link #get} that had to compile the
+	 * query.
+	 */
+	synchronized public long getMissCount ()
+	{
+		return misses;
+	}
+
+
+	// operations
+
+	/**
+	 * Returns the compiled query for the given (not optimized) algebra
+	 * expression; the query is compiled if it is not in the cache.
+	 */
+	public CompiledQuery get ( Op op )
+	{
+		synchronized ( this )
+		{
+			CompiledQuery q = cache.get( op );
+			if ( q != null ) {
+				hits++;
+				return q;
+			}
+			misses++;
+		}
+
+		// compile outside of the lock; a query that is compiled by two threads
+		// concurrently is cached only once
+		CompiledQuery q = CompiledQuery.compile( op );
+		synchronized ( this )
+		{
+			CompiledQuery existing = cache.get( op );
+			if ( existing != null ) {
+				return existing;
+			}
+			cache.put( op, q );
+		}
+		return q;
+	}
+
+	synchronized public void clear ()
+	{
+		cache.clear();
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
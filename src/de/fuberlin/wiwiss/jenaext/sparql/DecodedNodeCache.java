@@ -0,0 +1,112 @@
+package de.fuberlin.wiwiss.jenaext.sparql;
+
+import com.hp.hpl.jena.graph.Node;
+
+import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+
+
+/**
+ * A small cache of the nodes that have been obtained from a node dictionary
+ * during the execution of a query. The cache is direct-mapped: each
+ * identifier has exactly one slot, and a newly decoded node replaces the one
+ * in its slot. Since the nodes bound to a variable tend to repeat (e.g. the
+ * type or the predicate of many solutions), most lookups avoid the (possibly
+ * synchronized) node dictionary.
+ *
+ * Each slot holds an immutable entry; hence, the cache may be used by
+ * several threads without locking.
+ *
+ * @author Olaf Hartig
+ */
+public class DecodedNodeCache
+{
+	// members
+
+	static final public int DEFAULT_SIZE = 1024;
+
+	final protected NodeDictionary nodeDict;
+
+	final protected Entry[] slots;
+
+
+	// initialization
+
+	public DecodedNodeCache ( NodeDictionary nodeDict )
+	{
+		this( nodeDict, DEFAULT_SIZE );
+	}
+
+	/**
+	 * @param size the number of slots; must be a power of 2
+	 */
+	public DecodedNodeCache ( NodeDictionary nodeDict, int size )
+	{
+		this.nodeDict = nodeDict;
+		slots = new Entry [size];
+	}
+
+
+	// accessors
+
+	public NodeDictionary getNodeDictionary ()
+	{
+		return nodeDict;
+	}
+
+	/**
+	 * Returns the node identified by the given identifier.
+	 */
+	public Node getNode ( int id )
+	{
+		int slot = ( id ^ (id >>> 16) ) & ( slots.length - 1 );
+		Entry e = slots[slot];
+		if ( e != null && e.id == id ) {
+			return e.node;
+		}
+
+		Node n = nodeDict.getNode( id );
+		slots[slot] = new Entry( id, n );
+		return n;
+	}
+
+
+	static class Entry
+	{
+		final int id;
+		final Node node;
+
+		Entry ( int id, Node node )
+		{
+			this.id = id;
+			this.node = node;
+		}
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
@@ -0,0 +1,267 @@
+package de.fuberlin.wiwiss.jenaext.sparql;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.binding.BindingBase;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap;
+
+import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+
+
+/**
+ * A {@link Binding} that is backed by an {@link IdBasedBinding}. The value
+ * of a variable is decoded (using a {@link DecodedNodeCache}) only when it
+ * is accessed; variables that are never accessed (e.g. because they are
+ * projected away or only counted) are never decoded.
+ *
+ * Variables added later (see {@link Binding#add}) are kept in a separate
+ * {@link BindingMap}.
+ *
+ * @author Olaf Hartig
+ */
+public class DecodingBinding extends BindingBase
+{
+	// members
+
+	/**
+	 * The identifier returned by {@link #getValueId} for a value that is not
+	 * in the node dictionary.
+	 */
+	final static public int UNKNOWN = -2;
+
+	final protected IdBasedBinding idBinding;
+
+	final protected VarDictionary varDict;
+
+	final protected DecodedNodeCache nodeCache;
+
+	/** the variables added to this binding, or null */
+	protected Binding added = null;
+
+
+	// initialization
+
+	public DecodingBinding ( IdBasedBinding idBinding, VarDictionary varDict, DecodedNodeCache nodeCache )
+	{
+		super( null );
+
+		this.idBinding = idBinding;
+		this.varDict = varDict;
+		this.nodeCache = nodeCache;
+	}
+
+
+	// accessors
+
+	/**
+	 * Returns the ID-based binding that backs this binding.
+	 */
+	public IdBasedBinding getIdBasedBinding ()
+	{
+		return idBinding;
+	}
+
+	/**
+	 * Returns the node dictionary used to decode the values of this binding.
+	 */
+	public NodeDictionary getNodeDictionary ()
+	{
+		return nodeCache.getNodeDictionary();
+	}
+
+	/**
+	 * Returns true if variables have been added to this binding (i.e. if it
+	 * contains values that are not represented by the ID-based binding).
+	 */
+	public boolean hasAddedVariables ()
+	{
+		return added != null;
+	}
+
+
+	// operations
+
+	/**
+	 * Returns the identifier of the value that the given binding binds to the
+	 * given variable, {@link IdBasedBinding#UNBOUND} if the variable is not
+	 * bound, or {@link #UNKNOWN} if the value is not in the given node
+	 * dictionary. The value is not decoded if the given binding is a
+	 * DecodingBinding for the same dictionaries.
+	 */
+	static public int getValueId ( Binding b, Var var, VarDictionary varDict, NodeDictionary nodeDict )
+	{
+		if ( b instanceof DecodingBinding && varDict.contains(var) )
+		{
+			DecodingBinding db = (DecodingBinding) b;
+			int varId = varDict.getId( var );
+			if (    db.varDict == varDict
+			     && db.getNodeDictionary() == nodeDict
+			     && varId < db.idBinding.size() )
+			{
+				int valueId = db.idBinding.get( varId );
+				if ( valueId != IdBasedBinding.UNBOUND || db.added == null ) {
+					return valueId;
+				}
+			}
+		}
+
+		Node n = b.get( var );
+		if ( n == null ) {
+			return IdBasedBinding.UNBOUND;
+		}
+
+		int valueId = nodeDict.getId( n );
+		return ( valueId < 0 ) ? UNKNOWN : valueId;
+	}
+
+	/**
+	 * Returns an ID-based binding with the values of the given binding, or
+	 * null if the given binding binds a variable that is not in the given
+	 * variable dictionary or a value that is not in the given node dictionary.
+	 * For a DecodingBinding for the same dictionaries without added variables
+	 * the ID-based binding that backs it is returned.
+	 */
+	static public IdBasedBinding encode ( Binding b, VarDictionary varDict, NodeDictionary nodeDict )
+	{
+		if ( b instanceof DecodingBinding )
+		{
+			DecodingBinding db = (DecodingBinding) b;
+			if (    db.added == null
+			     && db.varDict == varDict
+			     && db.getNodeDictionary() == nodeDict
+			     && db.idBinding.size() == varDict.size() ) {
+				return db.idBinding;
+			}
+		}
+
+		IdBasedBinding result = new IdBasedBinding( varDict.size() );
+		Iterator<Var> itVar = b.vars();
+		while ( itVar.hasNext() )
+		{
+			Var var = itVar.next();
+			if ( ! varDict.contains(var) ) {
+				return null;
+			}
+
+			int valueId = nodeDict.getId( b.get(var) );
+			if ( valueId < 0 ) {
+				return null;
+			}
+			result.set( varDict.getId(var), valueId );
+		}
+		return result;
+	}
+
+
+	// implementation of the BindingBase abstract methods
+
+	@Override
+	protected void add1 ( Var var, Node node )
+	{
+		if ( added == null ) {
+			added = new BindingMap();
+		}
+		added.add( var, node );
+	}
+
+	@Override
+	protected void checkAdd1 ( Var var, Node node ) {}
+
+	@Override
+	protected Iterator<Var> vars1 ()
+	{
+		List<Var> vars = new ArrayList<Var> ();
+		int size = idBinding.size();
+		for ( int i = 0; i < size; ++i )
+		{
+			if ( idBinding.contains(i) ) {
+				vars.add( varDict.getVar(i) );
+			}
+		}
+
+		if ( added != null )
+		{
+			Iterator<Var> it = added.vars();
+			while ( it.hasNext() ) {
+				vars.add( it.next() );
+			}
+		}
+
+		return vars.iterator();
+	}
+
+	@Override
+	protected int size1 ()
+	{
+		int count = ( added == null ) ? 0 : added.size();
+		int size = idBinding.size();
+		for ( int i = 0; i < size; ++i )
+		{
+			if ( idBinding.contains(i) ) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	protected boolean isEmpty1 ()
+	{
+		return size1() == 0;
+	}
+
+	@Override
+	protected boolean contains1 ( Var var )
+	{
+		if ( varDict.contains(var) && idBinding.contains(varDict.getId(var)) ) {
+			return true;
+		}
+		return added != null && added.contains( var );
+	}
+
+	@Override
+	protected Node get1 ( Var var )
+	{
+		if ( varDict.contains(var) )
+		{
+			int valueId = idBinding.get( varDict.getId(var) );
+			if ( valueId != IdBasedBinding.UNBOUND ) {
+				return nodeCache.getNode( valueId );
+			}
+		}
+		return ( added == null ) ? null : added.get( var );
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
@@ -73,8 +73,80 @@ public class IdBasedBinding
 	}
 
 
+	// operations
+
+	/**
+	 * Returns the union of the two given bindings, or null if the bindings are
+	 * not compatible (i.e. if they bind a common variable to different values).
+	 * The given bindings must have the same size.
+	 */
+	static public IdBasedBinding merge ( IdBasedBinding b1, IdBasedBinding b2 )
+	{
+		IdBasedBinding result = new IdBasedBinding( b1 );
+
+		int size = b2.map.length;
+		for ( int i = 0; i < size; ++i )
+		{
+			int value = b2.map[i];
+			if ( value == UNBOUND ) {
+				continue;
+			}
+
+			int current = result.map[i];
+			if ( current == UNBOUND ) {
+				result.map[i] = value;
+			}
+			else if ( current != value ) {
+				return null;
+			}
+		}
+
+		return result;
+	}
+
+
 	// redefinition of Object methods
 
+	/**
+	 * Returns true if the given object is an ID-based binding of the same size
+	 * that binds the same variables to the same values (the variables of both
+	 * bindings must be identified by the same {@link VarDictionary}).
+	 */
+	@Override
+	public boolean equals ( Object o )
+	{
+		if ( o == this ) {
+			return true;
+		}
+
+		if ( ! (o instanceof IdBasedBinding) ) {
+			return false;
+		}
+
+		int[] otherMap = ( (IdBasedBinding) o ).map;
+		if ( otherMap.length != map.length ) {
+			return false;
+		}
+
+		for ( int i = 0; i < map.length; ++i )
+		{
+			if ( otherMap[i] != map[i] ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode ()
+	{
+		int h = 1;
+		for ( int i = 0; i < map.length; ++i ) {
+			h = 31 * h + map[i];
+		}
+		return h;
+	}
+
 	@Override
 	public String toString ()
 	{
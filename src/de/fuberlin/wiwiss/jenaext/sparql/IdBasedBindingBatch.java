@@ -0,0 +1,159 @@
+package de.fuberlin.wiwiss.jenaext.sparql;
+
+
+/**
+ * A batch of identifier based bindings stored column-wise: for each query
+ * variable there is an array with the identifiers bound to this variable in
+ * the rows of the batch ({@link IdBasedBinding#UNBOUND} if the variable is
+ * not bound in a row).
+ *
+ * Batches are used for the block-at-a-time evaluation of basic graph
+ * patterns; operators exchange whole batches instead of single bindings and
+ * reuse their batches (see
+ * {@link de.fuberlin.wiwiss.jenaext.sparql.iterator.IdBasedTriplePatternBatchIter}).
+ *
+ * @author Olaf Hartig
+ */
+public class IdBasedBindingBatch
+{
+	// members
+
+	/** the default number of rows of a batch */
+	final static public int DEFAULT_CAPACITY = 1024;
+
+	/** columns[v][r] is the identifier bound to variable v in row r */
+	final protected int[][] columns;
+
+	final protected int capacity;
+
+	/** the number of rows in this batch */
+	protected int size = 0;
+
+
+	// initialization
+
+	public IdBasedBindingBatch ( int varCount, int capacity )
+	{
+		this.capacity = capacity;
+		columns = new int [varCount][capacity];
+	}
+
+
+	// accessors
+
+	/** Return the number of rows in this batch. */
+	public int size ()
+	{
+		return size;
+	}
+
+	/** Return the maximum number of rows of this batch. */
+	public int capacity ()
+	{
+		return capacity;
+	}
+
+	/** Return the number of variables (i.e. columns) of this batch. */
+	public int getVarCount ()
+	{
+		return columns.length;
+	}
+
+	public boolean isFull ()
+	{
+		return size == capacity;
+	}
+
+	/**
+	 * Return the identifier of the value bound to the specified variable in
+	 * the given row, or -1.
+	 */
+	public int get ( int varId, int row )
+	{
+		return columns[varId][row];
+	}
+
+	/** Set the value of the specified variable in the given row. */
+	public void set ( int varId, int row, int valueId )
+	{
+		columns[varId][row] = valueId;
+	}
+
+	/**
+	 * Returns the given row as a binding.
+	 */
+	public IdBasedBinding getBinding ( int row )
+	{
+		int varCount = columns.length;
+		IdBasedBinding b = new IdBasedBinding( varCount );
+		for ( int v = 0; v < varCount; ++v ) {
+			b.set( v, columns[v][row] );
+		}
+		return b;
+	}
+
+
+	// operations
+
+	/** Removes all rows from this batch. */
+	public void clear ()
+	{
+		size = 0;
+	}
+
+	/**
+	 * Appends a copy of the given binding to this batch and returns the index
+	 * of the new row.
+	 */
+	public int add ( IdBasedBinding b )
+	{
+		int row = size++;
+		int varCount = columns.length;
+		for ( int v = 0; v < varCount; ++v ) {
+			columns[v][row] = b.get( v );
+		}
+		return row;
+	}
+
+	/**
+	 * Appends a copy of the specified row of the given batch to this batch
+	 * and returns the index of the new row.
+	 */
+	public int add ( IdBasedBindingBatch source, int sourceRow )
+	{
+		int row = size++;
+		int varCount = columns.length;
+		for ( int v = 0; v < varCount; ++v ) {
+			columns[v][row] = source.columns[v][sourceRow];
+		}
+		return row;
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
@@ -6,6 +6,8 @@ import com.hp.hpl.jena.sparql.engine.ExecutionContext;
 import com.hp.hpl.jena.sparql.engine.main.OpExecutorFactory;
 import com.hp.hpl.jena.sparql.util.Context;
 
+import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+
 
 /**
  * An extension of the usual ExecutionContext class to be used with
@@ -19,13 +21,25 @@ public class IdBasedExecutionContext extends ExecutionContext
 
 	final protected VarDictionary varDict;
 
+	/** the compiled query that is executed, or null */
+	final protected CompiledQuery compiledQuery;
+
+	/** the cache of decoded nodes, created on demand */
+	protected DecodedNodeCache nodeCache = null;
+
 
 	// initialization
 
 	public IdBasedExecutionContext ( VarDictionary varDict, Context params, Graph activeGraph, DatasetGraph dataset, OpExecutorFactory factory )
+	{
+		this( varDict, null, params, activeGraph, dataset, factory );
+	}
+
+	public IdBasedExecutionContext ( VarDictionary varDict, CompiledQuery compiledQuery, Context params, Graph activeGraph, DatasetGraph dataset, OpExecutorFactory factory )
 	{
 		super( params, activeGraph, dataset, factory );
 		this.varDict = varDict;
+		this.compiledQuery = compiledQuery;
 	}
 
 
@@ -35,6 +49,27 @@ public class IdBasedExecutionContext extends ExecutionContext
 	{
 		return varDict;
 	}
+
+	/**
+	 * Returns the compiled query that is executed in this context, or null if
+	 * the query has not been prepared (see {@link PreparedQuery}).
+	 */
+	public CompiledQuery getCompiledQuery ()
+	{
+		return compiledQuery;
+	}
+
+	/**
+	 * Returns the cache of decoded nodes for the given node dictionary that is
+	 * shared by all operators of the query.
+	 */
+	synchronized public DecodedNodeCache getDecodedNodeCache ( NodeDictionary nodeDict )
+	{
+		if ( nodeCache == null || nodeCache.getNodeDictionary() != nodeDict ) {
+			nodeCache = new DecodedNodeCache( nodeDict );
+		}
+		return nodeCache;
+	}
 }
 
 /*
@@ -1,25 +1,48 @@
 package de.fuberlin.wiwiss.jenaext.sparql;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 
 import com.hp.hpl.jena.graph.Triple;
 
 import com.hp.hpl.jena.sparql.algebra.op.OpAssign;
 import com.hp.hpl.jena.sparql.algebra.op.OpBGP;
+import com.hp.hpl.jena.sparql.algebra.op.OpDistinct;
+import com.hp.hpl.jena.sparql.algebra.op.OpFilter;
+import com.hp.hpl.jena.sparql.algebra.op.OpGroup;
+import com.hp.hpl.jena.sparql.algebra.op.OpOrder;
+import com.hp.hpl.jena.sparql.algebra.op.OpProject;
 import com.hp.hpl.jena.sparql.core.Var;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext;
 import com.hp.hpl.jena.sparql.engine.QueryIterator;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIterAssign;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterFilterExpr;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterRoot;
 import com.hp.hpl.jena.sparql.engine.main.OpExecutor;
 import com.hp.hpl.jena.sparql.engine.main.OpExecutorFactory;
+import com.hp.hpl.jena.sparql.expr.Expr;
+import com.hp.hpl.jena.sparql.util.Symbol;
 
 import de.fuberlin.wiwiss.jenaext.IdBasedGraph;
 import de.fuberlin.wiwiss.jenaext.NodeDictionary;
 import de.fuberlin.wiwiss.jenaext.impl.IdBasedQueryPlan.IdBasedTriplePattern;
+import de.fuberlin.wiwiss.jenaext.sparql.iterator.BatchBindingsIterator;
 import de.fuberlin.wiwiss.jenaext.sparql.iterator.DecodeBindingsIterator;
 import de.fuberlin.wiwiss.jenaext.sparql.iterator.EncodeBindingsIterator;
+import de.fuberlin.wiwiss.jenaext.sparql.iterator.IdBasedDistinctIter;
+import de.fuberlin.wiwiss.jenaext.sparql.iterator.IdBasedFilterIter;
+import de.fuberlin.wiwiss.jenaext.sparql.iterator.IdBasedGroupIter;
+import de.fuberlin.wiwiss.jenaext.sparql.iterator.IdBasedHashJoinIterator;
+import de.fuberlin.wiwiss.jenaext.sparql.iterator.IdBasedMergeJoinIterator;
+import de.fuberlin.wiwiss.jenaext.sparql.iterator.IdBasedProjectIter;
+import de.fuberlin.wiwiss.jenaext.sparql.iterator.IdBasedSortIter;
+import de.fuberlin.wiwiss.jenaext.sparql.iterator.IdBasedTriplePatternBatchIter;
 import de.fuberlin.wiwiss.jenaext.sparql.iterator.IdBasedTriplePatternQueryIter;
 import de.fuberlin.wiwiss.jenaext.sparql.iterator.QueryIterAssignWrapper;
+import de.fuberlin.wiwiss.jenaext.sparql.iterator.UnbatchBindingsIterator;
 
 
 /**
@@ -27,10 +50,65 @@ import de.fuberlin.wiwiss.jenaext.sparql.iterator.QueryIterAssignWrapper;
  * RDF graph implementations which use identifiers for RDF nodes (i.e. for
  * {@link IdBasedGraph} implementations).
  *
+ * Besides basic graph patterns, the operators for which the identifiers of
+ * RDF terms can be used instead of the terms (projection, DISTINCT, filters
+ * that compare terms, ORDER BY and GROUP BY on variables) are executed on
+ * identifiers; i.e. the bindings passed between these operators are
+ * {@link DecodingBinding}s whose values are decoded only on access (usually
+ * when the results are consumed).
+ *
+ * <code>GRAPH</code> operators are evaluated as described for the
+ * {@link ParallelGraphOpExecutor}; the pattern is evaluated for each graph in
+ * an {@link IdBasedExecutionContext} of its own.
+ *
  * @author Olaf Hartig
  */
-public class IdBasedOpExecutor extends OpExecutor
+public class IdBasedOpExecutor extends ParallelGraphOpExecutor
 {
+	/**
+	 * The context symbol that controls whether the triple patterns of a basic
+	 * graph pattern are reordered by the {@link JoinOrderOptimizer} (default)
+	 * or evaluated in the order in which they are written. Set it to false in
+	 * the query context to keep the written order.
+	 */
+	static final public Symbol reorderTriplePatterns = Symbol.create( "http://sites.wiwiss.fu-berlin.de/suhl/bizer/ng4j/jenaext#reorderTriplePatterns" );
+
+	/**
+	 * The context symbol that selects the strategy for joining the star
+	 * patterns (i.e. the groups of triple patterns with the same subject) of a
+	 * basic graph pattern. Possible values are {@link #JOIN_NESTED_LOOP} (each
+	 * binding of the already evaluated patterns is substituted into the next
+	 * patterns), {@link #JOIN_HASH} and {@link #JOIN_MERGE} (the star patterns
+	 * are evaluated independently and their solutions are joined). If the
+	 * symbol is not set, a hash join is used where both sides of the join are
+	 * estimated to have at least {@link #joinThreshold} solutions and a
+	 * nested loop join is used otherwise.
+	 */
+	static final public Symbol joinStrategy = Symbol.create( "http://sites.wiwiss.fu-berlin.de/suhl/bizer/ng4j/jenaext#joinStrategy" );
+
+	static final public String JOIN_NESTED_LOOP = "nestedLoop";
+	static final public String JOIN_HASH = "hash";
+	static final public String JOIN_MERGE = "merge";
+
+	/**
+	 * The context symbol for the smallest estimated number of solutions on
+	 * both sides of a join for which a hash join is used instead of a nested
+	 * loop join (see {@link #joinStrategy}). The default is
+	 * {@link #DEFAULT_JOIN_THRESHOLD}.
+	 */
+	static final public Symbol joinThreshold = Symbol.create( "http://sites.wiwiss.fu-berlin.de/suhl/bizer/ng4j/jenaext#joinThreshold" );
+
+	static final public long DEFAULT_JOIN_THRESHOLD = 1000;
+
+	/**
+	 * The context symbol for the number of bindings that the triple pattern
+	 * iterators exchange at a time (see {@link IdBasedTriplePatternBatchIter}).
+	 * The default is {@link IdBasedBindingBatch#DEFAULT_CAPACITY}; a value of
+	 * 0 (or less) selects the binding-at-a-time iterators
+	 * ({@link IdBasedTriplePatternQueryIter}).
+	 */
+	static final public Symbol batchSize = Symbol.create( "http://sites.wiwiss.fu-berlin.de/suhl/bizer/ng4j/jenaext#batchSize" );
+
 	/**
 	 * The factory object that creates this OpExecutor implementation.
 	 */
@@ -66,11 +144,42 @@ public class IdBasedOpExecutor extends OpExecutor
 		VarDictionary varDict = ( (IdBasedExecutionContext) execCxt ).getVarDictionary();
 		NodeDictionary nodeDict = ( (IdBasedGraph) execCxt.getDataset().getDefaultGraph() ).getNodeDictionary();
 
+		// A compiled query keeps the encoded patterns of its basic graph
+		// patterns (the patterns are not modified below).
+		CompiledQuery compiledQuery = ( (IdBasedExecutionContext) execCxt ).getCompiledQuery();
+		List<IdBasedTriplePattern> patterns = null;
+		if ( compiledQuery != null ) {
+			patterns = compiledQuery.getEncodedPatterns( opBGP, nodeDict );
+		}
+
+		if ( patterns == null )
+		{
+			patterns = new ArrayList<IdBasedTriplePattern> ();
+			for ( Triple t : opBGP.getPattern().getList() ) {
+				patterns.add( encode(t,varDict,nodeDict) );
+			}
+
+			if ( compiledQuery != null ) {
+				compiledQuery.setEncodedPatterns( opBGP, nodeDict, patterns );
+			}
+		}
+
+		JoinOrderOptimizer optimizer = null;
+		if ( execCxt.getActiveGraph() instanceof IdBasedGraph ) {
+			optimizer = new JoinOrderOptimizer( (IdBasedGraph) execCxt.getActiveGraph() );
+		}
+
+		if ( optimizer != null && execCxt.getContext().isTrueOrUndef(reorderTriplePatterns) ) {
+			patterns = optimizer.optimize( patterns );
+		}
+
 		Iterator<IdBasedBinding> qIt = new EncodeBindingsIterator( input, (IdBasedExecutionContext) execCxt );
-		for ( Triple t : opBGP.getPattern().getList() ) {
-			qIt = new IdBasedTriplePatternQueryIter( encode(t,varDict,nodeDict),
-			                                         qIt,
-			                                         (IdBasedExecutionContext) execCxt );
+
+		String strategy = execCxt.getContext().getAsString( joinStrategy );
+		if ( optimizer == null || JOIN_NESTED_LOOP.equals(strategy) ) {
+			qIt = createPipeline( patterns, qIt );
+		} else {
+			qIt = createJoinPlan( patterns, qIt, optimizer, strategy );
 		}
 
 		return new DecodeBindingsIterator( qIt, (IdBasedExecutionContext) execCxt );
@@ -83,8 +192,244 @@ public class IdBasedOpExecutor extends OpExecutor
 		return new QueryIterAssignWrapper( in, (IdBasedExecutionContext) execCxt );
 	}
 
+	@Override
+	protected QueryIterator execute ( OpFilter opFilter, QueryIterator input )
+	{
+		if ( ! isIdBased() ) {
+			return super.execute( opFilter, input );
+		}
+
+		QueryIterator qIter = executeOp( opFilter.getSubOp(), input );
+		for ( Expr expr : opFilter.getExprs() )
+		{
+			if ( IdBasedFilterIter.isSupported(expr) ) {
+				qIter = new IdBasedFilterIter( qIter, expr, (IdBasedExecutionContext) execCxt );
+			} else {
+				qIter = new QueryIterFilterExpr( qIter, expr, execCxt );
+			}
+		}
+		return qIter;
+	}
+
+	@Override
+	protected QueryIterator execute ( OpProject opProject, QueryIterator input )
+	{
+		// A projection that is not evaluated on the root iterator has to
+		// substitute the bindings of its input (see super.execute).
+		if ( ! isIdBased() || ! (input instanceof QueryIterRoot) ) {
+			return super.execute( opProject, input );
+		}
+
+		QueryIterator qIter = executeOp( opProject.getSubOp(), input );
+		return new IdBasedProjectIter( qIter, opProject.getVars(), (IdBasedExecutionContext) execCxt );
+	}
+
+	@Override
+	protected QueryIterator execute ( OpDistinct opDistinct, QueryIterator input )
+	{
+		if ( ! isIdBased() ) {
+			return super.execute( opDistinct, input );
+		}
+
+		QueryIterator qIter = executeOp( opDistinct.getSubOp(), input );
+		return new IdBasedDistinctIter( qIter, (IdBasedExecutionContext) execCxt );
+	}
+
+	@Override
+	protected QueryIterator execute ( OpOrder opOrder, QueryIterator input )
+	{
+		if ( ! isIdBased() || ! IdBasedSortIter.isSupported(opOrder.getConditions()) ) {
+			return super.execute( opOrder, input );
+		}
+
+		QueryIterator qIter = executeOp( opOrder.getSubOp(), input );
+		return new IdBasedSortIter( qIter, opOrder.getConditions(), (IdBasedExecutionContext) execCxt );
+	}
+
+	@Override
+	protected QueryIterator execute ( OpGroup opGroup, QueryIterator input )
+	{
+		if ( ! isIdBased() || ! IdBasedGroupIter.isSupported(opGroup.getGroupVars()) ) {
+			return super.execute( opGroup, input );
+		}
+
+		QueryIterator qIter = executeOp( opGroup.getSubOp(), input );
+		return new IdBasedGroupIter( qIter,
+		                             opGroup.getGroupVars(),
+		                             opGroup.getAggregators(),
+		                             (IdBasedExecutionContext) execCxt );
+	}
+
 	// helper methods
 
+	/**
+	 * Returns true if the active graph is an {@link IdBasedGraph} (i.e. if the
+	 * ID-based operators can be used).
+	 */
+	final protected boolean isIdBased ()
+	{
+		return execCxt.getActiveGraph() instanceof IdBasedGraph;
+	}
+
+	/**
+	 * Returns an iterator that evaluates the given triple patterns in the
+	 * given order by substituting the bindings of the given input iterator
+	 * (nested loop join). Unless disabled by the {@link #batchSize} symbol,
+	 * the bindings are passed through the pipeline in batches.
+	 */
+	final protected Iterator<IdBasedBinding> createPipeline ( List<IdBasedTriplePattern> patterns, Iterator<IdBasedBinding> input )
+	{
+		int size = (int) getLong( batchSize, IdBasedBindingBatch.DEFAULT_CAPACITY );
+		if ( size > 0 && ! patterns.isEmpty() )
+		{
+			int varCount = ( (IdBasedExecutionContext) execCxt ).getVarDictionary().size();
+			Iterator<IdBasedBindingBatch> bIt = new BatchBindingsIterator( input, varCount, size );
+			for ( IdBasedTriplePattern tp : patterns ) {
+				bIt = new IdBasedTriplePatternBatchIter( tp,
+				                                         bIt,
+				                                         (IdBasedExecutionContext) execCxt,
+				                                         varCount,
+				                                         size );
+			}
+			return new UnbatchBindingsIterator( bIt );
+		}
+
+		Iterator<IdBasedBinding> qIt = input;
+		for ( IdBasedTriplePattern tp : patterns ) {
+			qIt = new IdBasedTriplePatternQueryIter( tp,
+			                                         qIt,
+			                                         (IdBasedExecutionContext) execCxt );
+		}
+		return qIt;
+	}
+
+	/**
+	 * Returns an iterator that evaluates the given triple patterns as a join
+	 * of its star patterns (i.e. of the groups of patterns with the same
+	 * subject). The star patterns are joined in the order in which they first
+	 * occur in the given list. A star pattern that shares variables with the
+	 * star patterns before it is evaluated independently and joined by a hash
+	 * join or a merge join if the strategy requests so or if both sides of the
+	 * join are large. Otherwise, and if no such join is used at all, the
+	 * patterns are evaluated by {@link #createPipeline}.
+	 */
+	protected Iterator<IdBasedBinding> createJoinPlan ( List<IdBasedTriplePattern> patterns, Iterator<IdBasedBinding> input, JoinOrderOptimizer optimizer, String strategy )
+	{
+		List<List<IdBasedTriplePattern>> groups = groupBySubject( patterns );
+		int groupCount = groups.size();
+		if ( groupCount < 2 ) {
+			return createPipeline( patterns, input );
+		}
+
+		boolean forced = JOIN_HASH.equals( strategy ) || JOIN_MERGE.equals( strategy );
+		long threshold = getLong( joinThreshold, DEFAULT_JOIN_THRESHOLD );
+
+		// Decide for each star pattern (except the first) whether it is joined
+		// by substitution or evaluated independently.
+		int[][] joinVars = new int [groupCount][];
+		BitSet leftVars = getVariables( groups.get(0) );
+		long leftEstimate = optimizer.estimateCardinality( groups.get(0) );
+		boolean useIndependentJoin = false;
+		for ( int i = 1; i < groupCount; ++i )
+		{
+			List<IdBasedTriplePattern> group = groups.get( i );
+			BitSet groupVars = getVariables( group );
+			long estimate = optimizer.estimateCardinality( group );
+
+			BitSet shared = (BitSet) groupVars.clone();
+			shared.and( leftVars );
+			if (    ! shared.isEmpty()
+			     && ( forced || (leftEstimate >= threshold && estimate >= threshold) ) )
+			{
+				joinVars[i] = toArray( shared );
+				useIndependentJoin = true;
+			}
+
+			leftVars.or( groupVars );
+			leftEstimate = Math.min( leftEstimate, estimate );
+		}
+
+		if ( ! useIndependentJoin ) {
+			return createPipeline( patterns, input );
+		}
+
+		int varCount = ( (IdBasedExecutionContext) execCxt ).getVarDictionary().size();
+		Iterator<IdBasedBinding> qIt = createPipeline( groups.get(0), input );
+		for ( int i = 1; i < groupCount; ++i )
+		{
+			if ( joinVars[i] == null )
+			{
+				qIt = createPipeline( groups.get(i), qIt );
+				continue;
+			}
+
+			List<IdBasedBinding> start = Collections.singletonList( new IdBasedBinding(varCount) );
+			Iterator<IdBasedBinding> right = createPipeline( groups.get(i), start.iterator() );
+			if ( JOIN_MERGE.equals(strategy) && joinVars[i].length == 1 )
+			{
+				int joinVar = joinVars[i][0];
+				qIt = new IdBasedMergeJoinIterator( IdBasedMergeJoinIterator.sort(qIt,joinVar),
+				                                    IdBasedMergeJoinIterator.sort(right,joinVar),
+				                                    joinVar );
+			}
+			else {
+				qIt = new IdBasedHashJoinIterator( qIt, right, joinVars[i] );
+			}
+		}
+		return qIt;
+	}
+
+	/**
+	 * Splits the given triple patterns into groups of patterns with the same
+	 * subject. The groups are ordered by their first pattern in the given list
+	 * and the patterns in each group keep their relative order.
+	 */
+	static protected List<List<IdBasedTriplePattern>> groupBySubject ( List<IdBasedTriplePattern> patterns )
+	{
+		List<List<IdBasedTriplePattern>> groups = new ArrayList<List<IdBasedTriplePattern>> ();
+		for ( IdBasedTriplePattern tp : patterns )
+		{
+			List<IdBasedTriplePattern> group = null;
+			for ( List<IdBasedTriplePattern> g : groups )
+			{
+				IdBasedTriplePattern first = g.get( 0 );
+				if ( first.sIsVar == tp.sIsVar && first.s == tp.s ) {
+					group = g;
+					break;
+				}
+			}
+
+			if ( group == null ) {
+				group = new ArrayList<IdBasedTriplePattern> ();
+				groups.add( group );
+			}
+			group.add( tp );
+		}
+		return groups;
+	}
+
+	static protected BitSet getVariables ( List<IdBasedTriplePattern> patterns )
+	{
+		BitSet vars = new BitSet ();
+		for ( IdBasedTriplePattern tp : patterns )
+		{
+			if ( tp.sIsVar ) { vars.set( tp.s ); }
+			if ( tp.pIsVar ) { vars.set( tp.p ); }
+			if ( tp.oIsVar ) { vars.set( tp.o ); }
+		}
+		return vars;
+	}
+
+	static protected int[] toArray ( BitSet bits )
+	{
+		int[] result = new int [bits.cardinality()];
+		int j = 0;
+		for ( int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i+1) ) {
+			result[j++] = i;
+		}
+		return result;
+	}
+
 	final protected IdBasedTriplePattern encode ( Triple tp, VarDictionary varDict, NodeDictionary nodeDict )
 	{
 		boolean sIsVar = Var.isVar( tp.getSubject() );
@@ -70,17 +70,38 @@ public class IdBasedQueryEngine extends QueryEngineMain
 	static public void unregister () { QueryEngineRegistry.removeFactory( factory ); }
 
 
+	// members
+
+	/** the compiled query evaluated by this engine, or null */
+	final protected CompiledQuery compiledQuery;
+
+
 	// initialization methods
 
 	public IdBasedQueryEngine ( Op op, DatasetGraph dataset, Binding input, Context context )
 	{
 		super( op, dataset, input, context );
+		compiledQuery = null;
 		registerOpExecutor();
 	}
 
 	public IdBasedQueryEngine( Query query, DatasetGraph dataset, Binding input, Context context )
 	{
 		super( query, dataset, input, context );
+		compiledQuery = null;
+		registerOpExecutor();
+	}
+
+	/**
+	 * Creates an engine that evaluates the given compiled query. The query is
+	 * not optimized again and the given input binding (i.e. the parameters)
+	 * is not substituted into the query but passed to the query operators as
+	 * the initial binding (see {@link PreparedQuery}).
+	 */
+	public IdBasedQueryEngine ( CompiledQuery compiledQuery, DatasetGraph dataset, Binding input, Context context )
+	{
+		super( compiledQuery.getOp(), dataset, input, context );
+		this.compiledQuery = compiledQuery;
 		registerOpExecutor();
 	}
 
@@ -93,15 +114,31 @@ public class IdBasedQueryEngine extends QueryEngineMain
 	// operations
 
 	@Override
-	public QueryIterator eval ( Op op, DatasetGraph dsg, Binding input, Context contextP )
+	protected Op modifyOp ( Op op )
 	{
-		if ( SUBSTITUE && ! input.isEmpty() ) {
-			op = Substitute.substitute( op, input );
+		if ( compiledQuery != null ) {
+			return op; // already optimized
 		}
+		return super.modifyOp( op );
+	}
 
-		VarDictionary varDict = initializeVarDictionary( op );
+	@Override
+	public QueryIterator eval ( Op op, DatasetGraph dsg, Binding input, Context contextP )
+	{
+		VarDictionary varDict;
+		if ( compiledQuery != null ) {
+			varDict = compiledQuery.getVarDictionary();
+		}
+		else
+		{
+			if ( SUBSTITUE && ! input.isEmpty() ) {
+				op = Substitute.substitute( op, input );
+			}
+			varDict = initializeVarDictionary( op );
+		}
 
 		ExecutionContext execCxt = new IdBasedExecutionContext( varDict,
+		                                                        compiledQuery,
 		                                                        contextP,
 		                                                        dsg.getDefaultGraph(),
 		                                                        dsg,
@@ -116,7 +153,7 @@ public class IdBasedQueryEngine extends QueryEngineMain
 	 * Creates a dictionary of query variables that knows all variables in the
 	 * operator tree of which the given operator is root.
 	 */
-	final protected VarDictionary initializeVarDictionary ( Op op )
+	static protected VarDictionary initializeVarDictionary ( Op op )
 	{
 		// We cannot call OpVars.allVars(op) directly because it does not
 		// consider all variables in sub-operators of OpProject. Hence,
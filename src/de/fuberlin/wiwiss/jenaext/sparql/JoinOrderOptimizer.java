@@ -0,0 +1,200 @@
+package de.fuberlin.wiwiss.jenaext.sparql;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import de.fuberlin.wiwiss.jenaext.GraphStatistics;
+import de.fuberlin.wiwiss.jenaext.IdBasedGraph;
+import de.fuberlin.wiwiss.jenaext.impl.IdBasedQueryPlan.IdBasedTriplePattern;
+
+
+/**
+ * Determines the order in which the triple patterns of a basic graph pattern
+ * are evaluated. The order is built greedily: The pattern with the smallest
+ * estimated cardinality comes first. Each following pattern is selected from
+ * the remaining patterns that share a variable with the patterns selected so
+ * far (patterns that do not share a variable are only selected if there is no
+ * other choice because they lead to a cartesian product). Among these, the
+ * pattern with the smallest estimated cardinality is selected.
+ *
+ * The estimated cardinality of a triple pattern is the cardinality of its
+ * constant components as reported by {@link IdBasedGraph#getCardinality}.
+ * For each variable of the pattern that is bound by the patterns selected so
+ * far, this cardinality is divided by the number of distinct nodes that may
+ * be bound to the variable (see {@link GraphStatistics}); e.g. the
+ * cardinality of <code>?x ex:p ?y</code> with <code>?x</code> bound is the
+ * number of triples with predicate <code>ex:p</code> divided by the number of
+ * distinct subjects of these triples.
+ *
+ * @author Olaf Hartig
+ */
+public class JoinOrderOptimizer
+{
+	// members
+
+	/** the queried graph that provides the cardinalities */
+	final protected IdBasedGraph graph;
+
+	/** the statistics of the queried graph */
+	protected GraphStatistics statistics;
+
+
+	// initialization
+
+	public JoinOrderOptimizer ( IdBasedGraph graph )
+	{
+		this.graph = graph;
+	}
+
+
+	// operations
+
+	/**
+	 * Returns the given triple patterns in the order in which they should be
+	 * evaluated.
+	 */
+	public List<IdBasedTriplePattern> optimize ( List<IdBasedTriplePattern> patterns )
+	{
+		int size = patterns.size();
+		if ( size < 2 ) {
+			return patterns;
+		}
+
+		statistics = graph.getStatistics();
+		long[] cardinalities = new long [size];
+		for ( int i = 0; i < size; ++i ) {
+			cardinalities[i] = estimateCardinality( patterns.get(i) );
+		}
+
+		List<IdBasedTriplePattern> result = new ArrayList<IdBasedTriplePattern> ( size );
+		boolean[] selected = new boolean [size];
+		BitSet boundVars = new BitSet ();
+		while ( result.size() < size )
+		{
+			int best = -1;
+			boolean bestIsJoined = false;
+			double bestEstimate = 0.0;
+			for ( int i = 0; i < size; ++i )
+			{
+				if ( selected[i] ) {
+					continue;
+				}
+
+				IdBasedTriplePattern tp = patterns.get( i );
+				boolean isJoined = sharesVariable( tp, boundVars );
+				double estimate = ( isJoined ) ? estimateCardinality( tp, cardinalities[i], boundVars )
+				                               : cardinalities[i];
+				if (    best < 0
+				     || ( isJoined && ! bestIsJoined )
+				     || ( isJoined == bestIsJoined && estimate < bestEstimate ) )
+				{
+					best = i;
+					bestIsJoined = isJoined;
+					bestEstimate = estimate;
+				}
+			}
+
+			selected[best] = true;
+			IdBasedTriplePattern tp = patterns.get( best );
+			result.add( tp );
+			if ( tp.sIsVar ) { boundVars.set( tp.s ); }
+			if ( tp.pIsVar ) { boundVars.set( tp.p ); }
+			if ( tp.oIsVar ) { boundVars.set( tp.o ); }
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Returns an estimate of the number of solutions of the given group of
+	 * triple patterns (e.g. a star pattern) if none of its variables is bound.
+	 * The estimate is the smallest cardinality of the patterns in the group.
+	 */
+	public long estimateCardinality ( List<IdBasedTriplePattern> group )
+	{
+		long result = Long.MAX_VALUE;
+		for ( IdBasedTriplePattern tp : group ) {
+			result = Math.min( result, estimateCardinality(tp) );
+		}
+		return result;
+	}
+
+
+	// helpers
+
+	/**
+	 * Returns an estimate of the number of triples that match the given
+	 * triple pattern if none of its variables is bound.
+	 */
+	protected long estimateCardinality ( IdBasedTriplePattern tp )
+	{
+		return graph.getCardinality( (tp.sIsVar) ? -1 : tp.s,
+		                             (tp.pIsVar) ? -1 : tp.p,
+		                             (tp.oIsVar) ? -1 : tp.o );
+	}
+
+	/**
+	 * Returns an estimate of the number of triples that match the given
+	 * triple pattern for a binding of the given variables.
+	 *
+	 * @param cardinality the estimate for the pattern without bound variables
+	 */
+	protected double estimateCardinality ( IdBasedTriplePattern tp, long cardinality, BitSet boundVars )
+	{
+		double result = cardinality;
+		boolean pIsConstant = ! tp.pIsVar;
+		if ( tp.sIsVar && boundVars.get(tp.s) )
+		{
+			int distinct = ( pIsConstant ) ? statistics.getDistinctSubjectCount( tp.p )
+			                               : statistics.getDistinctSubjectCount();
+			result /= Math.max( 1, distinct );
+		}
+		if ( tp.oIsVar && boundVars.get(tp.o) )
+		{
+			int distinct = ( pIsConstant ) ? statistics.getDistinctObjectCount( tp.p )
+			                               : statistics.getDistinctObjectCount();
+			result /= Math.max( 1, distinct );
+		}
+		if ( tp.pIsVar && boundVars.get(tp.p) ) {
+			result /= Math.max( 1, statistics.getPredicates().length );
+		}
+		return result;
+	}
+
+	static protected boolean sharesVariable ( IdBasedTriplePattern tp, BitSet vars )
+	{
+		return    ( tp.sIsVar && vars.get(tp.s) )
+		       || ( tp.pIsVar && vars.get(tp.p) )
+		       || ( tp.oIsVar && vars.get(tp.o) );
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
@@ -0,0 +1,168 @@
+package de.fuberlin.wiwiss.jenaext.sparql;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.hp.hpl.jena.sparql.algebra.op.OpGraph;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext;
+import com.hp.hpl.jena.sparql.engine.QueryIterator;
+import com.hp.hpl.jena.sparql.engine.main.OpExecutor;
+import com.hp.hpl.jena.sparql.engine.main.OpExecutorFactory;
+import com.hp.hpl.jena.sparql.util.Symbol;
+
+import de.fuberlin.wiwiss.jenaext.sparql.iterator.QueryIterParallelGraph;
+
+
+/**
+ * A {@link com.hp.hpl.jena.sparql.engine.main.OpExecutor} implementation
+ * that evaluates the pattern of a <code>GRAPH ?g { ... }</code> operator for
+ * the named graphs of the dataset in parallel (see
+ * {@link QueryIterParallelGraph}, which also documents the order of the
+ * solutions). The degree of parallelism is set by the
+ * {@link #graphParallelism} symbol in the query context.
+ *
+ * To use this executor with the default query engine of ARQ register its
+ * factory for a query execution:
+ * <pre>
+ * QueryExecution qe = QueryExecutionFactory.create( query, new NamedGraphDataset(set) );
+ * QC.setFactory( qe.getContext(), ParallelGraphOpExecutor.factory );
+ * qe.getContext().set( ParallelGraphOpExecutor.graphParallelism, 8 );
+ * </pre>
+ * The {@link IdBasedOpExecutor} of the {@link IdBasedQueryEngine} is an
+ * extension of this executor.
+ *
+ * @author Olaf Hartig
+ */
+public class ParallelGraphOpExecutor extends OpExecutor
+{
+	/**
+	 * The context symbol for the maximum number of named graphs that are
+	 * evaluated in parallel for a <code>GRAPH</code> operator. The default is
+	 * 1, i.e. the graphs are evaluated one after the other.
+	 */
+	static final public Symbol graphParallelism = Symbol.create( "http://sites.wiwiss.fu-berlin.de/suhl/bizer/ng4j/jenaext#graphParallelism" );
+
+	/**
+	 * The context symbol for the number of solutions that the parallel tasks
+	 * may produce in advance (i.e. the capacity of the queue through which
+	 * their solutions are merged). The default is
+	 * {@link #DEFAULT_GRAPH_QUEUE_CAPACITY}.
+	 */
+	static final public Symbol graphQueueCapacity = Symbol.create( "http://sites.wiwiss.fu-berlin.de/suhl/bizer/ng4j/jenaext#graphQueueCapacity" );
+
+	static final public int DEFAULT_GRAPH_QUEUE_CAPACITY = 1024;
+
+	/**
+	 * The context symbol for the {@link ExecutorService} that runs the
+	 * parallel tasks. If it is not set, a shared pool of daemon threads is
+	 * used.
+	 */
+	static final public Symbol graphExecutor = Symbol.create( "http://sites.wiwiss.fu-berlin.de/suhl/bizer/ng4j/jenaext#graphExecutor" );
+
+	/**
+	 * The factory object that creates this OpExecutor implementation.
+	 */
+	static final public OpExecutorFactory factory = new OpExecutorFactory()
+	{
+		public OpExecutor create( ExecutionContext execCxt )
+		{
+			return new ParallelGraphOpExecutor( execCxt );
+		}
+	};
+
+	/** the executor service used if none is set in the context */
+	static private ExecutorService defaultExecutor = null;
+
+
+	/**
+	 * Creates an operator compiler.
+	 */
+	public ParallelGraphOpExecutor ( ExecutionContext execCxt )
+	{
+		super( execCxt );
+	}
+
+
+	// operations
+
+	@Override
+	protected QueryIterator execute ( OpGraph opGraph, QueryIterator input )
+	{
+		int parallelism = (int) getLong( graphParallelism, 1 );
+		int capacity = (int) getLong( graphQueueCapacity, DEFAULT_GRAPH_QUEUE_CAPACITY );
+
+		ExecutorService executor = null;
+		if ( parallelism > 1 )
+		{
+			Object value = execCxt.getContext().get( graphExecutor );
+			executor = ( value != null ) ? (ExecutorService) value : getDefaultExecutor();
+		}
+
+		return new QueryIterParallelGraph( input, opGraph, execCxt, parallelism, capacity, executor );
+	}
+
+
+	// helper methods
+
+	final protected long getLong ( Symbol symbol, long defaultValue )
+	{
+		Object value = execCxt.getContext().get( symbol );
+		if ( value instanceof Number ) {
+			return ( (Number) value ).longValue();
+		}
+		if ( value != null ) {
+			return Long.parseLong( value.toString() );
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * Returns the shared pool of daemon threads for the parallel tasks (the
+	 * number of threads used by a query is limited by its degree of
+	 * parallelism).
+	 */
+	synchronized static protected ExecutorService getDefaultExecutor ()
+	{
+		if ( defaultExecutor == null )
+		{
+			defaultExecutor = Executors.newCachedThreadPool( new ThreadFactory() {
+				public Thread newThread ( Runnable r )
+				{
+					Thread t = new Thread( r, "ParallelGraphOpExecutor" );
+					t.setDaemon( true );
+					return t;
+				}
+			} );
+		}
+		return defaultExecutor;
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
@@ -0,0 +1,178 @@
+package de.fuberlin.wiwiss.jenaext.sparql;
+
+import java.util.Iterator;
+
+import com.hp.hpl.jena.query.ARQ;
+import com.hp.hpl.jena.query.Dataset;
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.sparql.algebra.Algebra;
+import com.hp.hpl.jena.sparql.algebra.Op;
+import com.hp.hpl.jena.sparql.core.DatasetGraph;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.Plan;
+import com.hp.hpl.jena.sparql.engine.QueryEngineFactory;
+import com.hp.hpl.jena.sparql.engine.QueryExecutionBase;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.util.Context;
+
+
+/**
+ * A SPARQL query that is parsed and compiled once (see {@link CompiledQuery})
+ * and that can be executed with the {@link IdBasedQueryEngine} any number of
+ * times. Executions may bind variables of the query to values (parameters):
+ * <pre>
+ * PreparedQuery q = PreparedQuery.prepare( "SELECT ?n WHERE { ?p foaf:knows ?x . ?x foaf:name ?n }" );
+ * QuerySolutionMap params = new QuerySolutionMap();
+ * params.add( "p", person );
+ * QueryExecution qe = q.createExecution( dataset, params );
+ * ResultSet rs = qe.execSelect();
+ * </pre>
+ * The parameters are not substituted into the query; instead, they are the
+ * initial binding of the query operators (hence, the query does not have to
+ * be compiled for each execution). Notice, the results differ from the
+ * results of the substituted query if a parameter is a variable that occurs
+ * only in the scope of an OPTIONAL, a filter, or a sub-query.
+ *
+ * The compiled queries are shared through a {@link CompiledQueryCache}.
+ * Prepared queries may be executed concurrently.
+ *
+ * @author Olaf Hartig
+ */
+public class PreparedQuery
+{
+	// members
+
+	final protected Query query;
+
+	final protected CompiledQuery compiledQuery;
+
+	/** the factory for the engines that execute the compiled query */
+	final protected QueryEngineFactory engineFactory = new QueryEngineFactory()
+	{
+		public boolean accept ( Query q, DatasetGraph ds, Context cxt ) { return true; }
+
+		public boolean accept ( Op op, DatasetGraph ds, Context cxt ) { return true; }
+
+		public Plan create ( Query q, DatasetGraph dataset, Binding initialBinding, Context context ) {
+			IdBasedQueryEngine engine = new IdBasedQueryEngine( compiledQuery, dataset, initialBinding, context );
+			return engine.getPlan();
+		}
+
+		public Plan create ( Op op, DatasetGraph dataset, Binding initialBinding, Context context ) {
+			IdBasedQueryEngine engine = new IdBasedQueryEngine( op, dataset, initialBinding, context );
+			return engine.getPlan();
+		}
+	};
+
+
+	// initialization
+
+	/**
+	 * Prepares the given query using the default cache of compiled queries
+	 * (see {@link CompiledQueryCache#getDefault}).
+	 */
+	public PreparedQuery ( Query query )
+	{
+		this( query, CompiledQueryCache.getDefault() );
+	}
+
+	public PreparedQuery ( Query query, CompiledQueryCache cache )
+	{
+		this.query = query;
+		query.setResultVars();
+		compiledQuery = cache.get( Algebra.compile(query) );
+	}
+
+	/**
+	 * Parses and prepares the given query using the default cache of compiled
+	 * queries.
+	 */
+	static public PreparedQuery prepare ( String queryString )
+	{
+		return new PreparedQuery( QueryFactory.create(queryString) );
+	}
+
+
+	// accessors
+
+	public Query getQuery ()
+	{
+		return query;
+	}
+
+	public CompiledQuery getCompiledQuery ()
+	{
+		return compiledQuery;
+	}
+
+
+	// operations
+
+	/**
+	 * Returns an execution of this query over the given dataset without
+	 * parameters.
+	 */
+	public QueryExecution createExecution ( Dataset dataset )
+	{
+		return createExecution( dataset, null );
+	}
+
+	/**
+	 * Returns an execution of this query over the given dataset with the
+	 * given parameters (which may be null).
+	 *
+	 * @throws IllegalArgumentException if a parameter is not a variable of
+	 *                                  this query
+	 */
+	public QueryExecution createExecution ( Dataset dataset, QuerySolution parameters ) throws IllegalArgumentException
+	{
+		if ( parameters != null )
+		{
+			Iterator<String> it = parameters.varNames();
+			while ( it.hasNext() )
+			{
+				String varName = it.next();
+				if ( ! compiledQuery.getVarDictionary().contains(Var.alloc(varName)) ) {
+					throw new IllegalArgumentException( "The parameter ?" + varName + " is not a variable of the query." );
+				}
+			}
+		}
+
+		QueryExecutionBase qe = new QueryExecutionBase( query, dataset, ARQ.getContext().copy(), engineFactory );
+		if ( parameters != null ) {
+			qe.setInitialBinding( parameters );
+		}
+		return qe;
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
@@ -56,6 +56,14 @@ public class VarDictionary
 		return  i.intValue();
 	}
 
+	/**
+	 * Returns true if this dictionary knows the given query variable.
+	 */
+	final public boolean contains ( Var v )
+	{
+		return dictVarName2Id.containsKey( v.getVarName() );
+	}
+
 	/**
 	 * Returns the number of query variables known by this dictionary.
 	 */
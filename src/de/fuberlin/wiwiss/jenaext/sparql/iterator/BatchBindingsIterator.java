@@ -0,0 +1,108 @@
+package de.fuberlin.wiwiss.jenaext.sparql.iterator;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.openjena.atlas.lib.Closeable;
+
+import de.fuberlin.wiwiss.jenaext.sparql.IdBasedBinding;
+import de.fuberlin.wiwiss.jenaext.sparql.IdBasedBindingBatch;
+
+
+/**
+ * A query iterator that groups the ID-based bindings of its input iterator
+ * into batches. The same batch object is reused; a batch returned by
+ * {@link #next} is only valid until the next call of {@link #hasNext}.
+ *
+ * @author Olaf Hartig
+ */
+public class BatchBindingsIterator implements Iterator<IdBasedBindingBatch>, Closeable
+{
+	// members
+
+	final protected Iterator<IdBasedBinding> input;
+
+	final protected IdBasedBindingBatch batch;
+
+	protected boolean batchIsReady = false;
+
+
+	// initialization
+
+	public BatchBindingsIterator ( Iterator<IdBasedBinding> input, int varCount, int batchSize )
+	{
+		this.input = input;
+		batch = new IdBasedBindingBatch( varCount, batchSize );
+	}
+
+
+	// implementation of the Iterator interface
+
+	public boolean hasNext ()
+	{
+		if ( batchIsReady ) {
+			return true;
+		}
+
+		batch.clear();
+		while ( ! batch.isFull() && input.hasNext() ) {
+			batch.add( input.next() );
+		}
+
+		batchIsReady = ( batch.size() > 0 );
+		return batchIsReady;
+	}
+
+	public IdBasedBindingBatch next ()
+	{
+		if ( ! hasNext() ) {
+			throw new NoSuchElementException();
+		}
+
+		batchIsReady = false;
+		return batch;
+	}
+
+	public void remove ()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+
+	// implementation of the Closable interface
+
+	public void close ()
+	{
+		if ( input instanceof Closeable ) {
+			( (Closeable) input ).close();
+		}
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
@@ -5,10 +5,10 @@ import java.util.Iterator;
 import org.openjena.atlas.lib.Closeable;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIter;
 import com.hp.hpl.jena.sparql.engine.binding.Binding;
-import com.hp.hpl.jena.sparql.engine.binding.BindingMap;
 
 import de.fuberlin.wiwiss.jenaext.IdBasedGraph;
-import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+import de.fuberlin.wiwiss.jenaext.sparql.DecodedNodeCache;
+import de.fuberlin.wiwiss.jenaext.sparql.DecodingBinding;
 import de.fuberlin.wiwiss.jenaext.sparql.IdBasedBinding;
 import de.fuberlin.wiwiss.jenaext.sparql.IdBasedExecutionContext;
 import de.fuberlin.wiwiss.jenaext.sparql.VarDictionary;
@@ -16,7 +16,9 @@ import de.fuberlin.wiwiss.jenaext.sparql.VarDictionary;
 
 /**
  * This iterator converts {@link IdBasedBinding}s to
- * {@link com.hp.hpl.jena.sparql.engine.binding.Binding}s.
+ * {@link com.hp.hpl.jena.sparql.engine.binding.Binding}s. The provided
+ * bindings are {@link DecodingBinding}s which decode the values of their
+ * variables only on access.
  *
  * @author Olaf Hartig
  */
@@ -29,6 +31,9 @@ public class DecodeBindingsIterator extends QueryIter
 	/** the input iterator consumed by this one */
 	final protected Iterator<IdBasedBinding> input;
 
+	/** the cache used to decode the values of the bindings, created on demand */
+	protected DecodedNodeCache nodeCache = null;
+
 
 	// initialization
 
@@ -59,18 +64,13 @@ public class DecodeBindingsIterator extends QueryIter
 	{
 		IdBasedBinding curInput = input.next();
 
-		NodeDictionary nodeDict = ( (IdBasedGraph) getExecContext().getActiveGraph() ).getNodeDictionary();
-
-		Binding curOutput = new BindingMap();
-		for ( int i = curInput.size() - 1; i >= 0; i-- )
+		if ( nodeCache == null )
 		{
-			if ( curInput.contains(i) ) {
-				curOutput.add( varDict.getVar(i),
-				               nodeDict.getNode(curInput.get(i)) );
-			}
+			IdBasedExecutionContext execCxt = (IdBasedExecutionContext) getExecContext();
+			nodeCache = execCxt.getDecodedNodeCache( ((IdBasedGraph) execCxt.getActiveGraph()).getNodeDictionary() );
 		}
 
-		return curOutput;
+		return new DecodingBinding( curInput, varDict, nodeCache );
 	}
 
 	/* (non-Javadoc)
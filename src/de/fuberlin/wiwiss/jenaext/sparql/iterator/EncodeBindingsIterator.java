@@ -9,6 +9,7 @@ import com.hp.hpl.jena.sparql.engine.binding.Binding;
 
 import de.fuberlin.wiwiss.jenaext.IdBasedGraph;
 import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+import de.fuberlin.wiwiss.jenaext.sparql.DecodingBinding;
 import de.fuberlin.wiwiss.jenaext.sparql.IdBasedBinding;
 import de.fuberlin.wiwiss.jenaext.sparql.IdBasedExecutionContext;
 import de.fuberlin.wiwiss.jenaext.sparql.VarDictionary;
@@ -54,13 +55,28 @@ public class EncodeBindingsIterator implements Iterator<IdBasedBinding>, Closeab
 
 		NodeDictionary nodeDict = ( (IdBasedGraph) execCxt.getActiveGraph() ).getNodeDictionary();
 
+		// A binding decoded by a DecodeBindingsIterator of the same query does
+		// not have to be encoded again (ID-based bindings are never modified).
+		if ( curInput instanceof DecodingBinding )
+		{
+			DecodingBinding b = (DecodingBinding) curInput;
+			if (    ! b.hasAddedVariables()
+			     && b.getNodeDictionary() == nodeDict
+			     && b.getIdBasedBinding().size() == varDict.size() ) {
+				return b.getIdBasedBinding();
+			}
+		}
+
+		// Values that are not yet known to the node dictionary (e.g. the name
+		// of the graph bound by a GRAPH operator) get an identifier; otherwise
+		// they would be taken as unbound.
 		IdBasedBinding curOutput = new IdBasedBinding( varDict.size() );
 		Iterator<Var> itVar = curInput.vars();
 		while ( itVar.hasNext() )
 		{
 			Var var = itVar.next();
 			curOutput.set( varDict.getId(var),
-			               nodeDict.getId(curInput.get(var)) );
+			               nodeDict.createId(curInput.get(var)) );
 		}
 
 		return curOutput;
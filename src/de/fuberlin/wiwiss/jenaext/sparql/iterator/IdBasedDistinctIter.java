@@ -0,0 +1,122 @@
+package de.fuberlin.wiwiss.jenaext.sparql.iterator;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.hp.hpl.jena.sparql.engine.QueryIterator;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterDistinctReduced;
+
+import de.fuberlin.wiwiss.jenaext.IdBasedGraph;
+import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+import de.fuberlin.wiwiss.jenaext.sparql.DecodingBinding;
+import de.fuberlin.wiwiss.jenaext.sparql.IdBasedBinding;
+import de.fuberlin.wiwiss.jenaext.sparql.IdBasedExecutionContext;
+import de.fuberlin.wiwiss.jenaext.sparql.VarDictionary;
+
+
+/**
+ * This iterator eliminates duplicate bindings. In contrast to a
+ * {@link com.hp.hpl.jena.sparql.engine.iterator.QueryIterDistinct} it
+ * compares the identifiers of the values instead of the values; since the
+ * node dictionary assigns exactly one identifier to every RDF term, two
+ * bindings are equal iff their identifiers are equal. The bindings are not
+ * decoded for this comparison. Bindings with a variable or a value that is
+ * unknown to the dictionaries (which hence cannot be equal to an encoded
+ * binding) are compared by their values.
+ *
+ * @author Olaf Hartig
+ */
+public class IdBasedDistinctIter extends QueryIterDistinctReduced
+{
+	// members
+
+	final protected VarDictionary varDict;
+
+	final protected Set<IdBasedBinding> seenIds = new HashSet<IdBasedBinding> ();
+
+	/** the bindings that cannot be encoded */
+	final protected Set<Binding> seen = new HashSet<Binding> ();
+
+	/** the binding checked last by {@link #isDuplicate} and its encoded form */
+	protected Binding lastBinding = null;
+	protected IdBasedBinding lastKey = null;
+
+
+	// initialization
+
+	public IdBasedDistinctIter ( QueryIterator input, IdBasedExecutionContext execCxt )
+	{
+		super( input, execCxt );
+		this.varDict = execCxt.getVarDictionary();
+	}
+
+
+	// implementation of the QueryIterDistinctReduced abstract methods
+
+	@Override
+	protected boolean isDuplicate ( Binding b )
+	{
+		lastBinding = b;
+		lastKey = encode( b );
+		return ( lastKey != null ) ? seenIds.contains( lastKey ) : seen.contains( b );
+	}
+
+	@Override
+	protected void remember ( Binding b )
+	{
+		IdBasedBinding key = ( b == lastBinding ) ? lastKey : encode( b );
+		if ( key != null ) {
+			seenIds.add( key );
+		} else {
+			seen.add( b );
+		}
+	}
+
+	@Override
+	protected void closeSubIterator ()
+	{
+		seenIds.clear();
+		seen.clear();
+		lastBinding = null;
+		lastKey = null;
+		super.closeSubIterator();
+	}
+
+
+	// helpers
+
+	protected IdBasedBinding encode ( Binding b )
+	{
+		NodeDictionary nodeDict = ( (IdBasedGraph) getExecContext().getActiveGraph() ).getNodeDictionary();
+		return DecodingBinding.encode( b, varDict, nodeDict );
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
@@ -0,0 +1,214 @@
+package de.fuberlin.wiwiss.jenaext.sparql.iterator;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.QueryIterator;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterProcessBinding;
+import com.hp.hpl.jena.sparql.expr.E_Equals;
+import com.hp.hpl.jena.sparql.expr.E_LogicalNot;
+import com.hp.hpl.jena.sparql.expr.E_NotEquals;
+import com.hp.hpl.jena.sparql.expr.E_SameTerm;
+import com.hp.hpl.jena.sparql.expr.Expr;
+import com.hp.hpl.jena.sparql.expr.ExprFunction2;
+
+import de.fuberlin.wiwiss.jenaext.IdBasedGraph;
+import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+import de.fuberlin.wiwiss.jenaext.sparql.DecodingBinding;
+import de.fuberlin.wiwiss.jenaext.sparql.IdBasedBinding;
+import de.fuberlin.wiwiss.jenaext.sparql.IdBasedExecutionContext;
+import de.fuberlin.wiwiss.jenaext.sparql.VarDictionary;
+
+
+/**
+ * This iterator filters the bindings of its input iterator by a filter
+ * expression that compares RDF terms (i.e. identifiers) only. Supported are
+ * (possibly negated) expressions of the following forms:
+ * <ul>
+ * <li><code>sameTerm(?x, ?y)</code>, <code>sameTerm(?x, c)</code> for any
+ *     constant <code>c</code>,</li>
+ * <li><code>?x = &lt;u&gt;</code> and <code>?x != &lt;u&gt;</code> for an
+ *     IRI <code>&lt;u&gt;</code> (an IRI is equal only to itself).</li>
+ * </ul>
+ * Equality with literals is not supported because it compares the values of
+ * the literals (e.g. <code>"1"^^xsd:int = "01"^^xsd:int</code>) which
+ * cannot be done on the level of identifiers. Use {@link #isSupported} to
+ * check an expression.
+ *
+ * Bound values that are unknown to the node dictionary are never equal to an
+ * encoded value. If both compared values are unknown the expression is
+ * evaluated as usual.
+ *
+ * @author Olaf Hartig
+ */
+public class IdBasedFilterIter extends QueryIterProcessBinding
+{
+	// members
+
+	final protected Expr expr;
+
+	final protected VarDictionary varDict;
+
+	/** the first variable of the comparison */
+	final protected Var var1;
+
+	/** the second variable of the comparison, or null */
+	final protected Var var2;
+
+	/** the constant of the comparison (if var2 is null) */
+	final protected Node constant;
+
+	/** true if the result of the comparison is negated */
+	final protected boolean negated;
+
+	/** the identifier of the constant, once it is known */
+	protected int constantId = IdBasedBinding.UNBOUND;
+	protected NodeDictionary constantDict = null;
+
+
+	// initialization
+
+	/**
+	 * @throws IllegalArgumentException if the given expression is not
+	 *                                  supported (see {@link #isSupported})
+	 */
+	public IdBasedFilterIter ( QueryIterator input, Expr expr, IdBasedExecutionContext execCxt ) throws IllegalArgumentException
+	{
+		super( input, execCxt );
+
+		if ( ! isSupported(expr) ) {
+			throw new IllegalArgumentException( "Unsupported filter expression: " + expr.toString() );
+		}
+
+		this.expr = expr;
+		this.varDict = execCxt.getVarDictionary();
+
+		Expr e = expr;
+		boolean neg = false;
+		if ( e instanceof E_LogicalNot ) {
+			e = ( (E_LogicalNot) e ).getArg();
+			neg = true;
+		}
+		if ( e instanceof E_NotEquals ) {
+			neg = ! neg;
+		}
+		negated = neg;
+
+		Expr arg1 = ( (ExprFunction2) e ).getArg1();
+		Expr arg2 = ( (ExprFunction2) e ).getArg2();
+		if ( ! arg1.isVariable() ) {
+			Expr tmp = arg1;
+			arg1 = arg2;
+			arg2 = tmp;
+		}
+
+		var1 = arg1.asVar();
+		var2 = ( arg2.isVariable() ) ? arg2.asVar() : null;
+		constant = ( arg2.isVariable() ) ? null : arg2.getConstant().asNode();
+	}
+
+
+	// accessors
+
+	/**
+	 * Returns true if the given filter expression can be evaluated by
+	 * comparing identifiers.
+	 */
+	static public boolean isSupported ( Expr expr )
+	{
+		if ( expr instanceof E_LogicalNot ) {
+			expr = ( (E_LogicalNot) expr ).getArg();
+		}
+
+		if ( ! (expr instanceof ExprFunction2) ) {
+			return false;
+		}
+
+		Expr arg1 = ( (ExprFunction2) expr ).getArg1();
+		Expr arg2 = ( (ExprFunction2) expr ).getArg2();
+		if ( ! arg1.isVariable() ) {
+			Expr tmp = arg1;
+			arg1 = arg2;
+			arg2 = tmp;
+		}
+
+		if ( ! arg1.isVariable() ) {
+			return false;
+		}
+
+		if ( expr instanceof E_SameTerm ) {
+			return arg2.isVariable() || arg2.isConstant();
+		}
+
+		if ( expr instanceof E_Equals || expr instanceof E_NotEquals ) {
+			return arg2.isConstant() && arg2.getConstant().asNode().isURI();
+		}
+
+		return false;
+	}
+
+
+	// implementation of the QueryIterProcessBinding abstract methods
+
+	@Override
+	public Binding accept ( Binding b )
+	{
+		NodeDictionary nodeDict = ( (IdBasedGraph) getExecContext().getActiveGraph() ).getNodeDictionary();
+
+		int id1 = DecodingBinding.getValueId( b, var1, varDict, nodeDict );
+		if ( id1 == IdBasedBinding.UNBOUND ) {
+			return null; // evaluation error
+		}
+
+		int id2;
+		if ( var2 != null )
+		{
+			id2 = DecodingBinding.getValueId( b, var2, varDict, nodeDict );
+			if ( id2 == IdBasedBinding.UNBOUND ) {
+				return null; // evaluation error
+			}
+		}
+		else
+		{
+			if ( constantDict != nodeDict || constantId < 0 ) {
+				constantId = nodeDict.getId( constant );
+				constantDict = nodeDict;
+			}
+			id2 = ( constantId < 0 ) ? DecodingBinding.UNKNOWN : constantId;
+		}
+
+		if ( id1 == DecodingBinding.UNKNOWN && id2 == DecodingBinding.UNKNOWN ) {
+			return ( expr.isSatisfied(b,getExecContext()) ) ? b : null;
+		}
+
+		return ( (id1 == id2) != negated ) ? b : null;
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
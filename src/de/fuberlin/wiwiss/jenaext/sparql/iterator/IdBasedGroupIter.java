@@ -0,0 +1,237 @@
+package de.fuberlin.wiwiss.jenaext.sparql.iterator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openjena.atlas.iterator.IteratorDelayedInitialization;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.core.VarExprList;
+import com.hp.hpl.jena.sparql.engine.QueryIterator;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.binding.BindingKey;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import com.hp.hpl.jena.sparql.expr.ExprAggregator;
+
+import de.fuberlin.wiwiss.jenaext.IdBasedGraph;
+import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+import de.fuberlin.wiwiss.jenaext.sparql.DecodingBinding;
+import de.fuberlin.wiwiss.jenaext.sparql.IdBasedBinding;
+import de.fuberlin.wiwiss.jenaext.sparql.IdBasedExecutionContext;
+import de.fuberlin.wiwiss.jenaext.sparql.VarDictionary;
+
+
+/**
+ * This iterator groups the bindings of its input iterator by group variables
+ * (see {@link #isSupported}) and computes the aggregates of each group. In
+ * contrast to a {@link com.hp.hpl.jena.sparql.engine.iterator.QueryIterGroup}
+ * the bindings are assigned to their groups by the identifiers of the values
+ * of the group variables; these values are decoded only once per group.
+ * The aggregates are computed by the aggregators of the query as usual and
+ * the result (including the result for an empty input) is the same as the
+ * result of a {@link com.hp.hpl.jena.sparql.engine.iterator.QueryIterGroup}.
+ *
+ * @author Olaf Hartig
+ */
+public class IdBasedGroupIter extends QueryIterPlainWrapper
+{
+	// members
+
+	final protected QueryIterator embeddedIterator;
+
+
+	// initialization
+
+	/**
+	 * @throws IllegalArgumentException if the given group variables are not
+	 *                                  supported (see {@link #isSupported})
+	 */
+	public IdBasedGroupIter ( QueryIterator input, VarExprList groupVars, List<ExprAggregator> aggregators, IdBasedExecutionContext execCxt ) throws IllegalArgumentException
+	{
+		super( null, execCxt );
+
+		if ( ! isSupported(groupVars) ) {
+			throw new IllegalArgumentException( "Unsupported group variables: " + groupVars.toString() );
+		}
+
+		embeddedIterator = input;
+		setIterator( calc(input,groupVars.getVars(),aggregators,execCxt) );
+	}
+
+
+	// accessors
+
+	/**
+	 * Returns true if the given group keys are plain variables (i.e. not
+	 * expressions).
+	 */
+	static public boolean isSupported ( VarExprList groupVars )
+	{
+		return groupVars.getExprs().isEmpty();
+	}
+
+
+	// operations
+
+	@Override
+	public void requestCancel ()
+	{
+		embeddedIterator.cancel();
+		super.requestCancel();
+	}
+
+
+	// helper methods
+
+	static protected Iterator<Binding> calc ( final QueryIterator input,
+	                                          final List<Var> groupVars,
+	                                          final List<ExprAggregator> aggregators,
+	                                          final IdBasedExecutionContext execCxt )
+	{
+		return new IteratorDelayedInitialization<Binding> () {
+			@Override
+			protected Iterator<Binding> initializeIterator ()
+			{
+				NodeDictionary nodeDict = ( (IdBasedGraph) execCxt.getActiveGraph() ).getNodeDictionary();
+				VarDictionary varDict = execCxt.getVarDictionary();
+				int varCount = groupVars.size();
+
+				// The keys of the groups are ID-based bindings (with the group
+				// variables at the positions 0 to varCount-1), or BindingKeys for
+				// groups with values that are unknown to the node dictionary.
+				Map<Object,BindingKey> groups = new LinkedHashMap<Object,BindingKey> ();
+				while ( input.hasNext() )
+				{
+					Binding b = input.nextBinding();
+
+					Object key = new IdBasedBinding( varCount );
+					for ( int i = 0; i < varCount; ++i )
+					{
+						int valueId = DecodingBinding.getValueId( b, groupVars.get(i), varDict, nodeDict );
+						if ( valueId == DecodingBinding.UNKNOWN ) {
+							key = null;
+							break;
+						}
+						( (IdBasedBinding) key ).set( i, valueId );
+					}
+
+					BindingKey group;
+					if ( key != null )
+					{
+						group = groups.get( key );
+						if ( group == null ) {
+							group = createGroup( b, groupVars );
+							groups.put( key, group );
+						}
+					}
+					else
+					{
+						// compare the values of the group variables
+						group = createGroup( b, groupVars );
+						BindingKey existing = groups.get( group );
+						if ( existing == null ) {
+							groups.put( group, group );
+						} else {
+							group = existing;
+						}
+					}
+
+					if ( aggregators != null )
+					{
+						for ( ExprAggregator agg : aggregators ) {
+							agg.getAggregator().accumulate( group, b, execCxt );
+						}
+					}
+				}
+
+				if ( groups.isEmpty() )
+				{
+					// no input: one binding with the values of the aggregators
+					// for empty groups (if there are aggregators)
+					if ( aggregators == null || aggregators.isEmpty() ) {
+						return Collections.<Binding>emptyList().iterator();
+					}
+
+					Binding b = new BindingMap();
+					for ( ExprAggregator agg : aggregators )
+					{
+						Node value = agg.getAggregator().getValueEmpty();
+						if ( value != null ) {
+							b.add( agg.getVar(), value );
+						}
+					}
+					return Collections.singletonList( b ).iterator();
+				}
+
+				List<Binding> result = new ArrayList<Binding> ( groups.size() );
+				for ( BindingKey group : groups.values() )
+				{
+					Binding b = group.getBinding();
+					if ( aggregators != null )
+					{
+						for ( ExprAggregator agg : aggregators )
+						{
+							Node value = agg.getAggregator().getValue( group );
+							if ( value != null ) {
+								b.add( agg.getVar(), value );
+							}
+						}
+					}
+					result.add( b );
+				}
+				return result.iterator();
+			}
+		};
+	}
+
+	/**
+	 * Returns the key of the group of the given binding (i.e. a binding of the
+	 * group variables).
+	 */
+	static protected BindingKey createGroup ( Binding b, List<Var> groupVars )
+	{
+		Binding groupBinding = new BindingMap();
+		for ( Var v : groupVars )
+		{
+			Node n = b.get( v );
+			if ( n != null ) {
+				groupBinding.add( v, n );
+			}
+		}
+		return new BindingKey( groupBinding );
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
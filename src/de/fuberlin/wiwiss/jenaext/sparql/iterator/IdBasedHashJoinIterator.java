@@ -0,0 +1,296 @@
+package de.fuberlin.wiwiss.jenaext.sparql.iterator;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.openjena.atlas.lib.Closeable;
+
+import de.fuberlin.wiwiss.jenaext.sparql.IdBasedBinding;
+
+
+/**
+ * A query iterator that joins the ID-based bindings of two input iterators
+ * using a hash join. On the first call of {@link #hasNext} all bindings of the
+ * right input (the build side) are consumed and hashed by the identifiers
+ * that they bind to the given join variables. Afterwards, the bindings of the
+ * left input (the probe side) are consumed one by one and merged with the
+ * matching bindings of the right input. Hence, the right input should be the
+ * smaller one.
+ *
+ * Bindings that do not bind all join variables are compared with all
+ * bindings of the other side. In any case, merged bindings are only returned
+ * if the two bindings are compatible (see {@link IdBasedBinding#merge}).
+ *
+ * @author Olaf Hartig
+ */
+public class IdBasedHashJoinIterator implements Iterator<IdBasedBinding>, Closeable
+{
+	// members
+
+	/** the probe side of the join */
+	final protected Iterator<IdBasedBinding> left;
+
+	/** the build side of the join */
+	final protected Iterator<IdBasedBinding> right;
+
+	/** identifiers of the variables used to compute the hash values */
+	final protected int[] joinVars;
+
+	/** the bindings of the build side that bind all join variables */
+	protected IdBasedBinding[] buildBindings;
+
+	/** the bindings of the build side that do not bind all join variables */
+	protected List<IdBasedBinding> unhashedBindings;
+
+	/**
+	 * The hash table: buckets[h] is the index (in {@link #buildBindings}) of
+	 * the first binding with hash value h, or -1; chain[i] is the index of the
+	 * next binding with the same hash value as binding i, or -1.
+	 */
+	protected int[] buckets;
+	protected int[] chain;
+
+	/** the binding currently consumed from the left input */
+	protected IdBasedBinding currentLeft = null;
+
+	/**
+	 * the position of the next candidate in the current bucket chain, or -1
+	 * if the bucket chain has been processed
+	 */
+	protected int currentCandidate = -1;
+
+	/**
+	 * the position of the next candidate in the list of unhashed bindings
+	 * (or in all bindings of the build side if the current left binding
+	 * does not bind all join variables)
+	 */
+	protected int currentScanPos = 0;
+
+	/** true if the current left binding has to be compared with all bindings */
+	protected boolean currentLeftIsUnhashed;
+
+	/** the next result binding, or null */
+	protected IdBasedBinding nextResult = null;
+
+
+	// initialization
+
+	/**
+	 * Creates a hash join of the given input iterators.
+	 *
+	 * @param left the probe side of the join
+	 * @param right the build side of the join
+	 * @param joinVars identifiers of the variables shared by both sides
+	 */
+	public IdBasedHashJoinIterator ( Iterator<IdBasedBinding> left, Iterator<IdBasedBinding> right, int[] joinVars )
+	{
+		this.left = left;
+		this.right = right;
+		this.joinVars = joinVars;
+	}
+
+
+	// implementation of the Iterator interface
+
+	public boolean hasNext ()
+	{
+		if ( nextResult != null ) {
+			return true;
+		}
+
+		if ( buckets == null ) {
+			build();
+		}
+
+		while ( nextResult == null )
+		{
+			if ( currentLeft == null )
+			{
+				if ( ! left.hasNext() ) {
+					return false;
+				}
+
+				currentLeft = left.next();
+				currentLeftIsUnhashed = ! bindsAll( currentLeft );
+				currentCandidate = ( currentLeftIsUnhashed ) ? -1 : buckets[ bucket(currentLeft) ];
+				currentScanPos = 0;
+			}
+
+			nextResult = nextMatch();
+			if ( nextResult == null ) {
+				currentLeft = null;
+			}
+		}
+
+		return true;
+	}
+
+	public IdBasedBinding next ()
+	{
+		if ( ! hasNext() ) {
+			throw new NoSuchElementException();
+		}
+
+		IdBasedBinding result = nextResult;
+		nextResult = null;
+		return result;
+	}
+
+	public void remove ()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+
+	// implementation of the Closable interface
+
+	public void close ()
+	{
+		if ( left instanceof Closeable ) {
+			( (Closeable) left ).close();
+		}
+
+		if ( right instanceof Closeable ) {
+			( (Closeable) right ).close();
+		}
+
+		buildBindings = null;
+		unhashedBindings = null;
+		chain = null;
+	}
+
+
+	// helper methods
+
+	/**
+	 * Consumes the right input and builds the hash table.
+	 */
+	protected void build ()
+	{
+		List<IdBasedBinding> hashed = new ArrayList<IdBasedBinding> ();
+		unhashedBindings = new ArrayList<IdBasedBinding> ();
+		while ( right.hasNext() )
+		{
+			IdBasedBinding b = right.next();
+			if ( bindsAll(b) ) {
+				hashed.add( b );
+			} else {
+				unhashedBindings.add( b );
+			}
+		}
+
+		int size = hashed.size();
+		buildBindings = hashed.toArray( new IdBasedBinding[size] );
+
+		int capacity = 16;
+		while ( capacity < size * 2 ) {
+			capacity <<= 1;
+		}
+
+		buckets = new int [capacity];
+		for ( int i = 0; i < capacity; ++i ) {
+			buckets[i] = -1;
+		}
+
+		chain = new int [size];
+		for ( int i = size - 1; i >= 0; --i )
+		{
+			int h = bucket( buildBindings[i] );
+			chain[i] = buckets[h];
+			buckets[h] = i;
+		}
+	}
+
+	/**
+	 * Returns the next binding that results from merging the current left
+	 * binding with a compatible binding of the build side, or null.
+	 */
+	protected IdBasedBinding nextMatch ()
+	{
+		// Bindings in the bucket chain have the same hash value; they still
+		// have to be checked for compatibility.
+		while ( currentCandidate != -1 )
+		{
+			IdBasedBinding candidate = buildBindings[currentCandidate];
+			currentCandidate = chain[currentCandidate];
+
+			IdBasedBinding result = IdBasedBinding.merge( currentLeft, candidate );
+			if ( result != null ) {
+				return result;
+			}
+		}
+
+		// A left binding that does not bind all join variables may match
+		// any binding of the build side. Each left binding is compared with
+		// the build side bindings that do not bind all join variables.
+		int hashedCount = ( currentLeftIsUnhashed ) ? buildBindings.length : 0;
+		int total = hashedCount + unhashedBindings.size();
+		while ( currentScanPos < total )
+		{
+			IdBasedBinding candidate = ( currentScanPos < hashedCount ) ? buildBindings[currentScanPos]
+			                                                            : unhashedBindings.get( currentScanPos - hashedCount );
+			currentScanPos++;
+
+			IdBasedBinding result = IdBasedBinding.merge( currentLeft, candidate );
+			if ( result != null ) {
+				return result;
+			}
+		}
+
+		return null;
+	}
+
+	final protected boolean bindsAll ( IdBasedBinding b )
+	{
+		for ( int i = 0; i < joinVars.length; ++i )
+		{
+			if ( ! b.contains(joinVars[i]) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	final protected int bucket ( IdBasedBinding b )
+	{
+		int h = 0;
+		for ( int i = 0; i < joinVars.length; ++i ) {
+			h = 31 * h + b.get( joinVars[i] );
+		}
+
+		h ^= ( h >>> 16 );
+		h *= 0x85ebca6b;
+		h ^= ( h >>> 13 );
+		return h & ( buckets.length - 1 );
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
@@ -0,0 +1,236 @@
+package de.fuberlin.wiwiss.jenaext.sparql.iterator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.openjena.atlas.lib.Closeable;
+
+import de.fuberlin.wiwiss.jenaext.sparql.IdBasedBinding;
+
+
+/**
+ * A query iterator that joins the ID-based bindings of two input iterators
+ * using a merge join. Both inputs must provide their bindings in ascending
+ * order of the identifier bound to the join variable and both inputs must
+ * bind the join variable in each of their bindings; use {@link #sort} to
+ * sort an input that is not ordered already.
+ *
+ * For each identifier bound to the join variable, the bindings of the right
+ * input with this identifier are buffered and merged with each binding of
+ * the left input with the same identifier. Bindings are only merged if they
+ * are compatible (see {@link IdBasedBinding#merge}), i.e. variables other
+ * than the join variable that are bound on both sides are checked as well.
+ *
+ * @author Olaf Hartig
+ */
+public class IdBasedMergeJoinIterator implements Iterator<IdBasedBinding>, Closeable
+{
+	// members
+
+	final protected Iterator<IdBasedBinding> left;
+	final protected Iterator<IdBasedBinding> right;
+
+	/** identifier of the join variable */
+	final protected int joinVar;
+
+	/** the bindings of the right input that bind the current join value */
+	final protected List<IdBasedBinding> rightGroup = new ArrayList<IdBasedBinding> ();
+
+	/** the join value of the bindings in {@link #rightGroup} */
+	protected int rightGroupValue = IdBasedBinding.UNBOUND;
+
+	/**
+	 * the first binding of the right input that has not been added to
+	 * {@link #rightGroup} yet, or null
+	 */
+	protected IdBasedBinding rightLookahead = null;
+
+	/** the binding currently consumed from the left input */
+	protected IdBasedBinding currentLeft = null;
+
+	/** the position of the next candidate in {@link #rightGroup} */
+	protected int currentGroupPos = 0;
+
+	/** the next result binding, or null */
+	protected IdBasedBinding nextResult = null;
+
+
+	// initialization
+
+	/**
+	 * Creates a merge join of the given, sorted input iterators.
+	 *
+	 * @param joinVar identifier of the variable by which both inputs are sorted
+	 */
+	public IdBasedMergeJoinIterator ( Iterator<IdBasedBinding> left, Iterator<IdBasedBinding> right, int joinVar )
+	{
+		this.left = left;
+		this.right = right;
+		this.joinVar = joinVar;
+	}
+
+
+	// implementation of the Iterator interface
+
+	public boolean hasNext ()
+	{
+		if ( nextResult != null ) {
+			return true;
+		}
+
+		while ( true )
+		{
+			if ( currentLeft != null )
+			{
+				while ( currentGroupPos < rightGroup.size() )
+				{
+					nextResult = IdBasedBinding.merge( currentLeft, rightGroup.get(currentGroupPos++) );
+					if ( nextResult != null ) {
+						return true;
+					}
+				}
+				currentLeft = null;
+			}
+
+			if ( ! left.hasNext() ) {
+				return false;
+			}
+
+			currentLeft = left.next();
+			currentGroupPos = 0;
+
+			int value = currentLeft.get( joinVar );
+			assert value != IdBasedBinding.UNBOUND;
+			if ( value != rightGroupValue ) {
+				advanceRight( value );
+			}
+		}
+	}
+
+	public IdBasedBinding next ()
+	{
+		if ( ! hasNext() ) {
+			throw new NoSuchElementException();
+		}
+
+		IdBasedBinding result = nextResult;
+		nextResult = null;
+		return result;
+	}
+
+	public void remove ()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+
+	// implementation of the Closable interface
+
+	public void close ()
+	{
+		if ( left instanceof Closeable ) {
+			( (Closeable) left ).close();
+		}
+
+		if ( right instanceof Closeable ) {
+			( (Closeable) right ).close();
+		}
+
+		rightGroup.clear();
+	}
+
+
+	// operations
+
+	/**
+	 * Returns an iterator over the bindings of the given input, ordered by the
+	 * identifier bound to the given variable. The input is consumed and
+	 * closed (if it is {@link Closeable}) when this method is called.
+	 */
+	static public Iterator<IdBasedBinding> sort ( Iterator<IdBasedBinding> input, final int varId )
+	{
+		List<IdBasedBinding> bindings = new ArrayList<IdBasedBinding> ();
+		while ( input.hasNext() ) {
+			bindings.add( input.next() );
+		}
+
+		if ( input instanceof Closeable ) {
+			( (Closeable) input ).close();
+		}
+
+		IdBasedBinding[] array = bindings.toArray( new IdBasedBinding[bindings.size()] );
+		Arrays.sort( array, new Comparator<IdBasedBinding> () {
+			public int compare ( IdBasedBinding b1, IdBasedBinding b2 ) {
+				int v1 = b1.get( varId );
+				int v2 = b2.get( varId );
+				return ( v1 < v2 ) ? -1 : ( (v1 == v2) ? 0 : 1 );
+			}
+		} );
+		return Arrays.asList( array ).iterator();
+	}
+
+
+	// helper methods
+
+	/**
+	 * Fills {@link #rightGroup} with the bindings of the right input that bind
+	 * the join variable to the given value; the group remains empty if there
+	 * are no such bindings.
+	 */
+	protected void advanceRight ( int value )
+	{
+		rightGroup.clear();
+		rightGroupValue = value;
+
+		while ( rightLookahead != null || right.hasNext() )
+		{
+			IdBasedBinding b = ( rightLookahead != null ) ? rightLookahead : right.next();
+			rightLookahead = null;
+
+			int v = b.get( joinVar );
+			assert v != IdBasedBinding.UNBOUND;
+			if ( v < value ) {
+				continue;
+			}
+
+			if ( v > value ) {
+				rightLookahead = b;
+				return;
+			}
+
+			rightGroup.add( b );
+		}
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
@@ -0,0 +1,117 @@
+package de.fuberlin.wiwiss.jenaext.sparql.iterator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.QueryIterator;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.binding.BindingProject;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterProcessBinding;
+
+import de.fuberlin.wiwiss.jenaext.IdBasedGraph;
+import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+import de.fuberlin.wiwiss.jenaext.sparql.DecodingBinding;
+import de.fuberlin.wiwiss.jenaext.sparql.IdBasedBinding;
+import de.fuberlin.wiwiss.jenaext.sparql.IdBasedExecutionContext;
+import de.fuberlin.wiwiss.jenaext.sparql.VarDictionary;
+
+
+/**
+ * This iterator projects the bindings of its input iterator to a list of
+ * variables. In contrast to a
+ * {@link com.hp.hpl.jena.sparql.engine.iterator.QueryIterProject} it
+ * projects {@link DecodingBinding}s on the level of identifiers; i.e. the
+ * projected bindings are again {@link DecodingBinding}s which are still
+ * undecoded and which can be processed by the ID-based operators above the
+ * projection. Other bindings are wrapped in a {@link BindingProject}.
+ *
+ * @author Olaf Hartig
+ */
+public class IdBasedProjectIter extends QueryIterProcessBinding
+{
+	// members
+
+	final protected List<Var> vars;
+
+	final protected VarDictionary varDict;
+
+	/** the identifiers of the projection variables known to the dictionary */
+	final protected int[] varIds;
+
+
+	// initialization
+
+	public IdBasedProjectIter ( QueryIterator input, List<Var> vars, IdBasedExecutionContext execCxt )
+	{
+		super( input, execCxt );
+
+		this.vars = vars;
+		this.varDict = execCxt.getVarDictionary();
+
+		List<Integer> ids = new ArrayList<Integer> ();
+		for ( Var v : vars )
+		{
+			if ( varDict.contains(v) ) {
+				ids.add( Integer.valueOf(varDict.getId(v)) );
+			}
+		}
+
+		varIds = new int [ids.size()];
+		for ( int i = 0; i < varIds.length; ++i ) {
+			varIds[i] = ids.get( i ).intValue();
+		}
+	}
+
+
+	// implementation of the QueryIterProcessBinding abstract methods
+
+	@Override
+	public Binding accept ( Binding b )
+	{
+		if ( b instanceof DecodingBinding )
+		{
+			IdBasedExecutionContext execCxt = (IdBasedExecutionContext) getExecContext();
+			NodeDictionary nodeDict = ( (IdBasedGraph) execCxt.getActiveGraph() ).getNodeDictionary();
+			IdBasedBinding in = DecodingBinding.encode( b, varDict, nodeDict );
+			if ( in != null )
+			{
+				IdBasedBinding out = new IdBasedBinding( varDict.size() );
+				for ( int i = 0; i < varIds.length; ++i ) {
+					out.set( varIds[i], in.get(varIds[i]) );
+				}
+				return new DecodingBinding( out, varDict, execCxt.getDecodedNodeCache(nodeDict) );
+			}
+		}
+
+		return new BindingProject( vars, b );
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
@@ -0,0 +1,266 @@
+package de.fuberlin.wiwiss.jenaext.sparql.iterator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.SortCondition;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.QueryIterator;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.binding.BindingComparator;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import com.hp.hpl.jena.sparql.expr.NodeValue;
+
+import de.fuberlin.wiwiss.jenaext.IdBasedGraph;
+import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+import de.fuberlin.wiwiss.jenaext.sparql.DecodedNodeCache;
+import de.fuberlin.wiwiss.jenaext.sparql.DecodingBinding;
+import de.fuberlin.wiwiss.jenaext.sparql.IdBasedBinding;
+import de.fuberlin.wiwiss.jenaext.sparql.IdBasedExecutionContext;
+import de.fuberlin.wiwiss.jenaext.sparql.VarDictionary;
+
+
+/**
+ * This iterator sorts the bindings of its input iterator by sort conditions
+ * that are variables (see {@link #isSupported}). The order of RDF terms is
+ * not the order of their identifiers. However, instead of decoding the
+ * values of both bindings for each comparison (as a
+ * {@link com.hp.hpl.jena.sparql.engine.iterator.QueryIterSort} does) this
+ * iterator decodes every distinct value of a sort variable only once, sorts
+ * these values, and sorts the bindings by the ranks of their values. The
+ * result is the order defined by {@link BindingComparator}.
+ *
+ * If a value is unknown to the node dictionary the bindings are sorted by a
+ * {@link BindingComparator}.
+ *
+ * @author Olaf Hartig
+ */
+public class IdBasedSortIter extends QueryIterPlainWrapper
+{
+	// members
+
+	final protected QueryIterator embeddedIterator;
+
+
+	// initialization
+
+	/**
+	 * @throws IllegalArgumentException if the given sort conditions are not
+	 *                                  supported (see {@link #isSupported})
+	 */
+	public IdBasedSortIter ( QueryIterator input, List<SortCondition> conditions, IdBasedExecutionContext execCxt ) throws IllegalArgumentException
+	{
+		super( null, execCxt );
+
+		if ( ! isSupported(conditions) ) {
+			throw new IllegalArgumentException( "Unsupported sort conditions: " + conditions.toString() );
+		}
+
+		embeddedIterator = input;
+		setIterator( sort(input,conditions,execCxt) );
+	}
+
+
+	// accessors
+
+	/**
+	 * Returns true if all given sort conditions are variables.
+	 */
+	static public boolean isSupported ( List<SortCondition> conditions )
+	{
+		for ( SortCondition c : conditions )
+		{
+			if ( ! c.getExpression().isVariable() ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	// operations
+
+	@Override
+	public void requestCancel ()
+	{
+		embeddedIterator.cancel();
+		super.requestCancel();
+	}
+
+
+	// helper methods
+
+	static protected Iterator<Binding> sort ( QueryIterator input, List<SortCondition> conditions, IdBasedExecutionContext execCxt )
+	{
+		List<Binding> bindings = new ArrayList<Binding> ();
+		while ( input.hasNext() ) {
+			bindings.add( input.nextBinding() );
+		}
+		input.close();
+
+		NodeDictionary nodeDict = ( (IdBasedGraph) execCxt.getActiveGraph() ).getNodeDictionary();
+		VarDictionary varDict = execCxt.getVarDictionary();
+		int size = bindings.size();
+		int condCount = conditions.size();
+
+		final int[][] ranks = new int [condCount][];
+		final int[] directions = new int [condCount];
+		for ( int c = 0; c < condCount; ++c )
+		{
+			SortCondition cond = conditions.get( c );
+			Var var = cond.getExpression().asVar();
+			int[] ids = new int [size];
+			for ( int i = 0; i < size; ++i )
+			{
+				ids[i] = DecodingBinding.getValueId( bindings.get(i), var, varDict, nodeDict );
+				if ( ids[i] == DecodingBinding.UNKNOWN )
+				{
+					Collections.sort( bindings, new BindingComparator(conditions,execCxt) );
+					return bindings.iterator();
+				}
+			}
+
+			ranks[c] = rank( ids, execCxt.getDecodedNodeCache(nodeDict) );
+			directions[c] = cond.getDirection();
+		}
+
+		final Binding[] rows = bindings.toArray( new Binding[size] );
+		Integer[] order = new Integer [size];
+		for ( int i = 0; i < size; ++i ) {
+			order[i] = Integer.valueOf( i );
+		}
+
+		Arrays.sort( order, new Comparator<Integer> () {
+			public int compare ( Integer i1, Integer i2 )
+			{
+				int r1 = i1.intValue();
+				int r2 = i2.intValue();
+				for ( int c = 0; c < ranks.length; ++c )
+				{
+					int x = ranks[c][r1] - ranks[c][r2];
+					if ( x != 0 ) {
+						return ( directions[c] == Query.ORDER_DESCENDING ) ? -x : x;
+					}
+				}
+				return BindingComparator.compareBindingsSyntactic( rows[r1], rows[r2] );
+			}
+		} );
+
+		List<Binding> result = new ArrayList<Binding> ( size );
+		for ( int i = 0; i < size; ++i ) {
+			result.add( rows[order[i].intValue()] );
+		}
+		return result.iterator();
+	}
+
+	/**
+	 * Returns the rank of each of the given values in the order of RDF terms
+	 * used for sorting. Unbound values have the rank -1 (i.e. they are
+	 * ordered first); equal values have the same rank.
+	 */
+	static protected int[] rank ( int[] ids, DecodedNodeCache nodeCache )
+	{
+		// determine the distinct values
+		int[] sortedIds = new int [ids.length];
+		System.arraycopy( ids, 0, sortedIds, 0, ids.length );
+		Arrays.sort( sortedIds );
+
+		int distinctCount = 0;
+		for ( int i = 0; i < sortedIds.length; ++i )
+		{
+			if (    sortedIds[i] != IdBasedBinding.UNBOUND
+			     && (distinctCount == 0 || sortedIds[distinctCount-1] != sortedIds[i]) ) {
+				sortedIds[distinctCount++] = sortedIds[i];
+			}
+		}
+
+		// decode and sort the distinct values
+		final NodeValue[] values = new NodeValue [distinctCount];
+		Integer[] order = new Integer [distinctCount];
+		for ( int i = 0; i < distinctCount; ++i ) {
+			values[i] = NodeValue.makeNode( nodeCache.getNode(sortedIds[i]) );
+			order[i] = Integer.valueOf( i );
+		}
+
+		Arrays.sort( order, new Comparator<Integer> () {
+			public int compare ( Integer i1, Integer i2 ) {
+				return BindingComparator.compareNodesRaw( values[i1.intValue()], values[i2.intValue()] );
+			}
+		} );
+
+		int[] distinctRanks = new int [distinctCount];
+		int rank = 0;
+		for ( int i = 0; i < distinctCount; ++i )
+		{
+			if ( i > 0 && BindingComparator.compareNodesRaw(values[order[i-1].intValue()],values[order[i].intValue()]) != 0 ) {
+				rank++;
+			}
+			distinctRanks[order[i].intValue()] = rank;
+		}
+
+		// map the values to their ranks
+		int[] result = new int [ids.length];
+		for ( int i = 0; i < ids.length; ++i )
+		{
+			if ( ids[i] == IdBasedBinding.UNBOUND ) {
+				result[i] = -1;
+			} else {
+				result[i] = distinctRanks[ indexOf(sortedIds,distinctCount,ids[i]) ];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the position of the given identifier in the first count elements
+	 * of the given sorted array; the identifier must be contained.
+	 */
+	static protected int indexOf ( int[] sortedIds, int count, int id )
+	{
+		int low = 0;
+		int high = count - 1;
+		while ( low < high )
+		{
+			int mid = ( low + high ) >>> 1;
+			if ( sortedIds[mid] < id ) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
@@ -0,0 +1,344 @@
+package de.fuberlin.wiwiss.jenaext.sparql.iterator;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.openjena.atlas.lib.Closeable;
+
+import de.fuberlin.wiwiss.jenaext.IdBasedGraph;
+import de.fuberlin.wiwiss.jenaext.IdBasedTriple;
+import de.fuberlin.wiwiss.jenaext.impl.IdBasedQueryPlan.IdBasedTriplePattern;
+import de.fuberlin.wiwiss.jenaext.sparql.IdBasedBinding;
+import de.fuberlin.wiwiss.jenaext.sparql.IdBasedBindingBatch;
+import de.fuberlin.wiwiss.jenaext.sparql.IdBasedExecutionContext;
+
+
+/**
+ * The block-at-a-time counterpart of {@link IdBasedTriplePatternQueryIter}:
+ * a query iterator that consumes batches of ID-based bindings and provides
+ * batches of the bindings that extend them with matches of an ID-based
+ * triple pattern.
+ *
+ * For each input batch, the triple pattern is substituted with every row,
+ * which yields one index probe per row. The rows are sorted by their probes
+ * so that rows with the same probe are adjacent; then each distinct probe is
+ * passed to the queried graph only once and its matches are combined with
+ * all rows that share the probe.
+ *
+ * The output batch is reused; a batch returned by {@link #next} is only
+ * valid until the next call of {@link #hasNext}.
+ *
+ * @author Olaf Hartig
+ */
+public class IdBasedTriplePatternBatchIter implements Iterator<IdBasedBindingBatch>, Closeable
+{
+	// members
+
+	final protected IdBasedExecutionContext execCxt;
+
+	/** the input iterator consumed by this one */
+	final protected Iterator<IdBasedBindingBatch> input;
+
+	/** the triple pattern matched by this iterator */
+	final protected IdBasedTriplePattern tp;
+
+	/** the batch provided by this iterator */
+	final protected IdBasedBindingBatch output;
+
+	protected boolean outputIsReady = false;
+
+	/** the batch currently consumed from the input iterator */
+	protected IdBasedBindingBatch currentBatch = null;
+
+	/**
+	 * the probe for each row of the current batch; -1 marks a component that
+	 * is an unbound variable
+	 */
+	protected int[] probeS, probeP, probeO;
+
+	/** the rows of the current batch, sorted by their probes */
+	protected int[] rows;
+
+	/**
+	 * the range in {@link #rows} of the rows that share the current probe
+	 * (from inclusive, to exclusive)
+	 */
+	protected int groupStart = 0;
+	protected int groupEnd = 0;
+
+	/** an iterator over all triples that match the current probe */
+	protected Iterator<IdBasedTriple> currentMatches = null;
+
+	/** the current match, combined with the rows of the current group */
+	protected IdBasedTriple currentMatch = null;
+
+	/** the position in {@link #rows} of the next row combined with the current match */
+	protected int currentRowPos = 0;
+
+
+	// initialization
+
+	public IdBasedTriplePatternBatchIter ( IdBasedTriplePattern tp, Iterator<IdBasedBindingBatch> input, IdBasedExecutionContext execCxt, int varCount, int batchSize )
+	{
+		this.tp = tp;
+		this.input = input;
+		this.execCxt = execCxt;
+
+		output = new IdBasedBindingBatch( varCount, batchSize );
+	}
+
+
+	// implementation of the Iterator interface
+
+	public boolean hasNext ()
+	{
+		if ( outputIsReady ) {
+			return true;
+		}
+
+		output.clear();
+		while ( ! output.isFull() )
+		{
+			if ( currentMatch != null )
+			{
+				while ( currentRowPos < groupEnd && ! output.isFull() ) {
+					emit( rows[currentRowPos++] );
+				}
+
+				if ( currentRowPos < groupEnd ) {
+					break;
+				}
+				currentMatch = null;
+			}
+
+			if ( currentMatches != null && currentMatches.hasNext() )
+			{
+				currentMatch = currentMatches.next();
+				currentRowPos = groupStart;
+				if ( ! isConsistent(currentMatch, rows[groupStart]) ) {
+					currentMatch = null;
+				}
+				continue;
+			}
+
+			if ( currentBatch != null && groupEnd < currentBatch.size() )
+			{
+				nextGroup();
+				continue;
+			}
+
+			if ( ! input.hasNext() ) {
+				break;
+			}
+
+			currentBatch = input.next();
+			prepareProbes();
+		}
+
+		outputIsReady = ( output.size() > 0 );
+		return outputIsReady;
+	}
+
+	public IdBasedBindingBatch next ()
+	{
+		if ( ! hasNext() ) {
+			throw new NoSuchElementException();
+		}
+
+		outputIsReady = false;
+		return output;
+	}
+
+	public void remove ()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+
+	// implementation of the Closable interface
+
+	public void close ()
+	{
+		if ( input instanceof Closeable ) {
+			( (Closeable) input ).close();
+		}
+	}
+
+
+	// helper methods
+
+	/**
+	 * Computes the probes for the rows of the current batch and sorts the
+	 * rows by their probes.
+	 */
+	protected void prepareProbes ()
+	{
+		int size = currentBatch.size();
+		if ( rows == null || rows.length < size )
+		{
+			rows = new int [size];
+			probeS = new int [size];
+			probeP = new int [size];
+			probeO = new int [size];
+		}
+
+		for ( int r = 0; r < size; ++r )
+		{
+			rows[r] = r;
+			probeS[r] = ( tp.sIsVar ) ? currentBatch.get( tp.s, r ) : tp.s;
+			probeP[r] = ( tp.pIsVar ) ? currentBatch.get( tp.p, r ) : tp.p;
+			probeO[r] = ( tp.oIsVar ) ? currentBatch.get( tp.o, r ) : tp.o;
+		}
+
+		sort( 0, size - 1 );
+
+		groupStart = 0;
+		groupEnd = 0;
+		currentMatches = null;
+		currentMatch = null;
+	}
+
+	/**
+	 * Advances to the next group of rows that share a probe and starts the
+	 * index lookup for this probe.
+	 */
+	protected void nextGroup ()
+	{
+		groupStart = groupEnd;
+		int first = rows[groupStart];
+		int size = currentBatch.size();
+		groupEnd = groupStart + 1;
+		while ( groupEnd < size && compare(first, rows[groupEnd]) == 0 ) {
+			groupEnd++;
+		}
+
+		IdBasedGraph queriedGraph = (IdBasedGraph) execCxt.getActiveGraph();
+		currentMatches = queriedGraph.find( probeS[first], probeP[first], probeO[first] );
+	}
+
+	/**
+	 * Returns false if the given match binds a variable that occurs more than
+	 * once in the triple pattern to different values.
+	 */
+	final protected boolean isConsistent ( IdBasedTriple t, int row )
+	{
+		if ( tp.sIsVar && probeS[row] == IdBasedBinding.UNBOUND )
+		{
+			if ( tp.pIsVar && tp.p == tp.s && t.p != t.s ) { return false; }
+			if ( tp.oIsVar && tp.o == tp.s && t.o != t.s ) { return false; }
+		}
+		if ( tp.pIsVar && probeP[row] == IdBasedBinding.UNBOUND )
+		{
+			if ( tp.oIsVar && tp.o == tp.p && t.o != t.p ) { return false; }
+		}
+		return true;
+	}
+
+	/**
+	 * Appends the combination of the given row of the current batch and the
+	 * current match to the output batch.
+	 */
+	final protected void emit ( int row )
+	{
+		int outRow = output.add( currentBatch, row );
+		if ( probeS[row] == IdBasedBinding.UNBOUND ) {
+			output.set( tp.s, outRow, currentMatch.s );
+		}
+		if ( probeP[row] == IdBasedBinding.UNBOUND ) {
+			output.set( tp.p, outRow, currentMatch.p );
+		}
+		if ( probeO[row] == IdBasedBinding.UNBOUND ) {
+			output.set( tp.o, outRow, currentMatch.o );
+		}
+	}
+
+	final protected int compare ( int r1, int r2 )
+	{
+		if ( probeS[r1] != probeS[r2] ) {
+			return ( probeS[r1] < probeS[r2] ) ? -1 : 1;
+		}
+		if ( probeP[r1] != probeP[r2] ) {
+			return ( probeP[r1] < probeP[r2] ) ? -1 : 1;
+		}
+		if ( probeO[r1] != probeO[r2] ) {
+			return ( probeO[r1] < probeO[r2] ) ? -1 : 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Sorts the given range of {@link #rows} by the probes of the rows
+	 * (quicksort; insertion sort for small ranges).
+	 */
+	protected void sort ( int lo, int hi )
+	{
+		while ( hi - lo > 16 )
+		{
+			int pivot = rows[ (lo + hi) >>> 1 ];
+			int i = lo;
+			int j = hi;
+			while ( i <= j )
+			{
+				while ( compare(rows[i], pivot) < 0 ) { i++; }
+				while ( compare(rows[j], pivot) > 0 ) { j--; }
+				if ( i <= j )
+				{
+					int tmp = rows[i];
+					rows[i] = rows[j];
+					rows[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+
+			// recurse into the smaller part, iterate over the larger one
+			if ( j - lo < hi - i ) {
+				sort( lo, j );
+				lo = i;
+			} else {
+				sort( i, hi );
+				hi = j;
+			}
+		}
+
+		for ( int i = lo + 1; i <= hi; ++i )
+		{
+			int r = rows[i];
+			int j = i - 1;
+			while ( j >= lo && compare(rows[j], r) > 0 )
+			{
+				rows[j + 1] = rows[j];
+				j--;
+			}
+			rows[j + 1] = r;
+		}
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
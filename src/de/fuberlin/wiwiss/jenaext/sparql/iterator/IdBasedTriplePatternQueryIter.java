@@ -48,6 +48,9 @@ public class IdBasedTriplePatternQueryIter implements Iterator<IdBasedBinding>,
 	 */
 	protected Iterator<IdBasedTriple> currentMatches = null;
 
+	/** the next match of the current query pattern, or null */
+	protected IdBasedTriple currentMatch = null;
+
 
 	// initialization
 
@@ -62,19 +65,27 @@ public class IdBasedTriplePatternQueryIter implements Iterator<IdBasedBinding>,
 
 	public boolean hasNext ()
 	{
-		while ( currentMatches == null || ! currentMatches.hasNext() )
+		while ( currentMatch == null )
 		{
-			if ( ! input.hasNext() ) {
-				return false;
+			while ( currentMatches == null || ! currentMatches.hasNext() )
+			{
+				if ( ! input.hasNext() ) {
+					return false;
+				}
+
+				IdBasedGraph queriedGraph = (IdBasedGraph) execCxt.getActiveGraph();
+
+				currentInputBinding = input.next();
+				currentQueryPattern = substitute( tp, currentInputBinding );
+				currentMatches = queriedGraph.find( (currentQueryPattern.sIsVar) ? -1 : currentQueryPattern.s,
+				                                    (currentQueryPattern.pIsVar) ? -1 : currentQueryPattern.p,
+				                                    (currentQueryPattern.oIsVar) ? -1 : currentQueryPattern.o );
 			}
 
-			IdBasedGraph queriedGraph = (IdBasedGraph) execCxt.getActiveGraph();
-
-			currentInputBinding = input.next();
-			currentQueryPattern = substitute( tp, currentInputBinding );
-			currentMatches = queriedGraph.find( (currentQueryPattern.sIsVar) ? -1 : currentQueryPattern.s,
-			                                    (currentQueryPattern.pIsVar) ? -1 : currentQueryPattern.p,
-			                                    (currentQueryPattern.oIsVar) ? -1 : currentQueryPattern.o );
+			currentMatch = currentMatches.next();
+			if ( ! isConsistent(currentQueryPattern, currentMatch) ) {
+				currentMatch = null;
+			}
 		}
 
 		return true;
@@ -90,19 +101,20 @@ public class IdBasedTriplePatternQueryIter implements Iterator<IdBasedBinding>,
 		// consumed from the input iterator and ii) by binding the query
 		// variables in the copy corresponding to the currently matching
 		// triple.
-		IdBasedTriple currentMatch = currentMatches.next();
+		IdBasedTriple match = currentMatch;
+		currentMatch = null;
 		IdBasedBinding result = new IdBasedBinding( currentInputBinding );
 
 		if ( currentQueryPattern.sIsVar ) {
-			result.set( currentQueryPattern.s, currentMatch.s );
+			result.set( currentQueryPattern.s, match.s );
 		}
 
 		if ( currentQueryPattern.pIsVar ) {
-			result.set( currentQueryPattern.p, currentMatch.p );
+			result.set( currentQueryPattern.p, match.p );
 		}
 
 		if ( currentQueryPattern.oIsVar ) {
-			result.set( currentQueryPattern.o, currentMatch.o );
+			result.set( currentQueryPattern.o, match.o );
 		}
 
 		return result;
@@ -126,6 +138,23 @@ public class IdBasedTriplePatternQueryIter implements Iterator<IdBasedBinding>,
 
 	// helper methods
 
+	/**
+	 * Returns false if the given triple binds a variable that occurs more
+	 * than once in the given triple pattern to different values.
+	 */
+	static public boolean isConsistent ( IdBasedTriplePattern tp, IdBasedTriple t )
+	{
+		if ( tp.sIsVar )
+		{
+			if ( tp.pIsVar && tp.p == tp.s && t.p != t.s ) { return false; }
+			if ( tp.oIsVar && tp.o == tp.s && t.o != t.s ) { return false; }
+		}
+		if ( tp.pIsVar && tp.oIsVar && tp.o == tp.p && t.o != t.p ) {
+			return false;
+		}
+		return true;
+	}
+
 	/**
 	 * Replaces each query variable in the given triple pattern that is bound to
 	 * a value in the given binding by this value.
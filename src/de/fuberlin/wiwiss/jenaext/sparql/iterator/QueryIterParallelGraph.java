@@ -0,0 +1,438 @@
+package de.fuberlin.wiwiss.jenaext.sparql.iterator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.query.QueryCancelledException;
+import com.hp.hpl.jena.query.QueryExecException;
+import com.hp.hpl.jena.sparql.algebra.Op;
+import com.hp.hpl.jena.sparql.algebra.op.OpGraph;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext;
+import com.hp.hpl.jena.sparql.engine.QueryIterator;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIter;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterRepeatApply;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterSingleton;
+import com.hp.hpl.jena.sparql.engine.main.QC;
+
+import de.fuberlin.wiwiss.jenaext.sparql.IdBasedExecutionContext;
+
+
+/**
+ * This iterator evaluates a <code>GRAPH</code> operator for each binding of
+ * its input iterator (like a
+ * {@link com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterGraph}) and,
+ * if the graph node is a variable, evaluates the sub-operator for the named
+ * graphs of the dataset in parallel.
+ *
+ * For a degree of parallelism of p > 1 at most p tasks are submitted to the
+ * given executor service. The tasks take the names of the graphs that are
+ * still to be evaluated from a common list (i.e. a task that is done with a
+ * small graph continues with the next graph) and put the solutions into a
+ * bounded queue from which this iterator takes them. If the queue is full
+ * the tasks wait until this iterator consumes solutions. Closing or
+ * cancelling this iterator stops the tasks.
+ *
+ * Ordering: the solutions for an input binding are returned before the
+ * solutions for the next input binding, and the solutions for a particular
+ * graph are returned in the order in which they are produced for that
+ * graph. However, the solutions for different graphs are interleaved in an
+ * arbitrary order. For a degree of parallelism of 1 (or if there is only one
+ * graph to evaluate) the graphs are evaluated one after the other in the
+ * order of {@link com.hp.hpl.jena.sparql.core.DatasetGraph#listGraphNodes}.
+ *
+ * The sub-operator is evaluated for each graph in an execution context of
+ * its own because execution contexts are not thread-safe. Hence, the given
+ * dataset must support concurrent reads.
+ *
+ * @author Olaf Hartig
+ */
+public class QueryIterParallelGraph extends QueryIterRepeatApply
+{
+	// members
+
+	/** the marker that a task puts into the queue when it is done */
+	final static protected Object END = new Object ();
+
+	final protected OpGraph opGraph;
+
+	final protected int parallelism;
+
+	final protected int queueCapacity;
+
+	final protected ExecutorService executor;
+
+
+	// initialization
+
+	/**
+	 * @param parallelism the maximum number of graphs that are evaluated in
+	 *                    parallel
+	 * @param queueCapacity the capacity of the queue for the solutions of the
+	 *                      parallel tasks
+	 * @param executor the executor service that runs the parallel tasks
+	 */
+	public QueryIterParallelGraph ( QueryIterator input,
+	                                OpGraph opGraph,
+	                                ExecutionContext execCxt,
+	                                int parallelism,
+	                                int queueCapacity,
+	                                ExecutorService executor )
+	{
+		super( input, execCxt );
+
+		if ( parallelism > 1 && queueCapacity < 1 ) {
+			throw new IllegalArgumentException( "Queue capacity must be positive (" + queueCapacity + ")." );
+		}
+
+		this.opGraph = opGraph;
+		this.parallelism = parallelism;
+		this.queueCapacity = queueCapacity;
+		this.executor = executor;
+	}
+
+
+	// implementation of the QueryIterRepeatApply abstract methods
+
+	@Override
+	protected QueryIterator nextStage ( Binding binding )
+	{
+		List<Node> graphNames = listGraphNames( binding );
+		if ( parallelism > 1 && graphNames.size() > 1 ) {
+			return new ParallelStage( binding, graphNames );
+		}
+		return new SerialStage( binding, graphNames.iterator() );
+	}
+
+
+	// helper methods
+
+	/**
+	 * Returns the names of the graphs to evaluate for the given binding (see
+	 * {@link com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterGraph}).
+	 */
+	protected List<Node> listGraphNames ( Binding binding )
+	{
+		Node gn = opGraph.getNode();
+		if ( Var.isVar(gn) )
+		{
+			Node value = binding.get( Var.alloc(gn) );
+			if ( value != null ) {
+				gn = value;
+			}
+		}
+
+		if ( Var.isVar(gn) )
+		{
+			List<Node> result = new ArrayList<Node> ();
+			Iterator<Node> it = getExecContext().getDataset().listGraphNodes();
+			while ( it.hasNext() ) {
+				result.add( it.next() );
+			}
+			return result;
+		}
+
+		if ( gn.isURI() ) {
+			return Collections.singletonList( gn );
+		}
+
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Returns an iterator over the solutions of the sub-operator for the
+	 * graph with the given name and the given binding, or null if there is
+	 * no such graph.
+	 */
+	protected QueryIterator evaluate ( Binding binding, Node graphName )
+	{
+		ExecutionContext execCxt = getExecContext();
+		Graph g = execCxt.getDataset().getGraph( graphName );
+		if ( g == null ) {
+			return null;
+		}
+
+		Binding b = binding;
+		if ( Var.isVar(opGraph.getNode()) )
+		{
+			Var var = Var.alloc( opGraph.getNode() );
+			if ( ! b.contains(var) ) {
+				b = BindingFactory.binding( binding, var, graphName );
+			}
+		}
+
+		Op op = QC.substitute( opGraph.getSubOp(), b );
+		ExecutionContext graphCxt = createExecutionContext( g );
+		return QC.execute( op, QueryIterSingleton.create(b,graphCxt), graphCxt );
+	}
+
+	/**
+	 * Returns a new execution context for the given graph. In contrast to
+	 * the copy constructor of {@link ExecutionContext}, the new context does
+	 * not share the (not thread-safe) bookkeeping of iterators with the
+	 * context of this iterator.
+	 */
+	protected ExecutionContext createExecutionContext ( Graph graph )
+	{
+		ExecutionContext execCxt = getExecContext();
+		if ( execCxt instanceof IdBasedExecutionContext )
+		{
+			IdBasedExecutionContext idCxt = (IdBasedExecutionContext) execCxt;
+			return new IdBasedExecutionContext( idCxt.getVarDictionary(),
+			                                    idCxt.getCompiledQuery(),
+			                                    execCxt.getContext(),
+			                                    graph,
+			                                    execCxt.getDataset(),
+			                                    execCxt.getExecutor() );
+		}
+
+		return new ExecutionContext( execCxt.getContext(), graph, execCxt.getDataset(), execCxt.getExecutor() );
+	}
+
+
+	/**
+	 * Evaluates the sub-operator for the given graphs one after the other.
+	 */
+	protected class SerialStage extends QueryIter
+	{
+		final protected Binding binding;
+		final protected Iterator<Node> graphNames;
+		protected QueryIterator current = null;
+
+		public SerialStage ( Binding binding, Iterator<Node> graphNames )
+		{
+			super( QueryIterParallelGraph.this.getExecContext() );
+			this.binding = binding;
+			this.graphNames = graphNames;
+		}
+
+		@Override
+		protected boolean hasNextBinding ()
+		{
+			while ( true )
+			{
+				if ( current != null )
+				{
+					if ( current.hasNext() ) {
+						return true;
+					}
+					current.close();
+					current = null;
+				}
+
+				if ( ! graphNames.hasNext() ) {
+					return false;
+				}
+				current = evaluate( binding, graphNames.next() );
+			}
+		}
+
+		@Override
+		protected Binding moveToNextBinding ()
+		{
+			return current.nextBinding();
+		}
+
+		@Override
+		protected void closeIterator ()
+		{
+			if ( current != null ) {
+				current.close();
+				current = null;
+			}
+		}
+
+		@Override
+		protected void requestCancel ()
+		{
+			if ( current != null ) {
+				current.cancel();
+			}
+		}
+	}
+
+
+	/**
+	 * Evaluates the sub-operator for the given graphs by parallel tasks.
+	 */
+	protected class ParallelStage extends QueryIter
+	{
+		final protected Binding binding;
+		final protected ConcurrentLinkedQueue<Node> pendingGraphs;
+		final protected BlockingQueue<Object> queue;
+		final protected List<Future<?>> tasks = new ArrayList<Future<?>> ();
+
+		/** the number of tasks that did not yet put their END marker */
+		protected int runningTasks;
+
+		protected Binding next = null;
+
+		protected volatile boolean stopped = false;
+
+		public ParallelStage ( Binding binding, List<Node> graphNames )
+		{
+			super( QueryIterParallelGraph.this.getExecContext() );
+			this.binding = binding;
+			this.pendingGraphs = new ConcurrentLinkedQueue<Node> ( graphNames );
+			this.queue = new ArrayBlockingQueue<Object> ( queueCapacity );
+
+			runningTasks = Math.min( parallelism, graphNames.size() );
+			for ( int i = 0; i < runningTasks; ++i ) {
+				tasks.add( executor.submit(new Task()) );
+			}
+		}
+
+		@Override
+		protected boolean hasNextBinding ()
+		{
+			if ( next != null ) {
+				return true;
+			}
+
+			while ( runningTasks > 0 )
+			{
+				Object o;
+				try {
+					o = queue.take();
+				}
+				catch ( InterruptedException e ) {
+					stop();
+					Thread.currentThread().interrupt();
+					throw new QueryCancelledException();
+				}
+
+				if ( o == END ) {
+					runningTasks--;
+				}
+				else if ( o instanceof Throwable ) {
+					runningTasks--;
+					stop();
+					if ( o instanceof RuntimeException ) {
+						throw (RuntimeException) o;
+					}
+					if ( o instanceof Error ) {
+						throw (Error) o;
+					}
+					throw new QueryExecException( (Throwable) o );
+				}
+				else {
+					next = (Binding) o;
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		protected Binding moveToNextBinding ()
+		{
+			Binding b = next;
+			next = null;
+			return b;
+		}
+
+		@Override
+		protected void closeIterator ()
+		{
+			stop();
+		}
+
+		@Override
+		protected void requestCancel ()
+		{
+			stop();
+		}
+
+		/**
+		 * Stops the tasks; tasks that wait for space in the queue are
+		 * interrupted.
+		 */
+		protected void stop ()
+		{
+			stopped = true;
+			for ( Future<?> task : tasks ) {
+				task.cancel( true );
+			}
+			queue.clear();
+		}
+
+		protected class Task implements Runnable
+		{
+			public void run ()
+			{
+				try
+				{
+					Node graphName;
+					while ( ! stopped && (graphName = pendingGraphs.poll()) != null )
+					{
+						QueryIterator it = evaluate( binding, graphName );
+						if ( it == null ) {
+							continue;
+						}
+
+						try {
+							while ( ! stopped && it.hasNext() ) {
+								queue.put( it.nextBinding() );
+							}
+						}
+						finally {
+							it.close();
+						}
+					}
+					queue.put( END );
+				}
+				catch ( InterruptedException e ) {
+					// stopped while waiting for space in the queue
+				}
+				catch ( Throwable t )
+				{
+					try {
+						queue.put( t );
+					}
+					catch ( InterruptedException e ) {
+						// stopped while waiting for space in the queue
+					}
+				}
+			}
+		}
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
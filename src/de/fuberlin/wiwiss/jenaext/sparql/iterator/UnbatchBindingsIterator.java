@@ -0,0 +1,107 @@
+package de.fuberlin.wiwiss.jenaext.sparql.iterator;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.openjena.atlas.lib.Closeable;
+
+import de.fuberlin.wiwiss.jenaext.sparql.IdBasedBinding;
+import de.fuberlin.wiwiss.jenaext.sparql.IdBasedBindingBatch;
+
+
+/**
+ * A query iterator that provides the rows of the batches of its input
+ * iterator as ID-based bindings.
+ *
+ * @author Olaf Hartig
+ */
+public class UnbatchBindingsIterator implements Iterator<IdBasedBinding>, Closeable
+{
+	// members
+
+	final protected Iterator<IdBasedBindingBatch> input;
+
+	/** the batch currently consumed from the input iterator */
+	protected IdBasedBindingBatch currentBatch = null;
+
+	/** the next row of the current batch */
+	protected int currentRow = 0;
+
+
+	// initialization
+
+	public UnbatchBindingsIterator ( Iterator<IdBasedBindingBatch> input )
+	{
+		this.input = input;
+	}
+
+
+	// implementation of the Iterator interface
+
+	public boolean hasNext ()
+	{
+		while ( currentBatch == null || currentRow >= currentBatch.size() )
+		{
+			if ( ! input.hasNext() ) {
+				return false;
+			}
+
+			currentBatch = input.next();
+			currentRow = 0;
+		}
+
+		return true;
+	}
+
+	public IdBasedBinding next ()
+	{
+		if ( ! hasNext() ) {
+			throw new NoSuchElementException();
+		}
+
+		return currentBatch.getBinding( currentRow++ );
+	}
+
+	public void remove ()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+
+	// implementation of the Closable interface
+
+	public void close ()
+	{
+		if ( input instanceof Closeable ) {
+			( (Closeable) input ).close();
+		}
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
@@ -0,0 +1,75 @@
+package de.fuberlin.wiwiss.ng4j;
+
+import com.hp.hpl.jena.graph.Node;
+
+/**
+ * <p>Receives the graphs and quads of a serialized set of Named Graphs
+ * while it is being parsed. In contrast to a {@link NamedGraphSetReader},
+ * a parser that pushes into a QuadSink does not keep the parsed quads;
+ * a sink can filter, convert, split or count arbitrarily large files
+ * in constant memory.</p>
+ *
+ * <p>The parsers call the sink on the thread that parses, and they don't
+ * read any further input until a call has returned. A slow sink therefore
+ * slows down the parser instead of making it buffer quads. A sink can
+ * abort parsing by throwing a RuntimeException, which is passed on to the
+ * caller of the parser.</p>
+ *
+ * <p>The calls for a graph are enclosed in startGraph() and endGraph();
+ * startGraph() is called even if the graph is empty. A graph name can
+ * occur only once per document.</p>
+ *
+ * @see de.fuberlin.wiwiss.ng4j.trig.StreamingTriGParser
+ * @see de.fuberlin.wiwiss.ng4j.trix.QuadSinkCallback
+ * @see de.fuberlin.wiwiss.ng4j.trig.TriGStreamWriter
+ * @see de.fuberlin.wiwiss.ng4j.impl.NamedGraphSetSink
+ * @author Richard Cyganiak (richard@cyganiak.de)
+ */
+public interface QuadSink {
+
+	/**
+	 * Called at the beginning of each graph.
+	 * @param graphName The name of the graph
+	 */
+	public void startGraph(Node graphName);
+
+	/**
+	 * Called for each statement of the current graph.
+	 * @param quad The statement; its graph name is that of the current graph
+	 */
+	public void quad(Quad quad);
+
+	/**
+	 * Called at the end of each graph.
+	 * @param graphName The name of the graph
+	 */
+	public void endGraph(Node graphName);
+}
+
+/*
+ *  (c) Copyright 2004 - 2010 Christian Bizer (chris@bizer.de)
+ *   All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
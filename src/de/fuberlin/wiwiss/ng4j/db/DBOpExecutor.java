@@ -0,0 +1,283 @@
+package de.fuberlin.wiwiss.ng4j.db;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.shared.JenaException;
+import com.hp.hpl.jena.sparql.algebra.Op;
+import com.hp.hpl.jena.sparql.algebra.op.OpBGP;
+import com.hp.hpl.jena.sparql.algebra.op.OpFilter;
+import com.hp.hpl.jena.sparql.algebra.op.OpGraph;
+import com.hp.hpl.jena.sparql.core.BasicPattern;
+import com.hp.hpl.jena.sparql.core.Substitute;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext;
+import com.hp.hpl.jena.sparql.engine.QueryIterator;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIter;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterFilterExpr;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterNullIterator;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterRepeatApply;
+import com.hp.hpl.jena.sparql.engine.main.OpExecutor;
+import com.hp.hpl.jena.sparql.engine.main.OpExecutorFactory;
+import com.hp.hpl.jena.sparql.expr.Expr;
+import com.hp.hpl.jena.sparql.expr.ExprList;
+import com.hp.hpl.jena.util.iterator.ClosableIterator;
+
+/**
+ * An {@link OpExecutor} that evaluates basic graph patterns over
+ * {@link NamedGraphDB}s as single SQL queries (see {@link SQLPattern}),
+ * together with an enclosing <code>GRAPH</code> operator and the filters
+ * directly above either of them. The pattern is translated and executed
+ * once for each input binding, after substituting the binding into it.
+ * All other operators, and patterns over other graphs, are evaluated by ARQ.
+ * 
+ * @author Richard Cyganiak (richard@cyganiak.de)
+ */
+public class DBOpExecutor extends OpExecutor {
+
+	/**
+	 * The factory object that creates this OpExecutor implementation.
+	 */
+	public static final OpExecutorFactory factory = new OpExecutorFactory() {
+		public OpExecutor create(ExecutionContext execCxt) {
+			return new DBOpExecutor(execCxt);
+		}
+	};
+
+	protected DBOpExecutor(ExecutionContext execCxt) {
+		super(execCxt);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.hp.hpl.jena.sparql.engine.main.OpExecutor#execute(com.hp.hpl.jena.sparql.algebra.op.OpBGP, com.hp.hpl.jena.sparql.engine.QueryIterator)
+	 */
+	@Override
+	protected QueryIterator execute(OpBGP opBGP, QueryIterator input) {
+		QueryIterator result = executeInActiveGraph(opBGP, new ExprList(), input);
+		return (result == null) ? super.execute(opBGP, input) : result;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.hp.hpl.jena.sparql.engine.main.OpExecutor#execute(com.hp.hpl.jena.sparql.algebra.op.OpFilter, com.hp.hpl.jena.sparql.engine.QueryIterator)
+	 */
+	@Override
+	protected QueryIterator execute(OpFilter opFilter, QueryIterator input) {
+		QueryIterator result = null;
+		if (opFilter.getSubOp() instanceof OpBGP) {
+			result = executeInActiveGraph((OpBGP) opFilter.getSubOp(),
+					opFilter.getExprs(), input);
+		} else if (opFilter.getSubOp() instanceof OpGraph) {
+			result = executeInNamedGraph((OpGraph) opFilter.getSubOp(),
+					opFilter.getExprs(), input);
+		}
+		return (result == null) ? super.execute(opFilter, input) : result;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.hp.hpl.jena.sparql.engine.main.OpExecutor#execute(com.hp.hpl.jena.sparql.algebra.op.OpGraph, com.hp.hpl.jena.sparql.engine.QueryIterator)
+	 */
+	@Override
+	protected QueryIterator execute(OpGraph opGraph, QueryIterator input) {
+		QueryIterator result = executeInNamedGraph(opGraph, new ExprList(), input);
+		return (result == null) ? super.execute(opGraph, input) : result;
+	}
+
+	/**
+	 * @return An iterator over the solutions of the pattern in the active
+	 * 		graph, or null if ARQ must evaluate it
+	 */
+	private QueryIterator executeInActiveGraph(OpBGP opBGP, ExprList filters,
+			QueryIterator input) {
+		Graph graph = this.execCxt.getActiveGraph();
+		if (!(graph instanceof NamedGraphDB) || opBGP.getPattern().isEmpty()) {
+			return null;
+		}
+		// the union graph of a NamedGraphSetDB has the name Node.ANY
+		return new QueryIterSQL(input, ((NamedGraphDB) graph).getQuadDB(),
+				((NamedGraphDB) graph).getGraphName(), opBGP.getPattern(), filters,
+				this.execCxt);
+	}
+
+	/**
+	 * @return An iterator over the solutions of the pattern in a named
+	 * 		graph, or null if ARQ must evaluate it
+	 */
+	private QueryIterator executeInNamedGraph(OpGraph opGraph, ExprList filters,
+			QueryIterator input) {
+		// the named graphs are those of the default graph's NamedGraphSetDB
+		Graph defaultGraph = this.execCxt.getDataset().getDefaultGraph();
+		if (!(defaultGraph instanceof NamedGraphDB)) {
+			return null;
+		}
+		Op subOp = opGraph.getSubOp();
+		if (subOp instanceof OpFilter) {
+			filters = new ExprList(filters);
+			filters.addAll(((OpFilter) subOp).getExprs());
+			subOp = ((OpFilter) subOp).getSubOp();
+		}
+		if (!(subOp instanceof OpBGP) || ((OpBGP) subOp).getPattern().isEmpty()) {
+			return null;
+		}
+		return new QueryIterSQL(input, ((NamedGraphDB) defaultGraph).getQuadDB(),
+				opGraph.getNode(), ((OpBGP) subOp).getPattern(), filters, this.execCxt);
+	}
+
+	/**
+	 * Executes an {@link SQLPattern} for each input binding, and evaluates
+	 * the filters that are not part of the SQL on the results.
+	 */
+	private static class QueryIterSQL extends QueryIterRepeatApply {
+		private final QuadDB db;
+		private final Node graph;
+		private final BasicPattern pattern;
+		private final ExprList filters;
+		// the statements prepared so far, by SQL; closed with the iterator
+		private final Map<String,PreparedStatement> statements =
+				new HashMap<String,PreparedStatement>();
+
+		QueryIterSQL(QueryIterator input, QuadDB db, Node graph,
+				BasicPattern pattern, ExprList filters, ExecutionContext execCxt) {
+			super(input, execCxt);
+			this.db = db;
+			this.graph = graph;
+			this.pattern = pattern;
+			this.filters = filters;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.hp.hpl.jena.sparql.engine.iterator.QueryIterRepeatApply#nextStage(com.hp.hpl.jena.sparql.engine.binding.Binding)
+		 */
+		@Override
+		protected QueryIterator nextStage(Binding binding) {
+			SQLPattern sqlPattern = new SQLPattern(this.db,
+					Substitute.substitute(this.graph, binding),
+					Substitute.substitute(this.pattern, binding).getList(),
+					Substitute.substitute(this.filters, binding));
+			QueryIterator result;
+			if (sqlPattern.isSatisfiable()) {
+				PreparedStatement query = this.statements.get(sqlPattern.getSQL());
+				if (query == null) {
+					query = this.db.prepareQuery(sqlPattern.getSQL());
+					this.statements.put(sqlPattern.getSQL(), query);
+				}
+				result = new QueryIterRows(binding, sqlPattern.getVars(),
+						this.db.select(query, sqlPattern.getParameters(), sqlPattern.getWidths()),
+						getExecContext());
+			} else {
+				result = new QueryIterNullIterator(getExecContext());
+			}
+			for (Expr filter : sqlPattern.getRemainingFilters()) {
+				result = new QueryIterFilterExpr(result, filter, getExecContext());
+			}
+			return result;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.hp.hpl.jena.sparql.engine.iterator.QueryIterRepeatApply#closeSubIterator()
+		 */
+		@Override
+		protected void closeSubIterator() {
+			super.closeSubIterator();
+			try {
+				for (PreparedStatement query : this.statements.values()) {
+					query.close();
+				}
+			} catch (SQLException ex) {
+				throw new JenaException(ex);
+			} finally {
+				this.statements.clear();
+			}
+		}
+	}
+
+	/**
+	 * Turns the rows of an SQL result into solutions that extend the input
+	 * binding. The rows are read only as the solutions are requested, and
+	 * the rows are closed with the iterator.
+	 */
+	private static class QueryIterRows extends QueryIter {
+		private final Binding parent;
+		private final List<Var> vars;
+		private final ClosableIterator<Node[]> rows;
+
+		QueryIterRows(Binding parent, List<Var> vars, ClosableIterator<Node[]> rows,
+				ExecutionContext execCxt) {
+			super(execCxt);
+			this.parent = parent;
+			this.vars = vars;
+			this.rows = rows;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.hp.hpl.jena.sparql.engine.iterator.QueryIteratorBase#hasNextBinding()
+		 */
+		@Override
+		protected boolean hasNextBinding() {
+			return this.rows.hasNext();
+		}
+
+		/* (non-Javadoc)
+		 * @see com.hp.hpl.jena.sparql.engine.iterator.QueryIteratorBase#moveToNextBinding()
+		 */
+		@Override
+		protected Binding moveToNextBinding() {
+			Node[] row = this.rows.next();
+			BindingMap solution = new BindingMap(this.parent);
+			for (int i = 0; i < row.length; i++) {
+				solution.add(this.vars.get(i), row[i]);
+			}
+			return solution;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.hp.hpl.jena.sparql.engine.iterator.QueryIteratorBase#closeIterator()
+		 */
+		@Override
+		protected void closeIterator() {
+			this.rows.close();
+		}
+
+		/* (non-Javadoc)
+		 * @see com.hp.hpl.jena.sparql.engine.iterator.QueryIteratorBase#requestCancel()
+		 */
+		@Override
+		protected void requestCancel() {
+			// the rows are closed when the iterator is closed
+		}
+	}
+}
+
+/*
+ *  (c) Copyright 2004 - 2010 Christian Bizer (chris@bizer.de)
+ *   All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
@@ -0,0 +1,126 @@
+package de.fuberlin.wiwiss.ng4j.db;
+
+import com.hp.hpl.jena.query.ARQ;
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.sparql.algebra.Op;
+import com.hp.hpl.jena.sparql.core.DatasetGraph;
+import com.hp.hpl.jena.sparql.engine.Plan;
+import com.hp.hpl.jena.sparql.engine.QueryEngineFactory;
+import com.hp.hpl.jena.sparql.engine.QueryEngineRegistry;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.main.QC;
+import com.hp.hpl.jena.sparql.engine.main.QueryEngineMain;
+import com.hp.hpl.jena.sparql.util.Context;
+
+/**
+ * A SPARQL query engine for datasets over a {@link NamedGraphSetDB}, e.g.
+ * a {@link de.fuberlin.wiwiss.ng4j.sparql.NamedGraphDataset}. Without it,
+ * ARQ evaluates a basic graph pattern one triple pattern at a time, with
+ * an SQL query for each triple pattern and binding. This engine
+ * translates each basic graph pattern, with an enclosing
+ * <code>GRAPH</code> and simple filters, into a single SQL query whose
+ * joins are done by the database (see {@link DBOpExecutor}).
+ * <p>
+ * To use this engine you simply have to register it by calling its
+ * {@link #register} method. It is selected for datasets whose default
+ * graph is a {@link NamedGraphDB}; the named graphs of the dataset must be
+ * those of the same NamedGraphSetDB. As the default graph is the union of
+ * the named graphs, its solutions are distinct.
+ * 
+ * @author Richard Cyganiak (richard@cyganiak.de)
+ */
+public class DBQueryEngine extends QueryEngineMain {
+
+	/**
+	 * The factory object that creates a {@link DBQueryEngine}.
+	 */
+	private static final QueryEngineFactory factory = new QueryEngineFactory() {
+		public boolean accept(Query query, DatasetGraph ds, Context cxt) {
+			return isOverDB(ds);
+		}
+
+		public boolean accept(Op op, DatasetGraph ds, Context cxt) {
+			return isOverDB(ds);
+		}
+
+		public Plan create(Query query, DatasetGraph dataset, Binding initialBinding,
+				Context context) {
+			return new DBQueryEngine(query, dataset, initialBinding, context).getPlan();
+		}
+
+		public Plan create(Op op, DatasetGraph dataset, Binding initialBinding,
+				Context context) {
+			return new DBQueryEngine(op, dataset, initialBinding, context).getPlan();
+		}
+
+		private boolean isOverDB(DatasetGraph ds) {
+			return ds.getDefaultGraph() instanceof NamedGraphDB;
+		}
+	};
+
+	/**
+	 * Returns a factory that creates a {@link DBQueryEngine}.
+	 */
+	public static QueryEngineFactory getFactory() {
+		return factory;
+	}
+
+	/**
+	 * Registers this engine so that it can be selected for query execution.
+	 */
+	public static void register() {
+		QueryEngineRegistry.addFactory(factory);
+	}
+
+	/**
+	 * Unregisters this engine.
+	 */
+	public static void unregister() {
+		QueryEngineRegistry.removeFactory(factory);
+	}
+
+	public DBQueryEngine(Op op, DatasetGraph dataset, Binding input, Context context) {
+		super(op, dataset, input, context);
+		initialize();
+	}
+
+	public DBQueryEngine(Query query, DatasetGraph dataset, Binding input, Context context) {
+		super(query, dataset, input, context);
+		initialize();
+	}
+
+	private void initialize() {
+		// the filters must stay above the whole basic graph pattern,
+		// instead of being placed between its triple patterns
+		this.context.set(ARQ.optFilterPlacement, false);
+		QC.setFactory(this.context, DBOpExecutor.factory);
+	}
+}
+
+/*
+ *  (c) Copyright 2004 - 2010 Christian Bizer (chris@bizer.de)
+ *   All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
@@ -38,6 +38,13 @@ public class NamedGraphDB extends GraphBase implements NamedGraph {
 		return this.graphName;
 	}
 
+	/**
+	 * @return The QuadDB that holds the triples of this graph
+	 */
+	QuadDB getQuadDB() {
+		return this.db;
+	}
+
 	/* (non-Javadoc)
 	 * @see com.hp.hpl.jena.graph.impl.GraphBase#performDelete(com.hp.hpl.jena.graph.Triple)
 	 */
@@ -81,6 +88,15 @@ public class NamedGraphDB extends GraphBase implements NamedGraph {
 			public void remove() {
 				quadIt.remove();
 			}
+			
+			/* (non-Javadoc)
+			 * @see com.hp.hpl.jena.util.iterator.NiceIterator#close()
+			 */
+			@Override
+			public void close() {
+				// closes the statement if the QuadDB is in streaming mode
+				NiceIterator.close(quadIt);
+			}
 		};
 	}
 
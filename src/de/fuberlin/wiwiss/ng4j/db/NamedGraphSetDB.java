@@ -1,8 +1,12 @@
 // $Id: NamedGraphSetDB.java,v 1.12 2011/07/15 23:02:43 jenpc Exp $
 package de.fuberlin.wiwiss.ng4j.db;
 
+import java.io.InputStream;
+import java.io.Reader;
 import java.sql.Connection;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 
 import com.hp.hpl.jena.graph.Graph;
 import com.hp.hpl.jena.graph.Node;
@@ -21,11 +25,18 @@ import de.fuberlin.wiwiss.ng4j.impl.NamedGraphSetIO;
  * <p>The real work is done by a {@link QuadDB} instance. This class provides a
  * NamedGraphSet view onto the QuadDB.</p>
  *
+ * <p>To add many quads, use {@link #startBatch()} and {@link #endBatch()}:
+ * the quads are then written in JDBC batches inside a transaction. The
+ * read() methods and {@link #addGraph(NamedGraph)} do this automatically
+ * if no batch has been started.</p>
+ *
  * @author Richard Cyganiak (richard@cyganiak.de)
  */
 public class NamedGraphSetDB extends NamedGraphSetIO implements NamedGraphSet {
 	private final static String DEFAULT_TABLE_PREFIX = "ng4j";
 	private QuadDB db;
+	// the graph names known to exist during a batch, or null
+	private Set<Node> batchGraphNames = null;
 
 	/**
 	 * Creates a new NamedGraphSet. The necessary tables will be created
@@ -61,6 +72,19 @@ public class NamedGraphSetDB extends NamedGraphSetIO implements NamedGraphSet {
 		this(new QuadDB(connection, tablePrefix));
 	}
 
+	/**
+	 * Creates a persistent NamedGraphSet from a database connection using a table prefix,
+	 * optionally with the dictionary-encoded table layout.
+	 * The necessary tables will be created if they don't exist.
+	 * @param connection A connection to an SQL database
+	 * @param tablePrefix a prefix for all tables used by the new NamedGraphSet
+	 * @param dictionaryEncoded <tt>true</tt> to store the quads as ids
+	 * @see QuadDB#QuadDB(Connection, String, boolean)
+	 */
+	public NamedGraphSetDB(Connection connection, String tablePrefix, boolean dictionaryEncoded) {
+		this(new QuadDB(connection, tablePrefix, dictionaryEncoded));
+	}
+
 	/**
 	 * Drops the persistent NamedGraphSet from the database.
 	 * @param connection A connection to an SQL database
@@ -76,23 +100,152 @@ public class NamedGraphSetDB extends NamedGraphSetIO implements NamedGraphSet {
 	 * @param tablePrefix The prefix of the tables used by the NamedGraphSet
 	 */
 	public static void delete(Connection connection, String tablePrefix) {
-		QuadDB db = new QuadDB(connection, tablePrefix);
+		NamedGraphSetDB.delete(connection, tablePrefix, false);
+	}
+	
+	/**
+	 * Drops a persistent NamedGraphSet from a database. Must be used to delete
+	 * persistent NamedGraphSets that were created with the dictionary-encoded layout.
+	 * @param connection A connection to an SQL database
+	 * @param tablePrefix The prefix of the tables used by the NamedGraphSet
+	 * @param dictionaryEncoded <tt>true</tt> if the NamedGraphSet stores the quads as ids
+	 */
+	public static void delete(Connection connection, String tablePrefix, boolean dictionaryEncoded) {
+		QuadDB db = new QuadDB(connection, tablePrefix, dictionaryEncoded);
 		if (db.tablesExist()) {
 			db.deleteTables();
 		}
 		db.close();
 	}
 
+	/**
+	 * Switches streaming mode for findQuads() and the graphs' find() on
+	 * or off. Iterators that are not read to the end should be closed.
+	 * @see QuadDB#setStreaming(boolean)
+	 */
+	public void setStreaming(boolean streaming) {
+		this.db.setStreaming(streaming);
+	}
+
+	/**
+	 * Starts a batch with the default batch size
+	 * ({@link QuadDB#DEFAULT_BATCH_SIZE}).
+	 * @see #startBatch(int)
+	 */
+	public void startBatch() {
+		startBatch(QuadDB.DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Starts a batch. Until {@link #endBatch()} is called, added quads are
+	 * written in JDBC batches of the given size inside a transaction, and
+	 * the names of graphs that have been checked once are not checked
+	 * again. Other operations see the quads added so far.
+	 * @param batchSize The number of quads per JDBC batch
+	 * @see QuadDB#startBatch(int)
+	 */
+	public void startBatch(int batchSize) {
+		this.db.startBatch(batchSize);
+		this.batchGraphNames = new HashSet<Node>();
+	}
+
+	/**
+	 * Writes the pending quads and commits the batch.
+	 * @see QuadDB#endBatch()
+	 */
+	public void endBatch() {
+		this.batchGraphNames = null;
+		this.db.endBatch();
+	}
+
+	/**
+	 * Discards the pending quads and rolls back the batch.
+	 * @see QuadDB#abortBatch()
+	 */
+	public void abortBatch() {
+		this.batchGraphNames = null;
+		this.db.abortBatch();
+	}
+
+	/**
+	 * Forgets the terms that are known to be stored. Needed only if the
+	 * nodes table is changed by other means than this set.
+	 * @see QuadDB#clearTermCache()
+	 */
+	public void clearTermCache() {
+		this.db.clearTermCache();
+	}
+
+	/**
+	 * Reads the document in a batch (see {@link #startBatch()}) unless
+	 * a batch has been started already. If the document cannot be read,
+	 * nothing of it is stored.
+	 * 
+	 * @see de.fuberlin.wiwiss.ng4j.impl.NamedGraphSetIO#read(java.io.InputStream, java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void read(InputStream source, String lang, String baseURI) {
+		boolean started = startBatchIfNone();
+		try {
+			super.read(source, lang, baseURI);
+		} catch (RuntimeException ex) {
+			abortStartedBatch(started);
+			throw ex;
+		}
+		endStartedBatch(started);
+	}
+
+	/**
+	 * Reads the document in a batch (see {@link #read(InputStream, String, String)}).
+	 * 
+	 * @see de.fuberlin.wiwiss.ng4j.impl.NamedGraphSetIO#read(java.io.Reader, java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void read(Reader source, String lang, String baseURI) {
+		boolean started = startBatchIfNone();
+		try {
+			super.read(source, lang, baseURI);
+		} catch (RuntimeException ex) {
+			abortStartedBatch(started);
+			throw ex;
+		}
+		endStartedBatch(started);
+	}
+
+	/**
+	 * Reads the document in a batch (see {@link #read(InputStream, String, String)}).
+	 * 
+	 * @see de.fuberlin.wiwiss.ng4j.impl.NamedGraphSetIO#read(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void read(String url, String lang) {
+		boolean started = startBatchIfNone();
+		try {
+			super.read(url, lang);
+		} catch (RuntimeException ex) {
+			abortStartedBatch(started);
+			throw ex;
+		}
+		endStartedBatch(started);
+	}
+
 	/* (non-Javadoc)
 	 * @see de.fuberlin.wiwiss.ng4j.NamedGraphSet#addGraph(de.fuberlin.wiwiss.ng4j.NamedGraph)
 	 */
 	public void addGraph(NamedGraph graph) {
-		createGraph(graph.getGraphName());
-		ExtendedIterator<Triple> it = graph.find(Node.ANY, Node.ANY, Node.ANY);
-		while (it.hasNext()) {
-			Triple triple = it.next();
-			this.db.insert(graph.getGraphName(), triple.getSubject(), triple.getPredicate(), triple.getObject());
+		boolean started = startBatchIfNone();
+		try {
+			createGraph(graph.getGraphName());
+			ExtendedIterator<Triple> it = graph.find(Node.ANY, Node.ANY, Node.ANY);
+			while (it.hasNext()) {
+				Triple triple = it.next();
+				this.db.insert(graph.getGraphName(), triple.getSubject(), triple.getPredicate(), triple.getObject());
+			}
+		} catch (RuntimeException ex) {
+			abortStartedBatch(started);
+			throw ex;
 		}
+		endStartedBatch(started);
 	}
 
 	/* (non-Javadoc)
@@ -104,6 +257,9 @@ public class NamedGraphSetDB extends NamedGraphSetIO implements NamedGraphSet {
 		}
 		this.db.delete(graphName, Node.ANY, Node.ANY, Node.ANY);
 		this.db.deleteGraphName(graphName);
+		if (this.batchGraphNames != null) {
+			this.batchGraphNames.clear();
+		}
 	}
 
 	/* (non-Javadoc)
@@ -210,13 +366,17 @@ public class NamedGraphSetDB extends NamedGraphSetIO implements NamedGraphSet {
 	public void clear() {
 		this.db.delete(Node.ANY, Node.ANY, Node.ANY, Node.ANY);
 		this.db.deleteGraphName(Node.ANY);
+		if (this.batchGraphNames != null) {
+			this.batchGraphNames.clear();
+		}
 	}
 
 	/* (non-Javadoc)
 	 * @see de.fuberlin.wiwiss.ng4j.NamedGraphSet#addQuad(de.fuberlin.wiwiss.ng4j.Quad)
 	 */
 	public void addQuad(Quad quad) {
-		if (!this.db.containsGraphName(quad.getGraphName())) {
+		if ((this.batchGraphNames == null || this.batchGraphNames.add(quad.getGraphName()))
+				&& !this.db.containsGraphName(quad.getGraphName())) {
 			this.db.insertGraphName(quad.getGraphName());
 		}
 		this.db.insert(quad.getGraphName(), quad.getSubject(), quad.getPredicate(), quad.getObject());
@@ -308,6 +468,26 @@ public class NamedGraphSetDB extends NamedGraphSetIO implements NamedGraphSet {
 	QuadDB getDB() {
 		return this.db;
 	}
+
+	private boolean startBatchIfNone() {
+		if (this.db.isInBatch()) {
+			return false;
+		}
+		startBatch();
+		return true;
+	}
+
+	private void endStartedBatch(boolean started) {
+		if (started) {
+			endBatch();
+		}
+	}
+
+	private void abortStartedBatch(boolean started) {
+		if (started) {
+			abortBatch();
+		}
+	}
 }
 
 /*
@@ -1,6 +1,9 @@
 // $Id: QuadDB.java,v 1.25 2011/07/15 23:02:43 jenpc Exp $
 package de.fuberlin.wiwiss.ng4j.db;
 
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -8,15 +11,22 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import com.hp.hpl.jena.datatypes.TypeMapper;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.rdf.model.AnonId;
 import com.hp.hpl.jena.shared.JenaException;
+import com.hp.hpl.jena.util.iterator.ClosableIterator;
+import com.hp.hpl.jena.util.iterator.WrappedIterator;
 import com.sun.rowset.CachedRowSetImpl;
 
 import de.fuberlin.wiwiss.ng4j.Quad;
@@ -39,10 +49,28 @@ import de.fuberlin.wiwiss.ng4j.db.specific.PostgreSQLCompatibility;
  * table. A table prefix can be supplied in order to support multiple QuadDBs
  * in a single database.</p>
  * 
+ * <p>Alternatively, the quads can be stored dictionary-encoded (see
+ * {@link #QuadDB(Connection, String, boolean)}): a <tt>nodes</tt> table maps
+ * each RDF term to a 64-bit id, derived from an MD5 hash of the term, and
+ * the <tt>quads</tt> table holds four id columns with composite GSPO, GPOS,
+ * SPOG and OSPG indexes. Rows and indexes are much smaller, and the id of a
+ * term is known without asking the database. A bounded cache remembers
+ * which terms are stored already, so that writing a quad usually needs a
+ * single statement. Terms are never removed from the <tt>nodes</tt> table.</p>
+ * 
  * @author Richard Cyganiak (richard@cyganiak.de)
  */
 public class QuadDB {
 
+	/** The number of quads per JDBC batch that NamedGraphSetDB uses by default */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
+	/** The number of rows fetched at once in streaming mode by default */
+	public static final int DEFAULT_FETCH_SIZE = 1000;
+
+	/** The number of stored terms that are remembered by default in the dictionary-encoded layout */
+	public static final int DEFAULT_TERM_CACHE_SIZE = 10000;
+
 	/* TODO REVISIT this use of com.sun.rowset.CachedRowSetImpl because it is a sun library
 	 * Not a problem to depend on java libraries, but don't want to depend on a particular java implementation.
 	 * The reason it has been added for now is to fix a memory leak that was reported to occur.
@@ -62,17 +90,64 @@ public class QuadDB {
 	
 	private final String graphNamesTableName;
 	private final String quadsTableName;
+	// null unless the layout is dictionary-encoded
+	private final String nodesTableName;
 	
 	private DbCompatibility dbCompatibility;
+	
+	// batch mode is on if batchSize > 0
+	private int batchSize = 0;
+	private int pendingQuads = 0;
+	private boolean ownsTransaction = false;
+	
+	private boolean streaming = false;
+	private int fetchSize = DEFAULT_FETCH_SIZE;
+	// the statements that have a live ResultSet in streaming mode
+	private final Set<PreparedStatement> openStatements = new HashSet<PreparedStatement>();
+	
+	// the terms known to be committed to the nodes table, with their ids
+	private Map<Node,Long> termCache = null;
+	private int termCacheSize = DEFAULT_TERM_CACHE_SIZE;
+	// the terms stored in the transaction of the current batch, which
+	// move to the term cache when the batch commits the transaction
+	private final Map<Node,Long> uncommittedTerms = new HashMap<Node,Long>();
+	// the terms added to the nodes table in the pending batch, by id
+	private final Map<Long,String[]> pendingNodes = new HashMap<Long,String[]>();
+	private MessageDigest md5 = null;
 
 	public QuadDB(Connection connection, String tablePrefix) {
+		this(connection, tablePrefix, false);
+	}
+
+	/**
+	 * @param connection A connection to an SQL database
+	 * @param tablePrefix A prefix for the names of the tables
+	 * @param dictionaryEncoded <tt>true</tt> to store the quads as ids that
+	 * 		refer to a nodes table. The tables, if they exist, must have been
+	 * 		created with the same layout.
+	 */
+	public QuadDB(Connection connection, String tablePrefix, boolean dictionaryEncoded) {
 		this.setDBtype(connection);
 		this.setEscapePattern();
 		this.tablePrefix = escape(tablePrefix);
 		this.graphNamesTableName = this.tablePrefix + "_graphs";
 		this.quadsTableName = this.tablePrefix + "_quads";
 		
-		dbCompatibility.initialize(tablePrefix, graphNamesTableName, quadsTableName);
+		if (dictionaryEncoded) {
+			this.nodesTableName = this.tablePrefix + "_nodes";
+			dbCompatibility.initialize(tablePrefix, graphNamesTableName, quadsTableName,
+					nodesTableName);
+			this.termCache = createTermCache();
+			try {
+				this.md5 = MessageDigest.getInstance("MD5");
+			} catch (NoSuchAlgorithmException ex) {
+				// every Java platform has MD5 - so this should never happen
+				throw new JenaException(ex);
+			}
+		} else {
+			this.nodesTableName = null;
+			dbCompatibility.initialize(tablePrefix, graphNamesTableName, quadsTableName);
+		}
 //		try {
 			// initialize the SQL statements to be used repeatedly with this database
 			dbCompatibility.initializePreparedStatements();
@@ -81,22 +156,36 @@ public class QuadDB {
 //		}
 	}
 	
+	/**
+	 * Inserts a quad unless it exists already. In batch mode (see
+	 * {@link #startBatch(int)}) the quad is added to the current batch.
+	 */
 	public void insert(Node graph, Node subject, Node predicate, Node object) {
-		if (find(graph, subject, predicate, object).hasNext()) {
-			// don't attempt the insert if the statement already exists in the graph
-			return;
-		}
-		
-		PreparedStatement insert = dbCompatibility.getInsertQuadsTableStmt(); //getInsertStatement();
+		PreparedStatement insert = dbCompatibility.getInsertQuadIfAbsentStmt();
 		try {
-			// let helper methods set the prepared query's data
-			setGraphnameColumn(insert, graph);
-			setSubjectColumn(insert, subject);
-			setPredicateColumn(insert, predicate);
-			setObjectColumn(insert, object);
-			setLiteralColumn(insert, object);
-			setLangColumn(insert, object);
-			setDatatypeColumn(insert, object);
+			// the values are needed twice, for the insert and for the duplicate check
+			if (this.nodesTableName != null) {
+				long[] ids = new long[] {storeNode(graph), storeNode(subject),
+						storeNode(predicate), storeNode(object)};
+				for (int i = 0; i < ids.length; i++) {
+					insert.setLong(i + 1, ids[i]);
+					insert.setLong(ids.length + i + 1, ids[i]);
+				}
+			} else {
+				String[] columns = getQuadColumns(graph, subject, predicate, object);
+				for (int i = 0; i < columns.length; i++) {
+					setColumn(insert, i + 1, columns[i]);
+					setColumn(insert, columns.length + i + 1, columns[i]);
+				}
+			}
+			if (this.batchSize > 0) {
+				insert.addBatch();
+				this.pendingQuads++;
+				if (this.pendingQuads >= this.batchSize) {
+					flushBatch();
+				}
+				return;
+			}
 		} catch (SQLException e) {
 			throw new JenaException(e);
 		}
@@ -105,13 +194,143 @@ public class QuadDB {
 		dbCompatibility.execute(insert);
 	}
 	
+	/**
+	 * Starts batch mode. Until {@link #endBatch()} is called, inserted quads
+	 * are sent to the database in JDBC batches of the given size, inside a
+	 * transaction. If the connection is in auto-commit mode, auto-commit is
+	 * switched off until the batch ends; otherwise the caller is
+	 * responsible for the transaction.
+	 * <p>
+	 * All other operations on quads execute the pending batch first, so
+	 * they see the quads inserted so far.
+	 * 
+	 * @param batchSize The number of quads per JDBC batch
+	 */
+	public void startBatch(int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("The batch size must be positive");
+		}
+		if (this.batchSize > 0) {
+			throw new IllegalStateException("A batch has been started already");
+		}
+		try {
+			Connection connection = dbCompatibility.getConnection();
+			this.ownsTransaction = connection.getAutoCommit();
+			if (this.ownsTransaction) {
+				connection.setAutoCommit(false);
+			}
+		} catch (SQLException ex) {
+			throw new JenaException(ex);
+		}
+		this.batchSize = batchSize;
+		this.pendingQuads = 0;
+	}
+	
+	/**
+	 * @return <tt>true</tt> between {@link #startBatch(int)} and
+	 * 		{@link #endBatch()} or {@link #abortBatch()}
+	 */
+	public boolean isInBatch() {
+		return this.batchSize > 0;
+	}
+	
+	/**
+	 * Sends the pending quads to the database and ends batch mode.
+	 * If the batch switched off auto-commit, the transaction is committed
+	 * and auto-commit is switched on again. If the quads cannot be
+	 * inserted, the batch is aborted.
+	 */
+	public void endBatch() {
+		if (this.batchSize == 0) {
+			throw new IllegalStateException("No batch has been started");
+		}
+		try {
+			flushBatch();
+			if (this.ownsTransaction) {
+				dbCompatibility.getConnection().commit();
+				if (this.termCache != null) {
+					this.termCache.putAll(this.uncommittedTerms);
+				}
+			}
+			this.uncommittedTerms.clear();
+		} catch (RuntimeException ex) {
+			abortBatch();
+			throw ex;
+		} catch (SQLException ex) {
+			abortBatch();
+			throw new JenaException(ex);
+		}
+		finishBatch();
+	}
+	
+	/**
+	 * Discards the pending quads and ends batch mode. If the batch switched
+	 * off auto-commit, everything written during the batch is rolled back.
+	 */
+	public void abortBatch() {
+		if (this.batchSize == 0) {
+			return;
+		}
+		try {
+			dbCompatibility.getInsertQuadIfAbsentStmt().clearBatch();
+			if (this.nodesTableName != null) {
+				dbCompatibility.getInsertNodeIfAbsentStmt().clearBatch();
+				this.pendingNodes.clear();
+				this.uncommittedTerms.clear();
+			}
+			if (this.ownsTransaction) {
+				dbCompatibility.getConnection().rollback();
+			}
+		} catch (SQLException ex) {
+			throw new JenaException(ex);
+		} finally {
+			finishBatch();
+		}
+	}
+	
+	private void finishBatch() {
+		this.batchSize = 0;
+		this.pendingQuads = 0;
+		if (this.ownsTransaction) {
+			this.ownsTransaction = false;
+			try {
+				dbCompatibility.getConnection().setAutoCommit(true);
+			} catch (SQLException ex) {
+				throw new JenaException(ex);
+			}
+		}
+	}
+	
+	/**
+	 * Executes the pending quads of the current batch, if any.
+	 */
+	private void flushBatch() {
+		if (this.pendingQuads == 0) {
+			return;
+		}
+		this.pendingQuads = 0;
+		try {
+			if (!this.pendingNodes.isEmpty()) {
+				this.pendingNodes.clear();
+				dbCompatibility.getInsertNodeIfAbsentStmt().executeBatch();
+			}
+			dbCompatibility.getInsertQuadIfAbsentStmt().executeBatch();
+		} catch (SQLException ex) {
+			throw new JenaException(ex);
+		}
+	}
+	
 	public void delete(Node graph, Node subject, Node predicate, Node object) {
-		// TODO change to use PreparedStatement instead - a bit more complex
-		// need to have multiple prepared statements - see getWhereClause -
-		// because the end may or may not be added depending
+		flushBatch();
 		String prefix = "DELETE FROM " + quadsTableName + " ";
-		PreparedStatement sql = getWhereClause(prefix, graph, subject, predicate, object);
+		PreparedStatement sql;
+		if (this.nodesTableName != null) {
+			sql = getIdWhereClause(prefix, "", false, graph, subject, predicate, object);
+		} else {
+			sql = getWhereClause(prefix, graph, subject, predicate, object);
+		}
 		dbCompatibility.execute(sql);
+		cleanUp(sql);
 	}
 	
 	public Iterator<Quad> find(Node graph, Node subject, Node predicate, Node object) {
@@ -133,12 +352,33 @@ public class QuadDB {
 			List<Quad> quadsList = Collections.emptyList();
 			return quadsList.iterator();
 		}
-		// TODO change to use PreparedStatement instead - a bit more complex
-		// need to have multiple prepared statements - see getWhereClause -
-		// because the end may or may not be added depending
-		String prefix = "SELECT graph, subject, predicate, object, literal, lang, datatype " +
-				"FROM " + quadsTableName + " ";
-		PreparedStatement sql = getWhereClause(prefix, graph, subject, predicate, object);
+		flushBatch();
+		PreparedStatement sql;
+		if (this.nodesTableName != null) {
+			// the same columns as in the plain layout
+			String prefix = "SELECT g.uri, s.uri, p.uri, o.uri, o.literal, o.lang, o.datatype " +
+					"FROM " + quadsTableName + " q, " + nodesTableName + " g, " +
+					nodesTableName + " s, " + nodesTableName + " p, " + nodesTableName + " o " +
+					"WHERE g.id = q.graph AND s.id = q.subject " +
+					"AND p.id = q.predicate AND o.id = q.object";
+			sql = getIdWhereClause(prefix, "q.", true, graph, subject, predicate, object);
+		} else {
+			String prefix = "SELECT graph, subject, predicate, object, literal, lang, datatype " +
+					"FROM " + quadsTableName + " ";
+			sql = getWhereClause(prefix, graph, subject, predicate, object);
+		}
+		
+		if (this.streaming) {
+			try {
+				dbCompatibility.setFetchSize(sql, this.fetchSize);
+			} catch (SQLException e) {
+				cleanUp(sql);
+				throw new JenaException(e);
+			}
+			ResultSet results = dbCompatibility.executeQuery(sql);
+			this.openStatements.add(sql);
+			return new QuadIterator(results, sql);
+		}
 		
 		final ResultSet results = dbCompatibility.executeQuery(sql);
 		
@@ -154,91 +394,362 @@ public class QuadDB {
 			cleanUp(results);
 		}
 		
-		return new Iterator<Quad>() {
-			private boolean hasReadNext = false;
-			private Quad current = null;
-			private Quad next = null;
+		return new QuadIterator(crs, null);
+	}
+	
+	/**
+	 * Switches streaming mode for {@link #find} and for the SQL queries of
+	 * SPARQL patterns (see {@link DBQueryEngine}) on or off. By default,
+	 * find() copies all matching rows into memory and closes the
+	 * ResultSet before it returns. In streaming mode the ResultSet stays
+	 * open and rows are fetched in chunks of the fetch size (see
+	 * {@link #setFetchSize(int)}), so large results need constant memory
+	 * and the first quad is available at once.
+	 * <p>
+	 * In streaming mode the statement is closed when the iterator is
+	 * exhausted or closed. The iterators are
+	 * {@link ClosableIterator}s; iterators that are not read to the end
+	 * should be closed, because some databases don't allow other
+	 * statements on the connection or changes to the tables while a
+	 * ResultSet is open (MySQL, Derby). PostgreSQL uses the fetch size only
+	 * if auto-commit is switched off, e.g. in a batch.
+	 * 
+	 * @param streaming <tt>true</tt> to switch streaming mode on
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+	
+	/**
+	 * @return <tt>true</tt> if {@link #find} is in streaming mode
+	 */
+	public boolean isStreaming() {
+		return this.streaming;
+	}
+	
+	/**
+	 * Sets the number of rows fetched at once in streaming mode.
+	 * The default is {@link #DEFAULT_FETCH_SIZE}.
+	 * 
+	 * @param fetchSize The number of rows
+	 * @see DbCompatibility#setFetchSize(Statement, int)
+	 */
+	public void setFetchSize(int fetchSize) {
+		if (fetchSize < 1) {
+			throw new IllegalArgumentException("The fetch size must be positive");
+		}
+		this.fetchSize = fetchSize;
+	}
+	
+	/**
+	 * Forgets the stored terms that are remembered in the dictionary-encoded
+	 * layout. Only terms whose transaction has been committed are remembered
+	 * (terms written in a transaction of the caller are never remembered),
+	 * so this is needed only if the nodes table is changed by other means.
+	 */
+	public void clearTermCache() {
+		if (this.termCache != null) {
+			this.termCache.clear();
+		}
+	}
+	
+	/**
+	 * Sets the number of stored terms that are remembered in the
+	 * dictionary-encoded layout. The default is {@link #DEFAULT_TERM_CACHE_SIZE}.
+	 * Writing a quad with a term that is not in the cache needs an extra
+	 * query, which checks that the term's id is not taken by another term.
+	 * Terms are remembered only once the transaction in which they were
+	 * written has been committed by auto-commit or by {@link #endBatch()}.
+	 * 
+	 * @param termCacheSize The number of terms
+	 */
+	public void setTermCacheSize(int termCacheSize) {
+		if (termCacheSize < 1) {
+			throw new IllegalArgumentException("The term cache size must be positive");
+		}
+		this.termCacheSize = termCacheSize;
+	}
+	
+	/**
+	 * @return <tt>true</tt> if the quads are stored dictionary-encoded
+	 */
+	public boolean isDictionaryEncoded() {
+		return this.nodesTableName != null;
+	}
+	
+	/**
+	 * Iterates over the rows of a find() result. If the ResultSet is
+	 * live (streaming mode), it is cleaned up when the last row has been
+	 * read or the iterator is closed.
+	 */
+	private class QuadIterator implements ClosableIterator<Quad> {
+		private final ResultSet rows;
+		// the statement of a live ResultSet, or null
+		private final PreparedStatement statement;
+		private boolean closed = false;
+		private boolean hasReadNext = false;
+		private Quad current = null;
+		private Quad next = null;
 
-			/* (non-Javadoc)
-			 * @see java.util.Iterator#hasNext()
-			 */
-			public boolean hasNext() {
-				if (!this.hasReadNext) {
-					try {
-						if (crs.next()) {
-							this.next = makeQuad();
-						} else {
-							this.next = null;
-							//cleanUp(results);
-						}
-					} catch (SQLException ex) {
-						//cleanUp(results);
-						throw new JenaException(ex);
+		QuadIterator(ResultSet rows, PreparedStatement statement) {
+			this.rows = rows;
+			this.statement = statement;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.Iterator#hasNext()
+		 */
+		public boolean hasNext() {
+			if (!this.hasReadNext) {
+				if (this.closed) {
+					return false;
+				}
+				try {
+					if (this.rows.next()) {
+						this.next = makeQuad();
+					} else {
+						this.next = null;
+						close();
 					}
-					this.hasReadNext = true;
+				} catch (SQLException ex) {
+					close();
+					throw new JenaException(ex);
 				}
-				return (this.next != null);
+				this.hasReadNext = true;
 			}
+			return (this.next != null);
+		}
 
-			/* (non-Javadoc)
-			 * @see java.util.Iterator#next()
-			 */
-			public Quad next() {
-				if (!hasNext()) {
-					throw new NoSuchElementException();
-				}
-				// calling hasNext put the next quad in this.next,
-				// so now make that the current one and reset the other entries
-				this.current = this.next;
-				this.next = null;
-				this.hasReadNext = false;
-				return this.current;
+		/* (non-Javadoc)
+		 * @see java.util.Iterator#next()
+		 */
+		public Quad next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
 			}
+			// calling hasNext put the next quad in this.next,
+			// so now make that the current one and reset the other entries
+			this.current = this.next;
+			this.next = null;
+			this.hasReadNext = false;
+			return this.current;
+		}
 
-			/* (non-Javadoc)
-			 * @see java.util.Iterator#remove()
-			 */
-			public void remove() {
-				if (this.current == null) {
-					throw new IllegalStateException();
+		/* (non-Javadoc)
+		 * @see java.util.Iterator#remove()
+		 */
+		public void remove() {
+			if (this.current == null) {
+				throw new IllegalStateException();
+			}
+			delete(this.current.getGraphName(), this.current.getSubject(),
+					this.current.getPredicate(), this.current.getObject());
+			this.current = null;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.hp.hpl.jena.util.iterator.ClosableIterator#close()
+		 */
+		public void close() {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+			if (this.statement != null) {
+				openStatements.remove(this.statement);
+				cleanUp(this.rows);
+			}
+		}
+
+		private Quad makeQuad() throws SQLException {
+			return new Quad(Node.createURI(this.rows.getString(1)),
+					toResource(this.rows.getString(2)),
+					Node.createURI(this.rows.getString(3)),
+					toNode(this.rows.getString(4), this.rows.getString(5),
+							this.rows.getString(6), this.rows.getString(7)));
+		}
+	}
+	
+	/**
+	 * Executes a query that was compiled by an {@link SQLPattern}. Each
+	 * selected term is either a single resource column or, if it may be a
+	 * literal, the four columns uri (or object), literal, lang and datatype.
+	 * Like {@link #find}, all rows are copied into memory unless streaming
+	 * mode is on (see {@link #setStreaming(boolean)}); in streaming mode the
+	 * rows are read from the live ResultSet in chunks of the fetch size, and
+	 * the ResultSet is closed when the iterator is exhausted or closed.
+	 * 
+	 * @param query A statement for the SQL of the pattern, which is not
+	 * 		closed; see {@link #prepareQuery(String)}
+	 * @param parameters The values of the parameters, Strings and Longs
+	 * @param widths For each selected term, its number of columns: 1 or 4
+	 * @return The terms of each row
+	 */
+	ClosableIterator<Node[]> select(PreparedStatement query, List<Object> parameters, int[] widths) {
+		flushBatch();
+		ResultSet results;
+		try {
+			for (int i = 0; i < parameters.size(); i++) {
+				Object value = parameters.get(i);
+				if (value instanceof Long) {
+					query.setLong(i + 1, ((Long) value).longValue());
+				} else {
+					query.setString(i + 1, (String) value);
 				}
-				delete(this.current.getGraphName(), this.current.getSubject(),
-						this.current.getPredicate(), this.current.getObject());
-				this.current = null;
 			}
+			if (this.streaming) {
+				dbCompatibility.setFetchSize(query, this.fetchSize);
+			}
+			results = query.executeQuery();
+		} catch (SQLException ex) {
+			throw new JenaException(ex);
+		}
+		RowIterator rows = new RowIterator(results, widths);
+		if (this.streaming) {
+			return rows;
+		}
+		List<Node[]> copy = new ArrayList<Node[]>();
+		while (rows.hasNext()) {
+			copy.add(rows.next());
+		}
+		return WrappedIterator.create(copy.iterator());
+	}
+	
+	/**
+	 * Iterates over the rows of a {@link #select} result. The ResultSet is
+	 * closed when the last row has been read or the iterator is closed; its
+	 * statement is left open for the next execution.
+	 */
+	private class RowIterator implements ClosableIterator<Node[]> {
+		private final ResultSet rows;
+		private final int[] widths;
+		private boolean closed = false;
+		private Node[] next = null;
 
-			private Quad makeQuad() {
-				Node node;
+		RowIterator(ResultSet rows, int[] widths) {
+			this.rows = rows;
+			this.widths = widths;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.Iterator#hasNext()
+		 */
+		public boolean hasNext() {
+			if (this.next == null && !this.closed) {
 				try {
-					String dt = crs.getString(7);
-					if (crs.getString(4) == null) {
-						node = Node.createLiteral(crs.getString(5), crs.getString(6),
-								((dt == null) ?
-										null :
-										TypeMapper.getInstance().getSafeTypeByName(dt)));
+					if (this.rows.next()) {
+						this.next = makeRow();
 					} else {
-						node = toResource(crs.getString(4));
+						close();
 					}
-					return new Quad(Node.createURI(crs.getString(1)),
-							toResource(crs.getString(2)),
-							Node.createURI(crs.getString(3)),
-							node);
 				} catch (SQLException ex) {
-					//cleanUp(results);
+					close();
 					throw new JenaException(ex);
 				}
 			}
+			return (this.next != null);
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.Iterator#next()
+		 */
+		public Node[] next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Node[] row = this.next;
+			this.next = null;
+			return row;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.Iterator#remove()
+		 */
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/* (non-Javadoc)
+		 * @see com.hp.hpl.jena.util.iterator.ClosableIterator#close()
+		 */
+		public void close() {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+			try {
+				this.rows.close();
+			} catch (SQLException ex) {
+				throw new JenaException("Cannot close result set", ex);
+			}
+		}
 
-			private Node toResource(String str) {
-				if (str.startsWith("_:")) {
-					return Node.createAnon(new AnonId(str.substring(2)));
+		private Node[] makeRow() throws SQLException {
+			Node[] row = new Node[this.widths.length];
+			int column = 1;
+			for (int i = 0; i < this.widths.length; i++) {
+				if (this.widths[i] == 1) {
+					row[i] = toResource(this.rows.getString(column));
+				} else {
+					row[i] = toNode(this.rows.getString(column), this.rows.getString(column + 1),
+							this.rows.getString(column + 2), this.rows.getString(column + 3));
 				}
-				return Node.createURI(str);
+				column += this.widths[i];
 			}
-		};
+			return row;
+		}
+	}
+	
+	/**
+	 * Prepares a statement for {@link #select}. Unlike the statements of
+	 * find(), it is not cached by the QuadDB; the caller must close it.
+	 */
+	PreparedStatement prepareQuery(String sql) {
+		try {
+			return dbCompatibility.getConnection().prepareStatement(sql);
+		} catch (SQLException ex) {
+			throw new JenaException(ex);
+		}
+	}
+	
+	String getQuadsTableName() {
+		return this.quadsTableName;
+	}
+	
+	/**
+	 * @return The name of the nodes table, or null unless the layout is
+	 * 		dictionary-encoded
+	 */
+	String getNodesTableName() {
+		return this.nodesTableName;
+	}
+	
+	/**
+	 * @return The term of a column of the plain layout, or of the uri column
+	 * 		of the nodes table, that holds a URI or a blank node
+	 */
+	static Node toResource(String str) {
+		if (str.startsWith("_:")) {
+			return Node.createAnon(new AnonId(str.substring(2)));
+		}
+		return Node.createURI(str);
+	}
+	
+	/**
+	 * @return The term of the columns object (or uri), literal, lang and datatype
+	 */
+	static Node toNode(String uri, String literal, String lang, String datatype) {
+		if (uri == null) {
+			return Node.createLiteral(literal, lang,
+					((datatype == null) ?
+							null :
+							TypeMapper.getInstance().getSafeTypeByName(datatype)));
+		}
+		return toResource(uri);
 	}
 	
 	public int count() {
+		flushBatch();
 		ResultSet results = dbCompatibility.executeQuery(dbCompatibility.getContainsAnyQuadStmt());
 		try {
 			results.next();
@@ -398,12 +909,32 @@ public class QuadDB {
 		}
 	}
 	
+	/** Closes a statement unless it is a PreparedStatement that should be saved.
+	 * 
+	 * @param stmt The statement to close.
+	 */
+	private void cleanUp(PreparedStatement stmt) {
+		if (dbCompatibility.shouldBeSaved(stmt)) {
+			return;
+		}
+		try {
+			stmt.close();
+		} catch (SQLException ex) {
+			throw new JenaException("Cannot close statement", ex);
+		}
+	}
+	
 	public void createTables() {
-		dbCompatibility.createTables();
+		if (this.nodesTableName != null) {
+			dbCompatibility.createDictionaryTables();
+		} else {
+			dbCompatibility.createTables();
+		}
 	}
 	
 	public void deleteTables() {
 		dbCompatibility.deleteTables();
+		clearTermCache();
 	}
 	
 	public boolean tablesExist() {
@@ -411,6 +942,9 @@ public class QuadDB {
 	}
 	
 	public void close() {
+		if (this.batchSize > 0) {
+			endBatch();
+		}
 		dbCompatibility.close();
 	}
 
@@ -423,7 +957,7 @@ public class QuadDB {
 				replaceAll(this.escapeReplacement);
 	}
 
-	private String resourceAsSqlString(Node resource) {
+	String resourceAsSqlString(Node resource) {
 		if (resource.isURI()) {
 			return resource.getURI();
 		}
@@ -468,63 +1002,207 @@ public class QuadDB {
 //		}
 	}
 
-	private void setGraphnameColumn(PreparedStatement statement, Node graph) throws SQLException {
-		final int GRAPHNAME_INDEX = 1;
-		// null value is not allowed so do not call method setColumn
-		statement.setString(GRAPHNAME_INDEX, graph.getURI());
+	/**
+	 * @return the values of the columns graph, subject, predicate, object,
+	 * 		literal, lang and datatype for a quad
+	 */
+	private String[] getQuadColumns(Node graph, Node subject, Node predicate, Node object) {
+		String literal = null;
+		String lang = null;
+		String datatype = null;
+		if (object.isLiteral()) {
+			literal = object.getLiteral().getLexicalForm();
+			if (object.getLiteral().language() != null && !"".equals(object.getLiteral().language())) {
+				lang = object.getLiteral().language();
+			}
+			datatype = object.getLiteral().getDatatypeURI();
+		}
+		return new String[] {graph.getURI(), resourceAsSqlString(subject),
+				predicate.getURI(), getObjectColumnRaw(object), literal, lang, datatype};
 	}
 
-	private void setSubjectColumn(PreparedStatement statement, Node subject) throws SQLException {
-		final int SUBJECT_INDEX = 2;
-		// null value is not allowed so do not call method setColumn
-		statement.setString(SUBJECT_INDEX, resourceAsSqlString(subject));
+	private Map<Node,Long> createTermCache() {
+		return new LinkedHashMap<Node,Long>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Node,Long> eldest) {
+				return size() > QuadDB.this.termCacheSize;
+			}
+		};
 	}
-	
-	private void setPredicateColumn(PreparedStatement statement, Node predicate) throws SQLException {
-		final int PREDICATE_INDEX = 3;
-		// null value is not allowed so do not call method setColumn
-		statement.setString(PREDICATE_INDEX, predicate.getURI());
+
+	/**
+	 * @return the columns uri, literal, lang and datatype of the nodes table
+	 * 		for a term
+	 */
+	private String[] getNodeColumns(Node node) {
+		if (node.isLiteral()) {
+			String lang = node.getLiteral().language();
+			return new String[] {null, node.getLiteral().getLexicalForm(),
+					("".equals(lang) ? null : lang), node.getLiteral().getDatatypeURI()};
+		}
+		return new String[] {resourceAsSqlString(node), null, null, null};
 	}
 
-	private void setObjectColumn(PreparedStatement statement, Node object) throws SQLException {
-		final int OBJECT_INDEX = 4;
-		this.setColumn(statement, OBJECT_INDEX, getObjectColumnRaw(object));
+	/**
+	 * Computes the id of a term: the first eight bytes of the MD5 hash
+	 * of its nodes table columns.
+	 */
+	private long getNodeId(String[] columns) {
+		this.md5.reset();
+		for (int i = 0; i < columns.length; i++) {
+			// the lengths keep different column values apart
+			String value = (columns[i] == null) ? "-" : columns[i].length() + ":" + columns[i];
+			try {
+				this.md5.update(value.getBytes("UTF-8"));
+			} catch (UnsupportedEncodingException ex) {
+				// UTF-8 is always supported - so this should never happen
+				throw new JenaException(ex);
+			}
+		}
+		byte[] digest = this.md5.digest();
+		long id = 0;
+		for (int i = 0; i < 8; i++) {
+			id = (id << 8) | (digest[i] & 0xff);
+		}
+		return id;
 	}
-	
-	private void setLiteralColumn(PreparedStatement statement, Node object) throws SQLException {
-		final int LITERAL_INDEX = 5;
-		
-		String literal;
-		if (!object.isLiteral()) {
-				literal = null;
-			} else {
-				literal = object.getLiteral().getLexicalForm();
+
+	/**
+	 * @return the id of a term, which need not be stored
+	 */
+	long getNodeId(Node node) {
+		Long id = this.termCache.get(node);
+		if (id != null) {
+			return id.longValue();
 		}
-		this.setColumn(statement, LITERAL_INDEX, literal);	
+		return getNodeId(getNodeColumns(node));
 	}
-	
-	private void setLangColumn(PreparedStatement statement, Node object) throws SQLException {
-		final int LANG_INDEX = 6;
-		
-		String languageValue;
-		if (!object.isLiteral() || object.getLiteral().language() == null || "".equals(object.getLiteral().language())) {
-				languageValue = null;
+
+	/**
+	 * Adds a term to the nodes table, or to the pending batch, unless it is
+	 * stored already.
+	 * 
+	 * @return the id of the term
+	 * @throws JenaException if the id is taken by another term
+	 */
+	private long storeNode(Node node) throws SQLException {
+		Long cached = this.termCache.get(node);
+		if (cached == null) {
+			cached = this.uncommittedTerms.get(node);
+		}
+		if (cached != null) {
+			return cached.longValue();
+		}
+		String[] columns = getNodeColumns(node);
+		long id = getNodeId(columns);
+		Long key = Long.valueOf(id);
+		String[] stored = this.pendingNodes.get(key);
+		if (stored == null) {
+			stored = selectNode(id);
+		}
+		if (stored == null) {
+			PreparedStatement insert = dbCompatibility.getInsertNodeIfAbsentStmt();
+			insert.setLong(1, id);
+			for (int i = 0; i < columns.length; i++) {
+				setColumn(insert, i + 2, columns[i]);
+			}
+			insert.setLong(6, id);
+			if (this.batchSize > 0) {
+				insert.addBatch();
+				this.pendingNodes.put(key, columns);
 			} else {
-				languageValue = object.getLiteral().language();
+				dbCompatibility.execute(insert);
+			}
+		} else if (!sameColumns(columns, stored)) {
+			throw new JenaException("Term " + node + " has the same id as another term");
 		}
-		this.setColumn(statement, LANG_INDEX, languageValue);
+		// a term is remembered only once it is known to be committed; in a
+		// transaction of the caller it is left to the insert-if-absent
+		// statement, since a rollback of the caller would not be noticed
+		if (this.batchSize > 0 && this.ownsTransaction) {
+			this.uncommittedTerms.put(node, key);
+		} else if (this.batchSize == 0 && dbCompatibility.getConnection().getAutoCommit()) {
+			this.termCache.put(node, key);
+		}
+		return id;
 	}
-	
-	private void  setDatatypeColumn(PreparedStatement statement, Node object) throws SQLException {
-		final int DATATYPE_INDEX = 7;
-	
-		String datatypeValue;
-		if (!object.isLiteral() || object.getLiteral().getDatatypeURI() == null) {
-				datatypeValue = null;
-			} else {
-				datatypeValue = object.getLiteral().getDatatypeURI();
+
+	/**
+	 * @return the columns of a term in the nodes table, or null
+	 */
+	private String[] selectNode(long id) throws SQLException {
+		ResultSet results = dbCompatibility.executeQuery(dbCompatibility.getSelectNodeStmt(id));
+		try {
+			if (!results.next()) {
+				return null;
+			}
+			return new String[] {results.getString(1), results.getString(2),
+					results.getString(3), results.getString(4)};
+		} finally {
+			cleanUp(results);
+		}
+	}
+
+	private boolean sameColumns(String[] columns, String[] stored) {
+		for (int i = 0; i < columns.length; i++) {
+			// some databases store the empty string as NULL
+			String a = (columns[i] == null) ? "" : columns[i];
+			String b = (stored[i] == null) ? "" : stored[i];
+			if (!a.equals(b)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Builds a statement for the dictionary-encoded layout that restricts
+	 * the quads to those matching the pattern.
+	 * 
+	 * @param prefix The SQL statement without the conditions
+	 * @param alias The qualifier of the columns of the quads table, e.g. "q."
+	 * @param hasWhere <tt>true</tt> if the prefix ends with a WHERE clause
+	 */
+	private PreparedStatement getIdWhereClause(String prefix, String alias, boolean hasWhere,
+			Node graph, Node subject, Node predicate, Node object) {
+		String[] columns = new String[] {"graph", "subject", "predicate", "object"};
+		Node[] nodes = new Node[] {graph, subject, predicate, object};
+		List<Long> ids = new ArrayList<Long>();
+		StringBuffer sql = new StringBuffer(prefix);
+		for (int i = 0; i < nodes.length; i++) {
+			if (nodes[i] == null || Node.ANY.equals(nodes[i])) {
+				continue;
+			}
+			sql.append((hasWhere || !ids.isEmpty()) ? " AND " : " WHERE ");
+			sql.append(alias).append(columns[i]).append(" = ?");
+			ids.add(Long.valueOf(getNodeId(nodes[i])));
+		}
+		try {
+			PreparedStatement prepared = prepare(sql.toString());
+			for (int i = 0; i < ids.size(); i++) {
+				prepared.setLong(i + 1, ids.get(i).longValue());
+			}
+			return prepared;
+		} catch (SQLException e) {
+			throw new JenaException(e);
+		}
+	}
+
+	/**
+	 * Returns the cached statement for the SQL (see
+	 * {@link DbCompatibility#getPatternStmt(String)}). If a streaming find()
+	 * is still reading a live ResultSet of the cached statement, executing
+	 * it again would close that ResultSet, whether or not the new query
+	 * streams; then a new statement is prepared, which the caller closes
+	 * with {@link #cleanUp(PreparedStatement)} or {@link #cleanUp(ResultSet)}.
+	 */
+	private PreparedStatement prepare(String sql) throws SQLException {
+		PreparedStatement stmt = this.dbCompatibility.getPatternStmt(sql);
+		if (this.openStatements.contains(stmt)) {
+			return this.dbCompatibility.getConnection().prepareStatement(sql);
 		}
-		this.setColumn(statement, DATATYPE_INDEX, datatypeValue);
+		return stmt;
 	}
 
 	private PreparedStatement getWhereClause(String prefix, Node graph, Node subject, Node predicate, Node object) {
@@ -571,7 +1249,7 @@ public class QuadDB {
 		// if the prepared query would be empty, simply do not add a WHERE clause.
 		if (queryClauses.isEmpty()) {
 			try {
-				return this.dbCompatibility.getConnection().prepareStatement(prefix);
+				return prepare(prefix);
 			} catch (SQLException e) {
 				throw new JenaException(e);
 			}
@@ -590,10 +1268,10 @@ public class QuadDB {
 		String sql = prefix + " WHERE " + result;
 		
 		// Now we have a complete SQL string with question marks for
-		// the data. We create a PreparedStatement...
+		// the data. We get the PreparedStatement for its shape...
 		PreparedStatement prepared = null;
 		try {
-			prepared = this.dbCompatibility.getConnection().prepareStatement(sql);
+			prepared = prepare(sql);
 		} catch (SQLException e) {
 			throw new JenaException(e);
 		}
@@ -0,0 +1,442 @@
+package de.fuberlin.wiwiss.ng4j.db;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.expr.E_Equals;
+import com.hp.hpl.jena.sparql.expr.E_IsBlank;
+import com.hp.hpl.jena.sparql.expr.E_IsIRI;
+import com.hp.hpl.jena.sparql.expr.E_IsLiteral;
+import com.hp.hpl.jena.sparql.expr.E_LogicalAnd;
+import com.hp.hpl.jena.sparql.expr.E_NotEquals;
+import com.hp.hpl.jena.sparql.expr.E_SameTerm;
+import com.hp.hpl.jena.sparql.expr.Expr;
+import com.hp.hpl.jena.sparql.expr.ExprFunction1;
+import com.hp.hpl.jena.sparql.expr.ExprFunction2;
+import com.hp.hpl.jena.sparql.expr.ExprList;
+
+/**
+ * A basic graph pattern with filters, translated into a single SQL SELECT
+ * over the quads table of a {@link QuadDB}. Each triple pattern becomes an
+ * alias of the quads table and each shared variable a join condition, so
+ * the database does the joins. The pattern is matched in one graph, in
+ * each named graph (GRAPH ?g), or in the union of all graphs; then the
+ * solutions are made distinct.
+ * <p>
+ * Filters that can be expressed by the columns of the tables become
+ * further conditions: sameTerm, = and != with an IRI, isIRI, isBlank and
+ * isLiteral on the variables of the pattern, and conjunctions of these.
+ * The other filters must be evaluated on the solutions, see
+ * {@link #getRemainingFilters()}.
+ *
+ * @author Richard Cyganiak (richard@cyganiak.de)
+ */
+class SQLPattern {
+	private static final int GRAPH = 0;
+	private static final int SUBJECT = 1;
+	private static final int PREDICATE = 2;
+	private static final int OBJECT = 3;
+	private static final String[] COLUMNS = {"graph", "subject", "predicate", "object"};
+
+	// matches the stored form of blank nodes, "_:" followed by the id
+	private static final String BLANK_NODE_PATTERN = " LIKE '!_:%' ESCAPE '!'";
+
+	private final QuadDB db;
+	private final boolean dictionaryEncoded;
+	private boolean satisfiable = true;
+	private final List<String> conditions = new ArrayList<String>();
+	private final List<Object> parameters = new ArrayList<Object>();
+	// the variables in order of appearance, and a column of each; a column
+	// that may hold literals only if the variable has no other
+	private final List<Var> vars = new ArrayList<Var>();
+	private final Map<Var,Column> columns = new HashMap<Var,Column>();
+	private final ExprList remainingFilters = new ExprList();
+	private final String sql;
+	private final int[] widths;
+
+	/**
+	 * @param db The QuadDB whose tables are queried
+	 * @param graph The graph in which the pattern is matched; a variable for
+	 * 		each named graph, or {@link Node#ANY} for the union of all graphs
+	 * @param triples The triple patterns, at least one
+	 * @param filters The filters on the solutions
+	 */
+	SQLPattern(QuadDB db, Node graph, List<Triple> triples, ExprList filters) {
+		this.db = db;
+		this.dictionaryEncoded = db.isDictionaryEncoded();
+		List<Triple> ordered = orderTriples(triples);
+		for (int i = 0; i < ordered.size(); i++) {
+			String alias = "q" + i;
+			Triple triple = ordered.get(i);
+			if (!Node.ANY.equals(graph)) {
+				addTerm(graph, new Column(alias, GRAPH));
+			}
+			addTerm(triple.getSubject(), new Column(alias, SUBJECT));
+			addTerm(triple.getPredicate(), new Column(alias, PREDICATE));
+			addTerm(triple.getObject(), new Column(alias, OBJECT));
+		}
+		for (Expr filter : filters) {
+			addFilter(filter);
+		}
+		this.widths = new int[this.vars.size()];
+		this.sql = buildSQL(ordered.size(), Node.ANY.equals(graph));
+	}
+
+	/**
+	 * @return <tt>false</tt> if the pattern cannot have a solution, e.g.
+	 * 		because it has a literal in subject position; then the SQL
+	 * 		need not be executed
+	 */
+	boolean isSatisfiable() {
+		return this.satisfiable;
+	}
+
+	String getSQL() {
+		return this.sql;
+	}
+
+	/**
+	 * @return The values of the parameters of the SQL, Strings and Longs
+	 */
+	List<Object> getParameters() {
+		return this.parameters;
+	}
+
+	/**
+	 * @return The variables of the pattern, in the order of the selected
+	 * 		terms
+	 */
+	List<Var> getVars() {
+		return this.vars;
+	}
+
+	/**
+	 * @return The number of columns of each selected term, see
+	 * 		{@link QuadDB#select}
+	 */
+	int[] getWidths() {
+		return this.widths;
+	}
+
+	/**
+	 * @return The filters that are not part of the SQL
+	 */
+	ExprList getRemainingFilters() {
+		return this.remainingFilters;
+	}
+
+	/**
+	 * Orders the triple patterns for the FROM clause: the pattern with the
+	 * most constants first, then always the pattern with the most constants
+	 * or variables of the patterns before it. Databases with a simple
+	 * optimizer join the tables in that order.
+	 */
+	private List<Triple> orderTriples(List<Triple> triples) {
+		List<Triple> remaining = new ArrayList<Triple>(triples);
+		List<Triple> ordered = new ArrayList<Triple>();
+		Set<Node> bound = new HashSet<Node>();
+		while (!remaining.isEmpty()) {
+			Triple best = null;
+			int bestScore = -1;
+			for (Triple triple : remaining) {
+				int score = score(triple.getSubject(), bound, 2)
+						+ score(triple.getPredicate(), bound, 1)
+						+ score(triple.getObject(), bound, 2);
+				if (score > bestScore) {
+					best = triple;
+					bestScore = score;
+				}
+			}
+			remaining.remove(best);
+			ordered.add(best);
+			bound.add(best.getSubject());
+			bound.add(best.getPredicate());
+			bound.add(best.getObject());
+		}
+		return ordered;
+	}
+
+	private int score(Node node, Set<Node> bound, int weight) {
+		return (!Var.isVar(node) || bound.contains(node)) ? weight : 0;
+	}
+
+	private void addTerm(Node node, Column column) {
+		if (!Var.isVar(node)) {
+			addTermCondition(column, node);
+			return;
+		}
+		Var var = Var.alloc(node);
+		Column bound = this.columns.get(var);
+		if (bound == null) {
+			this.vars.add(var);
+			this.columns.put(var, column);
+			return;
+		}
+		this.conditions.add(getSameTermCondition(bound, column));
+		if (bound.mayBeLiteral() && !column.mayBeLiteral()) {
+			this.columns.put(var, column);
+		}
+	}
+
+	/**
+	 * Adds the conditions that restrict a column to a term, like
+	 * QuadDB.find() does.
+	 */
+	private void addTermCondition(Column column, Node node) {
+		if (node.isLiteral() && !column.mayBeLiteral()) {
+			this.satisfiable = false;
+			return;
+		}
+		if (this.dictionaryEncoded) {
+			this.conditions.add(column + " = ?");
+			this.parameters.add(Long.valueOf(this.db.getNodeId(node)));
+			return;
+		}
+		if (!node.isLiteral()) {
+			this.conditions.add(column + " = ?");
+			this.parameters.add(this.db.resourceAsSqlString(node));
+			return;
+		}
+		this.conditions.add(column.alias + ".literal = ?");
+		this.parameters.add(node.getLiteral().getLexicalForm());
+		String lang = node.getLiteral().language();
+		if (lang == null || "".equals(lang)) {
+			this.conditions.add(column.alias + ".lang IS NULL");
+		} else {
+			this.conditions.add(column.alias + ".lang = ?");
+			this.parameters.add(lang);
+		}
+		if (node.getLiteral().getDatatypeURI() == null) {
+			this.conditions.add(column.alias + ".datatype IS NULL");
+		} else {
+			this.conditions.add(column.alias + ".datatype = ?");
+			this.parameters.add(node.getLiteral().getDatatypeURI());
+		}
+	}
+
+	/**
+	 * @return A condition that is true if two columns hold the same term
+	 */
+	private String getSameTermCondition(Column a, Column b) {
+		if (this.dictionaryEncoded || !a.mayBeLiteral() || !b.mayBeLiteral()) {
+			return a + " = " + b;
+		}
+		// two object columns: the same resource or the same literal
+		return "(" + a + " = " + b + " OR " + a + " IS NULL AND " + b + " IS NULL" +
+				" AND " + a.alias + ".literal = " + b.alias + ".literal" +
+				" AND " + getNullSafeEquals(a.alias + ".lang", b.alias + ".lang") +
+				" AND " + getNullSafeEquals(a.alias + ".datatype", b.alias + ".datatype") + ")";
+	}
+
+	private String getNullSafeEquals(String a, String b) {
+		return "(" + a + " = " + b + " OR " + a + " IS NULL AND " + b + " IS NULL)";
+	}
+
+	private void addFilter(Expr filter) {
+		if (filter instanceof E_LogicalAnd) {
+			addFilter(((E_LogicalAnd) filter).getArg1());
+			addFilter(((E_LogicalAnd) filter).getArg2());
+			return;
+		}
+		if (!translateFilter(filter)) {
+			this.remainingFilters.add(filter);
+		}
+	}
+
+	/**
+	 * Adds the conditions of a filter, if it can be expressed by the columns
+	 * of the tables.
+	 * 
+	 * @return <tt>false</tt> if the filter must be evaluated on the solutions
+	 */
+	private boolean translateFilter(Expr filter) {
+		if (filter instanceof E_SameTerm || filter instanceof E_Equals
+				|| filter instanceof E_NotEquals) {
+			Expr arg1 = ((ExprFunction2) filter).getArg1();
+			Expr arg2 = ((ExprFunction2) filter).getArg2();
+			if (!arg1.isVariable()) {
+				Expr swap = arg1;
+				arg1 = arg2;
+				arg2 = swap;
+			}
+			Column column = getColumn(arg1);
+			if (column == null) {
+				return false;
+			}
+			if (arg2.isVariable()) {
+				Column other = getColumn(arg2);
+				// = and != compare literals by value
+				if (other == null || !(filter instanceof E_SameTerm)) {
+					return false;
+				}
+				this.conditions.add(getSameTermCondition(column, other));
+				return true;
+			}
+			if (!arg2.isConstant()) {
+				return false;
+			}
+			Node node = arg2.getConstant().asNode();
+			if (filter instanceof E_SameTerm) {
+				addTermCondition(column, node);
+				return true;
+			}
+			if (!node.isURI()) {
+				return false;
+			}
+			if (filter instanceof E_Equals) {
+				addTermCondition(column, node);
+				return true;
+			}
+			// comparing a literal of an unknown datatype to an IRI is an error
+			if (column.mayBeLiteral()) {
+				return false;
+			}
+			this.conditions.add(column + " <> ?");
+			this.parameters.add(this.dictionaryEncoded ?
+					(Object) Long.valueOf(this.db.getNodeId(node)) :
+					(Object) this.db.resourceAsSqlString(node));
+			return true;
+		}
+		if (filter instanceof E_IsIRI || filter instanceof E_IsBlank
+				|| filter instanceof E_IsLiteral) {
+			Expr arg = ((ExprFunction1) filter).getArg();
+			Column column = getColumn(arg);
+			if (column == null) {
+				return false;
+			}
+			String uri = this.dictionaryEncoded ?
+					getNodesAlias(arg.asVar()) + ".uri" : column.toString();
+			if (filter instanceof E_IsLiteral) {
+				if (column.mayBeLiteral()) {
+					this.conditions.add(uri + " IS NULL");
+				} else {
+					this.satisfiable = false;
+				}
+			} else if (filter instanceof E_IsBlank) {
+				this.conditions.add(uri + BLANK_NODE_PATTERN);
+			} else {
+				this.conditions.add(uri + " NOT" + BLANK_NODE_PATTERN);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return The column of a variable of the pattern, or null
+	 */
+	private Column getColumn(Expr expr) {
+		if (!expr.isVariable()) {
+			return null;
+		}
+		return this.columns.get(expr.asVar());
+	}
+
+	/**
+	 * @return The alias of the nodes table that holds the term of a
+	 * 		variable in the dictionary-encoded layout
+	 */
+	private String getNodesAlias(Var var) {
+		return "n" + this.vars.indexOf(var);
+	}
+
+	private String buildSQL(int tripleCount, boolean distinct) {
+		StringBuffer select = new StringBuffer(distinct ? "SELECT DISTINCT " : "SELECT ");
+		StringBuffer from = new StringBuffer(" FROM ");
+		for (int i = 0; i < tripleCount; i++) {
+			from.append((i == 0) ? "" : ", ").append(this.db.getQuadsTableName()).append(" q" + i);
+		}
+		List<String> where = new ArrayList<String>(this.conditions);
+		for (int i = 0; i < this.vars.size(); i++) {
+			Var var = this.vars.get(i);
+			Column column = this.columns.get(var);
+			if (i > 0) {
+				select.append(", ");
+			}
+			if (this.dictionaryEncoded) {
+				String nodes = getNodesAlias(var);
+				select.append(nodes + ".uri, " + nodes + ".literal, " +
+						nodes + ".lang, " + nodes + ".datatype");
+				from.append(", ").append(this.db.getNodesTableName()).append(" " + nodes);
+				where.add(nodes + ".id = " + column);
+				this.widths[i] = 4;
+			} else if (column.mayBeLiteral()) {
+				select.append(column + ", " + column.alias + ".literal, " +
+						column.alias + ".lang, " + column.alias + ".datatype");
+				this.widths[i] = 4;
+			} else {
+				select.append(column);
+				this.widths[i] = 1;
+			}
+		}
+		if (this.vars.isEmpty()) {
+			// a pattern without variables has at most one solution
+			select = new StringBuffer("SELECT DISTINCT 1");
+		}
+		StringBuffer sql = select.append(from);
+		for (int i = 0; i < where.size(); i++) {
+			sql.append((i == 0) ? " WHERE " : " AND ").append(where.get(i));
+		}
+		return sql.toString();
+	}
+
+	/**
+	 * A column of an alias of the quads table.
+	 */
+	private static class Column {
+		final String alias;
+		final int position;
+
+		Column(String alias, int position) {
+			this.alias = alias;
+			this.position = position;
+		}
+
+		/**
+		 * @return <tt>true</tt> if this is the object column
+		 */
+		boolean mayBeLiteral() {
+			return this.position == OBJECT;
+		}
+
+		@Override
+		public String toString() {
+			return this.alias + "." + COLUMNS[this.position];
+		}
+	}
+}
+
+/*
+ *  (c) Copyright 2004 - 2010 Christian Bizer (chris@bizer.de)
+ *   All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
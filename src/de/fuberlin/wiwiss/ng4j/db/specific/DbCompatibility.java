@@ -5,6 +5,8 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.regex.Pattern;
 import java.sql.PreparedStatement;
 
@@ -42,6 +44,8 @@ public abstract class DbCompatibility {
 	String tablePrefix = null;
 	String graphNamesTableName = null;
 	String quadsTableName = null;
+	String nodesTableName = null;
+	boolean dictionaryEncoded = false;
 	
 	// For each PreparedStatement added here, it should be
 	// * initialized in initializePreparedStatements
@@ -53,10 +57,19 @@ public abstract class DbCompatibility {
 	PreparedStatement deleteAllGraphsStmt;
 	PreparedStatement deleteGraphStmt;
 	PreparedStatement dropGraphNamesTableStmt;
+	PreparedStatement dropNodesTableStmt;
 	PreparedStatement dropQuadsTableStmt;
 	PreparedStatement insertGraphNameStmt;
+	PreparedStatement insertNodeIfAbsentStmt;
 	PreparedStatement insertQuadsTableStmt;
+	PreparedStatement insertQuadIfAbsentStmt;
 	PreparedStatement listGraphNamesStmt;
+	PreparedStatement selectNodeStmt;
+	
+	// The statements of QuadDB.find() and delete(), by their SQL.
+	// There is one for each combination of bound positions and literal
+	// features, prepared when it is first needed; see getPatternStmt
+	final Map<String,PreparedStatement> patternStmts = new HashMap<String,PreparedStatement>();
 	
 	public DbCompatibility( Connection connection ) {
 		this.connection = connection;
@@ -84,6 +97,32 @@ public abstract class DbCompatibility {
 		this.quadsTableName = quadsTableNameIn;
 	}
 
+	/** 
+	 * Initializes the database compatibility mechanism for the
+	 * dictionary-encoded layout (see {@link #createDictionaryTables()}).
+	 * 
+	 * This method must be called after instantiating the class,
+	 * before any methods relying on these variables are called.
+	 * 
+	 * @param tablePrefixIn
+	 * @param graphNamesTableNameIn
+	 * @param quadsTableNameIn
+	 * @param nodesTableNameIn
+	 */
+	public void initialize(String tablePrefixIn, String graphNamesTableNameIn,
+			String quadsTableNameIn, String nodesTableNameIn) {
+		initialize(tablePrefixIn, graphNamesTableNameIn, quadsTableNameIn);
+		this.nodesTableName = nodesTableNameIn;
+		this.dictionaryEncoded = true;
+	}
+
+	/**
+	 * @return <code>true</code> if the tables have the dictionary-encoded layout
+	 */
+	public boolean isDictionaryEncoded() {
+		return this.dictionaryEncoded;
+	}
+
 	/** Creates the following 7 required database tables: <br>
 	 *    * graph <br>
 	 *    * subject <br>
@@ -100,6 +139,50 @@ public abstract class DbCompatibility {
 	 */
 	public abstract void createTables();
 
+	/** Creates the tables of the dictionary-encoded layout, which is
+	 * used instead of the one of {@link #createTables()} if the
+	 * four-argument <code>initialize</code> method has been called:
+	 * <ul>
+	 * <li>the table named <code>nodesTableName</code>, which maps each
+	 * RDF term to a 64-bit id. Its columns are id, uri, literal, lang and
+	 * datatype; the last four have the meaning of the columns object,
+	 * literal, lang and datatype of the plain quads table.</li>
+	 * <li>the table named <code>quadsTableName</code>, with the id columns
+	 * graph, subject, predicate and object. Its primary key is
+	 * (graph, subject, predicate, object), and {@link #createDictionaryIndexes()}
+	 * adds the GPOS, SPOG and OSPG indexes.</li>
+	 * <li>the table named <code>graphNamesTableName</code>, as in the
+	 * plain layout.</li>
+	 * </ul>
+	 * 
+	 * <p>The <code>initialize</code> method must be called
+	 * before this method is called.
+	 */
+	public abstract void createDictionaryTables();
+
+	/** Creates the secondary indexes of the dictionary-encoded quads
+	 * table. Each index contains all four columns, so every find pattern
+	 * is answered by a range scan over one index.
+	 * 
+	 * @throws SQLException
+	 */
+	protected void createDictionaryIndexes() throws SQLException {
+		executeNoErrorHandling("CREATE INDEX " + tablePrefix + "_gpos_idx ON " +
+				quadsTableName + " (graph, predicate, object, subject)");
+		executeNoErrorHandling("CREATE INDEX " + tablePrefix + "_spog_idx ON " +
+				quadsTableName + " (subject, predicate, object, graph)");
+		executeNoErrorHandling("CREATE INDEX " + tablePrefix + "_ospg_idx ON " +
+				quadsTableName + " (object, subject, predicate, graph)");
+	}
+
+	/** NOTE: subclasses should override if appropriate.
+	 * 
+	 * @return the SQL datatype of the 64-bit ids of the dictionary-encoded layout
+	 */
+	protected String getIdDatatype() {
+		return "BIGINT";
+	}
+
 	/** This is only needed if the DbCompatibility implementation uses
 	 * URI_DATATYPE, LITERAL_DATATYPE, LANGUAGE_DATATYPE, or DATATYPE_DATATYPE
 	 * in a method such as createTables(). <p>
@@ -230,7 +313,8 @@ public abstract class DbCompatibility {
 			// then could move to here (and make public static)
 			stmt.execute();
 		} catch (SQLException ex) {
-			if ( ( stmt != null ) && shouldBeSaved(stmt) ) {
+			// statements that are re-used must stay open
+			if ( ( stmt != null ) && !shouldBeSaved(stmt) ) {
 				try {
 					stmt.close();
 				} catch (SQLException ex2) {
@@ -241,6 +325,18 @@ public abstract class DbCompatibility {
 		}
 	}
 	
+	/** Prepares a SELECT statement for streaming its results, i.e. for
+	 * fetching the given number of rows from the database at a time.
+	 * NOTE: subclasses should override if the driver needs other hints.
+	 * 
+	 * @param stmt The SQL SELECT command that is executed next.
+	 * @param fetchSize The number of rows to fetch at a time.
+	 * @throws SQLException if the driver rejects the fetch size.
+	 */
+	public void setFetchSize(Statement stmt, int fetchSize) throws SQLException {
+		stmt.setFetchSize(fetchSize);
+	}
+	
 	/** Executes the given SELECT SQL command.
 	 * 
 	 * @param stmt The SQL SELECT command to execute.
@@ -251,7 +347,8 @@ public abstract class DbCompatibility {
 		try {
 			return stmt.executeQuery();
 		} catch (SQLException ex) {
-			if ( ( stmt != null ) && shouldBeSaved(stmt) ) {
+			// statements that are re-used must stay open
+			if ( ( stmt != null ) && !shouldBeSaved(stmt) ) {
 				try {
 					stmt.close();
 				} catch (SQLException ex2) {
@@ -280,6 +377,7 @@ public abstract class DbCompatibility {
 	 */
 	public void close() {
 		try {
+			closePatternStmts();
 			this.connection.close();
 		} catch (SQLException ex) {
 			throw new JenaException(ex);
@@ -297,9 +395,14 @@ public abstract class DbCompatibility {
 	 * createTables().
 	 */
 	public void deleteTables() {
+		// some databases don't drop tables that prepared statements refer to
+		closePatternStmts();
 		try {
 			getDropGraphNamesTableStmt().execute();
 			getDropQuadsTableStmt().execute();
+			if (this.dictionaryEncoded) {
+				getDropNodesTableStmt().execute();
+			}
 		} catch (SQLException ex) {
 			throw new JenaException(ex);
 		}
@@ -334,7 +437,11 @@ public abstract class DbCompatibility {
 			// Tables don't already exist; create them so certain databases won't 
 			// complain when creating statements referring to these tables.
 			tablesAlreadyExist = false;
-			createTables();
+			if (this.dictionaryEncoded) {
+				createDictionaryTables();
+			} else {
+				createTables();
+			}
 		}
 		
 		try {
@@ -362,15 +469,38 @@ public abstract class DbCompatibility {
 			insertGraphNameStmt = connection.prepareStatement(
 					"INSERT INTO " + graphNamesTableName + " VALUES (?)");
 			
-			insertQuadsTableStmt = connection.prepareStatement(
-					"INSERT INTO " + quadsTableName +
-					" (graph, subject, predicate, object, literal, lang, datatype) VALUES (" +
-					"  ?,     ?,       ?,         ?,      ?,       ?,    ?)"
-					);
+			if (this.dictionaryEncoded) {
+				insertQuadsTableStmt = connection.prepareStatement(
+						"INSERT INTO " + quadsTableName +
+						" (graph, subject, predicate, object) VALUES (?, ?, ?, ?)");
+			} else {
+				insertQuadsTableStmt = connection.prepareStatement(
+						"INSERT INTO " + quadsTableName +
+						" (graph, subject, predicate, object, literal, lang, datatype) VALUES (" +
+						"  ?,     ?,       ?,         ?,      ?,       ?,    ?)"
+						);
+			}
+			
+			insertQuadIfAbsentStmt = connection.prepareStatement(
+					this.dictionaryEncoded ?
+							getInsertEncodedQuadIfAbsentSQL() :
+							getInsertQuadIfAbsentSQL());
 			
 			listGraphNamesStmt = connection.prepareStatement(
 					"SELECT name FROM " + graphNamesTableName);
 			
+			if (this.dictionaryEncoded) {
+				dropNodesTableStmt = connection.prepareStatement(
+						"DROP TABLE " + nodesTableName);
+				
+				insertNodeIfAbsentStmt = connection.prepareStatement(
+						getInsertNodeIfAbsentSQL());
+				
+				selectNodeStmt = connection.prepareStatement(
+						"SELECT uri, literal, lang, datatype FROM " + nodesTableName +
+						" WHERE id = ?");
+			}
+			
 		} catch (SQLException ex) {
 			throw new RuntimeException("Unable to initialize prepared statements for database " 
 					+ getClass().getName() + ".  Error code = " + ex.getErrorCode() + ": " + ex.getLocalizedMessage() );
@@ -406,14 +536,24 @@ public abstract class DbCompatibility {
 			return true;
 		} else if ( preparedStatement.equals(dropGraphNamesTableStmt) ) {
 			return true;
+		} else if ( preparedStatement.equals(dropNodesTableStmt) ) {
+			return true;
 		} else if ( preparedStatement.equals(dropQuadsTableStmt) ) {
 			return true;
 		} else if ( preparedStatement.equals(insertGraphNameStmt) ) {
 			return true;
+		} else if ( preparedStatement.equals(insertNodeIfAbsentStmt) ) {
+			return true;
 		} else if ( preparedStatement.equals(insertQuadsTableStmt) ) {
 			return true;
+		} else if ( preparedStatement.equals(insertQuadIfAbsentStmt) ) {
+			return true;
 		} else if ( preparedStatement.equals(listGraphNamesStmt) ) {
 			return true;
+		} else if ( preparedStatement.equals(selectNodeStmt) ) {
+			return true;
+		} else if ( patternStmts.containsValue(preparedStatement) ) {
+			return true;
 		}
 		
 		return false;
@@ -445,6 +585,10 @@ public abstract class DbCompatibility {
 		return dropGraphNamesTableStmt;
 	}
 
+	public PreparedStatement getDropNodesTableStmt() {
+		return dropNodesTableStmt;
+	}
+
 	public PreparedStatement getDropQuadsTableStmt() {
 		return dropQuadsTableStmt;
 	}
@@ -458,10 +602,159 @@ public abstract class DbCompatibility {
 		return insertQuadsTableStmt;
 	}
 
+	/** Returns a statement that inserts a quad unless the quads table
+	 * contains it already. Parameters 1 to 7 are the columns graph, subject,
+	 * predicate, object, literal, lang and datatype; parameters 8 to 14
+	 * are the same values again, for the duplicate check. In the
+	 * dictionary-encoded layout, parameters 1 to 4 are the ids of graph,
+	 * subject, predicate and object, and parameters 5 to 8 repeat them.
+	 * 
+	 * @return the statement, which may be used with addBatch()
+	 */
+	public PreparedStatement getInsertQuadIfAbsentStmt() {
+		return insertQuadIfAbsentStmt;
+	}
+
+	/** Returns a statement that inserts a term into the nodes table of
+	 * the dictionary-encoded layout unless the id is taken already.
+	 * Parameter 1 is the id; parameters 2 to 5 are the columns uri, literal,
+	 * lang and datatype; parameter 6 is the id again.
+	 * 
+	 * @return the statement, which may be used with addBatch()
+	 */
+	public PreparedStatement getInsertNodeIfAbsentStmt() {
+		return insertNodeIfAbsentStmt;
+	}
+
 	public PreparedStatement getListGraphNamesStmt() {
 		return listGraphNamesStmt;
 	}
 
+	/** Returns the statement for a find or delete pattern. The SQL
+	 * depends only on the shape of the pattern - which positions are
+	 * bound, and whether the object is a literal with a language or a
+	 * datatype - so the statement is prepared once and then re-used
+	 * with other parameter values.
+	 * 
+	 * @param sql The SQL of the statement, with parameter markers
+	 * @return the prepared statement, which should be saved
+	 * @throws SQLException if the statement cannot be prepared
+	 */
+	public PreparedStatement getPatternStmt(String sql) throws SQLException {
+		PreparedStatement stmt = patternStmts.get(sql);
+		if (stmt == null) {
+			stmt = connection.prepareStatement(sql);
+			patternStmts.put(sql, stmt);
+		}
+		return stmt;
+	}
+
+	/** Closes the statements of {@link #getPatternStmt(String)}. They are
+	 * prepared again when they are needed.
+	 */
+	public void closePatternStmts() {
+		try {
+			for (PreparedStatement stmt : patternStmts.values()) {
+				stmt.close();
+			}
+		} catch (SQLException ex) {
+			throw new JenaException(ex);
+		} finally {
+			patternStmts.clear();
+		}
+	}
+
+	public PreparedStatement getSelectNodeStmt(long id) throws SQLException {
+		selectNodeStmt.setLong(1, id);
+		return selectNodeStmt;
+	}
+
+	/** Builds the SQL of {@link #getInsertQuadIfAbsentStmt()}:
+	 * an INSERT ... SELECT from a table with one row, guarded by
+	 * NOT EXISTS. Unlike a SELECT before each INSERT this needs only one
+	 * round trip, and it can be batched; a later row of a batch sees the
+	 * rows inserted before it.
+	 * 
+	 * @return the SQL of the statement
+	 */
+	protected String getInsertQuadIfAbsentSQL() {
+		return "INSERT INTO " + quadsTableName +
+				" (graph, subject, predicate, object, literal, lang, datatype)" +
+				" SELECT " + getParameter(URI_DATATYPE) + ", " +
+				getParameter(URI_DATATYPE) + ", " + getParameter(URI_DATATYPE) + ", " +
+				getParameter(URI_DATATYPE) + ", " + getParameter(LITERAL_DATATYPE) + ", " +
+				getParameter(LANGUAGE_DATATYPE) + ", " + getParameter(DATATYPE_DATATYPE) +
+				" FROM " + getOneRowTable() +
+				" WHERE NOT EXISTS (SELECT * FROM " + quadsTableName +
+				// no casts here, they can prevent the use of indexes
+				" WHERE graph = ? AND subject = ? AND predicate = ?" +
+				" AND " + getNullSafeEquals("object", URI_DATATYPE) +
+				" AND " + getNullSafeEquals("literal", LITERAL_DATATYPE) +
+				" AND " + getNullSafeEquals("lang", LANGUAGE_DATATYPE) +
+				" AND " + getNullSafeEquals("datatype", DATATYPE_DATATYPE) + ")";
+	}
+
+	/** Builds the SQL of {@link #getInsertQuadIfAbsentStmt()} for the
+	 * dictionary-encoded layout.
+	 * 
+	 * @return the SQL of the statement
+	 */
+	protected String getInsertEncodedQuadIfAbsentSQL() {
+		String id = getParameter(getIdDatatype());
+		return "INSERT INTO " + quadsTableName + " (graph, subject, predicate, object)" +
+				" SELECT " + id + ", " + id + ", " + id + ", " + id +
+				" FROM " + getOneRowTable() +
+				" WHERE NOT EXISTS (SELECT * FROM " + quadsTableName +
+				" WHERE graph = ? AND subject = ? AND predicate = ? AND object = ?)";
+	}
+
+	/** Builds the SQL of {@link #getInsertNodeIfAbsentStmt()}.
+	 * 
+	 * @return the SQL of the statement
+	 */
+	protected String getInsertNodeIfAbsentSQL() {
+		return "INSERT INTO " + nodesTableName + " (id, uri, literal, lang, datatype)" +
+				" SELECT " + getParameter(getIdDatatype()) + ", " +
+				getParameter(URI_DATATYPE) + ", " + getParameter(LITERAL_DATATYPE) + ", " +
+				getParameter(LANGUAGE_DATATYPE) + ", " + getParameter(DATATYPE_DATATYPE) +
+				" FROM " + getOneRowTable() +
+				" WHERE NOT EXISTS (SELECT * FROM " + nodesTableName + " WHERE id = ?)";
+	}
+
+	/** NOTE: subclasses should override if appropriate. <p>
+	 * 
+	 * @return a table expression that yields exactly one row, such as DUAL
+	 */
+	protected String getOneRowTable() {
+		return "DUAL";
+	}
+
+	/** NOTE: subclasses should override if appropriate. <p>
+	 * The default implementation casts the parameter, because some
+	 * databases don't allow untyped parameters in a select list.
+	 * 
+	 * @param datatype the SQL datatype of the parameter
+	 * @return a parameter marker for use in a select list
+	 */
+	protected String getParameter(String datatype) {
+		return "CAST(? AS " + datatype + ")";
+	}
+
+	/** NOTE: subclasses should override if appropriate. <p>
+	 * The default implementation compares the values with COALESCE, so
+	 * NULL and the empty string are equal. This is enough for the quads
+	 * table, where two quads that differ only by NULL and the empty string
+	 * in one column always differ in another column as well. It is wrong
+	 * for databases that store the empty string as NULL.
+	 * 
+	 * @param column a nullable column of the quads table
+	 * @param datatype the SQL datatype of the column
+	 * @return a condition that is true if the column equals the parameter or both are NULL
+	 */
+	protected String getNullSafeEquals(String column, String datatype) {
+		return "COALESCE(" + column + ", '') = COALESCE(" + getParameter(datatype) + ", '')";
+	}
+
 	/*
 	 *  (c)   Copyright 2008 - 2010 Christian Bizer (chris@bizer.de)
 	 *   All rights reserved.
@@ -90,6 +90,35 @@ public class DerbyCompatibility extends DbCompatibility {
 		}
 	}
 
+	/* (non-Javadoc)
+	 * @see de.fuberlin.wiwiss.ng4j.db.specific.DbCompatibility#createDictionaryTables()
+	 */
+	@Override
+	public void createDictionaryTables() {
+		execute("CREATE TABLE app." + graphNamesTableName + " (name " + URI_DATATYPE + " , PRIMARY KEY(name)) ");
+		try {
+			executeNoErrorHandling(
+					"CREATE TABLE app." + nodesTableName + " (" +
+					"id " + getIdDatatype() + " NOT NULL," +
+					"uri " + URI_DATATYPE + "," +
+					"literal " + LITERAL_DATATYPE + "," +
+					"lang " + LANGUAGE_DATATYPE + "," +
+					"datatype " + DATATYPE_DATATYPE + "," +
+					"PRIMARY KEY(id))");
+			executeNoErrorHandling(
+					"CREATE TABLE app." + quadsTableName + " (" +
+					"graph " + getIdDatatype() + " NOT NULL," +
+					"subject " + getIdDatatype() + " NOT NULL," +
+					"predicate " + getIdDatatype() + " NOT NULL," +
+					"object " + getIdDatatype() + " NOT NULL," +
+					"PRIMARY KEY(graph, subject, predicate, object))");
+			createDictionaryIndexes();
+		} catch (SQLException ex) {
+			execute("DROP TABLE " + graphNamesTableName);
+			throw new JenaException(ex);
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see de.fuberlin.wiwiss.ng4j.db.specific.DbCompatibility#getGraphNamesTableNameForQueries()
 	 */
@@ -117,6 +146,11 @@ public class DerbyCompatibility extends DbCompatibility {
 	/* (non-Javadoc)
 	 * @see de.fuberlin.wiwiss.ng4j.db.specific.DbCompatibility#preparedStatementsRequireTablesToExist()
 	 */
+	@Override
+	protected String getOneRowTable() {
+		return "SYSIBM.SYSDUMMY1";
+	}
+
 	@Override
 	public boolean preparedStatementsRequireTablesToExist() {
 		// For both in-memory and standard mode, there are errors if 
@@ -49,6 +49,38 @@ public class HSQLCompatibility extends DbCompatibility {
 					"lang " + LANGUAGE_DATATYPE + " " + DEFAULT_NULL_ASSIGNMENT + "," +
 					//"datatype VARCHAR )");
 					"datatype " + DATATYPE_DATATYPE + " " + DEFAULT_NULL_ASSIGNMENT +")");
+			// for finds and for the duplicate check when inserting
+			executeNoErrorHandling("CREATE INDEX " + tablePrefix + "_gsp_idx ON " +
+					quadsTableName + " (graph, subject, predicate)");
+		} catch (SQLException ex) {
+			execute("DROP TABLE " + graphNamesTableName);
+			throw new JenaException(ex);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see de.fuberlin.wiwiss.ng4j.db.specific.DbCompatibility#createDictionaryTables()
+	 */
+	@Override
+	public void createDictionaryTables() {
+		execute("CREATE TABLE " + graphNamesTableName + 
+				"(name " + URI_DATATYPE + " NOT NULL PRIMARY KEY)");
+		try {
+			executeNoErrorHandling(
+					"CREATE TABLE " + nodesTableName + " (" +
+					"id " + getIdDatatype() + " NOT NULL PRIMARY KEY," +
+					"uri " + URI_DATATYPE + " " + DEFAULT_NULL_ASSIGNMENT + "," +
+					"literal " + LITERAL_DATATYPE + " " + DEFAULT_NULL_ASSIGNMENT + "," +
+					"lang " + LANGUAGE_DATATYPE + " " + DEFAULT_NULL_ASSIGNMENT + "," +
+					"datatype " + DATATYPE_DATATYPE + " " + DEFAULT_NULL_ASSIGNMENT + ")");
+			executeNoErrorHandling(
+					"CREATE TABLE " + quadsTableName + " (" +
+					"graph " + getIdDatatype() + " NOT NULL," +
+					"subject " + getIdDatatype() + " NOT NULL," +
+					"predicate " + getIdDatatype() + " NOT NULL," +
+					"object " + getIdDatatype() + " NOT NULL," +
+					"PRIMARY KEY (graph, subject, predicate, object))");
+			createDictionaryIndexes();
 		} catch (SQLException ex) {
 			execute("DROP TABLE " + graphNamesTableName);
 			throw new JenaException(ex);
@@ -90,6 +122,12 @@ public class HSQLCompatibility extends DbCompatibility {
 	/* (non-Javadoc)
 	 * @see de.fuberlin.wiwiss.ng4j.db.specific.DbCompatibility#preparedStatementsRequireTablesToExist()
 	 */
+	@Override
+	protected String getOneRowTable() {
+		// HSQLDB 1.8 has neither DUAL nor VALUES in the FROM clause
+		return "(SELECT DISTINCT 0 FROM INFORMATION_SCHEMA.SYSTEM_USERS) one_row";
+	}
+
 	@Override
 	public boolean preparedStatementsRequireTablesToExist() {
 		// Instead use the version that creates the tables because
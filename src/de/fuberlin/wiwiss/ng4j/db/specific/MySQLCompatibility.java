@@ -4,6 +4,7 @@ package de.fuberlin.wiwiss.ng4j.db.specific;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 import com.hp.hpl.jena.shared.JenaException;
 
@@ -61,6 +62,40 @@ public class MySQLCompatibility extends DbCompatibility {
 		}
 	}
 
+	/* (non-Javadoc)
+	 * @see de.fuberlin.wiwiss.ng4j.db.specific.DbCompatibility#createDictionaryTables()
+	 */
+	@Override
+	public void createDictionaryTables() {
+		execute("CREATE TABLE " + graphNamesTableName + " (" +
+				"name " + URI_DATATYPE + " NOT NULL default '', " +
+				"PRIMARY KEY  (`name`))");
+		try {
+			executeNoErrorHandling(
+					"CREATE TABLE " + nodesTableName + " (" +
+					"id " + getIdDatatype() + " NOT NULL," +
+					"uri " + URI_DATATYPE + " default NULL," +
+					"literal text," +
+					"lang " + LANGUAGE_DATATYPE + " default NULL," +
+					"datatype " + DATATYPE_DATATYPE + " default NULL," +
+					"PRIMARY KEY  (`id`)" +
+					")");
+			// with InnoDB, the quads are clustered by the GSPO primary key
+			executeNoErrorHandling(
+					"CREATE TABLE " + quadsTableName + " (" +
+					"graph " + getIdDatatype() + " NOT NULL," +
+					"subject " + getIdDatatype() + " NOT NULL," +
+					"predicate " + getIdDatatype() + " NOT NULL," +
+					"object " + getIdDatatype() + " NOT NULL," +
+					"PRIMARY KEY  (`graph`, `subject`, `predicate`, `object`)" +
+					")");
+			createDictionaryIndexes();
+		} catch (SQLException ex) {
+			execute("DROP TABLE " + graphNamesTableName);
+			throw new JenaException(ex);
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see de.fuberlin.wiwiss.ng4j.db.specific.DbCompatibility#getVarcharName()
 	 */
@@ -69,6 +104,37 @@ public class MySQLCompatibility extends DbCompatibility {
 		return VARCHAR_NAME;
 	}
 
+	@Override
+	protected String getParameter(String datatype) {
+		// MySQL can't CAST to VARCHAR, and doesn't need to
+		return "?";
+	}
+
+	@Override
+	protected String getNullSafeEquals(String column, String datatype) {
+		return column + " <=> ?";
+	}
+
+	/** Connector/J reads the whole result into memory unless the fetch
+	 * size is Integer.MIN_VALUE, which streams the rows one by one, or the
+	 * connection URL sets useCursorFetch=true, which makes the server use
+	 * a cursor that honours the fetch size. The statements must be
+	 * TYPE_FORWARD_ONLY and CONCUR_READ_ONLY, which are the defaults.
+	 * While a streamed result is open, no other statement can be
+	 * executed on the connection.
+	 * 
+	 * @see de.fuberlin.wiwiss.ng4j.db.specific.DbCompatibility#setFetchSize(java.sql.Statement, int)
+	 */
+	@Override
+	public void setFetchSize(Statement stmt, int fetchSize) throws SQLException {
+		String url = stmt.getConnection().getMetaData().getURL();
+		if (url != null && url.indexOf("useCursorFetch=true") >= 0) {
+			stmt.setFetchSize(fetchSize);
+		} else {
+			stmt.setFetchSize(Integer.MIN_VALUE);
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see de.fuberlin.wiwiss.ng4j.db.specific.DbCompatibility#execute(java.lang.String)
 	 */
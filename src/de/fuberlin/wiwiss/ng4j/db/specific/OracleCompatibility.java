@@ -60,6 +60,44 @@ public class OracleCompatibility extends DbCompatibility {
 		}
 	}
 
+	/* (non-Javadoc)
+	 * @see de.fuberlin.wiwiss.ng4j.db.specific.DbCompatibility#createDictionaryTables()
+	 */
+	@Override
+	public void createDictionaryTables() {
+		execute("CREATE TABLE " + graphNamesTableName +
+			"(name " + URI_DATATYPE + " NOT NULL PRIMARY KEY)");
+		try {
+			executeNoErrorHandling(
+					"CREATE TABLE " + nodesTableName + " (" +
+					"id " + getIdDatatype() + " NOT NULL PRIMARY KEY," +
+					"uri " + URI_DATATYPE + " " + DEFAULT_NULL_ASSIGNMENT + "," +
+					"literal " + LITERAL_DATATYPE + " " + DEFAULT_NULL_ASSIGNMENT + "," +
+					"lang " + LANGUAGE_DATATYPE + " " + DEFAULT_NULL_ASSIGNMENT + "," +
+					"datatype " + DATATYPE_DATATYPE + " " + DEFAULT_NULL_ASSIGNMENT + ")");
+			// an index-organized table keeps the quads in GSPO order
+			executeNoErrorHandling(
+					"CREATE TABLE " + quadsTableName + " (" +
+					"graph " + getIdDatatype() + " NOT NULL," +
+					"subject " + getIdDatatype() + " NOT NULL," +
+					"predicate " + getIdDatatype() + " NOT NULL," +
+					"object " + getIdDatatype() + " NOT NULL," +
+					"PRIMARY KEY (graph, subject, predicate, object)) ORGANIZATION INDEX");
+			createDictionaryIndexes();
+		} catch (SQLException ex) {
+			execute("DROP TABLE " + graphNamesTableName);
+			throw new JenaException(ex);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see de.fuberlin.wiwiss.ng4j.db.specific.DbCompatibility#getIdDatatype()
+	 */
+	@Override
+	protected String getIdDatatype() {
+		return "NUMBER(19)";
+	}
+
 	/* (non-Javadoc)
 	 * @see de.fuberlin.wiwiss.ng4j.db.specific.DbCompatibility#getVarcharName()
 	 */
@@ -68,6 +106,13 @@ public class OracleCompatibility extends DbCompatibility {
 		return VARCHAR_NAME;
 	}
 
+	@Override
+	protected String getNullSafeEquals(String column, String datatype) {
+		// Oracle stores the empty string as NULL, so COALESCE(x, '') is
+		// NULL; DECODE treats two NULLs as equal
+		return "DECODE(" + column + ", " + getParameter(datatype) + ", 1, 0) = 1";
+	}
+
 	/*
 	 *  (c)   Copyright 2008 - 2010 Christian Bizer (chris@bizer.de)
 	 *   All rights reserved.
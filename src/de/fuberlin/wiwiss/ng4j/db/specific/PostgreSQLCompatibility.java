@@ -49,6 +49,35 @@ public class PostgreSQLCompatibility extends DbCompatibility {
 				quadsTableName + " (object)");
 	}
 
+	/* (non-Javadoc)
+	 * @see de.fuberlin.wiwiss.ng4j.db.specific.DbCompatibility#createDictionaryTables()
+	 */
+	@Override
+	public void createDictionaryTables() {
+		execute("CREATE TABLE " + graphNamesTableName + " (" +
+		"name text PRIMARY KEY default '')");
+		try {
+			executeNoErrorHandling(
+					"CREATE TABLE " + nodesTableName + " (" +
+					"id " + getIdDatatype() + " PRIMARY KEY," +
+					"uri text default NULL," +
+					"literal text," +
+					"lang text default NULL," +
+					"datatype text default NULL)");
+			executeNoErrorHandling(
+					"CREATE TABLE " + quadsTableName + " (" +
+					"graph " + getIdDatatype() + " NOT NULL," +
+					"subject " + getIdDatatype() + " NOT NULL," +
+					"predicate " + getIdDatatype() + " NOT NULL," +
+					"object " + getIdDatatype() + " NOT NULL," +
+					"PRIMARY KEY (graph, subject, predicate, object))");
+			createDictionaryIndexes();
+		} catch (SQLException ex) {
+			execute("DROP TABLE " + graphNamesTableName);
+			throw new JenaException(ex);
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see de.fuberlin.wiwiss.ng4j.db.specific.DbCompatibility#getVarcharName()
 	 */
@@ -57,6 +86,25 @@ public class PostgreSQLCompatibility extends DbCompatibility {
 		return VARCHAR_NAME;
 	}
 
+	@Override
+	protected String getOneRowTable() {
+		return "(SELECT 1) AS one_row";
+	}
+
+	@Override
+	protected String getParameter(String datatype) {
+		if (datatype.equals(getIdDatatype())) {
+			return super.getParameter(datatype);
+		}
+		// the other columns are all of type text
+		return "CAST(? AS text)";
+	}
+
+	@Override
+	protected String getNullSafeEquals(String column, String datatype) {
+		return column + " IS NOT DISTINCT FROM " + getParameter(datatype);
+	}
+
 	/*
 	 *  (c)   Copyright 2008 - 2010 Christian Bizer (chris@bizer.de)
 	 *   All rights reserved.
@@ -25,6 +25,10 @@ import com.hp.hpl.jena.shared.JenaException;
 
 import de.fuberlin.wiwiss.ng4j.NamedGraphSet;
 import de.fuberlin.wiwiss.ng4j.NamedGraphSetReader;
+import de.fuberlin.wiwiss.ng4j.impl.idbased.IdBasedSnapshotReader;
+import de.fuberlin.wiwiss.ng4j.impl.idbased.IdBasedSnapshotWriter;
+import de.fuberlin.wiwiss.ng4j.trig.ParallelTriGReader;
+import de.fuberlin.wiwiss.ng4j.trig.StreamingTriGReader;
 import de.fuberlin.wiwiss.ng4j.trig.TriGReader;
 import de.fuberlin.wiwiss.ng4j.trix.JenaRDFReader;
 import de.fuberlin.wiwiss.ng4j.trix.JenaRDFReaderWithExtensions;
@@ -91,6 +95,7 @@ public class GraphReaderService {
 		this.fileExtensions.put("nt", "N-TRIPLES");
 		this.fileExtensions.put("trix", "TRIX");
 		this.fileExtensions.put("trig", "TRIG");
+		this.fileExtensions.put("ng4jbin", IdBasedSnapshotWriter.LANGUAGE);
 		this.readerFactory.setReaderClassName("TRIX",
 				JenaRDFReader.class.getName());
 		this.readerFactory.setReaderClassName("TRIX-EXT",
@@ -164,6 +169,10 @@ public class GraphReaderService {
 	 * <li>"<strong>TRIX</strong>"</li>
 	 * <li>"<strong>TRIX-EXT</strong>" (TriX with syntactic extensions, doesn't scale)</li>
 	 * <li>"<strong>TRIG</strong>"</li>
+	 * <li>"<strong>TRIG-ANTLR</strong>" (TriG read by the ANTLR generated parser, see {@link TriGReader};
+	 *   slower, but supports the deprecated "&gt;- ... -&gt;" verbs)</li>
+	 * <li>"<strong>TRIG-PARALLEL</strong>" (TriG parsed by several threads, see {@link ParallelTriGReader})</li>
+	 * <li>"<strong>NG4J-BIN</strong>" (binary snapshot, see {@link IdBasedSnapshotReader})</li>
 	 * </ul>
 	 * Setting the language is optional for URL sources. If no language
 	 * is given, the implementation will try to guess the language
@@ -246,7 +255,10 @@ public class GraphReaderService {
 	private boolean languageSupportsNamedGraphs(String language) {
 		return "TRIX".equals(language)
 			|| "TRIX-EXT".equals(language)
-			|| "TRIG".equals(language);
+			|| "TRIG".equals(language)
+			|| TriGReader.LANGUAGE.equals(language)
+			|| ParallelTriGReader.LANGUAGE.equals(language)
+			|| IdBasedSnapshotWriter.LANGUAGE.equals(language);
 	}
 
 	private NamedGraphSetReader createReader(String language) {
@@ -255,7 +267,13 @@ public class GraphReaderService {
 		} else if ("TRIX-EXT".equals(language)) {
 			return new TriXReaderWithExtensions();
 		} else if ("TRIG".equals(language)) {
+			return new StreamingTriGReader();
+		} else if (TriGReader.LANGUAGE.equals(language)) {
 			return new TriGReader();
+		} else if (ParallelTriGReader.LANGUAGE.equals(language)) {
+			return new ParallelTriGReader();
+		} else if (IdBasedSnapshotWriter.LANGUAGE.equals(language)) {
+			return new IdBasedSnapshotReader();
 		}
 		throw new IllegalArgumentException("Unsupported Named Graphs serialization: "
 				+ language);
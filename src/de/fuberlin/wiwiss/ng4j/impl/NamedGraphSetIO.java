@@ -8,6 +8,7 @@ import java.io.Writer;
 
 import de.fuberlin.wiwiss.ng4j.NamedGraph;
 import de.fuberlin.wiwiss.ng4j.NamedGraphSet;
+import de.fuberlin.wiwiss.ng4j.impl.idbased.IdBasedSnapshotWriter;
 import de.fuberlin.wiwiss.ng4j.trig.TriGWriter;
 import de.fuberlin.wiwiss.ng4j.trix.TriXWriter;
 
@@ -48,6 +49,8 @@ public abstract class NamedGraphSetIO extends NamedGraphSetIterable implements N
 			new TriXWriter().write(this, out, baseURI);
 		} else if ("TRIG".equals(lang)) {
 			new TriGWriter().write(this, out, baseURI);
+		} else if (IdBasedSnapshotWriter.LANGUAGE.equals(lang)) {
+			new IdBasedSnapshotWriter().write(this, out, baseURI);
 		} else {
 			// can fail if no graph in set
 			NamedGraph firstGraph = listGraphs().next();
@@ -60,6 +63,8 @@ public abstract class NamedGraphSetIO extends NamedGraphSetIterable implements N
 			new TriXWriter().write(this, out, baseURI);
 		} else if ("TRIG".equals(lang)) {
 			new TriGWriter().write(this, out, baseURI);
+		} else if (IdBasedSnapshotWriter.LANGUAGE.equals(lang)) {
+			new IdBasedSnapshotWriter().write(this, out, baseURI);
 		} else {
 			// can fail if no graph in set
 			NamedGraph firstGraph = listGraphs().next();
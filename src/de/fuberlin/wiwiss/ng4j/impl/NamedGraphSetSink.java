@@ -0,0 +1,64 @@
+package de.fuberlin.wiwiss.ng4j.impl;
+
+import com.hp.hpl.jena.graph.Node;
+
+import de.fuberlin.wiwiss.ng4j.NamedGraphSet;
+import de.fuberlin.wiwiss.ng4j.Quad;
+import de.fuberlin.wiwiss.ng4j.QuadSink;
+
+/**
+ * A {@link QuadSink} that adds the quads it receives to a
+ * {@link NamedGraphSet}. Graphs that don't exist yet are created when they
+ * start, so empty graphs are created as well.
+ *
+ * @author Richard Cyganiak (richard@cyganiak.de)
+ */
+public class NamedGraphSetSink implements QuadSink {
+	private final NamedGraphSet set;
+
+	public NamedGraphSetSink(NamedGraphSet set) {
+		this.set = set;
+	}
+
+	public void startGraph(Node graphName) {
+		if (!this.set.containsGraph(graphName)) {
+			this.set.createGraph(graphName);
+		}
+	}
+
+	public void quad(Quad quad) {
+		this.set.addQuad(quad);
+	}
+
+	public void endGraph(Node graphName) {
+		// don't have to do anything
+	}
+}
+
+/*
+ *  (c) Copyright 2004 - 2010 Christian Bizer (chris@bizer.de)
+ *   All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
@@ -0,0 +1,270 @@
+package de.fuberlin.wiwiss.ng4j.impl.idbased;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.hp.hpl.jena.graph.Node;
+
+import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+import de.fuberlin.wiwiss.ng4j.Quad;
+
+/**
+ * Loads a stream of quads into an {@link IdBasedNamedGraphSetImpl}.
+ * In contrast to adding the quads one by one (via
+ * {@link IdBasedNamedGraphSetImpl#addQuad}) the loader encodes the RDF terms
+ * of the quads in batches: frequent terms are found in a small cache, the
+ * remaining terms of a batch are reduced to the distinct ones, and these are
+ * resolved in a single pass over the node dictionary (which holds the lock
+ * of the dictionary once per batch instead of once per term). The encoded
+ * triples of a batch are added to their graphs by their identifiers (see
+ * {@link de.fuberlin.wiwiss.jenaext.BulkLoadableGraph}).
+ *
+ * The quads of the last, incomplete batch are not visible in the set before
+ * {@link #finish} has been called. Graph listeners are not notified about
+ * the loaded triples (the quad index of the set, if any, is updated
+ * nevertheless).
+ * A loader is not thread-safe and it can be used for a single load only.
+ *
+ * @author Olaf Hartig
+ */
+public class IdBasedBulkLoader
+{
+	// members
+
+	/** the default number of quads that are encoded together */
+	static final public int DEFAULT_BATCH_SIZE = 4096;
+
+	/** the number of entries of the node cache (a power of two) */
+	static final private int NODE_CACHE_SIZE = 4096;
+
+	final protected IdBasedNamedGraphSetImpl set;
+
+	final protected NodeDictionary nodeDict;
+
+	/** the quads that have not been encoded yet (four nodes per quad) */
+	final protected Node[] batch;
+
+	/** the number of quads in {@link #batch} */
+	protected int batchSize = 0;
+
+	/** the identifiers of the nodes in {@link #batch} (-1 if not resolved yet) */
+	final protected int[] batchIds;
+
+	/** the distinct nodes of the current batch that were not in the node cache */
+	final protected Map<Node,Integer> uncachedNodes = new HashMap<Node,Integer> ();
+
+	/**
+	 * A direct-mapped cache of recently encoded nodes (with their identifiers
+	 * in {@link #cachedIds}); a node is cached at the position given by its
+	 * hash code. Frequent nodes such as graph names and predicates are
+	 * encoded without a dictionary lookup.
+	 */
+	final protected Node[] cachedNodes = new Node [NODE_CACHE_SIZE];
+	final protected int[] cachedIds = new int [NODE_CACHE_SIZE];
+
+	/** the number of loaded quads that were not contained in the set before */
+	protected long added = 0;
+
+	protected boolean finished = false;
+
+
+	// initialization
+
+	public IdBasedBulkLoader ( IdBasedNamedGraphSetImpl set )
+	{
+		this( set, DEFAULT_BATCH_SIZE );
+	}
+
+	/**
+	 * @param batchSize the number of quads that are encoded together
+	 */
+	public IdBasedBulkLoader ( IdBasedNamedGraphSetImpl set, int batchSize )
+	{
+		if ( batchSize < 1 ) {
+			throw new IllegalArgumentException( "The batch size must be positive." );
+		}
+
+		this.set = set;
+		this.nodeDict = set.getNodeDictionary();
+		this.batch = new Node [4*batchSize];
+		this.batchIds = new int [4*batchSize];
+	}
+
+
+	// operations
+
+	/**
+	 * Adds the given quad to the load.
+	 *
+	 * @throws IllegalArgumentException if the quad contains wildcards or if
+	 *                                  its graph name is not a URI
+	 */
+	public void add ( Quad quad )
+	{
+		if ( ! quad.isConcrete() ) {
+			throw new IllegalArgumentException( "Cannot add quads with wildcards" );
+		}
+
+		add( quad.getGraphName(), quad.getSubject(), quad.getPredicate(), quad.getObject() );
+	}
+
+	/**
+	 * Adds the quad that consists of the given nodes to the load. The nodes
+	 * must be concrete.
+	 *
+	 * @throws IllegalArgumentException if the graph name is not a URI
+	 */
+	public void add ( Node graphName, Node s, Node p, Node o )
+	{
+		if ( finished ) {
+			throw new IllegalStateException( "This loader has been finished already." );
+		}
+		if ( ! graphName.isURI() ) {
+			throw new IllegalArgumentException( "Graph names must be URIs" );
+		}
+
+		int i = 4 * batchSize;
+		batch[i] = graphName;
+		batch[i+1] = s;
+		batch[i+2] = p;
+		batch[i+3] = o;
+		if ( ++batchSize * 4 == batch.length ) {
+			encodeBatch();
+		}
+	}
+
+	/**
+	 * Adds all quads provided by the given iterator to the load.
+	 */
+	public void addAll ( Iterator<Quad> it )
+	{
+		while ( it.hasNext() ) {
+			add( it.next() );
+		}
+	}
+
+	/**
+	 * Adds the quads of the last batch to the graphs of the set (graphs that
+	 * do not exist are created) and returns the number of loaded quads that
+	 * were not contained in the set before.
+	 */
+	public long finish ()
+	{
+		if ( finished ) {
+			throw new IllegalStateException( "This loader has been finished already." );
+		}
+
+		encodeBatch();
+		finished = true;
+		return added;
+	}
+
+
+	// helpers
+
+	/**
+	 * Encodes the quads of the current batch and adds them to the set.
+	 */
+	protected void encodeBatch ()
+	{
+		int n = 4 * batchSize;
+
+		// look up the node cache and collect the distinct uncached nodes
+		for ( int i = 0; i < n; ++i )
+		{
+			int id = lookupCache( batch[i] );
+			batchIds[i] = id;
+			if ( id == -1 ) {
+				uncachedNodes.put( batch[i], null );
+			}
+		}
+
+		// resolve the uncached nodes in a single pass over the dictionary
+		if ( ! uncachedNodes.isEmpty() )
+		{
+			synchronized ( nodeDict )
+			{
+				for ( Map.Entry<Node,Integer> e : uncachedNodes.entrySet() ) {
+					e.setValue( Integer.valueOf(nodeDict.createId(e.getKey())) );
+				}
+			}
+
+			for ( int i = 0; i < n; ++i )
+			{
+				if ( batchIds[i] == -1 )
+				{
+					int id = uncachedNodes.get( batch[i] ).intValue();
+					batchIds[i] = id;
+					cache( batch[i], id );
+				}
+			}
+			uncachedNodes.clear();
+		}
+
+		added += set.addEncodedQuads( batchIds, 0, n );
+
+		for ( int i = n - 1; i >= 0; --i ) {
+			batch[i] = null;
+		}
+		batchSize = 0;
+	}
+
+	/**
+	 * Returns the identifier of the given node from the node cache or -1 if
+	 * the node is not cached.
+	 */
+	final protected int lookupCache ( Node n )
+	{
+		int slot = cacheSlot( n );
+		Node cached = cachedNodes[slot];
+		if ( cached == n || (cached != null && cached.equals(n)) ) {
+			return cachedIds[slot];
+		}
+		return -1;
+	}
+
+	/**
+	 * Puts the given node with the given identifier into the node cache.
+	 */
+	final protected void cache ( Node n, int id )
+	{
+		int slot = cacheSlot( n );
+		cachedNodes[slot] = n;
+		cachedIds[slot] = id;
+	}
+
+	static final private int cacheSlot ( Node n )
+	{
+		int h = n.hashCode();
+		return ( h ^ (h >>> 16) ) & ( NODE_CACHE_SIZE - 1 );
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
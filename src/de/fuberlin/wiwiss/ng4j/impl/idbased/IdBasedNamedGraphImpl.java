@@ -6,6 +6,7 @@ import com.hp.hpl.jena.graph.Node;
 
 import de.fuberlin.wiwiss.ng4j.impl.NamedGraphImpl;
 
+import de.fuberlin.wiwiss.jenaext.GraphStatistics;
 import de.fuberlin.wiwiss.jenaext.IdBasedGraph;
 import de.fuberlin.wiwiss.jenaext.IdBasedTriple;
 import de.fuberlin.wiwiss.jenaext.NodeDictionary;
@@ -71,6 +72,26 @@ public class IdBasedNamedGraphImpl extends NamedGraphImpl
 		return idGraph.find( sId, pId, oId );
 	}
 
+	/**
+	 * Calls the corresponding method of the embedded graph ({@link IdBasedGraph#getCardinality}).
+	 * 
+	 * @see de.fuberlin.wiwiss.jenaext.IdBasedGraph#getCardinality(int, int, int)
+	 */
+	final public int getCardinality ( int sId, int pId, int oId )
+	{
+		return idGraph.getCardinality( sId, pId, oId );
+	}
+
+	/**
+	 * Calls the corresponding method of the embedded graph ({@link IdBasedGraph#getStatistics}).
+	 * 
+	 * @see de.fuberlin.wiwiss.jenaext.IdBasedGraph#getStatistics()
+	 */
+	final public GraphStatistics getStatistics ()
+	{
+		return idGraph.getStatistics();
+	}
+
 }
 
 /*
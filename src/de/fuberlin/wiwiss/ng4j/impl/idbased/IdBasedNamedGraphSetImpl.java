@@ -1,13 +1,30 @@
 package de.fuberlin.wiwiss.ng4j.impl.idbased;
 
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
 import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.GraphEvents;
+import com.hp.hpl.jena.graph.GraphListener;
 import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.shared.ReificationStyle;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
 
 import de.fuberlin.wiwiss.ng4j.NamedGraph;
+import de.fuberlin.wiwiss.ng4j.Quad;
 import de.fuberlin.wiwiss.ng4j.impl.NamedGraphSetImpl;
 
+import de.fuberlin.wiwiss.jenaext.BulkLoadableGraph;
+import de.fuberlin.wiwiss.jenaext.IdBasedGraph;
+import de.fuberlin.wiwiss.jenaext.IdBasedTriple;
 import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+import de.fuberlin.wiwiss.jenaext.impl.ColumnarIdBasedGraphMem;
 import de.fuberlin.wiwiss.jenaext.impl.IdBasedGraphMem;
 import de.fuberlin.wiwiss.jenaext.impl.NodeDictionaryImpl;
 
@@ -27,6 +44,37 @@ public class IdBasedNamedGraphSetImpl extends NamedGraphSetImpl
 
 	final protected NodeDictionary nodeDict;
 
+	/**
+	 * true if the named graphs of this set store their triples in columns of
+	 * identifiers (see {@link ColumnarIdBasedGraphMem})
+	 */
+	final protected boolean columnarStorage;
+
+	/**
+	 * the set-wide index of the quads of all graphs in this set, or null if
+	 * this set does not maintain such an index
+	 */
+	final protected QuadIndex quadIndex;
+
+	/** the listeners that keep {@link #quadIndex} up to date, per graph */
+	final protected Map<NamedGraph,QuadIndexUpdater> quadIndexUpdaters = new HashMap<NamedGraph,QuadIndexUpdater> ();
+
+	/**
+	 * the number of changes of this set and of its graphs so far; used by
+	 * {@link IdBasedUnionGraph} to find out whether the statistics it has
+	 * combined are outdated
+	 */
+	protected int modificationCount = 0;
+
+	/** the listener that counts the changes of the graphs in this set */
+	final protected GraphListener modificationCounter = new ModificationCounter ();
+
+	/**
+	 * the loader that receives the quads added while a document is read
+	 * (see {@link #bulkRead(InputStream,String,String)}), or null
+	 */
+	protected IdBasedBulkLoader bulkLoader = null;
+
 
 	// initialization
 
@@ -36,12 +84,39 @@ public class IdBasedNamedGraphSetImpl extends NamedGraphSetImpl
 	}
 
 	public IdBasedNamedGraphSetImpl ( NodeDictionary nodeDict )
+	{
+		this( nodeDict, false );
+	}
+
+	/**
+	 * @param nodeDict the node dictionary shared by all graphs of this set
+	 * @param columnarStorage if true, the named graphs created by this set
+	 *                        use the memory-saving {@link ColumnarIdBasedGraphMem}
+	 *                        instead of {@link IdBasedGraphMem}
+	 */
+	public IdBasedNamedGraphSetImpl ( NodeDictionary nodeDict, boolean columnarStorage )
+	{
+		this( nodeDict, columnarStorage, false );
+	}
+
+	/**
+	 * @param nodeDict the node dictionary shared by all graphs of this set
+	 * @param columnarStorage if true, the named graphs created by this set
+	 *                        use the memory-saving {@link ColumnarIdBasedGraphMem}
+	 *                        instead of {@link IdBasedGraphMem}
+	 * @param quadIndex if true, this set maintains a {@link QuadIndex} over
+	 *                  the quads of all its graphs which is used to answer
+	 *                  quad patterns with an unbound graph name
+	 */
+	public IdBasedNamedGraphSetImpl ( NodeDictionary nodeDict, boolean columnarStorage, boolean quadIndex )
 	{
 		if ( nodeDict == null ) {
 			throw new IllegalArgumentException( "The given Node dictionary is null." );
 		}
 
 		this.nodeDict = nodeDict;
+		this.columnarStorage = columnarStorage;
+		this.quadIndex = ( quadIndex ) ? new QuadIndex() : null;
 	}
 
 	/**
@@ -54,6 +129,8 @@ public class IdBasedNamedGraphSetImpl extends NamedGraphSetImpl
 	public IdBasedNamedGraphSetImpl ( IdBasedNamedGraphSetImpl template )
 	{
 		nodeDict = template.nodeDict;
+		columnarStorage = template.columnarStorage;
+		quadIndex = ( template.quadIndex != null ) ? new QuadIndex() : null;
 		for ( NamedGraph g : template.graphs) {
 			addGraph( g );
 		}
@@ -70,12 +147,56 @@ public class IdBasedNamedGraphSetImpl extends NamedGraphSetImpl
 		return nodeDict;
 	}
 
+	/**
+	 * Returns true if this set maintains an index over the quads of all its
+	 * graphs.
+	 */
+	public boolean hasQuadIndex ()
+	{
+		return quadIndex != null;
+	}
+
+	/**
+	 * Returns the names of all graphs in this set that contain a triple in
+	 * which the given node is the subject, the predicate, or the object.
+	 * With a quad index (see {@link #hasQuadIndex}) these graphs are found
+	 * by three range scans; otherwise, each graph is checked.
+	 */
+	public List<Node> findGraphsMentioning ( Node node )
+	{
+		List<Node> result = new ArrayList<Node> ();
+		if ( quadIndex != null )
+		{
+			int id = nodeDict.getId( node );
+			if ( id == -1 ) {
+				return result;
+			}
+
+			int[] graphIds = quadIndex.getGraphs( id );
+			for ( int i = 0; i < graphIds.length; ++i ) {
+				result.add( nodeDict.getNode(graphIds[i]) );
+			}
+			return result;
+		}
+
+		for ( NamedGraph g : graphs )
+		{
+			if (    g.contains(node,Node.ANY,Node.ANY)
+			     || g.contains(Node.ANY,node,Node.ANY)
+			     || g.contains(Node.ANY,Node.ANY,node) ) {
+				result.add( g.getGraphName() );
+			}
+		}
+		return result;
+	}
+
 
 	// redefinitions of NamedGraphSetImpl methods
 
 	/**
 	 * Uses the RDF graph implementation and the named graph implementation for
-	 * the Semantic Web client ({@link IdBasedGraphMem} and {@link IdBasedNamedGraphImpl}).
+	 * the Semantic Web client ({@link IdBasedGraphMem} or, in columnar storage
+	 * mode, {@link ColumnarIdBasedGraphMem} and {@link IdBasedNamedGraphImpl}).
 	 * 
 	 * @see de.fuberlin.wiwiss.ng4j.impl.NamedGraphSetImpl#createNamedGraphInstance(com.hp.hpl.jena.graph.Node)
 	 */
@@ -86,7 +207,202 @@ public class IdBasedNamedGraphSetImpl extends NamedGraphSetImpl
 			throw new IllegalArgumentException( "Graph names must be URIs" );
 		}
 
-		return new IdBasedNamedGraphImpl( graphName, new IdBasedGraphMem(nodeDict,ReificationStyle.Standard) );
+		IdBasedGraph g;
+		if ( columnarStorage ) {
+			g = new ColumnarIdBasedGraphMem( nodeDict, ReificationStyle.Standard );
+		} else {
+			g = new IdBasedGraphMem( nodeDict, ReificationStyle.Standard );
+		}
+
+		return new IdBasedNamedGraphImpl( graphName, g );
+	}
+
+	/**
+	 * Also adds the triples of the given graph to the quad index (if any) and
+	 * keeps the index up to date with changes of the graph.
+	 *
+	 * @see de.fuberlin.wiwiss.ng4j.impl.NamedGraphSetImpl#addGraph(de.fuberlin.wiwiss.ng4j.NamedGraph)
+	 */
+	@Override
+	public void addGraph ( NamedGraph graph )
+	{
+		NamedGraph old = getGraph( graph.getGraphName() );
+		if ( old != graph )
+		{
+			if ( old != null )
+			{
+				old.getEventManager().unregister( modificationCounter );
+				if ( quadIndex != null ) {
+					detachFromQuadIndex( old );
+				}
+			}
+
+			graph.getEventManager().register( modificationCounter );
+			if ( quadIndex != null ) {
+				attachToQuadIndex( graph );
+			}
+		}
+
+		super.addGraph( graph );
+		modificationCount++;
+	}
+
+	/**
+	 * Also removes the triples of the removed graph(s) from the quad index.
+	 *
+	 * @see de.fuberlin.wiwiss.ng4j.impl.NamedGraphSetImpl#removeGraph(com.hp.hpl.jena.graph.Node)
+	 */
+	@Override
+	public void removeGraph ( Node graphName )
+	{
+		if ( Node.ANY.equals(graphName) )
+		{
+			unregisterModificationCounter();
+			if ( quadIndex != null ) {
+				detachAllFromQuadIndex();
+			}
+		}
+		else if ( containsGraph(graphName) )
+		{
+			NamedGraph graph = getGraph( graphName );
+			graph.getEventManager().unregister( modificationCounter );
+			if ( quadIndex != null ) {
+				detachFromQuadIndex( graph );
+			}
+		}
+
+		super.removeGraph( graphName );
+		modificationCount++;
+	}
+
+	/* (non-Javadoc)
+	 * @see de.fuberlin.wiwiss.ng4j.impl.NamedGraphSetImpl#clear()
+	 */
+	@Override
+	public void clear ()
+	{
+		unregisterModificationCounter();
+		if ( quadIndex != null ) {
+			detachAllFromQuadIndex();
+		}
+
+		super.clear();
+		modificationCount++;
+	}
+
+	/**
+	 * While a document is read by {@link #bulkRead}, the quad is passed to the
+	 * bulk loader of the read operation.
+	 *
+	 * @see de.fuberlin.wiwiss.ng4j.impl.NamedGraphSetImpl#addQuad(de.fuberlin.wiwiss.ng4j.Quad)
+	 */
+	@Override
+	public void addQuad ( Quad quad )
+	{
+		if ( bulkLoader != null ) {
+			bulkLoader.add( quad );
+		} else {
+			super.addQuad( quad );
+		}
+	}
+
+	/**
+	 * Reads the document through an {@link IdBasedBulkLoader}: the quads
+	 * that the reader adds by {@link #addQuad} (as the TriG reader does) are
+	 * encoded and added to the graphs in batches; the last batch is added
+	 * after the whole document has been read (or after reading failed).
+	 * In contrast to {@link #read(InputStream,String,String)} the quads of
+	 * an incomplete batch are not visible in this set while the document is
+	 * read, and graph listeners are not notified about the loaded triples
+	 * (the quad index of this set, if any, is updated nevertheless).
+	 */
+	public void bulkRead ( InputStream source, String lang, String baseURI )
+	{
+		boolean started = startBulkLoad();
+		try {
+			read( source, lang, baseURI );
+		}
+		finally {
+			finishBulkLoad( started );
+		}
+	}
+
+	/**
+	 * Reads the document through an {@link IdBasedBulkLoader} (see
+	 * {@link #bulkRead(InputStream,String,String)}).
+	 */
+	public void bulkRead ( Reader source, String lang, String baseURI )
+	{
+		boolean started = startBulkLoad();
+		try {
+			read( source, lang, baseURI );
+		}
+		finally {
+			finishBulkLoad( started );
+		}
+	}
+
+	/**
+	 * Reads the document through an {@link IdBasedBulkLoader} (see
+	 * {@link #bulkRead(InputStream,String,String)}).
+	 */
+	public void bulkRead ( String url, String lang )
+	{
+		boolean started = startBulkLoad();
+		try {
+			read( url, lang );
+		}
+		finally {
+			finishBulkLoad( started );
+		}
+	}
+
+	/**
+	 * Uses the quad index (if any) for patterns with an unbound graph name and
+	 * at least one bound subject, predicate, or object.
+	 *
+	 * @see de.fuberlin.wiwiss.ng4j.impl.NamedGraphSetImpl#findQuads(de.fuberlin.wiwiss.ng4j.Quad)
+	 */
+	@Override
+	public Iterator<Quad> findQuads ( Quad pattern )
+	{
+		if ( ! useQuadIndex(pattern) ) {
+			return super.findQuads( pattern );
+		}
+
+		int sId = encodePatternNode( pattern.getSubject() );
+		int pId = encodePatternNode( pattern.getPredicate() );
+		int oId = encodePatternNode( pattern.getObject() );
+		List<Quad> result = new ArrayList<Quad> ();
+		if ( sId == -2 || pId == -2 || oId == -2 ) {
+			return result.iterator();
+		}
+
+		int[] quads = quadIndex.find( -1, sId, pId, oId );
+		for ( int i = 0; i < quads.length; i += 4 )
+		{
+			result.add( new Quad(nodeDict.getNode(quads[i]),
+			                     nodeDict.getNode(quads[i+1]),
+			                     nodeDict.getNode(quads[i+2]),
+			                     nodeDict.getNode(quads[i+3])) );
+		}
+		return result.iterator();
+	}
+
+	/**
+	 * Uses the quad index (if any) for patterns with an unbound graph name and
+	 * at least one bound subject, predicate, or object.
+	 *
+	 * @see de.fuberlin.wiwiss.ng4j.impl.NamedGraphSetImpl#containsQuad(de.fuberlin.wiwiss.ng4j.Quad)
+	 */
+	@Override
+	public boolean containsQuad ( Quad pattern )
+	{
+		if ( ! useQuadIndex(pattern) ) {
+			return super.containsQuad( pattern );
+		}
+
+		return findQuads( pattern ).hasNext();
 	}
 
 	/**
@@ -101,7 +417,7 @@ public class IdBasedNamedGraphSetImpl extends NamedGraphSetImpl
 			createGraph( defaultGraphForAdding );
 		}
 
-		IdBasedUnionGraph unionGraph = new IdBasedUnionGraph( graphs, nodeDict );
+		IdBasedUnionGraph unionGraph = new IdBasedUnionGraph( this, graphs );
 		if ( defaultGraphForAdding != null ) {
 			unionGraph.setBaseGraph( getGraph(defaultGraphForAdding) );
 		}
@@ -109,6 +425,192 @@ public class IdBasedNamedGraphSetImpl extends NamedGraphSetImpl
 		return unionGraph;
 	}
 
+	// helpers
+
+	protected boolean useQuadIndex ( Quad pattern )
+	{
+		return    quadIndex != null
+		       && Node.ANY.equals( pattern.getGraphName() )
+		       && (    pattern.getSubject().isConcrete()
+		            || pattern.getPredicate().isConcrete()
+		            || pattern.getObject().isConcrete() );
+	}
+
+	/**
+	 * Returns the identifier of the given pattern node, -1 for a wildcard,
+	 * or -2 if the node is unknown (i.e. if it cannot be matched).
+	 */
+	protected int encodePatternNode ( Node n )
+	{
+		if ( ! n.isConcrete() ) {
+			return -1;
+		}
+
+		int id = nodeDict.getId( n );
+		return ( id == -1 ) ? -2 : id;
+	}
+
+	/**
+	 * Adds the encoded quads that are given by the elements from (inclusive)
+	 * to to (exclusive) of the given array (the identifiers of graph name,
+	 * subject, predicate, and object of each quad, one quad after another).
+	 * Graphs that do not exist are created. Graphs that cannot add triples
+	 * by the identifiers of this set (see {@link BulkLoadableGraph}) are
+	 * populated with decoded triples.
+	 * This method is used by {@link IdBasedBulkLoader}.
+	 *
+	 * @return the number of quads that were not contained in this set
+	 */
+	protected int addEncodedQuads ( int[] quads, int from, int to )
+	{
+		int added = 0;
+		int gId = -1;
+		NamedGraph graph = null;
+		BulkLoadableGraph idGraph = null;
+		for ( int i = from; i < to; i += 4 )
+		{
+			if ( graph == null || quads[i] != gId )
+			{
+				gId = quads[i];
+				Node graphName = nodeDict.getNode( gId );
+				graph = getGraph( graphName );
+				if ( graph == null ) {
+					graph = createGraph( graphName );
+				}
+
+				idGraph = null;
+				if (    graph instanceof IdBasedNamedGraphImpl
+				     && ((IdBasedNamedGraphImpl) graph).idGraph instanceof BulkLoadableGraph
+				     && ((IdBasedNamedGraphImpl) graph).getNodeDictionary() == nodeDict ) {
+					idGraph = (BulkLoadableGraph) ( (IdBasedNamedGraphImpl) graph ).idGraph;
+				}
+			}
+
+			if ( idGraph != null )
+			{
+				if ( idGraph.add(quads[i+1],quads[i+2],quads[i+3]) )
+				{
+					// the graph does not notify the quad index updater
+					if ( quadIndex != null ) {
+						quadIndex.add( gId, quads[i+1], quads[i+2], quads[i+3] );
+					}
+					added++;
+				}
+			}
+			else
+			{
+				int sizeBefore = graph.size();
+				graph.add( new Triple(nodeDict.getNode(quads[i+1]),
+				                      nodeDict.getNode(quads[i+2]),
+				                      nodeDict.getNode(quads[i+3])) );
+				added += graph.size() - sizeBefore;
+			}
+		}
+
+		// the graphs do not notify the modification counter either
+		if ( added > 0 ) {
+			modificationCount++;
+		}
+		return added;
+	}
+
+	/**
+	 * Starts to pass the quads added by {@link #addQuad} to a new bulk loader
+	 * unless a bulk load is running already.
+	 *
+	 * @return true if a bulk load has been started
+	 */
+	protected boolean startBulkLoad ()
+	{
+		if ( bulkLoader != null ) {
+			return false;
+		}
+
+		bulkLoader = new IdBasedBulkLoader( this );
+		return true;
+	}
+
+	/**
+	 * Finishes the bulk load if it has been started by the caller (see
+	 * {@link #startBulkLoad}).
+	 */
+	protected void finishBulkLoad ( boolean started )
+	{
+		if ( ! started ) {
+			return;
+		}
+
+		IdBasedBulkLoader loader = bulkLoader;
+		bulkLoader = null;
+		loader.finish();
+	}
+
+	/**
+	 * Adds the triples of the given graph to the quad index and registers a
+	 * listener that keeps the index up to date.
+	 */
+	protected void attachToQuadIndex ( NamedGraph graph )
+	{
+		int gId = nodeDict.createId( graph.getGraphName() );
+		if (    graph instanceof IdBasedGraph
+		     && ((IdBasedGraph) graph).getNodeDictionary() == nodeDict )
+		{
+			Iterator<IdBasedTriple> it = ( (IdBasedGraph) graph ).find( -1, -1, -1 );
+			while ( it.hasNext() )
+			{
+				IdBasedTriple t = it.next();
+				quadIndex.add( gId, t.s, t.p, t.o );
+			}
+		}
+		else
+		{
+			ExtendedIterator<Triple> it = graph.find( Node.ANY, Node.ANY, Node.ANY );
+			while ( it.hasNext() )
+			{
+				Triple t = it.next();
+				quadIndex.add( gId,
+				               nodeDict.createId(t.getSubject()),
+				               nodeDict.createId(t.getPredicate()),
+				               nodeDict.createId(t.getObject()) );
+			}
+		}
+
+		QuadIndexUpdater updater = new QuadIndexUpdater( graph, gId );
+		graph.getEventManager().register( updater );
+		quadIndexUpdaters.put( graph, updater );
+	}
+
+	/**
+	 * Removes the triples of the given graph from the quad index and
+	 * unregisters the listener that kept the index up to date.
+	 */
+	protected void detachFromQuadIndex ( NamedGraph graph )
+	{
+		QuadIndexUpdater updater = quadIndexUpdaters.remove( graph );
+		if ( updater == null ) {
+			return;
+		}
+
+		graph.getEventManager().unregister( updater );
+		quadIndex.removeGraph( updater.gId );
+	}
+
+	protected void unregisterModificationCounter ()
+	{
+		for ( NamedGraph g : graphs ) {
+			g.getEventManager().unregister( modificationCounter );
+		}
+	}
+
+	protected void detachAllFromQuadIndex ()
+	{
+		for ( Map.Entry<NamedGraph,QuadIndexUpdater> e : quadIndexUpdaters.entrySet() ) {
+			e.getKey().getEventManager().unregister( e.getValue() );
+		}
+		quadIndexUpdaters.clear();
+		quadIndex.clear();
+	}
+
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
 	 */
@@ -118,6 +620,128 @@ public class IdBasedNamedGraphSetImpl extends NamedGraphSetImpl
 		return "IdBasedNamedGraphSetImpl with " + countQuads() + " quads in " + countGraphs() + " graphs";
 	}
 
+
+	/**
+	 * Counts the changes of the graphs in this set (see
+	 * {@link #modificationCount}).
+	 */
+	protected class ModificationCounter implements GraphListener
+	{
+		public void notifyAddTriple ( Graph g, Triple t ) { modificationCount++; }
+		public void notifyAddArray ( Graph g, Triple[] triples ) { modificationCount++; }
+		public void notifyAddList ( Graph g, List<Triple> triples ) { modificationCount++; }
+		public void notifyAddIterator ( Graph g, Iterator<Triple> it ) { modificationCount++; }
+		public void notifyAddGraph ( Graph g, Graph added ) { modificationCount++; }
+		public void notifyDeleteTriple ( Graph g, Triple t ) { modificationCount++; }
+		public void notifyDeleteArray ( Graph g, Triple[] triples ) { modificationCount++; }
+		public void notifyDeleteList ( Graph g, List<Triple> triples ) { modificationCount++; }
+		public void notifyDeleteIterator ( Graph g, Iterator<Triple> it ) { modificationCount++; }
+		public void notifyDeleteGraph ( Graph g, Graph removed ) { modificationCount++; }
+		public void notifyEvent ( Graph source, Object value ) { modificationCount++; }
+	}
+
+	/**
+	 * Keeps the quad index up to date with the changes of a graph.
+	 */
+	protected class QuadIndexUpdater implements GraphListener
+	{
+		final protected NamedGraph graph;
+		final protected int gId;
+
+		public QuadIndexUpdater ( NamedGraph graph, int gId )
+		{
+			this.graph = graph;
+			this.gId = gId;
+		}
+
+		public void notifyAddTriple ( Graph g, Triple t )
+		{
+			quadIndex.add( gId,
+			               nodeDict.createId(t.getSubject()),
+			               nodeDict.createId(t.getPredicate()),
+			               nodeDict.createId(t.getObject()) );
+		}
+
+		public void notifyAddArray ( Graph g, Triple[] triples )
+		{
+			for ( int i = 0; i < triples.length; ++i ) {
+				notifyAddTriple( g, triples[i] );
+			}
+		}
+
+		public void notifyAddList ( Graph g, List<Triple> triples )
+		{
+			notifyAddIterator( g, triples.iterator() );
+		}
+
+		public void notifyAddIterator ( Graph g, Iterator<Triple> it )
+		{
+			while ( it.hasNext() ) {
+				notifyAddTriple( g, it.next() );
+			}
+		}
+
+		public void notifyAddGraph ( Graph g, Graph added )
+		{
+			notifyAddIterator( g, added.find(Node.ANY,Node.ANY,Node.ANY) );
+		}
+
+		public void notifyDeleteTriple ( Graph g, Triple t )
+		{
+			int sId = nodeDict.getId( t.getSubject() );
+			int pId = nodeDict.getId( t.getPredicate() );
+			int oId = nodeDict.getId( t.getObject() );
+			if ( sId != -1 && pId != -1 && oId != -1 ) {
+				quadIndex.remove( gId, sId, pId, oId );
+			}
+		}
+
+		public void notifyDeleteArray ( Graph g, Triple[] triples )
+		{
+			for ( int i = 0; i < triples.length; ++i ) {
+				notifyDeleteTriple( g, triples[i] );
+			}
+		}
+
+		public void notifyDeleteList ( Graph g, List<Triple> triples )
+		{
+			notifyDeleteIterator( g, triples.iterator() );
+		}
+
+		public void notifyDeleteIterator ( Graph g, Iterator<Triple> it )
+		{
+			while ( it.hasNext() ) {
+				notifyDeleteTriple( g, it.next() );
+			}
+		}
+
+		public void notifyDeleteGraph ( Graph g, Graph removed )
+		{
+			notifyDeleteIterator( g, removed.find(Node.ANY,Node.ANY,Node.ANY) );
+		}
+
+		/**
+		 * Bulk removals do not report the removed triples; the quads of the
+		 * graph are indexed again in this case.
+		 */
+		public void notifyEvent ( Graph source, Object value )
+		{
+			if ( ! (value instanceof GraphEvents) ) {
+				return;
+			}
+
+			GraphEvents event = (GraphEvents) value;
+			if ( "remove".equals( event.getTitle() ) || event.same(GraphEvents.removeAll) )
+			{
+				quadIndex.removeGraph( gId );
+				ExtendedIterator<Triple> it = graph.find( Node.ANY, Node.ANY, Node.ANY );
+				while ( it.hasNext() ) {
+					notifyAddTriple( source, it.next() );
+				}
+			}
+		}
+	}
+
 }
 
 /*
@@ -0,0 +1,223 @@
+package de.fuberlin.wiwiss.ng4j.impl.idbased;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.shared.JenaException;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+
+import de.fuberlin.wiwiss.ng4j.NamedGraph;
+import de.fuberlin.wiwiss.ng4j.NamedGraphSet;
+import de.fuberlin.wiwiss.ng4j.NamedGraphSetReader;
+
+import de.fuberlin.wiwiss.jenaext.impl.MappedIdBasedGraph;
+import de.fuberlin.wiwiss.jenaext.impl.MappedNodeDictionary;
+
+
+/**
+ * Reads binary snapshots of named graph sets (language
+ * {@value IdBasedSnapshotWriter#LANGUAGE}) as written by
+ * {@link IdBasedSnapshotWriter}.
+ *
+ * Use {@link #open} to obtain an {@link IdBasedNamedGraphSetImpl} that is
+ * directly backed by the memory-mapped snapshot file. The graphs from the
+ * snapshot are read-only ({@link MappedIdBasedGraph}); graphs that are added
+ * to the set later are regular in-memory graphs. Each graph section and the
+ * dictionary records of a snapshot must not exceed 2 GB.
+ *
+ * The {@link NamedGraphSetReader} methods copy the content of a snapshot into
+ * an arbitrary named graph set instead.
+ *
+ * @author Olaf Hartig
+ */
+public class IdBasedSnapshotReader implements NamedGraphSetReader
+{
+	// operations
+
+	/**
+	 * Opens the given snapshot file.
+	 */
+	public IdBasedNamedGraphSetImpl open ( File file )
+	{
+		try {
+			RandomAccessFile raf = new RandomAccessFile( file, "r" );
+			try {
+				return open( raf.getChannel() );
+			}
+			finally {
+				raf.close();
+			}
+		}
+		catch ( IOException e ) {
+			throw new JenaException( e );
+		}
+	}
+
+	/**
+	 * Opens the snapshot in the given file. The mapped regions of the file
+	 * stay valid after the channel has been closed.
+	 */
+	public IdBasedNamedGraphSetImpl open ( FileChannel channel ) throws IOException
+	{
+		long size = channel.size();
+		if ( size < 36 ) {
+			throw new JenaException( "Not a " + IdBasedSnapshotWriter.LANGUAGE + " snapshot (file too short)." );
+		}
+
+		ByteBuffer header = channel.map( FileChannel.MapMode.READ_ONLY, 0, 12 );
+		ByteBuffer trailer = channel.map( FileChannel.MapMode.READ_ONLY, size - 24, 24 );
+		if ( ! hasMagic(header,0) || ! hasMagic(trailer,16) ) {
+			throw new JenaException( "Not a " + IdBasedSnapshotWriter.LANGUAGE + " snapshot." );
+		}
+		if ( header.getInt(8) != IdBasedSnapshotWriter.VERSION ) {
+			throw new JenaException( "Unsupported version (" + header.getInt(8) + ") of the " + IdBasedSnapshotWriter.LANGUAGE + " snapshot." );
+		}
+
+		long dictionaryPosition = trailer.getLong( 0 );
+		long directoryPosition = trailer.getLong( 8 );
+
+		MappedNodeDictionary dict = new MappedNodeDictionary( channel, dictionaryPosition );
+		IdBasedNamedGraphSetImpl set = new IdBasedNamedGraphSetImpl( dict );
+
+		ByteBuffer directory = channel.map( FileChannel.MapMode.READ_ONLY, directoryPosition, size - 24 - directoryPosition );
+		int graphCount = directory.getInt( 0 );
+		for ( int i = 0; i < graphCount; ++i )
+		{
+			Node graphName = dict.getNode( directory.getInt(4 + 12 * i) );
+			long graphPosition = directory.getLong( 8 + 12 * i );
+			set.addGraph( new IdBasedNamedGraphImpl(graphName, new MappedIdBasedGraph(dict, channel, graphPosition)) );
+		}
+
+		return set;
+	}
+
+
+	// implementation of the NamedGraphSetReader interface
+
+	/**
+	 * Throws an {@link IllegalArgumentException} because snapshots are binary.
+	 *
+	 * @see de.fuberlin.wiwiss.ng4j.NamedGraphSetReader#read(de.fuberlin.wiwiss.ng4j.NamedGraphSet, java.io.Reader, java.lang.String, java.lang.String)
+	 */
+	public void read ( NamedGraphSet namedGraphSet, Reader source, String baseURI, String defaultGraphName )
+	{
+		throw new IllegalArgumentException( IdBasedSnapshotWriter.LANGUAGE + " is a binary format; it cannot be read from a Reader." );
+	}
+
+	/**
+	 * Copies the graphs of the snapshot into the given set. Snapshots that are
+	 * read from a {@link FileInputStream} are mapped directly; other streams
+	 * are copied to a temporary file first.
+	 *
+	 * @see de.fuberlin.wiwiss.ng4j.NamedGraphSetReader#read(de.fuberlin.wiwiss.ng4j.NamedGraphSet, java.io.InputStream, java.lang.String, java.lang.String)
+	 */
+	public void read ( NamedGraphSet namedGraphSet, InputStream source, String baseURI, String defaultGraphName )
+	{
+		try {
+			if ( source instanceof FileInputStream ) {
+				copy( open(((FileInputStream) source).getChannel()), namedGraphSet );
+				return;
+			}
+
+			File tmp = File.createTempFile( "ng4j", ".bin" );
+			tmp.deleteOnExit();
+			OutputStream out = new FileOutputStream( tmp );
+			try {
+				byte[] buffer = new byte [65536];
+				int n;
+				while ( (n = source.read(buffer)) > 0 ) {
+					out.write( buffer, 0, n );
+				}
+			}
+			finally {
+				out.close();
+			}
+
+			copy( open(tmp), namedGraphSet );
+		}
+		catch ( IOException e ) {
+			throw new JenaException( e );
+		}
+	}
+
+
+	// helpers
+
+	/**
+	 * Copies the graphs of the given snapshot into the given set; existing
+	 * graphs with the same names are replaced.
+	 */
+	static protected void copy ( NamedGraphSet snapshot, NamedGraphSet target )
+	{
+		Iterator<NamedGraph> itGraphs = snapshot.listGraphs();
+		while ( itGraphs.hasNext() )
+		{
+			NamedGraph graph = itGraphs.next();
+			target.removeGraph( graph.getGraphName() );
+			NamedGraph targetGraph = target.createGraph( graph.getGraphName() );
+
+			ExtendedIterator<Triple> itTriples = graph.find( Node.ANY, Node.ANY, Node.ANY );
+			while ( itTriples.hasNext() ) {
+				targetGraph.add( itTriples.next() );
+			}
+		}
+	}
+
+	static private boolean hasMagic ( ByteBuffer buffer, int position )
+	{
+		byte[] magic;
+		try {
+			magic = IdBasedSnapshotWriter.LANGUAGE.getBytes( "US-ASCII" );
+		}
+		catch ( IOException e ) {
+			throw new Error( e ); // US-ASCII is always supported
+		}
+
+		for ( int i = 0; i < magic.length; ++i )
+		{
+			if ( buffer.get(position + i) != magic[i] ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
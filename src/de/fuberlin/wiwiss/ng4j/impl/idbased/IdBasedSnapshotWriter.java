@@ -0,0 +1,210 @@
+package de.fuberlin.wiwiss.ng4j.impl.idbased;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.shared.JenaException;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+
+import de.fuberlin.wiwiss.ng4j.NamedGraph;
+import de.fuberlin.wiwiss.ng4j.NamedGraphSet;
+import de.fuberlin.wiwiss.ng4j.NamedGraphSetWriter;
+
+import de.fuberlin.wiwiss.jenaext.impl.MappedIdBasedGraph;
+import de.fuberlin.wiwiss.jenaext.impl.MappedNodeDictionary;
+
+
+/**
+ * Writes a named graph set as a binary snapshot (language
+ * {@value #LANGUAGE}) that can be opened by {@link IdBasedSnapshotReader}
+ * without parsing.
+ * The snapshot is written in a single pass over the graphs. The layout of a
+ * snapshot file is:
+ * <pre>
+ * byte[8]  magic ({@value #LANGUAGE})
+ * int      format version
+ * ...      one graph section per named graph (see {@link MappedIdBasedGraph})
+ * ...      dictionary section (see {@link MappedNodeDictionary})
+ * int      number of graphs (g)
+ * g times  int identifier of the graph name, long position of the graph section
+ * long     position of the dictionary section
+ * long     position of the graph directory
+ * byte[8]  magic ({@value #LANGUAGE})
+ * </pre>
+ *
+ * @author Olaf Hartig
+ */
+public class IdBasedSnapshotWriter implements NamedGraphSetWriter
+{
+	// members
+
+	/** the name of the serialization language */
+	static final public String LANGUAGE = "NG4J-BIN";
+
+	static final protected int VERSION = 1;
+
+	/** the dictionary of the snapshot that is currently written */
+	final protected Map<Node,Integer> node2Id = new HashMap<Node,Integer> ();
+	protected byte[][] records = new byte [1024][];
+
+
+	// implementation of the NamedGraphSetWriter interface
+
+	/**
+	 * Throws an {@link IllegalArgumentException} because snapshots are binary.
+	 *
+	 * @see de.fuberlin.wiwiss.ng4j.NamedGraphSetWriter#write(de.fuberlin.wiwiss.ng4j.NamedGraphSet, java.io.Writer, java.lang.String)
+	 */
+	public void write ( NamedGraphSet set, Writer out, String baseURI )
+	{
+		throw new IllegalArgumentException( LANGUAGE + " is a binary format; it cannot be written to a Writer." );
+	}
+
+	/* (non-Javadoc)
+	 * @see de.fuberlin.wiwiss.ng4j.NamedGraphSetWriter#write(de.fuberlin.wiwiss.ng4j.NamedGraphSet, java.io.OutputStream, java.lang.String)
+	 */
+	public void write ( NamedGraphSet set, OutputStream out, String baseURI )
+	{
+		node2Id.clear();
+		try {
+			DataOutputStream dataOut = new DataOutputStream( new BufferedOutputStream(out) );
+			dataOut.write( LANGUAGE.getBytes("US-ASCII") );
+			dataOut.writeInt( VERSION );
+			long position = 12L;
+
+			int graphCount = (int) set.countGraphs();
+			int[] graphNameIds = new int [graphCount];
+			long[] graphPositions = new long [graphCount];
+
+			int[] subjects = new int [1024];
+			int[] predicates = new int [1024];
+			int[] objects = new int [1024];
+			int g = 0;
+			Iterator<NamedGraph> itGraphs = set.listGraphs();
+			while ( itGraphs.hasNext() )
+			{
+				NamedGraph graph = itGraphs.next();
+				graphNameIds[g] = getId( graph.getGraphName() );
+				graphPositions[g] = position;
+				g++;
+
+				int count = 0;
+				ExtendedIterator<Triple> itTriples = graph.find( Node.ANY, Node.ANY, Node.ANY );
+				while ( itTriples.hasNext() )
+				{
+					Triple t = itTriples.next();
+					if ( count == subjects.length )
+					{
+						subjects = grow( subjects );
+						predicates = grow( predicates );
+						objects = grow( objects );
+					}
+					subjects[count] = getId( t.getSubject() );
+					predicates[count] = getId( t.getPredicate() );
+					objects[count] = getId( t.getObject() );
+					count++;
+				}
+				itTriples.close();
+
+				position += MappedIdBasedGraph.write( dataOut, subjects, predicates, objects, count );
+			}
+
+			long dictionaryPosition = position;
+			position += MappedNodeDictionary.write( dataOut, records, node2Id.size() );
+
+			long directoryPosition = position;
+			dataOut.writeInt( g );
+			for ( int i = 0; i < g; ++i )
+			{
+				dataOut.writeInt( graphNameIds[i] );
+				dataOut.writeLong( graphPositions[i] );
+			}
+
+			dataOut.writeLong( dictionaryPosition );
+			dataOut.writeLong( directoryPosition );
+			dataOut.write( LANGUAGE.getBytes("US-ASCII") );
+			dataOut.flush();
+		}
+		catch ( IOException e ) {
+			throw new JenaException( e );
+		}
+		finally {
+			node2Id.clear();
+			records = new byte [1024][];
+		}
+	}
+
+
+	// helpers
+
+	/**
+	 * Returns the identifier of the given node in the snapshot that is
+	 * currently written.
+	 */
+	final protected int getId ( Node n )
+	{
+		Integer i = node2Id.get( n );
+		if ( i != null ) {
+			return i.intValue();
+		}
+
+		byte[] record = MappedNodeDictionary.encode( n );
+		if ( record == null ) {
+			throw new IllegalArgumentException( "Cannot write " + n.toString() + " to a snapshot." );
+		}
+
+		int id = node2Id.size();
+		if ( id == records.length )
+		{
+			byte[][] tmp = new byte [id << 1][];
+			System.arraycopy( records, 0, tmp, 0, id );
+			records = tmp;
+		}
+		records[id] = record;
+		node2Id.put( n, Integer.valueOf(id) );
+		return id;
+	}
+
+	static private int[] grow ( int[] column )
+	{
+		int[] tmp = new int [column.length + ( column.length >> 1 )];
+		System.arraycopy( column, 0, tmp, 0, column.length );
+		return tmp;
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
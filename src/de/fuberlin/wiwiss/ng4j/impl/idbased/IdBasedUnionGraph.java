@@ -1,5 +1,6 @@
 package de.fuberlin.wiwiss.ng4j.impl.idbased;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -15,11 +16,13 @@ import com.hp.hpl.jena.util.iterator.WrappedIterator;
 
 import de.fuberlin.wiwiss.jenaext.DecodingTriplesIterator;
 import de.fuberlin.wiwiss.jenaext.EmptyIterator;
+import de.fuberlin.wiwiss.jenaext.GraphStatistics;
 import de.fuberlin.wiwiss.jenaext.IdBasedGraph;
 import de.fuberlin.wiwiss.jenaext.IdBasedTriple;
 import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+import de.fuberlin.wiwiss.jenaext.impl.CombinedGraphStatistics;
 import de.fuberlin.wiwiss.jenaext.impl.IdBasedQueryHandler;
-import de.fuberlin.wiwiss.jenaext.impl.Index;
+import de.fuberlin.wiwiss.jenaext.impl.IdTripleSet;
 
 
 /**
@@ -35,6 +38,24 @@ public class IdBasedUnionGraph extends MultiUnion
 
 	final protected NodeDictionary nodeDict;
 
+	/**
+	 * the set whose graphs are the members of this union, or null if the
+	 * members are not known to be the graphs of a set
+	 */
+	final protected IdBasedNamedGraphSetImpl set;
+
+	/**
+	 * the combined statistics of the member graphs (see
+	 * {@link #getStatistics}), or null
+	 */
+	protected GraphStatistics statistics = null;
+
+	/**
+	 * the modification count of {@link #set} at the time when
+	 * {@link #statistics} have been combined
+	 */
+	protected int statisticsModificationCount;
+
 
 	// initialization
 
@@ -55,6 +76,23 @@ public class IdBasedUnionGraph extends MultiUnion
 		super();
 		this.m_subGraphs = members;
 		this.nodeDict = nodeDict;
+		this.set = null;
+	}
+
+	/**
+	 * Creates a union of the graphs of the given set. The union uses the quad
+	 * index of the set (if any) to estimate cardinalities, and it combines
+	 * the statistics of the graphs only once for every change of the set.
+	 *
+	 * @param set the named graph set
+	 * @param members the (live) list of the graphs of the set
+	 */
+	public IdBasedUnionGraph ( IdBasedNamedGraphSetImpl set, List members )
+	{
+		super();
+		this.m_subGraphs = members;
+		this.nodeDict = set.getNodeDictionary();
+		this.set = set;
 	}
 
 
@@ -96,7 +134,7 @@ public class IdBasedUnionGraph extends MultiUnion
 			return WrappedIterator.create( EmptyIterator.emptyTripleIterator );
 		}
 
-		return new DecodingTriplesIterator( find(sId,pId,oId) );
+		return new DecodingTriplesIterator( find(sId,pId,oId), nodeDict );
 	}
 
 	/* (non-Javadoc)
@@ -143,9 +181,67 @@ public class IdBasedUnionGraph extends MultiUnion
 		return new UnionFindIterator( m_subGraphs, sId, pId, oId );
 	}
 
+	/**
+	 * Returns the sum of the cardinalities in the member graphs (an upper
+	 * bound because a triple may occur in multiple graphs). If the set of the
+	 * members has a quad index, the number of matching quads is taken from
+	 * this index instead of asking every member graph.
+	 *
+	 * @see de.fuberlin.wiwiss.jenaext.IdBasedGraph#getCardinality(int, int, int)
+	 */
+	public int getCardinality ( int sId, int pId, int oId )
+	{
+		if ( set != null && set.quadIndex != null ) {
+			return set.quadIndex.count( -1, sId, pId, oId );
+		}
+
+		long result = 0L;
+		Iterator<Graph> itGraph = m_subGraphs.iterator();
+		while ( itGraph.hasNext() ) {
+			result += ( (IdBasedNamedGraphImpl) itGraph.next() ).getCardinality( sId, pId, oId );
+		}
+		return (int) Math.min( result, Integer.MAX_VALUE );
+	}
+
+	/**
+	 * Returns statistics that aggregate the statistics of the member graphs
+	 * (see {@link CombinedGraphStatistics}). If the members are the graphs of
+	 * a set, the aggregated statistics are kept until the set or one of its
+	 * graphs changes.
+	 *
+	 * @see de.fuberlin.wiwiss.jenaext.IdBasedGraph#getStatistics()
+	 */
+	public synchronized GraphStatistics getStatistics ()
+	{
+		if ( set == null ) {
+			return combineStatistics();
+		}
+
+		int modificationCount = set.modificationCount;
+		if ( statistics == null || statisticsModificationCount != modificationCount )
+		{
+			statistics = combineStatistics();
+			statisticsModificationCount = modificationCount;
+		}
+		return statistics;
+	}
+
 
 	// helpers
 
+	/**
+	 * Aggregates the statistics of the member graphs.
+	 */
+	protected GraphStatistics combineStatistics ()
+	{
+		List<GraphStatistics> members = new ArrayList<GraphStatistics> ();
+		Iterator<Graph> itGraph = m_subGraphs.iterator();
+		while ( itGraph.hasNext() ) {
+			members.add( ((IdBasedNamedGraphImpl) itGraph.next()).getStatistics() );
+		}
+		return new CombinedGraphStatistics( members );
+	}
+
 	/**
 	 * Evaluates a find query (triple pattern query) over a set of RDF graphs
 	 * where the result is a union of the triples found in the graphs.
@@ -160,19 +256,16 @@ public class IdBasedUnionGraph extends MultiUnion
 		final protected int oId;
 
 		/**
-		 * This index stores the matching triples that have already been returned
-		 * in order to skip later occurences of them.
+		 * The matching triples of all but the last graph that have already
+		 * been returned; used to skip later occurences of them. Triples of the
+		 * first graph are not looked up (they cannot have been returned before)
+		 * and triples of the last graph are not recorded (they cannot occur
+		 * again).
 		 */
-		final protected Index<IdBasedTriple> seen = new Index<IdBasedTriple> ();
+		protected IdTripleSet seen = null;
 
-		/**
-		 * Represents the element of the seen triples that is used as index key
-		 * in {@link #seen}.
-		 * 1 for subject, 2 for predicate, 3 for object
-		 */
-		final protected byte seenIndexKey;
-
-		protected Iterator<Graph> itCurrentGraph;
+		/** the position of the current graph in {@link #graphs} */
+		protected int currentGraphIndex = -1;
 		protected Iterator<IdBasedTriple> itCurrentMatch;
 		protected IdBasedTriple currentMatch;
 
@@ -189,14 +282,6 @@ public class IdBasedUnionGraph extends MultiUnion
 			this.sId = sId;
 			this.pId = pId;
 			this.oId = oId;
-
-			if ( sId == -1 ) {
-				seenIndexKey = 1;
-			} else if ( pId == -1 ) {
-				seenIndexKey = 2;
-			} else {
-				seenIndexKey = 3;
-			}
 		}
 
 		/* (non-Javadoc)
@@ -208,27 +293,39 @@ public class IdBasedUnionGraph extends MultiUnion
 				return true;
 			}
 
-			while ( currentMatch == null || hasSeen(currentMatch) )
+			while ( true )
 			{
 				while ( itCurrentMatch == null || ! itCurrentMatch.hasNext() )
 				{
-					if ( itCurrentGraph == null ) {
-						itCurrentGraph = graphs.iterator();
-					}
-
-					if ( ! itCurrentGraph.hasNext() )
-					{
-						currentMatch = null;
+					if ( currentGraphIndex + 1 >= graphs.size() ) {
 						return false;
 					}
 
-					itCurrentMatch = ( (IdBasedNamedGraphImpl) itCurrentGraph.next() ).find( sId, pId, oId );
+					currentGraphIndex++;
+					itCurrentMatch = ( (IdBasedNamedGraphImpl) graphs.get(currentGraphIndex) ).find( sId, pId, oId );
 				}
 
-				currentMatch = itCurrentMatch.next();
-			}
+				IdBasedTriple t = itCurrentMatch.next();
+				boolean isLastGraph = ( currentGraphIndex == graphs.size() - 1 );
+				if ( currentGraphIndex == 0 )
+				{
+					if ( ! isLastGraph ) {
+						getSeen().add( t.s, t.p, t.o );
+					}
+				}
+				else if ( isLastGraph )
+				{
+					if ( getSeen().contains(t.s,t.p,t.o) ) {
+						continue;
+					}
+				}
+				else if ( ! getSeen().add(t.s,t.p,t.o) ) {
+					continue;
+				}
 
-			return true;
+				currentMatch = t;
+				return true;
+			}
 		}
 
 		/* (non-Javadoc)
@@ -240,7 +337,6 @@ public class IdBasedUnionGraph extends MultiUnion
 				throw new NoSuchElementException();
 			}
 
-			recordAsSeen( currentMatch );
 			IdBasedTriple result = currentMatch;
 			currentMatch = null;
 			return result;
@@ -251,36 +347,12 @@ public class IdBasedUnionGraph extends MultiUnion
 		 */
 		public void remove () { throw new UnsupportedOperationException(); }
 
-		protected boolean hasSeen ( IdBasedTriple t )
-		{
-			Iterator<IdBasedTriple> itBucket;
-			if ( seenIndexKey == 1 ) {
-				itBucket = seen.get( t.s );
-			} else if ( seenIndexKey == 2 ) {
-				itBucket = seen.get( t.p );
-			} else {
-				itBucket = seen.get( t.o );
-			}
-
-			while ( itBucket.hasNext() )
-			{
-				if ( itBucket.next().equals(t) ) {
-					return true;
-				}
-			}
-
-			return false;
-		}
-
-		protected void recordAsSeen ( IdBasedTriple t )
+		protected IdTripleSet getSeen ()
 		{
-			if ( seenIndexKey == 1 ) {
-				seen.put( t.s, t );
-			} else if ( seenIndexKey == 2 ) {
-				seen.put( t.p, t );
-			} else {
-				seen.put( t.o, t );
+			if ( seen == null ) {
+				seen = new IdTripleSet();
 			}
+			return seen;
 		}
 	}
 
@@ -0,0 +1,624 @@
+package de.fuberlin.wiwiss.ng4j.impl.idbased;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+
+/**
+ * A main memory index of quads in which the graph name and the subject,
+ * predicate and object of each quad are represented by identifiers (see
+ * {@link de.fuberlin.wiwiss.jenaext.NodeDictionary}). The quads are kept in
+ * four sort orders (GSPO, SPOG, POSG, and OSPG) so that each lookup with at
+ * least one bound component is a range scan in the order whose prefix
+ * covers most of the bound components; e.g. all quads with a given subject,
+ * regardless of the graph, are found by a single range scan in the SPOG
+ * order.
+ *
+ * The sort orders are arrays of row numbers. Quads added since the orders
+ * were sorted the last time are kept in an unsorted delta that is hashed
+ * for membership tests. The delta is merged into the sort orders when it
+ * grows beyond a fraction of the index and before a lookup if it is not
+ * small. Removed quads are marked as deleted and dropped when the index is
+ * compacted.
+ *
+ * This class is not thread-safe.
+ *
+ * @author Olaf Hartig
+ */
+public class QuadIndex
+{
+	// members
+
+	static final public int GSPO = 0;
+	static final public int SPOG = 1;
+	static final public int POSG = 2;
+	static final public int OSPG = 3;
+
+	static final protected int G = 0;
+	static final protected int S = 1;
+	static final protected int P = 2;
+	static final protected int O = 3;
+
+	/** the components of the quads in the order of each sort order */
+	static final protected int[][] ORDERS = { { G, S, P, O },
+	                                          { S, P, O, G },
+	                                          { P, O, S, G },
+	                                          { O, S, P, G } };
+
+	/** the delta is not merged into the sort orders before it reaches this size */
+	static final protected int MIN_DELTA_SIZE = 256;
+
+	/** the quads; row r is stored at positions 4r to 4r+3 (g, s, p, o) */
+	protected int[] quads = new int [4*64];
+
+	/** the number of rows in {@link #quads} */
+	protected int rowCount = 0;
+
+	/** the rows 0 to sortedCount-1 are contained in the sort orders */
+	protected int sortedCount = 0;
+
+	/** orders[i] contains the rows 0 to sortedCount-1 sorted by ORDERS[i] */
+	protected int[][] orders = { new int [0], new int [0], new int [0], new int [0] };
+
+	/**
+	 * open addressing hash table over the rows of the delta (i.e. rows
+	 * sortedCount to rowCount-1); an entry is a row number plus 1, or 0
+	 */
+	protected int[] deltaTable = new int [2*MIN_DELTA_SIZE];
+
+	/** the rows that have been removed */
+	protected BitSet deleted = new BitSet ();
+
+	protected int deletedCount = 0;
+
+
+	// accessors
+
+	/**
+	 * Returns the number of quads in this index.
+	 */
+	public int size ()
+	{
+		return rowCount - deletedCount;
+	}
+
+	/**
+	 * Returns true if this index contains the given quad.
+	 */
+	public boolean contains ( int gId, int sId, int pId, int oId )
+	{
+		return findRow( gId, sId, pId, oId ) != -1;
+	}
+
+
+	// operations
+
+	/**
+	 * Adds the given quad to this index.
+	 *
+	 * @return false if the index already contained the quad
+	 */
+	public boolean add ( int gId, int sId, int pId, int oId )
+	{
+		if ( findRow(gId,sId,pId,oId) != -1 ) {
+			return false;
+		}
+
+		if ( 4*rowCount == quads.length )
+		{
+			int[] newQuads = new int [2*quads.length];
+			System.arraycopy( quads, 0, newQuads, 0, quads.length );
+			quads = newQuads;
+		}
+
+		int row = rowCount++;
+		quads[4*row + G] = gId;
+		quads[4*row + S] = sId;
+		quads[4*row + P] = pId;
+		quads[4*row + O] = oId;
+
+		int deltaSize = rowCount - sortedCount;
+		if ( deltaSize > Math.max(MIN_DELTA_SIZE, sortedCount/8) ) {
+			merge();
+		}
+		else
+		{
+			if ( 2*deltaSize > deltaTable.length ) {
+				rehashDelta( 2*deltaTable.length );
+			}
+			insertIntoDelta( row );
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the given quad from this index.
+	 *
+	 * @return false if the index did not contain the quad
+	 */
+	public boolean remove ( int gId, int sId, int pId, int oId )
+	{
+		int row = findRow( gId, sId, pId, oId );
+		if ( row == -1 ) {
+			return false;
+		}
+
+		markDeleted( row );
+		compactIfNeeded();
+		return true;
+	}
+
+	/**
+	 * Removes all quads of the given graph from this index.
+	 */
+	public void removeGraph ( int gId )
+	{
+		int[] rows = findRows( gId, -1, -1, -1 );
+		for ( int i = 0; i < rows.length; ++i ) {
+			markDeleted( rows[i] );
+		}
+		compactIfNeeded();
+	}
+
+	/**
+	 * Removes all quads from this index.
+	 */
+	public void clear ()
+	{
+		quads = new int [4*64];
+		rowCount = 0;
+		sortedCount = 0;
+		for ( int i = 0; i < orders.length; ++i ) {
+			orders[i] = new int [0];
+		}
+		deltaTable = new int [2*MIN_DELTA_SIZE];
+		deleted.clear();
+		deletedCount = 0;
+	}
+
+	/**
+	 * Returns the quads that match the given pattern; -1 is a wildcard. The
+	 * quads are returned as an array that contains the graph, subject,
+	 * predicate, and object identifier of the first quad, then those of the
+	 * second quad, and so on. Since the array is a copy, the index may be
+	 * modified while the result is processed.
+	 */
+	public int[] find ( int gId, int sId, int pId, int oId )
+	{
+		int[] rows = findRows( gId, sId, pId, oId );
+		int[] result = new int [4*rows.length];
+		for ( int i = 0; i < rows.length; ++i ) {
+			System.arraycopy( quads, 4*rows[i], result, 4*i, 4 );
+		}
+		return result;
+	}
+
+	/**
+	 * Returns an upper bound for the number of quads that match the given
+	 * pattern (-1 is a wildcard) without materializing them. The number is
+	 * exact unless quads have been removed since the last compaction or the
+	 * bound components are not a prefix of any of the sort orders.
+	 */
+	public int count ( int gId, int sId, int pId, int oId )
+	{
+		if ( rowCount - sortedCount > MIN_DELTA_SIZE ) {
+			merge();
+		}
+
+		int[] pattern = { gId, sId, pId, oId };
+		int bestOrder = selectOrder( pattern );
+		int bestPrefix = prefixLength( bestOrder, pattern );
+
+		int count;
+		if ( bestPrefix == 0 ) {
+			count = sortedCount;
+		}
+		else
+		{
+			int[] order = orders[bestOrder];
+			count =   bound( order, ORDERS[bestOrder], bestPrefix, pattern, true )
+			        - bound( order, ORDERS[bestOrder], bestPrefix, pattern, false );
+		}
+
+		for ( int row = sortedCount; row < rowCount; ++row )
+		{
+			if ( ! deleted.get(row) && matches(row,pattern) ) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the identifiers of all graphs that contain a quad in which
+	 * the given node is the subject, the predicate, or the object. The
+	 * returned array is sorted and does not contain duplicates.
+	 */
+	public int[] getGraphs ( int nodeId )
+	{
+		int[] s = findRows( -1, nodeId, -1, -1 );
+		int[] p = findRows( -1, -1, nodeId, -1 );
+		int[] o = findRows( -1, -1, -1, nodeId );
+
+		int[] graphs = new int [s.length + p.length + o.length];
+		int n = 0;
+		for ( int i = 0; i < s.length; ++i ) { graphs[n++] = quads[4*s[i] + G]; }
+		for ( int i = 0; i < p.length; ++i ) { graphs[n++] = quads[4*p[i] + G]; }
+		for ( int i = 0; i < o.length; ++i ) { graphs[n++] = quads[4*o[i] + G]; }
+		Arrays.sort( graphs );
+
+		int distinct = 0;
+		for ( int i = 0; i < n; ++i )
+		{
+			if ( distinct == 0 || graphs[distinct-1] != graphs[i] ) {
+				graphs[distinct++] = graphs[i];
+			}
+		}
+
+		int[] result = new int [distinct];
+		System.arraycopy( graphs, 0, result, 0, distinct );
+		return result;
+	}
+
+
+	// helpers
+
+	/**
+	 * Returns the rows of the (not deleted) quads that match the given
+	 * pattern; -1 is a wildcard.
+	 */
+	protected int[] findRows ( int gId, int sId, int pId, int oId )
+	{
+		if ( rowCount - sortedCount > MIN_DELTA_SIZE ) {
+			merge();
+		}
+
+		int[] pattern = { gId, sId, pId, oId };
+		int bestOrder = selectOrder( pattern );
+		int bestPrefix = prefixLength( bestOrder, pattern );
+
+		int[] order = orders[bestOrder];
+		int from = 0;
+		int to = sortedCount;
+		if ( bestPrefix > 0 )
+		{
+			from = bound( order, ORDERS[bestOrder], bestPrefix, pattern, false );
+			to = bound( order, ORDERS[bestOrder], bestPrefix, pattern, true );
+		}
+
+		int[] result = new int [ (to - from) + (rowCount - sortedCount) ];
+		int n = 0;
+		for ( int i = from; i < to; ++i )
+		{
+			int row = order[i];
+			if ( ! deleted.get(row) && matches(row,pattern) ) {
+				result[n++] = row;
+			}
+		}
+
+		for ( int row = sortedCount; row < rowCount; ++row )
+		{
+			if ( ! deleted.get(row) && matches(row,pattern) ) {
+				result[n++] = row;
+			}
+		}
+
+		if ( n == result.length ) {
+			return result;
+		}
+
+		int[] trimmed = new int [n];
+		System.arraycopy( result, 0, trimmed, 0, n );
+		return trimmed;
+	}
+
+	/**
+	 * Returns the sort order with the longest prefix of bound components of
+	 * the given pattern.
+	 */
+	final protected int selectOrder ( int[] pattern )
+	{
+		int bestOrder = GSPO;
+		int bestPrefix = 0;
+		for ( int i = 0; i < ORDERS.length; ++i )
+		{
+			int prefix = prefixLength( i, pattern );
+			if ( prefix > bestPrefix ) {
+				bestOrder = i;
+				bestPrefix = prefix;
+			}
+		}
+		return bestOrder;
+	}
+
+	/**
+	 * Returns the number of leading components of the given sort order that
+	 * are bound in the given pattern.
+	 */
+	final protected int prefixLength ( int order, int[] pattern )
+	{
+		int prefix = 0;
+		while ( prefix < 4 && pattern[ ORDERS[order][prefix] ] != -1 ) {
+			prefix++;
+		}
+		return prefix;
+	}
+
+	/**
+	 * Returns the row of the given (not deleted) quad, or -1.
+	 */
+	protected int findRow ( int gId, int sId, int pId, int oId )
+	{
+		int[] pattern = { gId, sId, pId, oId };
+
+		int[] order = orders[GSPO];
+		int from = bound( order, ORDERS[GSPO], 4, pattern, false );
+		int to = bound( order, ORDERS[GSPO], 4, pattern, true );
+		for ( int i = from; i < to; ++i )
+		{
+			if ( ! deleted.get(order[i]) ) {
+				return order[i];
+			}
+		}
+
+		int mask = deltaTable.length - 1;
+		int slot = hash( gId, sId, pId, oId ) & mask;
+		while ( deltaTable[slot] != 0 )
+		{
+			int row = deltaTable[slot] - 1;
+			if ( ! deleted.get(row) && matches(row,pattern) ) {
+				return row;
+			}
+			slot = ( slot + 1 ) & mask;
+		}
+
+		return -1;
+	}
+
+	final protected boolean matches ( int row, int[] pattern )
+	{
+		int base = 4*row;
+		for ( int c = 0; c < 4; ++c )
+		{
+			if ( pattern[c] != -1 && quads[base + c] != pattern[c] ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the first position in the given sort order at which the first
+	 * prefixLength components of the quad are not less than (if upper is
+	 * false) or greater than (if upper is true) those of the given pattern.
+	 */
+	final protected int bound ( int[] order, int[] components, int prefixLength, int[] pattern, boolean upper )
+	{
+		int lo = 0;
+		int hi = sortedCount;
+		while ( lo < hi )
+		{
+			int mid = ( lo + hi ) >>> 1;
+			int cmp = comparePrefix( order[mid], components, prefixLength, pattern );
+			if ( cmp < 0 || (upper && cmp == 0) ) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	final protected int comparePrefix ( int row, int[] components, int prefixLength, int[] pattern )
+	{
+		int base = 4*row;
+		for ( int i = 0; i < prefixLength; ++i )
+		{
+			int c = components[i];
+			int v = quads[base + c];
+			if ( v != pattern[c] ) {
+				return ( v < pattern[c] ) ? -1 : 1;
+			}
+		}
+		return 0;
+	}
+
+	final protected int compareRows ( int row1, int row2, int[] components )
+	{
+		int base1 = 4*row1;
+		int base2 = 4*row2;
+		for ( int i = 0; i < 4; ++i )
+		{
+			int c = components[i];
+			int v1 = quads[base1 + c];
+			int v2 = quads[base2 + c];
+			if ( v1 != v2 ) {
+				return ( v1 < v2 ) ? -1 : 1;
+			}
+		}
+		return 0;
+	}
+
+	protected void markDeleted ( int row )
+	{
+		deleted.set( row );
+		deletedCount++;
+	}
+
+	/**
+	 * Compacts the index if more than half of its rows are deleted.
+	 */
+	protected void compactIfNeeded ()
+	{
+		if ( deletedCount > MIN_DELTA_SIZE && 2*deletedCount > rowCount ) {
+			compact();
+		}
+	}
+
+	/**
+	 * Sorts the rows of the delta and merges them into each sort order.
+	 */
+	protected void merge ()
+	{
+		int deltaSize = rowCount - sortedCount;
+		for ( int i = 0; i < ORDERS.length; ++i )
+		{
+			int[] delta = new int [deltaSize];
+			for ( int j = 0; j < deltaSize; ++j ) {
+				delta[j] = sortedCount + j;
+			}
+			sort( delta, 0, deltaSize - 1, ORDERS[i] );
+
+			int[] old = orders[i];
+			int[] merged = new int [rowCount];
+			int a = 0, b = 0, n = 0;
+			while ( a < sortedCount && b < deltaSize )
+			{
+				if ( compareRows(old[a], delta[b], ORDERS[i]) <= 0 ) {
+					merged[n++] = old[a++];
+				} else {
+					merged[n++] = delta[b++];
+				}
+			}
+			while ( a < sortedCount ) { merged[n++] = old[a++]; }
+			while ( b < deltaSize ) { merged[n++] = delta[b++]; }
+			orders[i] = merged;
+		}
+
+		sortedCount = rowCount;
+		deltaTable = new int [2*MIN_DELTA_SIZE];
+	}
+
+	/**
+	 * Drops the deleted rows and rebuilds the sort orders.
+	 */
+	protected void compact ()
+	{
+		int[] newQuads = new int [ Math.max(4*64, 8*(rowCount - deletedCount)) ];
+		int n = 0;
+		for ( int row = 0; row < rowCount; ++row )
+		{
+			if ( ! deleted.get(row) ) {
+				System.arraycopy( quads, 4*row, newQuads, 4*n, 4 );
+				n++;
+			}
+		}
+
+		quads = newQuads;
+		rowCount = n;
+		sortedCount = 0;
+		for ( int i = 0; i < orders.length; ++i ) {
+			orders[i] = new int [0];
+		}
+		deleted.clear();
+		deletedCount = 0;
+		merge();
+	}
+
+	protected void insertIntoDelta ( int row )
+	{
+		int base = 4*row;
+		int mask = deltaTable.length - 1;
+		int slot = hash( quads[base+G], quads[base+S], quads[base+P], quads[base+O] ) & mask;
+		while ( deltaTable[slot] != 0 ) {
+			slot = ( slot + 1 ) & mask;
+		}
+		deltaTable[slot] = row + 1;
+	}
+
+	protected void rehashDelta ( int newSize )
+	{
+		deltaTable = new int [newSize];
+		for ( int row = sortedCount; row < rowCount - 1; ++row ) {
+			insertIntoDelta( row );
+		}
+	}
+
+	static final protected int hash ( int gId, int sId, int pId, int oId )
+	{
+		int h = gId;
+		h = 31 * h + sId;
+		h = 31 * h + pId;
+		h = 31 * h + oId;
+		h ^= ( h >>> 16 );
+		h *= 0x85ebca6b;
+		h ^= ( h >>> 13 );
+		return h;
+	}
+
+	/**
+	 * Sorts the given range of the given array of rows by the given sort
+	 * order (quicksort; insertion sort for small ranges).
+	 */
+	protected void sort ( int[] rows, int lo, int hi, int[] components )
+	{
+		while ( hi - lo > 16 )
+		{
+			int pivot = rows[ (lo + hi) >>> 1 ];
+			int i = lo;
+			int j = hi;
+			while ( i <= j )
+			{
+				while ( compareRows(rows[i], pivot, components) < 0 ) { i++; }
+				while ( compareRows(rows[j], pivot, components) > 0 ) { j--; }
+				if ( i <= j )
+				{
+					int tmp = rows[i];
+					rows[i] = rows[j];
+					rows[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+
+			// recurse into the smaller part, iterate over the larger one
+			if ( j - lo < hi - i ) {
+				sort( rows, lo, j, components );
+				lo = i;
+			} else {
+				sort( rows, i, hi, components );
+				hi = j;
+			}
+		}
+
+		for ( int i = lo + 1; i <= hi; ++i )
+		{
+			int r = rows[i];
+			int j = i - 1;
+			while ( j >= lo && compareRows(rows[j], r, components) > 0 )
+			{
+				rows[j + 1] = rows[j];
+				j--;
+			}
+			rows[j + 1] = r;
+		}
+	}
+
+}
+
+/*
+ * (c) Copyright 2009 - 2010 Christian Bizer (chris@bizer.de)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer. 2. Redistributions in
+ * binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other
+ * materials provided with the distribution. 3. The name of the author may not
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
\ No newline at end of file
@@ -3,6 +3,8 @@ package de.fuberlin.wiwiss.ng4j.semwebclient.graph;
 
 import de.fuberlin.wiwiss.ng4j.impl.idbased.IdBasedNamedGraphSetImpl;
 
+import de.fuberlin.wiwiss.jenaext.impl.NodeDictionaryImpl;
+
 
 /**
  * Named graph set that is particularily well suited for the Semantic Web
@@ -15,7 +17,23 @@ import de.fuberlin.wiwiss.ng4j.impl.idbased.IdBasedNamedGraphSetImpl;
  */
 public class SWClNamedGraphSetImpl extends IdBasedNamedGraphSetImpl
 {
+	// initialization
+
+	public SWClNamedGraphSetImpl ()
+	{
+		super();
+	}
 
+	/**
+	 * @param columnarStorage if true, the graphs of this set store their
+	 *                        triples in columns of identifiers which needs
+	 *                        much less memory for crawled data (see
+	 *                        {@link de.fuberlin.wiwiss.jenaext.impl.ColumnarIdBasedGraphMem})
+	 */
+	public SWClNamedGraphSetImpl ( boolean columnarStorage )
+	{
+		super( new NodeDictionaryImpl(), columnarStorage );
+	}
 }
 
 /*
@@ -0,0 +1,205 @@
+package de.fuberlin.wiwiss.ng4j.trig;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.shared.JenaException;
+
+import de.fuberlin.wiwiss.ng4j.NamedGraphSet;
+import de.fuberlin.wiwiss.ng4j.NamedGraphSetReader;
+import de.fuberlin.wiwiss.ng4j.Quad;
+import de.fuberlin.wiwiss.ng4j.QuadSink;
+
+/**
+ * Reads TriG files using several threads. The document is split after
+ * graph patterns into parts of roughly equal size (see {@link TriGSplitter});
+ * the @prefix directives that precede a part are applied to the part. The
+ * parts are parsed concurrently by {@link StreamingTriGParser}s, while the
+ * calling thread adds the quads of one part after another to the
+ * {@link NamedGraphSet}, in document order. Hence, the NamedGraphSet
+ * does not have to be thread-safe; if it
+ * is an {@link de.fuberlin.wiwiss.ng4j.impl.idbased.IdBasedNamedGraphSetImpl}
+ * read by its bulkRead methods with the language {@link #LANGUAGE}, the
+ * quads are passed to its bulk loader.
+ * <p>
+ * Labelled blank nodes (_:x) and the uniqueness of graph names are
+ * handled for the whole document, like in {@link TriGReader}. If a part
+ * cannot be parsed, the quads of the preceding parts have been added
+ * already.
+ *
+ * @author Richard Cyganiak (richard@cyganiak.de)
+ */
+public class ParallelTriGReader implements NamedGraphSetReader {
+
+	/** The language name under which NamedGraphSet.read() uses this reader */
+	public static final String LANGUAGE = "TRIG-PARALLEL";
+
+	/** The default number of characters after which a part is ended */
+	public static final int DEFAULT_PART_SIZE = 1 << 20;
+
+	private final int threads;
+	private final int partSize;
+
+	/**
+	 * Creates a reader with one thread per available processor.
+	 */
+	public ParallelTriGReader() {
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_PART_SIZE);
+	}
+
+	/**
+	 * @param threads The number of parsing threads
+	 * @param partSize The number of characters after which a part of the
+	 * 		document is ended at the next graph boundary
+	 */
+	public ParallelTriGReader(int threads, int partSize) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("The number of threads must be positive");
+		}
+		this.threads = threads;
+		this.partSize = partSize;
+	}
+
+	public void read(NamedGraphSet namedGraphSet, Reader source,
+			String baseURI, String defaultGraphName) {
+		TriGSplitter splitter = new TriGSplitter(new BufferedReader(source), this.partSize);
+		Set<Node> graphNames = Collections.synchronizedSet(new HashSet<Node>());
+		Map<String,Node> bNodes = new HashMap<String,Node>();
+		// at most two parts per thread are kept in memory
+		LinkedList<Future<Part>> pending = new LinkedList<Future<Part>>();
+		ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+		try {
+			String text;
+			while ((text = splitter.next()) != null) {
+				Part part = new Part(text, splitter.firstLine(), baseURI,
+						defaultGraphName, graphNames, bNodes);
+				pending.add(executor.submit(part));
+				if (pending.size() >= 2 * this.threads) {
+					pending.removeFirst().get().addTo(namedGraphSet);
+				}
+			}
+			while (!pending.isEmpty()) {
+				pending.removeFirst().get().addTo(namedGraphSet);
+			}
+		} catch (IOException ex) {
+			throw new JenaException(ex);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new JenaException(ex);
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new JenaException(cause);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	public void read(NamedGraphSet namedGraphSet, InputStream source,
+			String baseURI, String defaultGraphName) {
+		try {
+			read(namedGraphSet, new InputStreamReader(source, "UTF-8"), baseURI,
+					defaultGraphName);
+		} catch (UnsupportedEncodingException ex) {
+			// UTF-8 is always supported - so this should never happen
+			throw new JenaException(ex);
+		}
+	}
+
+	/**
+	 * A part of a document. Parsing the part collects its graphs and
+	 * quads, which are added to the NamedGraphSet afterwards.
+	 */
+	private static class Part implements Callable<Part>, QuadSink {
+		private final StreamingTriGParser parser;
+		private final List<Node> graphs = new ArrayList<Node>();
+		private final List<Quad> quads = new ArrayList<Quad>();
+
+		Part(String text, int firstLine, String baseURI, String defaultGraphName,
+				Set<Node> graphNames, Map<String,Node> bNodes) {
+			this.parser = new StreamingTriGParser(new StringReader(text),
+					baseURI, defaultGraphName, this, firstLine);
+			this.parser.shareDocumentState(graphNames, bNodes);
+		}
+
+		public Part call() throws IOException {
+			this.parser.parse();
+			return this;
+		}
+
+		public void startGraph(Node graphName) {
+			this.graphs.add(graphName);
+		}
+
+		public void quad(Quad quad) {
+			this.quads.add(quad);
+		}
+
+		public void endGraph(Node graphName) {
+			// don't have to do anything
+		}
+
+		void addTo(NamedGraphSet set) {
+			for (Node graphName : this.graphs) {
+				if (!set.containsGraph(graphName)) {
+					set.createGraph(graphName);
+				}
+			}
+			for (Quad quad : this.quads) {
+				set.addQuad(quad);
+			}
+		}
+	}
+}
+
+/*
+ *  (c) Copyright 2004 - 2010 Christian Bizer (chris@bizer.de)
+ *   All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
@@ -0,0 +1,587 @@
+package de.fuberlin.wiwiss.ng4j.trig;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.hp.hpl.jena.datatypes.RDFDatatype;
+import com.hp.hpl.jena.datatypes.TypeMapper;
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.vocabulary.OWL;
+import com.hp.hpl.jena.vocabulary.RDF;
+
+import de.fuberlin.wiwiss.ng4j.Quad;
+import de.fuberlin.wiwiss.ng4j.QuadSink;
+
+/**
+ * A recursive descent parser for TriG that passes the quads of a document
+ * to a {@link QuadSink} as soon as they are parsed. In contrast to
+ * {@link TriGParser} it does not build an AST for each term; the terms are
+ * turned into Jena nodes directly from the tokens of a {@link TriGTokenizer},
+ * and the nodes of frequent URIs and QNames are taken from a small cache.
+ * <p>
+ * The parser accepts the syntax of trig.g and converts it like
+ * {@link NamedGraphSetPopulator}, except for the deprecated "&gt;- ... -&gt;"
+ * verbs. Errors are reported as {@link TriGException}s.
+ *
+ * @author Richard Cyganiak (richard@cyganiak.de)
+ */
+public class StreamingTriGParser {
+
+	private static final String NS_W3_LOG = "http://www.w3.org/2000/10/swap/log#";
+	private static final Node LOG_IMPLIES = Node.createURI(NS_W3_LOG + "implies");
+	private static final Node LOG_MEANS = Node.createURI(NS_W3_LOG + "means");
+	private static final Node OWL_SAME_AS = Node.createURI(OWL.sameAs.getURI());
+
+	/** The number of entries of the node cache (a power of two) */
+	private static final int CACHE_SIZE = 1024;
+
+	private final TriGTokenizer tokens;
+	private final String base;
+	private final Node defaultGraphName;
+	private final QuadSink sink;
+
+	private final Map<String,String> prefixes = new HashMap<String,String>();
+	private Set<Node> graphNames = new HashSet<Node>();
+	private Map<String,Node> labelledBNodes = new HashMap<String,Node>();
+
+	private Node graphName = null;
+
+	// a direct-mapped cache of the nodes for URIREF and QNAME tokens
+	private final String[] cachedTexts = new String[CACHE_SIZE];
+	private final int[] cachedTypes = new int[CACHE_SIZE];
+	private final Node[] cachedNodes = new Node[CACHE_SIZE];
+
+	/**
+	 * @param source The TriG document
+	 * @param baseURI The base URI for &lt;&gt; and &lt;#...&gt;
+	 * @param defaultGraphName The name of graphs without a name, may be null
+	 * @param sink Receives the graphs and quads
+	 */
+	public StreamingTriGParser(Reader source, String baseURI,
+			String defaultGraphName, QuadSink sink) {
+		this(source, baseURI, defaultGraphName, sink, 1);
+	}
+
+	/**
+	 * @param source A part of a TriG document
+	 * @param baseURI The base URI for &lt;&gt; and &lt;#...&gt;
+	 * @param defaultGraphName The name of graphs without a name, may be null
+	 * @param sink Receives the graphs and quads
+	 * @param firstLine The line of the document at which the part starts;
+	 * 		used in error messages
+	 */
+	public StreamingTriGParser(Reader source, String baseURI,
+			String defaultGraphName, QuadSink sink, int firstLine) {
+		this.tokens = new TriGTokenizer(source, firstLine);
+		this.base = baseURI;
+		this.defaultGraphName = (defaultGraphName == null)
+				? null : Node.createURI(defaultGraphName);
+		this.sink = sink;
+	}
+
+	/**
+	 * Shares the graph names and the labelled blank nodes (_:x) seen so far
+	 * with the parsers of the other parts of a document. The set must be
+	 * thread-safe if the parts are parsed concurrently; the map is
+	 * synchronized on.
+	 *
+	 * @see ParallelTriGReader
+	 */
+	void shareDocumentState(Set<Node> documentGraphNames,
+			Map<String,Node> documentBNodes) {
+		this.graphNames = documentGraphNames;
+		this.labelledBNodes = documentBNodes;
+	}
+
+	/**
+	 * Parses the whole document.
+	 *
+	 * @throws TriGException on syntax errors and illegal terms
+	 */
+	public void parse() throws IOException {
+		next();
+		while (type() != TriGTokenizer.EOF) {
+			if (type() == TriGTokenizer.AT_PREFIX) {
+				directive();
+			} else {
+				namedGraph();
+			}
+		}
+	}
+
+	private void directive() throws IOException {
+		int line = this.tokens.line();
+		if (next() != TriGTokenizer.QNAME
+				|| this.tokens.colon() != this.tokens.length() - 1) {
+			throw unexpected("Illegal prefix");
+		}
+		String prefix = new String(this.tokens.chars(), 0, this.tokens.colon());
+		if (next() != TriGTokenizer.URIREF) {
+			throw error(line, "Prefix directive does not supply a URIref");
+		}
+		String uri = this.tokens.text();
+		if (uri.equals("")) {
+			uri = this.base;
+		} else if (uri.equals("#")) {
+			uri = this.base + "#";
+		}
+		this.prefixes.put(prefix, uri);
+		clearCache();
+		next();
+		expect(TriGTokenizer.SEP);
+	}
+
+	private void namedGraph() throws IOException {
+		Node label = null;
+		if (type() == TriGTokenizer.QNAME || type() == TriGTokenizer.URIREF) {
+			label = resource();
+			next();
+			if (type() == TriGTokenizer.NAME_OP) {
+				next();
+			}
+		}
+		if (type() != TriGTokenizer.LCURLY) {
+			throw unexpected("unexpected token");
+		}
+		int line = this.tokens.line();
+		Node node = (label == null) ? this.defaultGraphName : label;
+		if (label != null && !label.isURI()) {
+			throw error(line, "Graph names must be URIRefs or QNames: '" + label + "'");
+		}
+		if (!this.graphNames.add(node)) {
+			throw error(line, "Graph names must be unique within file: " + node);
+		}
+		this.graphName = node;
+		this.sink.startGraph(node);
+		next();
+		statements();
+		expect(TriGTokenizer.RCURLY);
+		this.sink.endGraph(node);
+		this.graphName = null;
+	}
+
+	private void statements() throws IOException {
+		if (type() == TriGTokenizer.RCURLY) {
+			return;
+		}
+		statement();
+		while (type() == TriGTokenizer.SEP) {
+			next();
+			if (type() != TriGTokenizer.SEP && type() != TriGTokenizer.RCURLY) {
+				statement();
+			}
+		}
+	}
+
+	private void statement() throws IOException {
+		propertyList(item());
+	}
+
+	private void propertyList(Node subject) throws IOException {
+		while (isVerbStart(type())) {
+			propertyValue(subject);
+			if (type() != TriGTokenizer.SEMI) {
+				return;
+			}
+			next();
+		}
+	}
+
+	private void propertyValue(Node subject) throws IOException {
+		boolean reverse = false;
+		Node predicate;
+		switch (type()) {
+		case TriGTokenizer.KW_IS:
+			next();
+			predicate = predicate(node());
+			expect(TriGTokenizer.KW_OF);
+			// is p of o1, o2: the subject is the object of the quads
+			do {
+				emit(item(), predicate, subject);
+			} while (type() == TriGTokenizer.COMMA && next() != TriGTokenizer.EOF);
+			return;
+		case TriGTokenizer.KW_A:
+			next();
+			predicate = RDF.Nodes.type;
+			break;
+		case TriGTokenizer.EQUAL:
+			next();
+			predicate = OWL_SAME_AS;
+			break;
+		case TriGTokenizer.ARROW_R:
+			next();
+			predicate = LOG_IMPLIES;
+			break;
+		case TriGTokenizer.ARROW_L:
+			next();
+			predicate = LOG_IMPLIES;
+			reverse = true;
+			break;
+		case TriGTokenizer.ARROW_MEANS:
+			next();
+			predicate = LOG_MEANS;
+			break;
+		case TriGTokenizer.KW_HAS:
+			next();
+			predicate = predicate(item());
+			break;
+		default:
+			predicate = predicate(item());
+		}
+		// objectList; may be empty and may end with a comma
+		while (isItemStart(type())) {
+			Node object = item();
+			if (reverse) {
+				emit(object, predicate, subject);
+			} else {
+				emit(subject, predicate, object);
+			}
+			if (type() != TriGTokenizer.COMMA) {
+				return;
+			}
+			next();
+		}
+	}
+
+	/**
+	 * A node, or a path which evaluates to a node.
+	 */
+	private Node item() throws IOException {
+		Node node = node();
+		while (true) {
+			if (type() == TriGTokenizer.PATH) {
+				next();
+				Node predicate = predicate(node());
+				Node anon = Node.createAnon();
+				emit(node, predicate, anon);
+				node = anon;
+			} else if (type() == TriGTokenizer.RPATH) {
+				next();
+				Node predicate = predicate(node());
+				Node anon = Node.createAnon();
+				emit(anon, predicate, node);
+				node = anon;
+			} else {
+				return node;
+			}
+		}
+	}
+
+	private Node node() throws IOException {
+		Node result;
+		switch (type()) {
+		case TriGTokenizer.QNAME:
+		case TriGTokenizer.URIREF:
+			result = resource();
+			next();
+			return result;
+		case TriGTokenizer.LBRACK:
+			next();
+			result = Node.createAnon();
+			propertyList(result);
+			expect(TriGTokenizer.RBRACK);
+			return result;
+		case TriGTokenizer.LPAREN:
+			next();
+			return list();
+		case TriGTokenizer.NUMBER:
+			String number = this.tokens.text();
+			RDFDatatype numberType = XSDDatatype.XSDinteger;
+			if (number.indexOf('.') >= 0 || number.indexOf('e') >= 0
+					|| number.indexOf('E') >= 0) {
+				// The choice of XSD:double is for compatibility with N3/cwm.
+				numberType = XSDDatatype.XSDdouble;
+			}
+			next();
+			return Node.createLiteral(number, null, numberType);
+		case TriGTokenizer.STRING:
+			return literal();
+		case TriGTokenizer.VARIABLE:
+			throw error(this.tokens.line(), "Can't map variables to RDF: ?" + this.tokens.text());
+		case TriGTokenizer.KW_THIS:
+			throw error(this.tokens.line(), "Can't map to a resource or literal: this");
+		default:
+			throw unexpected("unexpected token");
+		}
+	}
+
+	private Node list() throws IOException {
+		List<Node> items = new ArrayList<Node>();
+		while (type() != TriGTokenizer.RPAREN) {
+			items.add(item());
+		}
+		next();
+		Node rest = RDF.Nodes.nil;
+		for (int i = items.size() - 1; i >= 0; i--) {
+			Node cell = Node.createAnon();
+			emit(cell, RDF.Nodes.first, items.get(i));
+			emit(cell, RDF.Nodes.rest, rest);
+			rest = cell;
+		}
+		return rest;
+	}
+
+	private Node literal() throws IOException {
+		String text = this.tokens.text();
+		next();
+		// Up to two modifiers: lang tag or datatype. Like in
+		// NamedGraphSetPopulator, the first takes precedence over the second.
+		String lang = null;
+		String datatype = null;
+		for (int i = 0; i < 2; i++) {
+			if (type() == TriGTokenizer.LANG) {
+				if (lang == null) {
+					lang = this.tokens.text();
+				}
+			} else if (type() == TriGTokenizer.DATATYPE) {
+				next();
+				String uri = datatype(text);
+				if (datatype == null) {
+					datatype = uri;
+				}
+			} else {
+				break;
+			}
+			next();
+		}
+		if (datatype == null) {
+			return Node.createLiteral(text, lang, null);
+		}
+		// If there is a datatype, it takes predence over lang tag.
+		RDFDatatype type = TypeMapper.getInstance().getSafeTypeByName(datatype);
+		return Node.createLiteral(text, null, type);
+	}
+
+	/**
+	 * Returns the URI of the datatype given by the current token.
+	 */
+	private String datatype(String literal) {
+		int line = this.tokens.line();
+		if (type() == TriGTokenizer.URIREF) {
+			return expandRelativeURIRef(this.tokens.text());
+		}
+		if (type() != TriGTokenizer.QNAME) {
+			throw error(line, "Must use URIref or QName datatype URI: " + literal);
+		}
+		String qname = this.tokens.text();
+		if (qname.startsWith("_:")) {
+			throw error(line, "Can't use bNode for datatype URI: " + literal + "^^" + qname);
+		}
+		return expandRelativeURIRef(expandPrefix(line, qname));
+	}
+
+	/**
+	 * Returns the node for the current URIREF or QNAME token.
+	 */
+	private Node resource() {
+		int type = type();
+		char[] chars = this.tokens.chars();
+		int length = this.tokens.length();
+		int hash = type;
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + chars[i];
+		}
+		int slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+		String cached = this.cachedTexts[slot];
+		if (cached != null && this.cachedTypes[slot] == type
+				&& equals(cached, chars, length)) {
+			return this.cachedNodes[slot];
+		}
+
+		String text = this.tokens.text();
+		Node result;
+		if (type == TriGTokenizer.URIREF) {
+			result = Node.createURI(expandRelativeURIRef(text));
+		} else if (text.startsWith("_:") && !this.prefixes.containsKey("_")) {
+			// labelled blank nodes are not cached; the map may be shared
+			synchronized (this.labelledBNodes) {
+				result = this.labelledBNodes.get(text);
+				if (result == null) {
+					result = Node.createAnon();
+					this.labelledBNodes.put(text, result);
+				}
+			}
+			return result;
+		} else {
+			result = Node.createURI(expandRelativeURIRef(
+					expandPrefix(this.tokens.line(), text)));
+		}
+		this.cachedTexts[slot] = text;
+		this.cachedTypes[slot] = type;
+		this.cachedNodes[slot] = result;
+		return result;
+	}
+
+	private Node predicate(Node node) {
+		if (!node.isURI()) {
+			throw error(this.tokens.line(), "Properties must be URIrefs: " + node);
+		}
+		return node;
+	}
+
+	private void emit(Node subject, Node predicate, Node object) {
+		this.sink.quad(new Quad(this.graphName, subject, predicate, object));
+	}
+
+	private String expandPrefix(int line, String qname) {
+		int colon = qname.indexOf(':');
+		String uri = this.prefixes.get(qname.substring(0, colon));
+		if (uri == null) {
+			throw error(line, "Undefined qname namespace: " + qname);
+		}
+		return uri + qname.substring(colon + 1);
+	}
+
+	// Expand shorthand forms (not QNames) for URIrefs, like
+	// NamedGraphSetPopulator: <>, <#> and <#...>
+	private String expandRelativeURIRef(String text) {
+		if (text.equals("") || text.startsWith("#")) {
+			return this.base + text;
+		}
+		return text;
+	}
+
+	private void clearCache() {
+		for (int i = 0; i < CACHE_SIZE; i++) {
+			this.cachedTexts[i] = null;
+			this.cachedNodes[i] = null;
+		}
+	}
+
+	private int type() {
+		return this.tokens.type();
+	}
+
+	private int next() throws IOException {
+		return this.tokens.next();
+	}
+
+	private void expect(int type) throws IOException {
+		if (type() != type) {
+			throw unexpected("unexpected token");
+		}
+		next();
+	}
+
+	private TriGException unexpected(String message) {
+		return new TriGException("TriG error: [" + this.tokens.line() + ":"
+				+ this.tokens.column() + "] " + message + ": " + describe());
+	}
+
+	private String describe() {
+		switch (type()) {
+		case TriGTokenizer.EOF: return "end of file";
+		case TriGTokenizer.URIREF: return "<" + this.tokens.text() + ">";
+		case TriGTokenizer.STRING: return "\"" + this.tokens.text() + "\"";
+		case TriGTokenizer.LANG: return "@" + this.tokens.text();
+		case TriGTokenizer.VARIABLE: return "?" + this.tokens.text();
+		case TriGTokenizer.QNAME:
+		case TriGTokenizer.NUMBER: return this.tokens.text();
+		case TriGTokenizer.AT_PREFIX: return "@prefix";
+		case TriGTokenizer.DATATYPE: return "^^";
+		case TriGTokenizer.NAME_OP: return ":-";
+		case TriGTokenizer.KW_A: return "a";
+		case TriGTokenizer.KW_IS: return "is";
+		case TriGTokenizer.KW_OF: return "of";
+		case TriGTokenizer.KW_HAS: return "has";
+		case TriGTokenizer.KW_THIS: return "this";
+		case TriGTokenizer.SEP: return ".";
+		case TriGTokenizer.PATH: return "!";
+		case TriGTokenizer.RPATH: return "^";
+		case TriGTokenizer.LBRACK: return "[";
+		case TriGTokenizer.RBRACK: return "]";
+		case TriGTokenizer.LPAREN: return "(";
+		case TriGTokenizer.RPAREN: return ")";
+		case TriGTokenizer.LCURLY: return "{";
+		case TriGTokenizer.RCURLY: return "}";
+		case TriGTokenizer.SEMI: return ";";
+		case TriGTokenizer.COMMA: return ",";
+		case TriGTokenizer.EQUAL: return "=";
+		case TriGTokenizer.ARROW_R: return "=>";
+		case TriGTokenizer.ARROW_L: return "<=";
+		default: return "<=>";
+		}
+	}
+
+	private static TriGException error(int line, String message) {
+		return new TriGException("Line " + line + ": " + message);
+	}
+
+	private static boolean isItemStart(int type) {
+		switch (type) {
+		case TriGTokenizer.QNAME:
+		case TriGTokenizer.URIREF:
+		case TriGTokenizer.LBRACK:
+		case TriGTokenizer.LPAREN:
+		case TriGTokenizer.NUMBER:
+		case TriGTokenizer.STRING:
+		case TriGTokenizer.VARIABLE:
+		case TriGTokenizer.KW_THIS:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private static boolean isVerbStart(int type) {
+		switch (type) {
+		case TriGTokenizer.KW_A:
+		case TriGTokenizer.KW_IS:
+		case TriGTokenizer.KW_HAS:
+		case TriGTokenizer.EQUAL:
+		case TriGTokenizer.ARROW_R:
+		case TriGTokenizer.ARROW_L:
+		case TriGTokenizer.ARROW_MEANS:
+			return true;
+		default:
+			return isItemStart(type);
+		}
+	}
+
+	private static boolean equals(String s, char[] chars, int length) {
+		if (s.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (s.charAt(i) != chars[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
+
+/*
+ *  (c) Copyright 2004 - 2010 Christian Bizer (chris@bizer.de)
+ *   All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
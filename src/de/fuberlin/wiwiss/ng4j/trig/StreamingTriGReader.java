@@ -0,0 +1,75 @@
+package de.fuberlin.wiwiss.ng4j.trig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+
+import com.hp.hpl.jena.shared.JenaException;
+
+import de.fuberlin.wiwiss.ng4j.NamedGraphSet;
+import de.fuberlin.wiwiss.ng4j.NamedGraphSetReader;
+import de.fuberlin.wiwiss.ng4j.impl.NamedGraphSetSink;
+
+/**
+ * Reads TriG files into {@link NamedGraphSet}s using the
+ * {@link StreamingTriGParser}. This is the reader that NamedGraphSet.read()
+ * uses for the language "TRIG"; {@link TriGReader} reads the same files
+ * with the ANTLR generated parser. The streaming parser does not support
+ * the deprecated "&gt;- ... -&gt;" verbs; documents that use them can be
+ * read with the language {@link TriGReader#LANGUAGE} ("TRIG-ANTLR").
+ *
+ * @author Richard Cyganiak (richard@cyganiak.de)
+ */
+public class StreamingTriGReader implements NamedGraphSetReader {
+
+	public void read(NamedGraphSet namedGraphSet, Reader source,
+			String baseURI, String defaultGraphName) {
+		try {
+			new StreamingTriGParser(source, baseURI, defaultGraphName,
+					new NamedGraphSetSink(namedGraphSet)).parse();
+		} catch (IOException ex) {
+			throw new JenaException(ex);
+		}
+	}
+
+	public void read(NamedGraphSet namedGraphSet, InputStream source,
+			String baseURI, String defaultGraphName) {
+		try {
+			read(namedGraphSet, new InputStreamReader(source, "UTF-8"), baseURI,
+					defaultGraphName);
+		} catch (UnsupportedEncodingException ex) {
+			// UTF-8 is always supported - so this should never happen
+			throw new JenaException(ex);
+		}
+	}
+}
+
+/*
+ *  (c) Copyright 2004 - 2010 Christian Bizer (chris@bizer.de)
+ *   All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
@@ -17,12 +17,18 @@ import de.fuberlin.wiwiss.ng4j.NamedGraphSetReader;
 /**
  * Reads TriG files (see
  * <a href="http://www.wiwiss.fu-berlin.de/suhl/bizer/TriG/">TriG
- * specification</a>) into {@link NamedGraphSet}s.
+ * specification</a>) into {@link NamedGraphSet}s using the ANTLR
+ * generated parser. NamedGraphSet.read() uses this reader for the
+ * language {@link #LANGUAGE}; the language "TRIG" is read by the faster
+ * {@link StreamingTriGReader}.
  *
  * @author Richard Cyganiak (richard@cyganiak.de)
  */
 public class TriGReader implements NamedGraphSetReader {
 
+	/** The language name under which NamedGraphSet.read() uses this reader */
+	public static final String LANGUAGE = "TRIG-ANTLR";
+
 	public void read(NamedGraphSet namedGraphSet, Reader source,
 			String baseURI, String defaultGraphName) {
 		try {
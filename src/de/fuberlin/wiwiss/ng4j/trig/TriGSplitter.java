@@ -0,0 +1,362 @@
+package de.fuberlin.wiwiss.ng4j.trig;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Splits a TriG document into parts that can be parsed independently.
+ * A part ends after a graph pattern ("}" at the top level) once it has
+ * reached a given size. Each part is prefixed with the directives that
+ * occur before it and still matter, all on the first line: a @prefix
+ * directive replaces an earlier one for the same prefix, and a @base
+ * directive stays in front of the directives that follow it in the
+ * document. To keep the line numbers in
+ * error messages in line with those of the document, the part has to be
+ * parsed with {@link #firstLine()} as the number of its first line.
+ * <p>
+ * The splitter only tracks which characters belong to comments, strings,
+ * and URIs; it does not check the syntax. Like the TriG lexer, it takes
+ * "&lt;" for the start of a URI unless it is followed by "=", and a URI
+ * ends at the next "&gt;" or line break.
+ *
+ * @author Richard Cyganiak (richard@cyganiak.de)
+ */
+class TriGSplitter {
+	private final PushbackReader in;
+	private final int partSize;
+
+	private static final String BASE_KEY = "@base";
+
+	/** the directives seen so far that still matter, in document order */
+	private final List<String> directives = new ArrayList<String>();
+
+	private int line = 1;
+	private int depth = 0;
+	private boolean inComment = false;
+	private boolean inURI = false;
+	/** the quote character of the current string, or 0 outside strings */
+	private char quote = 0;
+	private boolean longString = false;
+	private int closingQuotes = 0;
+	private boolean escaped = false;
+	/** the directive that is read currently, or null */
+	private StringBuilder directive = null;
+	private boolean directiveHasURI = false;
+	private boolean finished = false;
+	/** the document line of the first line of the last part */
+	private int firstLine = 1;
+
+	/**
+	 * @param source The document
+	 * @param partSize The number of characters after which a part is
+	 * 		ended at the next graph boundary
+	 */
+	public TriGSplitter(Reader source, int partSize) {
+		this.in = new PushbackReader(source, 2);
+		this.partSize = partSize;
+	}
+
+	/**
+	 * Returns the next part of the document, or null if the whole document
+	 * has been read.
+	 */
+	public String next() throws IOException {
+		if (this.finished) {
+			return null;
+		}
+		int startLine = this.line;
+		String prologue = prologue();
+		StringBuilder part = new StringBuilder();
+		int c;
+		while ((c = this.in.read()) != -1) {
+			if (scan((char) c, part) && part.length() >= this.partSize) {
+				return text(prologue, startLine, part);
+			}
+		}
+		this.finished = true;
+		for (int i = 0; i < part.length(); i++) {
+			if (!Character.isWhitespace(part.charAt(i))) {
+				return text(prologue, startLine, part);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the line of the document that corresponds to the first line
+	 * (i.e. the directives) of the part that has been returned by
+	 * {@link #next()} last. The text of the part starts on the next line.
+	 */
+	public int firstLine() {
+		return this.firstLine;
+	}
+
+	/**
+	 * Appends the given character to the given part and updates the state.
+	 *
+	 * @return true if the character ends a graph pattern
+	 */
+	private boolean scan(char c, StringBuilder part) throws IOException {
+		part.append(c);
+		if (c == '\n') {
+			this.line++;
+		}
+		if (this.inComment) {
+			if (c == '\n' || c == '\r') {
+				this.inComment = false;
+			}
+			return false;
+		}
+		if (c == '#' && this.quote == 0 && !this.inURI) {
+			this.inComment = true;
+			return false;
+		}
+		if (this.directive != null) {
+			this.directive.append(c);
+		}
+		if (this.quote != 0) {
+			scanString(c);
+			return false;
+		}
+		if (this.inURI) {
+			if (c == '>') {
+				this.inURI = false;
+				this.directiveHasURI = (this.directive != null);
+			} else if (c == '\n' || c == '\r') {
+				this.inURI = false;
+			}
+			return false;
+		}
+		switch (c) {
+		case '<':
+			int next = this.in.read();
+			unread(next);
+			this.inURI = (next != '=');
+			return false;
+		case '"':
+		case '\'':
+			startString(c, part);
+			return false;
+		case '{':
+			this.depth++;
+			return false;
+		case '}':
+			return --this.depth == 0;
+		case '@':
+			if (this.depth == 0 && this.directive == null) {
+				this.directive = new StringBuilder("@");
+				this.directiveHasURI = false;
+			}
+			return false;
+		case '.':
+			if (this.directive != null && this.directiveHasURI) {
+				addDirective(this.directive.toString());
+				this.directive = null;
+			}
+			return false;
+		default:
+			return false;
+		}
+	}
+
+	private void startString(char q, StringBuilder part) throws IOException {
+		int second = this.in.read();
+		if (second != q) {
+			unread(second);
+			this.quote = q;
+			this.longString = false;
+			return;
+		}
+		int third = this.in.read();
+		if (third != q) {
+			// an empty string
+			unread(third);
+			append(q, part);
+			return;
+		}
+		append(q, part);
+		append(q, part);
+		this.quote = q;
+		this.longString = true;
+		this.closingQuotes = 0;
+	}
+
+	private void scanString(char c) {
+		if (this.escaped) {
+			this.escaped = false;
+			this.closingQuotes = 0;
+		} else if (c == '\\') {
+			this.escaped = true;
+			this.closingQuotes = 0;
+		} else if (c != this.quote) {
+			this.closingQuotes = 0;
+		} else if (!this.longString || ++this.closingQuotes == 3) {
+			this.quote = 0;
+		}
+	}
+
+	private void append(char c, StringBuilder part) {
+		part.append(c);
+		if (this.directive != null) {
+			this.directive.append(c);
+		}
+	}
+
+	private void unread(int c) throws IOException {
+		if (c != -1) {
+			this.in.unread(c);
+		}
+	}
+
+	/**
+	 * Adds a directive to the end of the prologue, so that it follows the
+	 * @base directives it depends on. A @prefix directive replaces the
+	 * earlier one for the same prefix. An earlier @base directive is
+	 * dropped once no directive depends on it any more, that is, when it
+	 * is directly followed by a @base directive with an absolute URI.
+	 */
+	private void addDirective(String text) {
+		text = normalize(text);
+		String key = directiveKey(text);
+		if (!BASE_KEY.equals(key)) {
+			Iterator<String> it = this.directives.iterator();
+			while (it.hasNext()) {
+				if (key.equals(directiveKey(it.next()))) {
+					it.remove();
+				}
+			}
+		}
+		this.directives.add(text);
+		for (int i = this.directives.size() - 2; i >= 0; i--) {
+			if (BASE_KEY.equals(directiveKey(this.directives.get(i)))
+					&& BASE_KEY.equals(directiveKey(this.directives.get(i + 1)))
+					&& isAbsolute(this.directives.get(i + 1))) {
+				this.directives.remove(i);
+			}
+		}
+	}
+
+	/**
+	 * Replaces each run of whitespace outside the URI of a directive by a
+	 * single space.
+	 */
+	private static String normalize(String directive) {
+		StringBuilder result = new StringBuilder(directive.length());
+		boolean inURI = false;
+		boolean space = false;
+		for (int i = 0; i < directive.length(); i++) {
+			char c = directive.charAt(i);
+			if (!inURI && Character.isWhitespace(c)) {
+				space = true;
+				continue;
+			}
+			if (space && result.length() > 0) {
+				result.append(' ');
+			}
+			space = false;
+			if (c == '<') {
+				inURI = true;
+			} else if (c == '>') {
+				inURI = false;
+			}
+			result.append(c);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Returns the keyword and, for a @prefix directive, the prefix with
+	 * its colon; the whole directive for unknown directives.
+	 */
+	private static String directiveKey(String directive) {
+		if (directive.startsWith(BASE_KEY)
+				&& !Character.isLetterOrDigit(charAt(directive, BASE_KEY.length()))) {
+			return BASE_KEY;
+		}
+		int uri = directive.indexOf('<');
+		int colon = directive.indexOf(':');
+		if (colon == -1 || (uri != -1 && uri < colon)) {
+			return directive;
+		}
+		return directive.substring(0, colon).trim() + ":";
+	}
+
+	/**
+	 * @return true if the URI of the given @base directive has a scheme
+	 */
+	private static boolean isAbsolute(String directive) {
+		int start = directive.indexOf('<') + 1;
+		int end = directive.indexOf('>', start);
+		if (start == 0 || end == -1) {
+			return false;
+		}
+		String uri = directive.substring(start, end);
+		int colon = uri.indexOf(':');
+		if (colon < 1 || !Character.isLetter(uri.charAt(0))) {
+			return false;
+		}
+		for (int i = 1; i < colon; i++) {
+			char c = uri.charAt(i);
+			if (!Character.isLetterOrDigit(c) && c != '+' && c != '-' && c != '.') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static char charAt(String s, int index) {
+		return (index < s.length()) ? s.charAt(index) : ' ';
+	}
+
+	private String prologue() {
+		StringBuilder result = new StringBuilder();
+		Iterator<String> it = this.directives.iterator();
+		while (it.hasNext()) {
+			result.append(it.next());
+			result.append(' ');
+		}
+		return result.toString();
+	}
+
+	private String text(String prologue, int startLine, StringBuilder part) {
+		this.firstLine = startLine - 1;
+		StringBuilder result = new StringBuilder(
+				prologue.length() + 1 + part.length());
+		result.append(prologue);
+		result.append('\n');
+		result.append(part);
+		return result.toString();
+	}
+}
+
+/*
+ *  (c) Copyright 2004 - 2010 Christian Bizer (chris@bizer.de)
+ *   All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
@@ -0,0 +1,285 @@
+package de.fuberlin.wiwiss.ng4j.trig;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.shared.JenaException;
+
+import de.fuberlin.wiwiss.ng4j.Quad;
+import de.fuberlin.wiwiss.ng4j.QuadSink;
+
+/**
+ * A {@link QuadSink} that writes the graphs and quads it receives as TriG,
+ * one statement per line. In contrast to {@link TriGWriter} it keeps only
+ * the names of the written graphs in memory, so it can write documents
+ * of any size, e.g. when converting a TriX file:
+ * <pre>
+ * TriGStreamWriter out = new TriGStreamWriter(writer);
+ * new TriXParser().parse(in, baseURI, new QuadSinkCallback(defaultGraphName, out));
+ * out.flush();
+ * </pre>
+ * URIs that start with the URI of a namespace added before the first
+ * graph are written as QNames. The quads of a graph must be received
+ * one after another; a quad of another graph than the current one ends
+ * the current graph. Since graph names must be unique within a TriG
+ * document, a graph that has been ended cannot be started again; the
+ * writer throws an IllegalStateException for quads of such a graph. Blank node
+ * labels are escaped so that they are valid TriG names.
+ *
+ * @author Richard Cyganiak (richard@cyganiak.de)
+ */
+public class TriGStreamWriter implements QuadSink {
+	private final Writer writer;
+	private final List<String> prefixes = new ArrayList<String>();
+	private final List<String> namespaces = new ArrayList<String>();
+	private boolean prefixesWritten = false;
+	private Node currentGraph = null;
+	private final Set<Node> writtenGraphs = new HashSet<Node>();
+
+	public TriGStreamWriter(Writer out) {
+		this.writer = new BufferedWriter(out);
+	}
+
+	/**
+	 * Writes UTF-8 to an OutputStream.
+	 */
+	public TriGStreamWriter(OutputStream out) {
+		this(createUTF8Writer(out));
+	}
+
+	/**
+	 * Adds a namespace prefix. Must be called before the first graph.
+	 * @param prefix The namespace prefix
+	 * @param namespaceURI The full namespace URI
+	 */
+	public void addNamespace(String prefix, String namespaceURI) {
+		if (this.prefixesWritten) {
+			throw new IllegalStateException("Namespaces must be added before the first graph");
+		}
+		this.prefixes.add(prefix);
+		this.namespaces.add(namespaceURI);
+	}
+
+	/**
+	 * Starts a graph, ending the current graph, if any.
+	 * @throws IllegalStateException if the graph has been written already
+	 */
+	public void startGraph(Node graphName) {
+		if (this.writtenGraphs.contains(graphName)) {
+			throw new IllegalStateException("The quads of a graph must be received one after another; graph "
+					+ graphName + " has been written already");
+		}
+		endGraph(this.currentGraph);
+		this.writtenGraphs.add(graphName);
+		try {
+			if (!this.prefixesWritten) {
+				writePrefixes();
+			}
+			writeNode(graphName);
+			this.writer.write(" {\n");
+			this.currentGraph = graphName;
+		} catch (IOException ex) {
+			throw new JenaException(ex);
+		}
+	}
+
+	public void quad(Quad quad) {
+		if (!quad.getGraphName().equals(this.currentGraph)) {
+			startGraph(quad.getGraphName());
+		}
+		try {
+			this.writer.write('\t');
+			writeNode(quad.getSubject());
+			this.writer.write(' ');
+			writeNode(quad.getPredicate());
+			this.writer.write(' ');
+			writeNode(quad.getObject());
+			this.writer.write(" .\n");
+		} catch (IOException ex) {
+			throw new JenaException(ex);
+		}
+	}
+
+	public void endGraph(Node graphName) {
+		if (this.currentGraph == null) {
+			return;
+		}
+		try {
+			this.writer.write("}\n");
+			this.currentGraph = null;
+		} catch (IOException ex) {
+			throw new JenaException(ex);
+		}
+	}
+
+	/**
+	 * Ends the current graph, if any, and flushes the underlying writer.
+	 */
+	public void flush() {
+		endGraph(this.currentGraph);
+		try {
+			this.writer.flush();
+		} catch (IOException ex) {
+			throw new JenaException(ex);
+		}
+	}
+
+	private void writePrefixes() throws IOException {
+		for (int i = 0; i < this.prefixes.size(); i++) {
+			this.writer.write("@prefix " + this.prefixes.get(i) + ": <"
+					+ this.namespaces.get(i) + "> .\n");
+		}
+		if (!this.prefixes.isEmpty()) {
+			this.writer.write('\n');
+		}
+		this.prefixesWritten = true;
+	}
+
+	private void writeNode(Node node) throws IOException {
+		if (node.isURI()) {
+			writeURI(node.getURI());
+		} else if (node.isBlank()) {
+			writeBlankNode(node.getBlankNodeLabel());
+		} else if (node.isLiteral()) {
+			writeLiteral(node);
+		} else {
+			throw new JenaException("Cannot write " + node + " as TriG");
+		}
+	}
+
+	private void writeURI(String uri) throws IOException {
+		for (int i = 0; i < this.namespaces.size(); i++) {
+			String namespace = this.namespaces.get(i);
+			if (uri.startsWith(namespace)
+					&& isLocalName(uri, namespace.length())) {
+				this.writer.write(this.prefixes.get(i));
+				this.writer.write(':');
+				this.writer.write(uri, namespace.length(),
+						uri.length() - namespace.length());
+				return;
+			}
+		}
+		this.writer.write('<');
+		this.writer.write(uri);
+		this.writer.write('>');
+	}
+
+	/**
+	 * Writes "_:b" followed by the label; characters other than ASCII
+	 * letters and digits, and the escape character 'x' itself, are
+	 * written as 'x' and four hex digits.
+	 */
+	private void writeBlankNode(String label) throws IOException {
+		this.writer.write("_:b");
+		for (int i = 0; i < label.length(); i++) {
+			char c = label.charAt(i);
+			if (c != 'x' && (isLetter(c) || isDigit(c))) {
+				this.writer.write(c);
+			} else {
+				this.writer.write('x');
+				String hex = Integer.toHexString(c);
+				for (int j = hex.length(); j < 4; j++) {
+					this.writer.write('0');
+				}
+				this.writer.write(hex);
+			}
+		}
+	}
+
+	private void writeLiteral(Node node) throws IOException {
+		String value = node.getLiteralLexicalForm();
+		this.writer.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '\\': this.writer.write("\\\\"); break;
+				case '"': this.writer.write("\\\""); break;
+				case '\n': this.writer.write("\\n"); break;
+				case '\r': this.writer.write("\\r"); break;
+				case '\t': this.writer.write("\\t"); break;
+				default: this.writer.write(c);
+			}
+		}
+		this.writer.write('"');
+		String datatypeURI = node.getLiteralDatatypeURI();
+		String language = node.getLiteralLanguage();
+		if (datatypeURI != null) {
+			this.writer.write("^^");
+			writeURI(datatypeURI);
+		} else if (language != null && !"".equals(language)) {
+			this.writer.write('@');
+			this.writer.write(language);
+		}
+	}
+
+	/**
+	 * Local names of QNames are restricted to ASCII letters, digits and
+	 * '_', and must not start with a digit.
+	 */
+	private static boolean isLocalName(String uri, int start) {
+		if (start == uri.length() || isDigit(uri.charAt(start))) {
+			return false;
+		}
+		for (int i = start; i < uri.length(); i++) {
+			char c = uri.charAt(i);
+			if (!isLetter(c) && !isDigit(c) && c != '_') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isLetter(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static Writer createUTF8Writer(OutputStream out) {
+		try {
+			return new OutputStreamWriter(out, "UTF-8");
+		} catch (UnsupportedEncodingException ex) {
+			// UTF-8 is always supported - so this should never happen
+			throw new JenaException(ex);
+		}
+	}
+}
+
+/*
+ *  (c) Copyright 2004 - 2010 Christian Bizer (chris@bizer.de)
+ *   All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
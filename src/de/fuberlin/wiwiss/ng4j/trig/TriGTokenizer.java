@@ -0,0 +1,559 @@
+package de.fuberlin.wiwiss.ng4j.trig;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Splits a TriG document into tokens. This is a hand-written replacement
+ * for the lexer generated from trig.g that recognizes the same tokens.
+ * The tokenizer reads the document through a char buffer and keeps the
+ * text of the current token in a reusable char array; no objects are
+ * created per token unless the text is requested as a String.
+ * <p>
+ * The text of a URI excludes the angle brackets, the text of a string is
+ * unescaped and excludes the quotes, and the text of a language tag
+ * excludes the "@".
+ *
+ * @author Richard Cyganiak (richard@cyganiak.de)
+ */
+final class TriGTokenizer {
+	static final int EOF = 0;
+	static final int URIREF = 1;
+	static final int QNAME = 2;
+	static final int NUMBER = 3;
+	static final int STRING = 4;
+	static final int LANG = 5;
+	static final int AT_PREFIX = 6;
+	static final int DATATYPE = 7;
+	static final int NAME_OP = 8;
+	static final int KW_A = 9;
+	static final int KW_IS = 10;
+	static final int KW_OF = 11;
+	static final int KW_HAS = 12;
+	static final int KW_THIS = 13;
+	static final int VARIABLE = 14;
+	static final int SEP = 15;
+	static final int PATH = 16;
+	static final int RPATH = 17;
+	static final int LBRACK = 18;
+	static final int RBRACK = 19;
+	static final int LPAREN = 20;
+	static final int RPAREN = 21;
+	static final int LCURLY = 22;
+	static final int RCURLY = 23;
+	static final int SEMI = 24;
+	static final int COMMA = 25;
+	static final int EQUAL = 26;
+	static final int ARROW_R = 27;
+	static final int ARROW_L = 28;
+	static final int ARROW_MEANS = 29;
+
+	private final Reader in;
+	private final char[] buffer = new char[8192];
+	private int pos = 0;
+	private int limit = 0;
+
+	private int line = 1;
+	private int column = 1;
+	private int tokenLine;
+	private int tokenColumn;
+
+	private int type;
+	private char[] text = new char[256];
+	private int length;
+	/** The position of the colon in the text of a QNAME */
+	private int colon;
+
+	public TriGTokenizer(Reader in) {
+		this(in, 1);
+	}
+
+	/**
+	 * @param in The input
+	 * @param firstLine The line number of the first line of the input, for
+	 * 		inputs that are a part of a larger document
+	 */
+	public TriGTokenizer(Reader in, int firstLine) {
+		this.in = in;
+		this.line = firstLine;
+	}
+
+	/**
+	 * Reads the next token and returns its type.
+	 */
+	public int next() throws IOException {
+		skipWhitespaceAndComments();
+		this.tokenLine = this.line;
+		this.tokenColumn = this.column;
+		this.length = 0;
+		this.type = readToken();
+		return this.type;
+	}
+
+	public int type() {
+		return this.type;
+	}
+
+	/** The line of the current token */
+	public int line() {
+		return this.tokenLine;
+	}
+
+	/** The column of the current token */
+	public int column() {
+		return this.tokenColumn;
+	}
+
+	/**
+	 * The text of the current token; only the first {@link #length()}
+	 * characters are valid.
+	 */
+	public char[] chars() {
+		return this.text;
+	}
+
+	public int length() {
+		return this.length;
+	}
+
+	public String text() {
+		return new String(this.text, 0, this.length);
+	}
+
+	/** The position of the colon in the text of a QNAME token */
+	public int colon() {
+		return this.colon;
+	}
+
+	private int readToken() throws IOException {
+		int c = peek(0);
+		switch (c) {
+		case -1:
+			return EOF;
+		case '<':
+			if (peek(1) == '=') {
+				if (peek(2) == '>') {
+					skip(3);
+					return ARROW_MEANS;
+				}
+				skip(2);
+				return ARROW_L;
+			}
+			return readURI();
+		case '"':
+		case '\'':
+			return readString((char) c);
+		case '@':
+			return readAtWord();
+		case '?':
+			skip(1);
+			readAlphanumerics();
+			if (this.length == 0) {
+				throw error("Illegal variable");
+			}
+			return VARIABLE;
+		case '.':
+			skip(1);
+			// ".x", ".:x", and ".<x>" are paths like "!x"
+			c = peek(0);
+			return (isAlpha(c) || c == '_' || c == ':' || c == '<') ? PATH : SEP;
+		case '!':
+			skip(1);
+			return PATH;
+		case '^':
+			if (peek(1) == '^') {
+				skip(2);
+				return DATATYPE;
+			}
+			skip(1);
+			return RPATH;
+		case '[':
+			skip(1);
+			return LBRACK;
+		case ']':
+			skip(1);
+			return RBRACK;
+		case '(':
+			skip(1);
+			return LPAREN;
+		case ')':
+			skip(1);
+			return RPAREN;
+		case '{':
+			skip(1);
+			return LCURLY;
+		case '}':
+			skip(1);
+			return RCURLY;
+		case ';':
+			skip(1);
+			return SEMI;
+		case ',':
+			skip(1);
+			return COMMA;
+		case '=':
+			if (peek(1) == '>') {
+				skip(2);
+				return ARROW_R;
+			}
+			skip(1);
+			return EQUAL;
+		default:
+			return readThing();
+		}
+	}
+
+	/**
+	 * Reads a QNAME, NAME_OP, NUMBER, or keyword.
+	 */
+	private int readThing() throws IOException {
+		int c = peek(0);
+		if (c == ':' && peek(1) == '-') {
+			skip(2);
+			return NAME_OP;
+		}
+		boolean signed = (c == '+');
+		if (signed) {
+			append((char) read());
+		}
+		readNameChars();
+		if (peek(0) == ':' && !signed) {
+			this.colon = this.length;
+			append((char) read());
+			readNameChars();
+			return QNAME;
+		}
+		if (this.length > 0 && isNumberStart(this.text[0])) {
+			return readNumber();
+		}
+		if (this.length == 0) {
+			throw error("Unexpected character: '" + (char) c + "'");
+		}
+		String word = text();
+		if ("a".equals(word)) {
+			return KW_A;
+		} else if ("is".equals(word)) {
+			return KW_IS;
+		} else if ("of".equals(word)) {
+			return KW_OF;
+		} else if ("has".equals(word)) {
+			return KW_HAS;
+		} else if ("this".equals(word)) {
+			return KW_THIS;
+		}
+		throw error("Unexpected name: '" + word + "'");
+	}
+
+	/**
+	 * Completes a number whose first characters have been read as a name.
+	 */
+	private int readNumber() throws IOException {
+		int c = this.text[this.length - 1];
+		if ((c == 'e' || c == 'E') && (peek(0) == '+' || peek(0) == '-')) {
+			append((char) read());
+			readNameChars();
+		}
+		if (peek(0) == '.' && isDigit(peek(1)) && isDecimal(0, this.length)) {
+			append((char) read());
+			readNameChars();
+			if (this.text[this.length - 1] == 'e' || this.text[this.length - 1] == 'E') {
+				if (peek(0) == '+' || peek(0) == '-') {
+					append((char) read());
+					readNameChars();
+				}
+			}
+		}
+		if (!isNumber()) {
+			throw error("Illegal number: '" + text() + "'");
+		}
+		return NUMBER;
+	}
+
+	private int readURI() throws IOException {
+		skip(1);
+		while (true) {
+			int c = read();
+			if (c == '>') {
+				return URIREF;
+			}
+			if (c == -1 || c == '\n' || c == '\r') {
+				throw error("Unterminated URI: <" + text());
+			}
+			append((char) c);
+		}
+	}
+
+	private int readString(char quote) throws IOException {
+		boolean isLong = (peek(1) == quote && peek(2) == quote);
+		skip(isLong ? 3 : 1);
+		while (true) {
+			int c = read();
+			if (c == -1) {
+				throw error("Unterminated string");
+			}
+			if (c == quote) {
+				if (!isLong) {
+					return STRING;
+				}
+				if (peek(0) == quote && peek(1) == quote) {
+					skip(2);
+					return STRING;
+				}
+				append((char) c);
+			} else if (c == '\\') {
+				readEscape();
+			} else {
+				append((char) c);
+			}
+		}
+	}
+
+	private void readEscape() throws IOException {
+		int c = read();
+		switch (c) {
+		case 'n': append('\n'); break;
+		case 'r': append('\r'); break;
+		case 'b': append('\b'); break;
+		case 't': append('\t'); break;
+		case 'f': append('\f'); break;
+		case 'v': append('\f'); break;
+		case 'a': append('\007'); break;
+		case '"': append('"'); break;
+		case '\\': append('\\'); break;
+		case '\'': append('\''); break;
+		case 'u':
+			int value = 0;
+			for (int i = 0; i < 4; i++) {
+				int digit = Character.digit(read(), 16);
+				if (digit == -1) {
+					throw error("Illegal unicode escape");
+				}
+				value = value * 16 + digit;
+			}
+			append((char) value);
+			break;
+		case -1:
+			throw error("Unterminated string");
+		default:
+			// unknown escapes are kept
+			append('\\');
+			append((char) c);
+		}
+	}
+
+	private int readAtWord() throws IOException {
+		skip(1);
+		while (isAlpha(peek(0))) {
+			append((char) read());
+		}
+		if (this.length == 0) {
+			throw error("Unexpected character: '@'");
+		}
+		if (this.length == 6 && "prefix".equals(text())) {
+			return AT_PREFIX;
+		}
+		while (peek(0) == '-') {
+			append((char) read());
+			readAlphanumerics();
+		}
+		return LANG;
+	}
+
+	private void readNameChars() throws IOException {
+		while (isNameChar(peek(0))) {
+			append((char) read());
+		}
+	}
+
+	private void readAlphanumerics() throws IOException {
+		int c;
+		while (isAlpha(c = peek(0)) || isDigit(c)) {
+			append((char) read());
+		}
+	}
+
+	private void skipWhitespaceAndComments() throws IOException {
+		while (true) {
+			int c = peek(0);
+			if (c == ' ' || c == '\t' || c == '\f' || c == '\n' || c == '\r') {
+				read();
+			} else if (c == '#') {
+				while (c != -1 && c != '\n' && c != '\r') {
+					read();
+					c = peek(0);
+				}
+			} else {
+				return;
+			}
+		}
+	}
+
+	private boolean isNumber() {
+		int i = 0;
+		if (this.text[0] == '+' || this.text[0] == '-') {
+			i++;
+		}
+		int digits = countDigits(i);
+		if (digits == 0) {
+			return false;
+		}
+		i += digits;
+		if (i < this.length && this.text[i] == '.') {
+			digits = countDigits(i + 1);
+			if (digits == 0) {
+				return false;
+			}
+			i += 1 + digits;
+		}
+		if (i < this.length && (this.text[i] == 'e' || this.text[i] == 'E')) {
+			i++;
+			if (i < this.length && (this.text[i] == '+' || this.text[i] == '-')) {
+				i++;
+			}
+			digits = countDigits(i);
+			if (digits == 0) {
+				return false;
+			}
+			i += digits;
+		}
+		return i == this.length;
+	}
+
+	/** Is the given range an optional sign followed by digits? */
+	private boolean isDecimal(int from, int to) {
+		if (this.text[from] == '+' || this.text[from] == '-') {
+			from++;
+		}
+		return from < to && countDigits(from) == to - from;
+	}
+
+	private int countDigits(int from) {
+		int i = from;
+		while (i < this.length && isDigit(this.text[i])) {
+			i++;
+		}
+		return i - from;
+	}
+
+	private static boolean isNumberStart(char c) {
+		return isDigit(c) || c == '+' || c == '-';
+	}
+
+	private static boolean isDigit(int c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isAlpha(int c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	/**
+	 * The characters of prefixes and local names (XNAMECHAR in trig.g).
+	 */
+	private static boolean isNameChar(int c) {
+		if (c < 0x80) {
+			return isAlpha(c) || isDigit(c) || c == '_' || c == '-';
+		}
+		return (c >= 0x00C0 && c <= 0x02FF) || (c >= 0x0370 && c <= 0x037D)
+				|| (c >= 0x037F && c <= 0x1FFF) || (c >= 0x200C && c <= 0x200D)
+				|| (c >= 0x2070 && c <= 0x218F) || (c >= 0x2C00 && c <= 0x2FEF)
+				|| (c >= 0x0300 && c <= 0x036F) || (c >= 0x203F && c <= 0x2040)
+				|| c == 0x00B7 || (c >= 0x3001 && c <= 0xD7FF)
+				|| (c >= 0xF900 && c <= 0xFFFE);
+	}
+
+	private void append(char c) {
+		if (this.length == this.text.length) {
+			char[] larger = new char[this.text.length * 2];
+			System.arraycopy(this.text, 0, larger, 0, this.length);
+			this.text = larger;
+		}
+		this.text[this.length++] = c;
+	}
+
+	/**
+	 * Returns the character at the given offset from the current position
+	 * without consuming it, or -1 at the end of the document.
+	 */
+	private int peek(int offset) throws IOException {
+		if (this.pos + offset >= this.limit) {
+			fill(offset + 1);
+			if (this.pos + offset >= this.limit) {
+				return -1;
+			}
+		}
+		return this.buffer[this.pos + offset];
+	}
+
+	private int read() throws IOException {
+		int c = peek(0);
+		if (c == -1) {
+			return -1;
+		}
+		this.pos++;
+		if (c == '\n' || (c == '\r' && peek(0) != '\n')) {
+			this.line++;
+			this.column = 1;
+		} else {
+			this.column++;
+		}
+		return c;
+	}
+
+	private void skip(int n) throws IOException {
+		for (int i = 0; i < n; i++) {
+			read();
+		}
+	}
+
+	/**
+	 * Reads more characters so that at least the given number of characters
+	 * is available after the current position (unless the document ends).
+	 */
+	private void fill(int needed) throws IOException {
+		if (this.pos > 0) {
+			System.arraycopy(this.buffer, this.pos, this.buffer, 0, this.limit - this.pos);
+			this.limit -= this.pos;
+			this.pos = 0;
+		}
+		while (this.limit < needed) {
+			int n = this.in.read(this.buffer, this.limit, this.buffer.length - this.limit);
+			if (n == -1) {
+				return;
+			}
+			this.limit += n;
+		}
+	}
+
+	TriGException error(String message) {
+		return new TriGException("TriG error: [" + this.line + ":" + this.column + "] " + message);
+	}
+}
+
+/*
+ *  (c) Copyright 2004 - 2010 Christian Bizer (chris@bizer.de)
+ *   All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
@@ -0,0 +1,134 @@
+package de.fuberlin.wiwiss.ng4j.trix;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.hp.hpl.jena.datatypes.RDFDatatype;
+import com.hp.hpl.jena.datatypes.TypeMapper;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.impl.LiteralLabel;
+import com.hp.hpl.jena.graph.impl.LiteralLabelFactory;
+import com.hp.hpl.jena.rdf.model.AnonId;
+import com.hp.hpl.jena.shared.JenaException;
+
+import de.fuberlin.wiwiss.ng4j.Quad;
+import de.fuberlin.wiwiss.ng4j.QuadSink;
+
+/**
+ * A {@link ParserCallback} that passes the graphs and triples of a TriX
+ * file to a {@link QuadSink} while the file is being parsed, without
+ * keeping them. Use it with a {@link TriXParser}:
+ * <pre>
+ * new TriXParser().parse(in, baseURI, new QuadSinkCallback(defaultGraphName, sink));
+ * </pre>
+ * Graph names and literals are handled like in {@link TriXReader}:
+ * additional graph names are ignored, graphs without name get the default
+ * name, and literals as subjects are not allowed. Using the same name for
+ * multiple graphs is an error; this includes several graphs without name.
+ *
+ * @author Richard Cyganiak (richard@cyganiak.de)
+ */
+public class QuadSinkCallback implements ParserCallback {
+	private final Node defaultGraph;
+	private final QuadSink sink;
+	private final Set<Node> pastGraphNames = new HashSet<Node>();
+	private Node currentGraph;
+	private Node subject;
+	private Node predicate;
+
+	/**
+	 * @param defaultGraphName The name of graphs without a name
+	 * @param sink Receives the graphs and quads
+	 */
+	public QuadSinkCallback(String defaultGraphName, QuadSink sink) {
+		this.defaultGraph = Node.createURI(defaultGraphName);
+		this.sink = sink;
+	}
+
+	public void startGraph(List<String> uris) {
+		Node graphName = uris.isEmpty() ?
+				this.defaultGraph :
+				Node.createURI(uris.get(0));
+		if (!this.pastGraphNames.add(graphName)) {
+			throw new JenaException("Multiple graphs with same name: " + graphName);
+		}
+		this.currentGraph = graphName;
+		this.sink.startGraph(graphName);
+	}
+
+	public void endGraph() {
+		this.sink.endGraph(this.currentGraph);
+	}
+
+	public void subjectURI(String uri) {
+		this.subject = Node.createURI(uri);
+	}
+
+	public void subjectBNode(String id) {
+		this.subject = Node.createAnon(new AnonId(id));
+	}
+
+	public void subjectPlainLiteral(String value, String lang) {
+		throw new JenaException("Literals are not allowed as subjects in RDF");
+	}
+
+	public void subjectTypedLiteral(String value, String datatypeURI) {
+		throw new JenaException("Literals are not allowed as subjects in RDF");
+	}
+
+	public void predicate(String uri) {
+		this.predicate = Node.createURI(uri);
+	}
+
+	public void objectURI(String uri) {
+		quad(Node.createURI(uri));
+	}
+
+	public void objectBNode(String id) {
+		quad(Node.createAnon(new AnonId(id)));
+	}
+
+	public void objectPlainLiteral(String value, String lang) {
+		LiteralLabel ll = LiteralLabelFactory.create(value, lang);
+		quad(Node.createLiteral(ll));
+	}
+
+	public void objectTypedLiteral(String value, String datatypeURI) {
+		RDFDatatype dt = TypeMapper.getInstance().getSafeTypeByName(datatypeURI);
+		LiteralLabel ll = LiteralLabelFactory.createLiteralLabel(value, "", dt);
+		quad(Node.createLiteral(ll));
+	}
+
+	private void quad(Node object) {
+		this.sink.quad(new Quad(this.currentGraph, this.subject, this.predicate, object));
+	}
+}
+
+/*
+ *  (c) Copyright 2004 - 2010 Christian Bizer (chris@bizer.de)
+ *   All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
@@ -0,0 +1,19 @@
+package de.fuberlin.wiwiss.jenaext;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Unit Test suite for NG4J's Jena extensions
+ */
+public class AllTests {
+
+	public static Test suite() {
+		TestSuite suite = new TestSuite("Test for de.fuberlin.wiwiss.jenaext");
+		//$JUnit-BEGIN$
+		//$JUnit-END$
+		suite.addTest(de.fuberlin.wiwiss.jenaext.impl.AllTests.suite());
+		suite.addTest(de.fuberlin.wiwiss.jenaext.sparql.AllTests.suite());
+		return suite;
+	}
+}
@@ -0,0 +1,22 @@
+package de.fuberlin.wiwiss.jenaext.impl;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Unit Test suite for the graph and node dictionary implementations
+ */
+public class AllTests {
+
+	public static Test suite() {
+		TestSuite suite = new TestSuite("Test for de.fuberlin.wiwiss.jenaext.impl");
+		//$JUnit-BEGIN$
+		suite.addTestSuite(IdBasedGraphMemTest.class);
+		suite.addTestSuite(ColumnarIdBasedGraphMemTest.class);
+		suite.addTestSuite(IdTripleSetTest.class);
+		suite.addTestSuite(CompactNodeDictionaryTest.class);
+		suite.addTestSuite(ConcurrentNodeDictionaryTest.class);
+		//$JUnit-END$
+		return suite;
+	}
+}
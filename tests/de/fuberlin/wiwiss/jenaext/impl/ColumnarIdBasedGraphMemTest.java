@@ -0,0 +1,68 @@
+package de.fuberlin.wiwiss.jenaext.impl;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+
+import de.fuberlin.wiwiss.jenaext.IdBasedGraph;
+import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+
+/**
+ * Runs the {@link IdBasedGraphMemTest} tests for {@link ColumnarIdBasedGraphMem}.
+ *
+ * @author Olaf Hartig
+ */
+public class ColumnarIdBasedGraphMemTest extends IdBasedGraphMemTest {
+	protected IdBasedGraph createGraph(NodeDictionary nodeDict) {
+		return new ColumnarIdBasedGraphMem(nodeDict);
+	}
+
+	public void testNoDuplicates() {
+		IdBasedGraph g = createGraph(new NodeDictionaryImpl());
+		Triple t = new Triple(Node.createURI("http://example.org/#a"),
+				Node.createURI("http://example.org/#b"),
+				Node.createLiteral("c"));
+		g.add(t);
+		g.add(t);
+		assertEquals(1, g.size());
+		assertEquals(t, g.find(Node.ANY, Node.ANY, Node.ANY).next());
+	}
+
+	public void testDeleteInsideChains() {
+		IdBasedGraph g = createGraph(new NodeDictionaryImpl());
+		Node s = Node.createURI("http://example.org/#s");
+		Node p = Node.createURI("http://example.org/#p");
+		for (int i = 0; i < 10; i++) {
+			g.add(new Triple(s, p, Node.createLiteral("o" + i)));
+		}
+		for (int i = 1; i < 10; i += 2) {
+			g.delete(new Triple(s, p, Node.createLiteral("o" + i)));
+		}
+		assertEquals(5, g.size());
+		assertEquals(5, g.find(s, Node.ANY, Node.ANY).toList().size());
+		assertEquals(5, g.find(Node.ANY, p, Node.ANY).toList().size());
+		for (int i = 0; i < 10; i++) {
+			Node o = Node.createLiteral("o" + i);
+			assertEquals(i % 2 == 0, g.contains(s, p, o));
+			assertEquals(i % 2 == 0, g.find(Node.ANY, Node.ANY, o).hasNext());
+		}
+	}
+
+	public void testRemoveAll() {
+		IdBasedGraph g = createGraph(new NodeDictionaryImpl());
+		Node s = Node.createURI("http://example.org/#s");
+		Node p = Node.createURI("http://example.org/#p");
+		for (int i = 0; i < 100; i++) {
+			g.add(new Triple(s, p, Node.createLiteral("o" + i)));
+		}
+		g.getBulkUpdateHandler().removeAll();
+		assertEquals(0, g.size());
+		assertFalse(g.find(s, Node.ANY, Node.ANY).hasNext());
+		assertEquals(0, g.getStatistics().getTripleCount());
+		assertEquals(0, g.getStatistics().getPredicates().length);
+
+		g.add(new Triple(s, p, Node.createLiteral("o")));
+		assertEquals(1, g.size());
+		assertEquals(1, g.getStatistics().getDistinctSubjectCount());
+		assertTrue(g.contains(s, p, Node.createLiteral("o")));
+	}
+}
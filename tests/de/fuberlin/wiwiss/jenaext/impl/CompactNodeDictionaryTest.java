@@ -0,0 +1,81 @@
+package de.fuberlin.wiwiss.jenaext.impl;
+
+import junit.framework.TestCase;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.Node;
+
+/**
+ * Unit tests for {@link CompactNodeDictionary}.
+ *
+ * @author Olaf Hartig
+ */
+public class CompactNodeDictionaryTest extends TestCase {
+	private CompactNodeDictionary dict;
+
+	protected void setUp() throws Exception {
+		this.dict = new CompactNodeDictionary(16);
+	}
+
+	public void testRoundTrip() {
+		Node[] nodes = new Node[] {
+				Node.createURI("http://example.org/ns#a"),
+				Node.createURI("http://example.org/ns#"),
+				Node.createURI("urn:isbn:123"),
+				Node.createAnon(),
+				Node.createLiteral("a"),
+				Node.createLiteral(""),
+				Node.createLiteral("a", "en", false),
+				Node.createLiteral("a", null, XSDDatatype.XSDstring),
+				Node.createLiteral("42", null, XSDDatatype.XSDint),
+				Node.createLiteral("\u00e4\u20ac\ud834\udd1e", "de", false) };
+		int[] ids = new int[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			ids[i] = this.dict.createId(nodes[i]);
+			assertEquals(i, ids[i]);
+		}
+		for (int i = 0; i < nodes.length; i++) {
+			assertEquals(ids[i], this.dict.createId(nodes[i]));
+			assertEquals(ids[i], this.dict.getId(nodes[i]));
+			assertEquals(nodes[i], this.dict.getNode(ids[i]));
+		}
+		assertEquals(nodes.length, this.dict.size());
+		assertNull(this.dict.getNode(nodes.length));
+	}
+
+	public void testUnknownNodes() {
+		this.dict.createId(Node.createURI("http://example.org/ns#a"));
+		assertEquals(-1, this.dict.getId(Node.createURI("http://example.org/ns#b")));
+		assertEquals(-1, this.dict.getId(Node.createURI("http://example.org/other#a")));
+		assertEquals(-1, this.dict.getId(Node.createLiteral("a", "en", false)));
+		assertEquals(1, this.dict.size());
+	}
+
+	public void testManyNodes() {
+		final int count = 50000;
+		for (int i = 0; i < count; i++) {
+			assertEquals(i, this.dict.createId(Node.createURI("http://example.org/ns" + (i % 10) + "#n" + i)));
+		}
+		for (int i = count - 1; i >= 0; i--) {
+			Node n = Node.createURI("http://example.org/ns" + (i % 10) + "#n" + i);
+			assertEquals(i, this.dict.getId(n));
+			assertEquals(n, this.dict.getNode(i));
+		}
+	}
+
+	public void testLargeLiteral() {
+		StringBuffer sb = new StringBuffer();
+		for (int i = 0; i < 600000; i++) {
+			sb.append("abcdefgh");
+		}
+		Node small = Node.createLiteral("small");
+		Node large = Node.createLiteral(sb.toString());
+		int idSmall = this.dict.createId(small);
+		int idLarge = this.dict.createId(large);
+		int idAfter = this.dict.createId(Node.createLiteral("after"));
+		assertEquals(large, this.dict.getNode(idLarge));
+		assertEquals(small, this.dict.getNode(idSmall));
+		assertEquals(idLarge, this.dict.getId(Node.createLiteral(sb.toString())));
+		assertEquals(Node.createLiteral("after"), this.dict.getNode(idAfter));
+	}
+}
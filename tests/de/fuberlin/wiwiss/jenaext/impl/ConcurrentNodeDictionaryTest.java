@@ -0,0 +1,66 @@
+package de.fuberlin.wiwiss.jenaext.impl;
+
+import junit.framework.TestCase;
+
+import com.hp.hpl.jena.graph.Node;
+
+/**
+ * Unit tests for {@link ConcurrentNodeDictionary}.
+ *
+ * @author Olaf Hartig
+ */
+public class ConcurrentNodeDictionaryTest extends TestCase {
+	private ConcurrentNodeDictionary dict;
+
+	protected void setUp() throws Exception {
+		this.dict = new ConcurrentNodeDictionary();
+	}
+
+	public void testKindsOfNodes() {
+		Node uri = Node.createURI("http://example.org/#a");
+		Node blank = Node.createAnon();
+		Node plain = Node.createLiteral("a");
+		Node lang = Node.createLiteral("a", "en", false);
+		int[] ids = new int[] { this.dict.createId(uri), this.dict.createId(blank),
+				this.dict.createId(plain), this.dict.createId(lang) };
+		for (int i = 0; i < ids.length; i++) {
+			for (int j = i + 1; j < ids.length; j++) {
+				assertTrue(ids[i] != ids[j]);
+			}
+		}
+		assertEquals(ids[0], this.dict.createId(Node.createURI("http://example.org/#a")));
+		assertEquals(ids[3], this.dict.getId(Node.createLiteral("a", "en", false)));
+		assertEquals(blank, this.dict.getNode(ids[1]));
+		assertEquals(-1, this.dict.getId(Node.createURI("http://example.org/#b")));
+		assertNull(this.dict.getNode(ids.length));
+	}
+
+	public void testConcurrentCreation() throws InterruptedException {
+		final int nodes = 20000;
+		Thread[] threads = new Thread[8];
+		final int[][] ids = new int[threads.length][nodes];
+		for (int t = 0; t < threads.length; t++) {
+			final int threadIdx = t;
+			threads[t] = new Thread() {
+				public void run() {
+					// every thread creates the same nodes in a different order
+					for (int i = 0; i < nodes; i++) {
+						int n = (i * 7919 + threadIdx * 104729) % nodes;
+						ids[threadIdx][n] = dict.createId(Node.createURI("http://example.org/#n" + n));
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (int t = 0; t < threads.length; t++) {
+			threads[t].join();
+		}
+		for (int n = 0; n < nodes; n++) {
+			for (int t = 1; t < threads.length; t++) {
+				assertEquals(ids[0][n], ids[t][n]);
+			}
+			assertEquals(Node.createURI("http://example.org/#n" + n), this.dict.getNode(ids[0][n]));
+		}
+		assertNull(this.dict.getNode(nodes));
+	}
+}
@@ -0,0 +1,191 @@
+package de.fuberlin.wiwiss.jenaext.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+
+import de.fuberlin.wiwiss.jenaext.BulkLoadableGraph;
+import de.fuberlin.wiwiss.jenaext.GraphStatistics;
+import de.fuberlin.wiwiss.jenaext.IdBasedGraph;
+import de.fuberlin.wiwiss.jenaext.IdBasedTriple;
+import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+
+/**
+ * Unit tests for {@link IdBasedGraphMem}. The results of all kinds of
+ * triple pattern queries are compared to the results of a naive scan.
+ *
+ * @author Olaf Hartig
+ */
+public class IdBasedGraphMemTest extends TestCase {
+	private NodeDictionary dict;
+	private IdBasedGraph graph;
+	private List<Triple> triples;
+
+	protected void setUp() throws Exception {
+		this.dict = new NodeDictionaryImpl();
+		this.graph = createGraph(this.dict);
+		this.triples = new ArrayList<Triple>();
+		for (int i = 0; i < 50; i++) {
+			for (int j = 0; j < 7; j++) {
+				Triple t = new Triple(uri("s" + i), uri("p" + j), uri("o" + ((i * j) % 13)));
+				this.graph.add(t);
+				this.triples.add(t);
+			}
+		}
+		// a node that occurs in all three positions
+		Triple t = new Triple(uri("p0"), uri("p0"), uri("p0"));
+		this.graph.add(t);
+		this.triples.add(t);
+	}
+
+	protected IdBasedGraph createGraph(NodeDictionary nodeDict) {
+		return new IdBasedGraphMem(nodeDict);
+	}
+
+	public void testSize() {
+		assertEquals(this.triples.size(), this.graph.size());
+	}
+
+	public void testFindAllPatterns() {
+		assertAllPatterns();
+	}
+
+	public void testCardinality() {
+		int[] ids = new int[] { -1, id("s3"), id("p0"), id("p5"), id("o0"), id("o7") };
+		for (int s : ids) {
+			for (int p : ids) {
+				for (int o : ids) {
+					assertTrue(this.graph.getCardinality(s, p, o) >= countNaive(s, p, o));
+				}
+			}
+		}
+		assertEquals(this.triples.size(), this.graph.getCardinality(-1, -1, -1));
+		assertEquals(countNaive(-1, id("p5"), -1), this.graph.getCardinality(-1, id("p5"), -1));
+	}
+
+	public void testStatistics() {
+		assertStatistics();
+		for (Iterator<Triple> it = this.triples.iterator(); it.hasNext(); ) {
+			Triple t = it.next();
+			if (t.getObject().getURI().hashCode() % 2 == 0) {
+				this.graph.delete(t);
+				it.remove();
+			}
+		}
+		assertStatistics();
+		for (Triple t : this.triples) {
+			this.graph.delete(t);
+		}
+		assertEquals(0, this.graph.getStatistics().getTripleCount());
+		assertEquals(0, this.graph.getStatistics().getDistinctSubjectCount());
+		assertEquals(0, this.graph.getStatistics().getPredicates().length);
+	}
+
+	public void testFindUnknownNode() {
+		assertFalse(this.graph.find(Node.createURI("http://example.org/unknown"), Node.ANY, Node.ANY).hasNext());
+		assertFalse(this.graph.contains(uri("s1"), uri("p1"), uri("o12")));
+	}
+
+	public void testDelete() {
+		for (Iterator<Triple> it = this.triples.iterator(); it.hasNext(); ) {
+			Triple t = it.next();
+			if (t.getSubject().getURI().hashCode() % 3 == 0) {
+				this.graph.delete(t);
+				it.remove();
+			}
+		}
+		assertEquals(this.triples.size(), this.graph.size());
+		assertAllPatterns();
+	}
+
+	public void testDeleteAll() {
+		for (Triple t : this.triples) {
+			this.graph.delete(t);
+		}
+		this.triples.clear();
+		assertEquals(0, this.graph.size());
+		assertAllPatterns();
+	}
+
+	public void testAddByIds() {
+		BulkLoadableGraph g = (BulkLoadableGraph) createGraph(this.dict);
+		for (int i = this.triples.size() - 1; i >= 0; i--) {
+			Triple t = this.triples.get(i);
+			assertTrue(g.add(id(t.getSubject()), id(t.getPredicate()), id(t.getObject())));
+		}
+		for (Triple t : this.triples) {
+			assertFalse(g.add(id(t.getSubject()), id(t.getPredicate()), id(t.getObject())));
+		}
+		this.graph = g;
+		assertEquals(this.triples.size(), this.graph.size());
+		assertAllPatterns();
+		assertStatistics();
+		for (Triple t : this.triples) {
+			assertTrue(this.graph.contains(t));
+		}
+	}
+
+	private void assertAllPatterns() {
+		int[] ids = new int[] { -1, id("s3"), id("s49"), id("p0"), id("p5"), id("o0"), id("o7") };
+		for (int s : ids) {
+			for (int p : ids) {
+				for (int o : ids) {
+					assertEquals("(" + s + "," + p + "," + o + ")",
+							countNaive(s, p, o), count(this.graph.find(s, p, o)));
+				}
+			}
+		}
+	}
+
+	private void assertStatistics() {
+		GraphStatistics expected = StatisticsCatalog.create(this.graph);
+		GraphStatistics actual = this.graph.getStatistics();
+		assertEquals(this.triples.size(), actual.getTripleCount());
+		assertEquals(expected.getDistinctSubjectCount(), actual.getDistinctSubjectCount());
+		assertEquals(expected.getDistinctObjectCount(), actual.getDistinctObjectCount());
+		assertEquals(expected.getPredicates().length, actual.getPredicates().length);
+		for (int p : expected.getPredicates()) {
+			assertEquals(countNaive(-1, p, -1), actual.getTripleCount(p));
+			assertEquals(expected.getDistinctSubjectCount(p), actual.getDistinctSubjectCount(p));
+			assertEquals(expected.getDistinctObjectCount(p), actual.getDistinctObjectCount(p));
+		}
+	}
+
+	private int countNaive(int s, int p, int o) {
+		int result = 0;
+		for (Triple t : this.triples) {
+			if ((s == -1 || s == id(t.getSubject()))
+					&& (p == -1 || p == id(t.getPredicate()))
+					&& (o == -1 || o == id(t.getObject()))) {
+				result++;
+			}
+		}
+		return result;
+	}
+
+	private int count(Iterator<IdBasedTriple> it) {
+		int result = 0;
+		while (it.hasNext()) {
+			it.next();
+			result++;
+		}
+		return result;
+	}
+
+	private int id(String localName) {
+		return id(uri(localName));
+	}
+
+	private int id(Node n) {
+		return this.dict.getId(n);
+	}
+
+	private static Node uri(String localName) {
+		return Node.createURI("http://example.org/#" + localName);
+	}
+}
@@ -0,0 +1,43 @@
+package de.fuberlin.wiwiss.jenaext.impl;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link IdTripleSet}.
+ *
+ * @author Olaf Hartig
+ */
+public class IdTripleSetTest extends TestCase {
+	private IdTripleSet set;
+
+	protected void setUp() {
+		this.set = new IdTripleSet();
+	}
+
+	public void testAddAndContains() {
+		assertFalse(this.set.contains(0, 0, 0));
+		assertTrue(this.set.add(0, 0, 0));
+		assertFalse(this.set.add(0, 0, 0));
+		assertTrue(this.set.contains(0, 0, 0));
+		assertFalse(this.set.contains(0, 0, 1));
+		assertEquals(1, this.set.size());
+	}
+
+	public void testGrow() {
+		for (int i = 0; i < 10000; i++) {
+			assertTrue(this.set.add(i % 7, i, i / 3));
+		}
+		assertEquals(10000, this.set.size());
+		for (int i = 0; i < 10000; i++) {
+			assertTrue(this.set.contains(i % 7, i, i / 3));
+			assertFalse(this.set.contains(i % 7, i, i / 3 + 1));
+		}
+	}
+
+	public void testClear() {
+		this.set.add(1, 2, 3);
+		this.set.clear();
+		assertEquals(0, this.set.size());
+		assertFalse(this.set.contains(1, 2, 3));
+	}
+}
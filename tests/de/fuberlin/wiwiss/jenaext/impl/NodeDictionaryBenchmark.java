@@ -0,0 +1,81 @@
+package de.fuberlin.wiwiss.jenaext.impl;
+
+import com.hp.hpl.jena.graph.Node;
+
+import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+
+/**
+ * Measures the throughput of {@link NodeDictionaryImpl} and
+ * {@link ConcurrentNodeDictionary} with 1 to 32 threads. Every thread runs
+ * a mix of lookups and insertions that resembles concurrent loading and
+ * querying: most operations are {@link NodeDictionary#getId} and
+ * {@link NodeDictionary#getNode} calls for known nodes, the rest create new
+ * identifiers.
+ *
+ * Usage: java de.fuberlin.wiwiss.jenaext.impl.NodeDictionaryBenchmark [operations per thread]
+ *
+ * @author Olaf Hartig
+ */
+public class NodeDictionaryBenchmark {
+	private final static int KNOWN_NODES = 100000;
+	private final static int[] THREAD_COUNTS = new int[] { 1, 2, 4, 8, 16, 32 };
+
+	public static void main(String[] args) throws InterruptedException {
+		int operations = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+		Node[] known = new Node[KNOWN_NODES];
+		for (int i = 0; i < KNOWN_NODES; i++) {
+			known[i] = (i % 2 == 0) ? Node.createURI("http://example.org/resource/" + i)
+					: Node.createLiteral("literal " + i);
+		}
+
+		System.out.println("threads\tNodeDictionaryImpl (ops/s)\tConcurrentNodeDictionary (ops/s)");
+		for (int threads : THREAD_COUNTS) {
+			long synced = run(new NodeDictionaryImpl(), known, threads, operations);
+			long concurrent = run(new ConcurrentNodeDictionary(), known, threads, operations);
+			System.out.println(threads + "\t" + synced + "\t" + concurrent);
+		}
+	}
+
+	private static long run(final NodeDictionary dict, final Node[] known,
+			int threadCount, final int operations) throws InterruptedException {
+		for (Node n : known) {
+			dict.createId(n);
+		}
+
+		Thread[] threads = new Thread[threadCount];
+		for (int t = 0; t < threadCount; t++) {
+			final int threadIdx = t;
+			threads[t] = new Thread() {
+				public void run() {
+					int seed = threadIdx * 31 + 17;
+					for (int i = 0; i < operations; i++) {
+						seed = seed * 1103515245 + 12345;
+						int r = (seed >>> 8) % KNOWN_NODES;
+						switch (i % 10) {
+						case 0:
+							dict.createId(Node.createURI("http://example.org/new/" + threadIdx + "/" + i));
+							break;
+						case 1:
+						case 2:
+						case 3:
+							dict.getNode(r);
+							break;
+						default:
+							dict.getId(known[r]);
+						}
+					}
+				}
+			};
+		}
+
+		long start = System.nanoTime();
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long duration = System.nanoTime() - start;
+		return (long) threadCount * operations * 1000000000L / duration;
+	}
+}
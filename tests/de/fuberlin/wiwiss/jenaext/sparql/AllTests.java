@@ -0,0 +1,23 @@
+package de.fuberlin.wiwiss.jenaext.sparql;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Unit Test suite for the ID-based query engine
+ */
+public class AllTests {
+
+	public static Test suite() {
+		TestSuite suite = new TestSuite("Test for de.fuberlin.wiwiss.jenaext.sparql");
+		//$JUnit-BEGIN$
+		suite.addTestSuite(DecodingBindingTest.class);
+		suite.addTestSuite(IdBasedQueryEngineTest.class);
+		suite.addTestSuite(JoinOrderOptimizerTest.class);
+		suite.addTestSuite(ParallelGraphOpExecutorTest.class);
+		suite.addTestSuite(PreparedQueryTest.class);
+		//$JUnit-END$
+		suite.addTest(de.fuberlin.wiwiss.jenaext.sparql.iterator.AllTests.suite());
+		return suite;
+	}
+}
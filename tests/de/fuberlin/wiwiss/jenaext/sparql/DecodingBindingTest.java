@@ -0,0 +1,78 @@
+package de.fuberlin.wiwiss.jenaext.sparql;
+
+import java.util.Iterator;
+
+import junit.framework.TestCase;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.sparql.core.Var;
+
+import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+import de.fuberlin.wiwiss.jenaext.impl.NodeDictionaryImpl;
+
+/**
+ * Unit tests for {@link DecodingBinding} and {@link DecodedNodeCache}.
+ *
+ * @author Olaf Hartig
+ */
+public class DecodingBindingTest extends TestCase {
+	private static final Var X = Var.alloc("x");
+	private static final Var Y = Var.alloc("y");
+	private static final Var Z = Var.alloc("z");
+
+	private CountingNodeDictionary nodeDict;
+	private VarDictionary varDict;
+	private DecodingBinding binding;
+
+	protected void setUp() {
+		this.nodeDict = new CountingNodeDictionary();
+		this.varDict = new VarDictionary();
+		this.varDict.createId(X);
+		this.varDict.createId(Y);
+		IdBasedBinding b = new IdBasedBinding(this.varDict.size());
+		b.set(0, this.nodeDict.createId(Node.createURI("http://example.org/a")));
+		this.binding = new DecodingBinding(b, this.varDict, new DecodedNodeCache(this.nodeDict));
+	}
+
+	public void testDecodesOnAccessOnly() {
+		assertEquals(1, this.binding.size());
+		assertTrue(this.binding.contains(X));
+		assertFalse(this.binding.contains(Y));
+		assertFalse(this.binding.contains(Z));
+		Iterator<Var> it = this.binding.vars();
+		assertEquals(X, it.next());
+		assertFalse(it.hasNext());
+		assertEquals(0, this.nodeDict.lookups);
+		assertEquals(Node.createURI("http://example.org/a"), this.binding.get(X));
+		assertEquals(Node.createURI("http://example.org/a"), this.binding.get(X));
+		assertEquals(1, this.nodeDict.lookups);
+		assertNull(this.binding.get(Y));
+		assertNull(this.binding.get(Z));
+	}
+
+	public void testAddedVariables() {
+		assertFalse(this.binding.hasAddedVariables());
+		this.binding.add(Z, Node.createLiteral("z"));
+		assertTrue(this.binding.hasAddedVariables());
+		assertEquals(2, this.binding.size());
+		assertEquals(Node.createLiteral("z"), this.binding.get(Z));
+	}
+
+	private static class CountingNodeDictionary implements NodeDictionary {
+		private final NodeDictionary dict = new NodeDictionaryImpl();
+		int lookups = 0;
+
+		public Node getNode(int id) {
+			this.lookups++;
+			return this.dict.getNode(id);
+		}
+
+		public int getId(Node n) {
+			return this.dict.getId(n);
+		}
+
+		public int createId(Node n) {
+			return this.dict.createId(n);
+		}
+	}
+}
@@ -0,0 +1,249 @@
+package de.fuberlin.wiwiss.jenaext.sparql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.vocabulary.RDF;
+
+import de.fuberlin.wiwiss.ng4j.NamedGraphSet;
+import de.fuberlin.wiwiss.ng4j.Quad;
+import de.fuberlin.wiwiss.ng4j.impl.NamedGraphSetImpl;
+import de.fuberlin.wiwiss.ng4j.impl.idbased.IdBasedNamedGraphSetImpl;
+import de.fuberlin.wiwiss.ng4j.sparql.NamedGraphDataset;
+
+/**
+ * Compares the results of the {@link IdBasedQueryEngine} with the results of
+ * the default ARQ engine.
+ *
+ * @author Olaf Hartig
+ */
+public class IdBasedQueryEngineTest extends TestCase {
+	private static final String PREFIXES = "PREFIX ex: <http://example.org/#> "
+			+ "PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> ";
+
+	private NamedGraphSet referenceSet;
+	private IdBasedNamedGraphSetImpl idBasedSet;
+
+	protected void setUp() throws Exception {
+		IdBasedQueryEngine.register();
+		this.referenceSet = new NamedGraphSetImpl();
+		this.idBasedSet = new IdBasedNamedGraphSetImpl();
+		for (int i = 0; i < 60; i++) {
+			Node g = uri("graph" + (i % 3));
+			add(g, uri("person" + i), RDF.Nodes.type, uri("Person"));
+			add(g, uri("person" + i), uri("knows"), uri("person" + ((i * 7) % 60)));
+			add(g, uri("person" + i), uri("age"), Node.createLiteral(String.valueOf(i % 10)));
+			if (i % 5 == 0) {
+				add(g, uri("person" + i), uri("name"), Node.createLiteral("name" + (i % 4)));
+			}
+			if (i % 2 == 0) {
+				// equal values with different lexical forms (e.g. "2" and "02")
+				String score = ((i % 3 == 0) ? "0" : "") + (i % 4);
+				add(g, uri("person" + i), uri("score"), Node.createLiteral(score, null, XSDDatatype.XSDinteger));
+			}
+		}
+	}
+
+	protected void tearDown() throws Exception {
+		IdBasedQueryEngine.unregister();
+	}
+
+	public void testStarPattern() {
+		assertSameResults("SELECT * WHERE { ?x rdf:type ex:Person . ?x ex:age ?a . ?x ex:name \"name0\" }");
+	}
+
+	public void testPathPattern() {
+		assertSameResults("SELECT * WHERE { ?x rdf:type ex:Person . ?x ex:knows ?y . ?y ex:knows ?z . ?z ex:name ?n }");
+	}
+
+	public void testCartesianProduct() {
+		assertSameResults("SELECT * WHERE { ?x ex:name \"name1\" . ?y ex:name \"name2\" }");
+	}
+
+	public void testUnknownConstant() {
+		assertSameResults("SELECT * WHERE { ?x rdf:type ex:Person . ?x ex:unknown ?y }");
+	}
+
+	public void testTwoStarPatterns() {
+		assertSameResults("SELECT * WHERE { ?x rdf:type ex:Person . ?x ex:knows ?y . ?y rdf:type ex:Person . ?y ex:age ?a }");
+	}
+
+	public void testStarPatternsSharingTwoVariables() {
+		assertSameResults("SELECT * WHERE { ?x ex:knows ?y . ?x ex:age ?a . ?y ex:knows ?x . ?y ex:age ?a }");
+	}
+
+	public void testHashJoinAboveThreshold() {
+		String query = PREFIXES + "SELECT * WHERE { ?x ex:knows ?y . ?x ex:age ?a . ?y ex:age ?b . ?y ex:name ?n }";
+		List<String> expected = execute(query, this.referenceSet, true, null);
+		QueryExecution qe = QueryExecutionFactory.create(query, new NamedGraphDataset(this.idBasedSet));
+		qe.getContext().set(IdBasedOpExecutor.joinThreshold, 10);
+		assertEquals(expected, toList(qe));
+	}
+
+	public void testOptional() {
+		assertSameResults("SELECT * WHERE { ?x rdf:type ex:Person . ?x ex:knows ?y OPTIONAL { ?y ex:name ?n . ?y ex:age ?a } }");
+	}
+
+	public void testProjectionOrderAndLimit() {
+		assertSameResults("SELECT ?n WHERE { ?x ex:knows ?y . ?y ex:name ?n } ORDER BY ?n ?x LIMIT 5");
+	}
+
+	public void testCount() {
+		assertSameResults("SELECT (COUNT(?y) AS ?c) WHERE { ?x ex:knows ?y . ?y ex:age ?a }");
+	}
+
+	public void testRepeatedVariable() {
+		add(uri("graph0"), uri("person1"), uri("knows"), uri("person1"));
+		assertSameResults("SELECT * WHERE { ?x ex:knows ?x . ?x ex:age ?a }");
+	}
+
+	public void testDistinct() {
+		assertSameResults("SELECT DISTINCT ?y WHERE { ?x ex:knows ?y . ?y ex:age ?a }");
+		assertSameResults("SELECT DISTINCT ?a ?n WHERE { ?x ex:age ?a OPTIONAL { ?x ex:name ?n } }");
+		assertSameResults("SELECT DISTINCT ?s ?a WHERE { ?x ex:score ?s . ?x ex:age ?a . ?y ex:knows ?x }");
+	}
+
+	public void testSameTermFilter() {
+		assertSameResults("SELECT * WHERE { ?x ex:knows ?y FILTER sameTerm(?x, ?y) }");
+		assertSameResults("SELECT * WHERE { ?x ex:knows ?y . ?y ex:age ?a FILTER (!sameTerm(?x, ?y)) }");
+		assertSameResults("SELECT * WHERE { ?x ex:age ?a . ?x ex:knows ?y FILTER sameTerm(?a, \"3\") }");
+		assertSameResults("SELECT * WHERE { ?x ex:age ?a OPTIONAL { ?x ex:name ?n } FILTER (!sameTerm(?n, \"name0\")) }");
+	}
+
+	public void testIriEqualityFilter() {
+		assertSameResults("SELECT * WHERE { ?x ex:knows ?y . ?x ?p ?o FILTER (?o = ex:Person) }");
+		assertSameResults("SELECT * WHERE { ?x ex:knows ?y . ?y ?p ?o FILTER (ex:person7 != ?o) }");
+		assertSameResults("SELECT * WHERE { ?x ?p ?o FILTER (?o = ex:unknown) }");
+		assertSameResults("SELECT * WHERE { ?x ex:knows ?y FILTER (?y = ex:person14 || ?y = ex:person21) }");
+	}
+
+	public void testLiteralEqualityFilter() {
+		assertSameResults("SELECT * WHERE { ?x ex:score ?s FILTER (?s = 2) }");
+		assertSameResults("SELECT * WHERE { ?x ex:score ?s . ?y ex:score ?t FILTER (?s = ?t && ?x != ?y) }");
+	}
+
+	public void testOrderBy() {
+		assertSameOrderedResults("SELECT * WHERE { ?x ex:score ?s } ORDER BY DESC(?s) ?x");
+		assertSameOrderedResults("SELECT ?x ?n WHERE { ?x ex:age ?a OPTIONAL { ?x ex:name ?n } } ORDER BY ?n DESC(?x)");
+		assertSameOrderedResults("SELECT * WHERE { ?x ex:knows ?y . ?y ex:score ?s } ORDER BY ?s");
+		assertSameOrderedResults("SELECT DISTINCT ?s WHERE { ?x ex:score ?s } ORDER BY ?s");
+		assertSameOrderedResults("SELECT * WHERE { ?x ex:age ?a } ORDER BY STR(?x)");
+	}
+
+	public void testGroupBy() {
+		assertSameResults("SELECT ?y (COUNT(?x) AS ?c) WHERE { ?x ex:knows ?y . ?x ex:age ?a } GROUP BY ?y");
+		assertSameResults("SELECT ?s (COUNT(*) AS ?c) WHERE { ?x ex:score ?s } GROUP BY ?s");
+		assertSameResults("SELECT ?a ?n (COUNT(?x) AS ?c) WHERE { ?x ex:age ?a OPTIONAL { ?x ex:name ?n } } GROUP BY ?a ?n");
+		assertSameResults("SELECT ?n (SUM(?s) AS ?sum) WHERE { ?x ex:knows ?y . ?y ex:score ?s . ?x ex:name ?n } GROUP BY ?n");
+	}
+
+	public void testGroupByWithEmptyInput() {
+		assertSameResults("SELECT (COUNT(?x) AS ?c) WHERE { ?x ex:knows ex:nobody }");
+		assertSameResults("SELECT ?y (COUNT(?x) AS ?c) WHERE { ?x ex:knows ?y . ?y ex:unknown ?z } GROUP BY ?y");
+	}
+
+	public void testGraphPattern() {
+		assertSameResults("SELECT * WHERE { GRAPH ?g { ?x ex:knows ?y . ?y ex:age ?a } }");
+		assertSameResults("SELECT * WHERE { GRAPH ex:graph1 { ?x ex:knows ?y . ?y ex:age ?a } }");
+		assertSameResults("SELECT * WHERE { GRAPH ex:unknown { ?x ex:knows ?y } }");
+		assertSameResults("SELECT * WHERE { GRAPH ?g { ?x ex:name ?n } GRAPH ?h { ?x ex:age ?a } }");
+		assertSameResults("SELECT DISTINCT ?g ?y WHERE { GRAPH ?g { ?x ex:knows ?y FILTER (?y != ex:person0) } }");
+	}
+
+	public void testParallelGraphPattern() {
+		String query = PREFIXES + "SELECT * WHERE { ?x ex:name ?n GRAPH ?g { ?x ex:knows ?y . ?y ex:age ?a } }";
+		List<String> expected = execute(query, this.referenceSet, true, null);
+		QueryExecution qe = QueryExecutionFactory.create(query, new NamedGraphDataset(this.idBasedSet));
+		qe.getContext().set(ParallelGraphOpExecutor.graphParallelism, 4);
+		qe.getContext().set(ParallelGraphOpExecutor.graphQueueCapacity, 2);
+		assertEquals(expected, toList(qe));
+	}
+
+	public void testParallelGraphPatternClosedEarly() {
+		String query = PREFIXES + "SELECT * WHERE { GRAPH ?g { ?x ex:knows ?y . ?y ex:knows ?z } } LIMIT 3";
+		QueryExecution qe = QueryExecutionFactory.create(query, new NamedGraphDataset(this.idBasedSet));
+		qe.getContext().set(ParallelGraphOpExecutor.graphParallelism, 3);
+		qe.getContext().set(ParallelGraphOpExecutor.graphQueueCapacity, 1);
+		assertEquals(3, toList(qe).size());
+	}
+
+	private void assertSameOrderedResults(String query) {
+		QueryExecution qe = QueryExecutionFactory.create(PREFIXES + query, new NamedGraphDataset(this.referenceSet));
+		List<String> expected = toList(qe, false);
+		qe = QueryExecutionFactory.create(PREFIXES + query, new NamedGraphDataset(this.idBasedSet));
+		assertEquals(expected, toList(qe, false));
+	}
+
+	private void assertSameResults(String query) {
+		List<String> expected = execute(PREFIXES + query, this.referenceSet, true, null);
+		assertEquals(expected, execute(PREFIXES + query, this.idBasedSet, true, null));
+		assertEquals(expected, execute(PREFIXES + query, this.idBasedSet, false, null));
+		assertEquals(expected, execute(PREFIXES + query, this.idBasedSet, true, IdBasedOpExecutor.JOIN_NESTED_LOOP));
+		assertEquals(expected, execute(PREFIXES + query, this.idBasedSet, true, IdBasedOpExecutor.JOIN_HASH));
+		assertEquals(expected, execute(PREFIXES + query, this.idBasedSet, false, IdBasedOpExecutor.JOIN_HASH));
+		assertEquals(expected, execute(PREFIXES + query, this.idBasedSet, true, IdBasedOpExecutor.JOIN_MERGE));
+		assertEquals(expected, execute(PREFIXES + query, this.idBasedSet, true, null, 0));
+		assertEquals(expected, execute(PREFIXES + query, this.idBasedSet, false, null, 0));
+		assertEquals(expected, execute(PREFIXES + query, this.idBasedSet, true, IdBasedOpExecutor.JOIN_HASH, 0));
+		assertEquals(expected, execute(PREFIXES + query, this.idBasedSet, true, null, 7));
+	}
+
+	private List<String> execute(String query, NamedGraphSet set, boolean reorder, String joinStrategy) {
+		return execute(query, set, reorder, joinStrategy, -1);
+	}
+
+	private List<String> execute(String query, NamedGraphSet set, boolean reorder, String joinStrategy, int batchSize) {
+		QueryExecution qe = QueryExecutionFactory.create(query, new NamedGraphDataset(set));
+		if (batchSize >= 0) {
+			qe.getContext().set(IdBasedOpExecutor.batchSize, batchSize);
+		}
+		qe.getContext().set(IdBasedOpExecutor.reorderTriplePatterns, reorder);
+		if (joinStrategy != null) {
+			qe.getContext().set(IdBasedOpExecutor.joinStrategy, joinStrategy);
+		}
+		return toList(qe);
+	}
+
+	private List<String> toList(QueryExecution qe) {
+		return toList(qe, true);
+	}
+
+	private List<String> toList(QueryExecution qe, boolean sort) {
+		List<String> result = new ArrayList<String>();
+		ResultSet rs = qe.execSelect();
+		while (rs.hasNext()) {
+			QuerySolution s = rs.nextSolution();
+			List<String> values = new ArrayList<String>();
+			for (Iterator<String> it = s.varNames(); it.hasNext(); ) {
+				String var = it.next();
+				values.add(var + "=" + s.get(var));
+			}
+			Collections.sort(values);
+			result.add(values.toString());
+		}
+		qe.close();
+		if (sort) {
+			Collections.sort(result);
+		}
+		return result;
+	}
+
+	private void add(Node g, Node s, Node p, Node o) {
+		this.referenceSet.addQuad(new Quad(g, s, p, o));
+		this.idBasedSet.addQuad(new Quad(g, s, p, o));
+	}
+
+	private static Node uri(String localName) {
+		return Node.createURI("http://example.org/#" + localName);
+	}
+}
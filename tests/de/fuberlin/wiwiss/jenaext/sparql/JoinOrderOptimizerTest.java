@@ -0,0 +1,100 @@
+package de.fuberlin.wiwiss.jenaext.sparql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.vocabulary.RDF;
+
+import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+import de.fuberlin.wiwiss.jenaext.impl.IdBasedGraphMem;
+import de.fuberlin.wiwiss.jenaext.impl.NodeDictionaryImpl;
+import de.fuberlin.wiwiss.jenaext.impl.IdBasedQueryPlan.IdBasedTriplePattern;
+
+/**
+ * Unit tests for {@link JoinOrderOptimizer}.
+ *
+ * @author Olaf Hartig
+ */
+public class JoinOrderOptimizerTest extends TestCase {
+	private NodeDictionary dict;
+	private JoinOrderOptimizer optimizer;
+
+	protected void setUp() throws Exception {
+		this.dict = new NodeDictionaryImpl();
+		IdBasedGraphMem graph = new IdBasedGraphMem(this.dict);
+		for (int i = 0; i < 100; i++) {
+			graph.add(new Triple(uri("person" + i), RDF.Nodes.type, uri("Person")));
+			graph.add(new Triple(uri("person" + i), uri("knows"), uri("person" + ((i + 1) % 100))));
+			graph.add(new Triple(uri("person" + i), uri("age"), Node.createLiteral(String.valueOf(i % 10))));
+		}
+		graph.add(new Triple(uri("person7"), uri("name"), Node.createLiteral("Bob")));
+		// many triples but only two distinct subjects
+		for (int i = 0; i < 50; i++) {
+			graph.add(new Triple(uri("person" + (i % 2)), uri("likes"), uri("thing" + i)));
+		}
+		this.optimizer = new JoinOrderOptimizer(graph);
+	}
+
+	public void testSelectivePatternFirst() {
+		// ?x rdf:type ex:Person . ?x ex:name "Bob"
+		IdBasedTriplePattern type = pattern(0, RDF.Nodes.type, uri("Person"));
+		IdBasedTriplePattern name = pattern(0, uri("name"), Node.createLiteral("Bob"));
+		List<IdBasedTriplePattern> order = optimize(type, name);
+		assertSame(name, order.get(0));
+		assertSame(type, order.get(1));
+	}
+
+	public void testJoinedPatternsBeforeCartesianProduct() {
+		// ?x ex:name "Bob" . ?y ex:age "3" . ?x ex:knows ?z
+		IdBasedTriplePattern name = pattern(0, uri("name"), Node.createLiteral("Bob"));
+		IdBasedTriplePattern age = pattern(1, uri("age"), Node.createLiteral("3"));
+		IdBasedTriplePattern knows = new IdBasedTriplePattern(true, 0, false, id(uri("knows")), true, 2);
+		List<IdBasedTriplePattern> order = optimize(name, age, knows);
+		assertSame(name, order.get(0));
+		assertSame(knows, order.get(1));
+		assertSame(age, order.get(2));
+	}
+
+	public void testDistinctSubjectsOfBoundVariable() {
+		// ?x ex:name "Bob" . ?x ex:likes ?y . ?x ex:knows ?z
+		IdBasedTriplePattern name = pattern(0, uri("name"), Node.createLiteral("Bob"));
+		IdBasedTriplePattern likes = new IdBasedTriplePattern(true, 0, false, id(uri("likes")), true, 1);
+		IdBasedTriplePattern knows = new IdBasedTriplePattern(true, 0, false, id(uri("knows")), true, 2);
+		List<IdBasedTriplePattern> order = optimize(name, likes, knows);
+		assertSame(name, order.get(0));
+		assertSame(knows, order.get(1));
+		assertSame(likes, order.get(2));
+	}
+
+	public void testEmptyPatternFirst() {
+		IdBasedTriplePattern type = pattern(0, RDF.Nodes.type, uri("Person"));
+		IdBasedTriplePattern unknown = pattern(0, uri("unknown"), uri("Person"));
+		assertSame(unknown, optimize(type, unknown).get(0));
+	}
+
+	private List<IdBasedTriplePattern> optimize(IdBasedTriplePattern... patterns) {
+		List<IdBasedTriplePattern> list = new ArrayList<IdBasedTriplePattern>();
+		for (IdBasedTriplePattern tp : patterns) {
+			list.add(tp);
+		}
+		List<IdBasedTriplePattern> result = this.optimizer.optimize(list);
+		assertEquals(patterns.length, result.size());
+		return result;
+	}
+
+	private IdBasedTriplePattern pattern(int subjectVar, Node p, Node o) {
+		return new IdBasedTriplePattern(true, subjectVar, false, id(p), false, id(o));
+	}
+
+	private int id(Node n) {
+		return this.dict.createId(n);
+	}
+
+	private static Node uri(String localName) {
+		return Node.createURI("http://example.org/#" + localName);
+	}
+}
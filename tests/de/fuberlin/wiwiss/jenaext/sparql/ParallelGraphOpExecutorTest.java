@@ -0,0 +1,78 @@
+package de.fuberlin.wiwiss.jenaext.sparql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.sparql.engine.main.QC;
+
+import de.fuberlin.wiwiss.ng4j.NamedGraphSet;
+import de.fuberlin.wiwiss.ng4j.Quad;
+import de.fuberlin.wiwiss.ng4j.impl.NamedGraphSetImpl;
+import de.fuberlin.wiwiss.ng4j.sparql.NamedGraphDataset;
+
+/**
+ * Compares the results of the {@link ParallelGraphOpExecutor} with the
+ * results of the default ARQ executor.
+ *
+ * @author Olaf Hartig
+ */
+public class ParallelGraphOpExecutorTest extends TestCase {
+	private static final String QUERY = "PREFIX ex: <http://example.org/#> "
+			+ "SELECT ?g ?x ?z WHERE { GRAPH ?g { ?x ex:knows ?y . ?y ex:knows ?z } }";
+
+	private NamedGraphSet set;
+
+	protected void setUp() throws Exception {
+		this.set = new NamedGraphSetImpl();
+		for (int g = 0; g < 50; g++) {
+			for (int i = 0; i < 20; i++) {
+				this.set.addQuad(new Quad(uri("graph" + g), uri("person" + i),
+						uri("knows"), uri("person" + ((i * g) % 20))));
+			}
+		}
+	}
+
+	public void testSameResultsAsDefaultExecutor() {
+		List<String> expected = execute(QUERY, -1, -1);
+		assertEquals(1000, expected.size());
+		assertEquals(expected, execute(QUERY, 1, -1));
+		assertEquals(expected, execute(QUERY, 4, -1));
+		assertEquals(expected, execute(QUERY, 8, 1));
+	}
+
+	public void testClosedEarly() {
+		assertEquals(5, execute(QUERY + " LIMIT 5", 4, 1).size());
+	}
+
+	private List<String> execute(String query, int parallelism, int queueCapacity) {
+		QueryExecution qe = QueryExecutionFactory.create(query, new NamedGraphDataset(this.set));
+		if (parallelism >= 0) {
+			QC.setFactory(qe.getContext(), ParallelGraphOpExecutor.factory);
+			qe.getContext().set(ParallelGraphOpExecutor.graphParallelism, parallelism);
+		}
+		if (queueCapacity >= 0) {
+			qe.getContext().set(ParallelGraphOpExecutor.graphQueueCapacity, queueCapacity);
+		}
+		List<String> result = new ArrayList<String>();
+		ResultSet rs = qe.execSelect();
+		while (rs.hasNext()) {
+			QuerySolution s = rs.nextSolution();
+			result.add(s.get("g") + " " + s.get("x") + " " + s.get("z"));
+		}
+		qe.close();
+		Collections.sort(result);
+		return result;
+	}
+
+	private static Node uri(String localName) {
+		return Node.createURI("http://example.org/#" + localName);
+	}
+}
@@ -0,0 +1,129 @@
+package de.fuberlin.wiwiss.jenaext.sparql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.query.QuerySolutionMap;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.rdf.model.ResourceFactory;
+
+import de.fuberlin.wiwiss.ng4j.Quad;
+import de.fuberlin.wiwiss.ng4j.impl.idbased.IdBasedNamedGraphSetImpl;
+import de.fuberlin.wiwiss.ng4j.sparql.NamedGraphDataset;
+
+/**
+ * Tests the {@link PreparedQuery} and the {@link CompiledQueryCache}.
+ *
+ * @author Olaf Hartig
+ */
+public class PreparedQueryTest extends TestCase {
+	private static final String PREFIXES = "PREFIX ex: <http://example.org/#> ";
+	private static final String QUERY = PREFIXES
+			+ "SELECT ?y ?a WHERE { ?x ex:knows ?y . ?y ex:age ?a }";
+
+	private IdBasedNamedGraphSetImpl set;
+
+	protected void setUp() throws Exception {
+		IdBasedQueryEngine.register();
+		this.set = new IdBasedNamedGraphSetImpl();
+		for (int i = 0; i < 30; i++) {
+			Node g = uri("graph" + (i % 2));
+			this.set.addQuad(new Quad(g, uri("person" + i), uri("knows"), uri("person" + ((i * 7) % 30))));
+			this.set.addQuad(new Quad(g, uri("person" + i), uri("age"), Node.createLiteral(String.valueOf(i % 10))));
+		}
+	}
+
+	protected void tearDown() throws Exception {
+		IdBasedQueryEngine.unregister();
+	}
+
+	public void testWithoutParameters() {
+		PreparedQuery q = new PreparedQuery(QueryFactory.create(QUERY), new CompiledQueryCache(10));
+		List<String> expected = toList(QueryExecutionFactory.create(QUERY, dataset()));
+		assertEquals(30, expected.size());
+		assertEquals(expected, toList(q.createExecution(dataset())));
+		assertEquals(expected, toList(q.createExecution(dataset())));
+	}
+
+	public void testWithParameters() {
+		PreparedQuery q = new PreparedQuery(QueryFactory.create(QUERY), new CompiledQueryCache(10));
+		for (int i = 0; i < 30; i += 7) {
+			String substituted = PREFIXES
+					+ "SELECT ?y ?a WHERE { ex:person" + i + " ex:knows ?y . ?y ex:age ?a }";
+			List<String> expected = toList(QueryExecutionFactory.create(substituted, dataset()));
+			assertEquals(1, expected.size());
+			QuerySolutionMap params = new QuerySolutionMap();
+			params.add("x", ResourceFactory.createResource("http://example.org/#person" + i));
+			assertEquals(expected, toList(q.createExecution(dataset(), params)));
+		}
+	}
+
+	public void testUnknownParameter() {
+		PreparedQuery q = new PreparedQuery(QueryFactory.create(QUERY), new CompiledQueryCache(10));
+		QuerySolutionMap params = new QuerySolutionMap();
+		params.add("unknown", ResourceFactory.createResource("http://example.org/#person1"));
+		try {
+			q.createExecution(dataset(), params);
+			fail("IllegalArgumentException expected");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testCacheSharesCompiledQueries() {
+		CompiledQueryCache cache = new CompiledQueryCache(10);
+		PreparedQuery q1 = new PreparedQuery(QueryFactory.create(QUERY), cache);
+		PreparedQuery q2 = new PreparedQuery(QueryFactory.create(
+				"PREFIX p: <http://example.org/#>\nSELECT ?y ?a\nWHERE {\n ?x p:knows ?y .\n ?y p:age ?a\n}"), cache);
+		assertSame(q1.getCompiledQuery(), q2.getCompiledQuery());
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+	}
+
+	public void testLeastRecentlyUsedQueryIsRemoved() {
+		CompiledQueryCache cache = new CompiledQueryCache(2);
+		CompiledQuery q1 = new PreparedQuery(QueryFactory.create(QUERY), cache).getCompiledQuery();
+		CompiledQuery q2 = new PreparedQuery(QueryFactory.create(QUERY + " LIMIT 2"), cache).getCompiledQuery();
+		assertSame(q1, new PreparedQuery(QueryFactory.create(QUERY), cache).getCompiledQuery());
+		new PreparedQuery(QueryFactory.create(QUERY + " LIMIT 3"), cache);
+		assertEquals(2, cache.size());
+		assertSame(q1, new PreparedQuery(QueryFactory.create(QUERY), cache).getCompiledQuery());
+		assertNotSame(q2, new PreparedQuery(QueryFactory.create(QUERY + " LIMIT 2"), cache).getCompiledQuery());
+	}
+
+	private NamedGraphDataset dataset() {
+		return new NamedGraphDataset(this.set);
+	}
+
+	private List<String> toList(QueryExecution qe) {
+		List<String> result = new ArrayList<String>();
+		ResultSet rs = qe.execSelect();
+		while (rs.hasNext()) {
+			QuerySolution s = rs.nextSolution();
+			List<String> values = new ArrayList<String>();
+			for (Iterator<String> it = s.varNames(); it.hasNext(); ) {
+				String var = it.next();
+				values.add(var + "=" + s.get(var));
+			}
+			Collections.sort(values);
+			result.add(values.toString());
+		}
+		qe.close();
+		Collections.sort(result);
+		return result;
+	}
+
+	private static Node uri(String localName) {
+		return Node.createURI("http://example.org/#" + localName);
+	}
+}
@@ -0,0 +1,18 @@
+package de.fuberlin.wiwiss.jenaext.sparql.iterator;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Unit Test suite for the iterators of the ID-based query engine
+ */
+public class AllTests {
+
+	public static Test suite() {
+		TestSuite suite = new TestSuite("Test for de.fuberlin.wiwiss.jenaext.sparql.iterator");
+		//$JUnit-BEGIN$
+		suite.addTestSuite(IdBasedJoinIteratorTest.class);
+		//$JUnit-END$
+		return suite;
+	}
+}
@@ -0,0 +1,133 @@
+package de.fuberlin.wiwiss.jenaext.sparql.iterator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import de.fuberlin.wiwiss.jenaext.sparql.IdBasedBinding;
+
+/**
+ * Tests the {@link IdBasedHashJoinIterator} and the
+ * {@link IdBasedMergeJoinIterator}.
+ *
+ * @author Olaf Hartig
+ */
+public class IdBasedJoinIteratorTest extends TestCase {
+	private static final int X = 0;
+	private static final int Y = 1;
+	private static final int Z = 2;
+	private static final int SIZE = 3;
+
+	private List<IdBasedBinding> left;
+	private List<IdBasedBinding> right;
+
+	protected void setUp() {
+		this.left = new ArrayList<IdBasedBinding>();
+		this.right = new ArrayList<IdBasedBinding>();
+	}
+
+	public void testHashJoinOneVariable() {
+		this.left.add(binding(1, 10, -1));
+		this.left.add(binding(2, 20, -1));
+		this.left.add(binding(3, 30, -1));
+		this.right.add(binding(2, -1, 200));
+		this.right.add(binding(2, -1, 201));
+		this.right.add(binding(4, -1, 400));
+		assertEquals(list("(2,20,200)", "(2,20,201)"),
+				toList(new IdBasedHashJoinIterator(this.left.iterator(), this.right.iterator(), new int[] {X})));
+	}
+
+	public void testHashJoinTwoVariables() {
+		this.left.add(binding(1, 10, -1));
+		this.left.add(binding(1, 11, -1));
+		this.right.add(binding(1, 11, 100));
+		this.right.add(binding(1, 12, 101));
+		assertEquals(list("(1,11,100)"),
+				toList(new IdBasedHashJoinIterator(this.left.iterator(), this.right.iterator(), new int[] {X, Y})));
+	}
+
+	public void testHashJoinChecksOtherVariables() {
+		this.left.add(binding(1, 10, 5));
+		this.right.add(binding(1, -1, 6));
+		this.right.add(binding(1, -1, 5));
+		assertEquals(list("(1,10,5)"),
+				toList(new IdBasedHashJoinIterator(this.left.iterator(), this.right.iterator(), new int[] {X})));
+	}
+
+	public void testHashJoinUnboundJoinVariable() {
+		this.left.add(binding(-1, 10, -1));
+		this.left.add(binding(2, 20, -1));
+		this.right.add(binding(1, -1, 100));
+		this.right.add(binding(-1, -1, 101));
+		assertEquals(list("(-1,10,101)", "(1,10,100)", "(2,20,101)"),
+				toList(new IdBasedHashJoinIterator(this.left.iterator(), this.right.iterator(), new int[] {X})));
+	}
+
+	public void testHashJoinEmptyBuildSide() {
+		this.left.add(binding(1, 10, -1));
+		assertFalse(new IdBasedHashJoinIterator(this.left.iterator(), this.right.iterator(), new int[] {X}).hasNext());
+	}
+
+	public void testMergeJoin() {
+		this.left.add(binding(3, 30, -1));
+		this.left.add(binding(1, 10, -1));
+		this.left.add(binding(2, 20, -1));
+		this.left.add(binding(2, 21, -1));
+		this.right.add(binding(4, -1, 400));
+		this.right.add(binding(2, -1, 201));
+		this.right.add(binding(0, -1, 0));
+		this.right.add(binding(2, -1, 200));
+		this.right.add(binding(3, 31, 300));
+		Iterator<IdBasedBinding> it = new IdBasedMergeJoinIterator(
+				IdBasedMergeJoinIterator.sort(this.left.iterator(), X),
+				IdBasedMergeJoinIterator.sort(this.right.iterator(), X), X);
+		assertEquals(list("(2,20,200)", "(2,20,201)", "(2,21,200)", "(2,21,201)"), toList(it));
+	}
+
+	public void testMergeJoinSameResultAsHashJoin() {
+		for (int i = 0; i < 200; i++) {
+			this.left.add(binding(i % 17, i, -1));
+			this.right.add(binding(i % 13, -1, i));
+		}
+		List<String> expected = toList(new IdBasedHashJoinIterator(this.left.iterator(), this.right.iterator(), new int[] {X}));
+		assertEquals(200 * 200 / 17, expected.size(), 200);
+		assertEquals(expected, toList(new IdBasedMergeJoinIterator(
+				IdBasedMergeJoinIterator.sort(this.left.iterator(), X),
+				IdBasedMergeJoinIterator.sort(this.right.iterator(), X), X)));
+	}
+
+	public void testMerge() {
+		assertEquals("(1,2,3)", toString(IdBasedBinding.merge(binding(1, -1, 3), binding(1, 2, -1))));
+		assertNull(IdBasedBinding.merge(binding(1, -1, 3), binding(2, 2, -1)));
+	}
+
+	private static IdBasedBinding binding(int x, int y, int z) {
+		IdBasedBinding b = new IdBasedBinding(SIZE);
+		b.set(X, x);
+		b.set(Y, y);
+		b.set(Z, z);
+		return b;
+	}
+
+	private static List<String> toList(Iterator<IdBasedBinding> it) {
+		List<String> result = new ArrayList<String>();
+		while (it.hasNext()) {
+			result.add(toString(it.next()));
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	private static List<String> list(String... bindings) {
+		List<String> result = new ArrayList<String>();
+		Collections.addAll(result, bindings);
+		return result;
+	}
+
+	private static String toString(IdBasedBinding b) {
+		return "(" + b.get(X) + "," + b.get(Y) + "," + b.get(Z) + ")";
+	}
+}
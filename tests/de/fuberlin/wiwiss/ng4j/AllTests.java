@@ -31,6 +31,8 @@ public class AllTests {
 		suite.addTest(de.fuberlin.wiwiss.ng4j.trig.AllTests.suite());
 		suite.addTest(de.fuberlin.wiwiss.ng4j.swp.AllTests.suite());
 		suite.addTest(de.fuberlin.wiwiss.ng4j.swp.util.AllTests.suite());
+		suite.addTest(de.fuberlin.wiwiss.ng4j.impl.idbased.AllTests.suite());
+		suite.addTest(de.fuberlin.wiwiss.jenaext.AllTests.suite());
 		return suite;
 	}
 }
\ No newline at end of file
@@ -26,6 +26,10 @@ public class AllTests {
 //		suite.addTestSuite(TriQLAgainstDBTest.class);
 		suite.addTestSuite(SPARQLAgainstDBTest.class);
 		suite.addTestSuite(NamedGraphSetDBTest.class);
+		suite.addTestSuite(DictionaryQuadDBTest.class);
+		suite.addTestSuite(DictionaryNamedGraphSetDBTest.class);
+		suite.addTestSuite(DBQueryEngineTest.class);
+		suite.addTestSuite(DictionaryDBQueryEngineTest.class);
 		//$JUnit-END$
 		return suite;
 	}
@@ -94,6 +94,14 @@ public class DBConnectionHelper {
 		return new NamedGraphSetDB(getConnection());
 	}
 	
+	static NamedGraphSetDB createDictionaryNamedGraphSetDB() {
+		return new NamedGraphSetDB(getConnection(), "ng4j", true);
+	}
+	
+	static void deleteDictionaryNamedGraphSetTables() {
+		NamedGraphSetDB.delete(getConnection(), "ng4j", true);
+	}
+	
 	static void deleteNamedGraphSetTables() {
 		try {
 			Class.forName(getDatabaseDriverString());
@@ -0,0 +1,261 @@
+package de.fuberlin.wiwiss.ng4j.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.hp.hpl.jena.datatypes.RDFDatatype;
+import com.hp.hpl.jena.datatypes.TypeMapper;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.rdf.model.AnonId;
+import com.hp.hpl.jena.sparql.engine.QueryEngineRegistry;
+import com.hp.hpl.jena.sparql.util.Context;
+import com.hp.hpl.jena.vocabulary.RDF;
+
+import de.fuberlin.wiwiss.ng4j.NamedGraphSet;
+import de.fuberlin.wiwiss.ng4j.Quad;
+import de.fuberlin.wiwiss.ng4j.impl.NamedGraphSetImpl;
+import de.fuberlin.wiwiss.ng4j.sparql.NamedGraphDataset;
+
+/**
+ * Compares the results of the {@link DBQueryEngine} with the results of
+ * the default ARQ engine over an in-memory NamedGraphSet.
+ *
+ * @author Richard Cyganiak (richard@cyganiak.de)
+ */
+public class DBQueryEngineTest extends TestCase {
+	private static final String PREFIXES = "PREFIX ex: <http://example.org/#> "
+			+ "PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> ";
+
+	// in-memory graphs would match plain literals and xsd:strings alike
+	private static final RDFDatatype CODE =
+			TypeMapper.getInstance().getSafeTypeByName("http://example.org/#code");
+
+	private NamedGraphSet referenceSet;
+	private NamedGraphSetDB dbSet;
+
+	protected void setUp() throws Exception {
+		DBQueryEngine.register();
+		this.referenceSet = new NamedGraphSetImpl();
+		this.dbSet = createNamedGraphSetDB();
+		this.dbSet.startBatch();
+		for (int i = 0; i < 60; i++) {
+			Node g = uri("graph" + (i % 3));
+			add(g, uri("person" + i), RDF.Nodes.type, uri("Person"));
+			add(g, uri("person" + i), uri("knows"), uri("person" + ((i * 7) % 60)));
+			add(g, uri("person" + i), uri("age"), Node.createLiteral(String.valueOf(i % 10)));
+			if (i % 5 == 0) {
+				add(g, uri("person" + i), uri("name"), Node.createLiteral("name" + (i % 4)));
+			}
+			if (i % 4 == 0) {
+				// the same lexical form with different languages and datatypes
+				Node nick = (i % 8 == 0) ?
+						Node.createLiteral("nick", "en", false) :
+						Node.createLiteral("nick", null, CODE);
+				add(g, uri("person" + i), uri("nick"), nick);
+				add(g, uri("person" + i), uri("label"), Node.createLiteral("nick"));
+			}
+			if (i % 6 == 0) {
+				Node address = Node.createAnon(new AnonId("address" + i));
+				add(g, uri("person" + i), uri("address"), address);
+				add(g, address, uri("city"), uri("city" + (i % 4)));
+			}
+		}
+		this.dbSet.endBatch();
+	}
+
+	protected void tearDown() throws Exception {
+		DBQueryEngine.unregister();
+		this.dbSet.close();
+		deleteTables();
+	}
+
+	protected NamedGraphSetDB createNamedGraphSetDB() {
+		return DBConnectionHelper.createNamedGraphSetDB();
+	}
+
+	protected void deleteTables() {
+		DBConnectionHelper.deleteNamedGraphSetTables();
+	}
+
+	public void testEngineIsSelected() {
+		NamedGraphDataset dataset = new NamedGraphDataset(this.dbSet);
+		assertSame(DBQueryEngine.getFactory(), QueryEngineRegistry.findFactory(
+				QueryFactory.create("SELECT * WHERE { ?s ?p ?o }"), dataset, new Context()));
+		NamedGraphDataset memoryDataset = new NamedGraphDataset(this.referenceSet);
+		assertNotSame(DBQueryEngine.getFactory(), QueryEngineRegistry.findFactory(
+				QueryFactory.create("SELECT * WHERE { ?s ?p ?o }"), memoryDataset, new Context()));
+	}
+
+	public void testStarPattern() {
+		assertSameResults("SELECT * WHERE { ?x rdf:type ex:Person . ?x ex:age ?a . ?x ex:name \"name0\" }");
+	}
+
+	public void testPathPattern() {
+		assertSameResults("SELECT * WHERE { ?x rdf:type ex:Person . ?x ex:knows ?y . ?y ex:knows ?z . ?z ex:name ?n }");
+	}
+
+	public void testCartesianProduct() {
+		assertSameResults("SELECT * WHERE { ?x ex:name \"name1\" . ?y ex:name \"name2\" }");
+	}
+
+	public void testUnknownConstant() {
+		assertSameResults("SELECT * WHERE { ?x rdf:type ex:Person . ?x ex:unknown ?y }");
+		assertSameResults("SELECT * WHERE { ?x ex:age \"unknown\" }");
+	}
+
+	public void testPatternWithoutVariables() {
+		assertSameResults("ASK { ex:person1 ex:knows ex:person7 . ex:person7 ex:age \"7\" }");
+		assertSameResults("ASK { ex:person1 ex:knows ex:person8 }");
+	}
+
+	public void testRepeatedVariable() {
+		add(uri("graph0"), uri("person1"), uri("knows"), uri("person1"));
+		assertSameResults("SELECT * WHERE { ?x ex:knows ?x . ?x ex:age ?a }");
+	}
+
+	public void testVariablePredicate() {
+		assertSameResults("SELECT * WHERE { ex:person10 ?p ?o }");
+		assertSameResults("SELECT * WHERE { ?x ex:knows ?y . ?y ?p \"nick\" }");
+	}
+
+	public void testLiteralJoin() {
+		assertSameResults("SELECT * WHERE { ?x ex:nick ?n . ?y ex:nick ?n }");
+		assertSameResults("SELECT * WHERE { ?x ex:nick ?n . ?y ex:label ?n }");
+		assertSameResults("SELECT * WHERE { ?x ex:age ?a . ?y ex:knows ?a }");
+	}
+
+	public void testLiteralConstants() {
+		assertSameResults("SELECT * WHERE { ?x ex:nick \"nick\"@en }");
+		assertSameResults("SELECT * WHERE { ?x ex:nick \"nick\"^^ex:code }");
+		assertSameResults("SELECT * WHERE { ?x ex:nick \"nick\" }");
+	}
+
+	public void testBlankNodes() {
+		assertSameResults("SELECT * WHERE { ?x ex:address ?a . ?a ex:city ?c }");
+		assertSameResults("SELECT ?x ?c WHERE { ?x ex:address [ ex:city ?c ] }");
+	}
+
+	public void testOptional() {
+		assertSameResults("SELECT * WHERE { ?x rdf:type ex:Person . ?x ex:knows ?y OPTIONAL { ?y ex:name ?n . ?y ex:age ?a } }");
+	}
+
+	public void testUnion() {
+		assertSameResults("SELECT * WHERE { { ?x ex:name ?n } UNION { ?x ex:nick ?n } }");
+	}
+
+	public void testModifiers() {
+		assertSameResults("SELECT ?n WHERE { ?x ex:knows ?y . ?y ex:name ?n } ORDER BY ?n ?x LIMIT 5");
+		assertSameResults("SELECT DISTINCT ?y WHERE { ?x ex:knows ?y . ?y ex:age ?a }");
+		assertSameResults("SELECT ?a (COUNT(?x) AS ?c) WHERE { ?x ex:age ?a . ?x ex:knows ?y } GROUP BY ?a");
+	}
+
+	public void testSameTermFilter() {
+		assertSameResults("SELECT * WHERE { ?x ex:knows ?y FILTER sameTerm(?x, ?y) }");
+		assertSameResults("SELECT * WHERE { ?x ex:knows ?y . ?y ex:age ?a FILTER (!sameTerm(?x, ?y)) }");
+		assertSameResults("SELECT * WHERE { ?x ex:age ?a . ?x ex:knows ?y FILTER sameTerm(?a, \"3\") }");
+		assertSameResults("SELECT * WHERE { ?x ex:nick ?n . ?y ex:label ?m FILTER sameTerm(?n, ?m) }");
+		assertSameResults("SELECT * WHERE { ?x ex:knows ?y FILTER sameTerm(?x, \"person1\") }");
+	}
+
+	public void testIriEqualityFilter() {
+		assertSameResults("SELECT * WHERE { ?x ex:knows ?y . ?x ?p ?o FILTER (?o = ex:Person) }");
+		assertSameResults("SELECT * WHERE { ?x ex:knows ?y . ?y ?p ?o FILTER (ex:person7 != ?x) }");
+		assertSameResults("SELECT * WHERE { ?x ex:knows ?y . ?y ?p ?o FILTER (ex:person7 != ?o) }");
+		assertSameResults("SELECT * WHERE { ?x ?p ?o FILTER (?o = ex:unknown) }");
+		assertSameResults("SELECT * WHERE { ?x ex:knows ?y FILTER (?y = ex:person14 || ?y = ex:person21) }");
+	}
+
+	public void testLiteralEqualityFilter() {
+		assertSameResults("SELECT * WHERE { ?x ex:age ?a FILTER (?a = \"2\") }");
+		assertSameResults("SELECT * WHERE { ?x ex:nick ?n . ?y ex:label ?m FILTER (?n = ?m && ?x != ?y) }");
+	}
+
+	public void testTermTypeFilters() {
+		assertSameResults("SELECT * WHERE { ?x ?p ?o FILTER isLiteral(?o) }");
+		assertSameResults("SELECT * WHERE { ?x ?p ?o FILTER isBlank(?o) }");
+		assertSameResults("SELECT * WHERE { ?x ?p ?o FILTER (isIRI(?o) && isIRI(?x)) }");
+		assertSameResults("SELECT * WHERE { ?x ?p ?o FILTER isLiteral(?x) }");
+		assertSameResults("SELECT * WHERE { ?x ex:knows ?y FILTER (isURI(?y) && regex(str(?y), \"person1\")) }");
+	}
+
+	public void testFilterOnOtherVariable() {
+		assertSameResults("SELECT * WHERE { ?x ex:name ?n OPTIONAL { ?x ex:nick ?k FILTER (?n = \"name0\") } }");
+	}
+
+	public void testGraphPattern() {
+		assertSameResults("SELECT * WHERE { GRAPH ?g { ?x ex:knows ?y . ?y ex:age ?a } }");
+		assertSameResults("SELECT * WHERE { GRAPH ex:graph1 { ?x ex:knows ?y . ?y ex:age ?a } }");
+		assertSameResults("SELECT * WHERE { GRAPH ex:unknown { ?x ex:knows ?y } }");
+		assertSameResults("SELECT * WHERE { GRAPH ?g { ?x ex:name ?n } GRAPH ?h { ?x ex:age ?a } }");
+		assertSameResults("SELECT DISTINCT ?g ?y WHERE { GRAPH ?g { ?x ex:knows ?y FILTER (?y != ex:person0) } }");
+		assertSameResults("SELECT * WHERE { GRAPH ?g { ?x ex:name ?n } FILTER (?g = ex:graph2) }");
+		assertSameResults("SELECT * WHERE { ?x ex:name ?n GRAPH ?g { ?x ex:age ?a } }");
+		assertSameResults("SELECT * WHERE { GRAPH ?g { ?x ex:name ?n OPTIONAL { ?x ex:nick ?k } } }");
+	}
+
+	public void testUnionGraphIsDistinct() {
+		add(uri("graph1"), uri("person0"), uri("name"), Node.createLiteral("name0"));
+		String query = PREFIXES + "SELECT * WHERE { ?x ex:name \"name0\" . ?x ex:age ?a }";
+		assertEquals(3, execute(query, this.dbSet).size());
+		query = PREFIXES + "SELECT * WHERE { GRAPH ?g { ?x ex:name \"name0\" } }";
+		assertEquals(4, execute(query, this.dbSet).size());
+	}
+
+	public void testStreaming() {
+		this.dbSet.setStreaming(true);
+		assertSameResults("SELECT * WHERE { ?x rdf:type ex:Person . ?x ex:knows ?y . ?y ex:knows ?z . ?z ex:name ?n }");
+		assertSameResults("SELECT * WHERE { GRAPH ?g { ?x ex:name ?n } GRAPH ?h { ?x ex:age ?a } }");
+		assertSameResults("SELECT * WHERE { ?x ex:knows ?y OPTIONAL { ?y ex:name ?n } }");
+		assertEquals(3, execute(PREFIXES + "SELECT * WHERE { ?s ?p ?o } LIMIT 3", this.dbSet).size());
+		// the ResultSets of unfinished queries have been closed
+		add(uri("graph0"), uri("person1"), uri("knows"), uri("person1"));
+		assertSameResults("SELECT * WHERE { ?x ex:knows ?x }");
+	}
+
+	private void assertSameResults(String query) {
+		List<String> expected = execute(PREFIXES + query, this.referenceSet);
+		assertEquals(expected, execute(PREFIXES + query, this.dbSet));
+	}
+
+	private List<String> execute(String query, NamedGraphSet set) {
+		QueryExecution qe = QueryExecutionFactory.create(query, new NamedGraphDataset(set));
+		List<String> result = new ArrayList<String>();
+		if (QueryFactory.create(query).isAskType()) {
+			result.add(String.valueOf(qe.execAsk()));
+			qe.close();
+			return result;
+		}
+		ResultSet rs = qe.execSelect();
+		while (rs.hasNext()) {
+			QuerySolution s = rs.nextSolution();
+			List<String> values = new ArrayList<String>();
+			for (Iterator<String> it = s.varNames(); it.hasNext(); ) {
+				String var = it.next();
+				values.add(var + "=" + s.get(var));
+			}
+			Collections.sort(values);
+			result.add(values.toString());
+		}
+		qe.close();
+		Collections.sort(result);
+		return result;
+	}
+
+	private void add(Node g, Node s, Node p, Node o) {
+		this.referenceSet.addQuad(new Quad(g, s, p, o));
+		this.dbSet.addQuad(new Quad(g, s, p, o));
+	}
+
+	private static Node uri(String localName) {
+		return Node.createURI("http://example.org/#" + localName);
+	}
+}
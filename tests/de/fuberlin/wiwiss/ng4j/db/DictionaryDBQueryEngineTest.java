@@ -0,0 +1,18 @@
+package de.fuberlin.wiwiss.ng4j.db;
+
+/**
+ * Runs the {@link DBQueryEngineTest}s against the dictionary-encoded
+ * table layout.
+ *
+ * @author Richard Cyganiak (richard@cyganiak.de)
+ */
+public class DictionaryDBQueryEngineTest extends DBQueryEngineTest {
+
+	protected NamedGraphSetDB createNamedGraphSetDB() {
+		return DBConnectionHelper.createDictionaryNamedGraphSetDB();
+	}
+
+	protected void deleteTables() {
+		DBConnectionHelper.deleteDictionaryNamedGraphSetTables();
+	}
+}
@@ -0,0 +1,20 @@
+package de.fuberlin.wiwiss.ng4j.db;
+
+import de.fuberlin.wiwiss.ng4j.NamedGraphSet;
+
+/**
+ * Runs the {@link NamedGraphSetDBTest}s against the dictionary-encoded
+ * table layout.
+ *
+ * @author Richard Cyganiak (richard@cyganiak.de)
+ */
+public class DictionaryNamedGraphSetDBTest extends NamedGraphSetDBTest {
+
+	public NamedGraphSet createNamedGraphSet() throws Exception {
+		return DBConnectionHelper.createDictionaryNamedGraphSetDB();
+	}
+
+	protected void deleteTables() {
+		DBConnectionHelper.deleteDictionaryNamedGraphSetTables();
+	}
+}
@@ -0,0 +1,79 @@
+package de.fuberlin.wiwiss.ng4j.db;
+
+import java.sql.Connection;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.rdf.model.AnonId;
+
+/**
+ * Runs the {@link QuadDBTest}s against the dictionary-encoded table layout.
+ *
+ * @author Richard Cyganiak (richard@cyganiak.de)
+ */
+public class DictionaryQuadDBTest extends QuadDBTest {
+	private final static Node graph1 = Node.createURI("http://example.org/graph1");
+	private final static Node node1 = Node.createURI("http://example.org/node1");
+	private final static Node node2 = Node.createURI("http://example.org/node2");
+	private final static Node blank1 = Node.createAnon(new AnonId("blank1"));
+
+	private Connection connection;
+
+	protected QuadDB createQuadDB() {
+		this.connection = DBConnectionHelper.getConnection();
+		return new QuadDB(this.connection, "ng4j_test", true);
+	}
+
+	public void testIsDictionaryEncoded() {
+		assertTrue(this.db.isDictionaryEncoded());
+	}
+
+	public void testTermsAreShared() {
+		this.db.setTermCacheSize(1);
+		this.db.insert(graph1, node1, node2, node1);
+		this.db.insert(graph1, blank1, node2, node1);
+		this.db.insert(graph1, node1, node2, Node.createLiteral("node1", null, null));
+		this.db.insert(graph1, node1, node2, Node.createLiteral("http://example.org/node1", null, null));
+		this.db.insert(graph1, node1, node2, node1);
+		assertEquals(4, this.db.count());
+		assertTrue(this.db.find(graph1, node1, node2, node1).hasNext());
+		assertTrue(this.db.find(graph1, blank1, Node.ANY, node1).hasNext());
+		assertTrue(this.db.find(Node.ANY, Node.ANY, Node.ANY,
+				Node.createLiteral("http://example.org/node1", null, null)).hasNext());
+		assertFalse(this.db.find(Node.ANY, node1, Node.ANY,
+				Node.createLiteral("node1", "en", null)).hasNext());
+	}
+
+	public void testAbortedBatchForgetsTerms() {
+		this.db.startBatch(10);
+		this.db.insert(graph1, node1, node2, Node.createLiteral("foo", null, null));
+		this.db.abortBatch();
+		this.db.insert(graph1, node1, node2, Node.createLiteral("foo", null, null));
+		assertTrue(this.db.find(graph1, Node.ANY, Node.ANY, Node.ANY).hasNext());
+	}
+
+	public void testExternalRollback() throws Exception {
+		this.connection.setAutoCommit(false);
+		try {
+			this.db.startBatch(10);
+			this.db.insert(graph1, node1, node2, Node.createLiteral("bar", null, null));
+			this.db.endBatch();
+			this.connection.rollback();
+		} finally {
+			this.connection.setAutoCommit(true);
+		}
+		this.db.insert(graph1, node1, node2, Node.createLiteral("bar", null, null));
+		assertTrue(this.db.find(graph1, Node.ANY, Node.ANY, Node.ANY).hasNext());
+	}
+
+	public void testExternalRollbackWithoutBatch() throws Exception {
+		this.connection.setAutoCommit(false);
+		try {
+			this.db.insert(graph1, node1, node2, Node.createLiteral("baz", null, null));
+			this.connection.rollback();
+		} finally {
+			this.connection.setAutoCommit(true);
+		}
+		this.db.insert(graph1, node1, node2, Node.createLiteral("baz", null, null));
+		assertTrue(this.db.find(graph1, node1, node2, Node.createLiteral("baz", null, null)).hasNext());
+	}
+}
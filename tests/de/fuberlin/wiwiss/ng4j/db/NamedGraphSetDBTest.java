@@ -1,15 +1,18 @@
 // $Id: NamedGraphSetDBTest.java,v 1.6 2009/04/22 17:25:35 jenpc Exp $
 package de.fuberlin.wiwiss.ng4j.db;
 
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.mem.GraphMem;
 import com.hp.hpl.jena.query.QueryExecution;
 import com.hp.hpl.jena.query.QueryExecutionFactory;
 import com.hp.hpl.jena.query.ResultSet;
 import com.hp.hpl.jena.query.ResultSetFactory;
+import com.hp.hpl.jena.shared.JenaException;
 
 import de.fuberlin.wiwiss.ng4j.NamedGraph;
 import de.fuberlin.wiwiss.ng4j.NamedGraphSet;
@@ -41,6 +44,10 @@ public class NamedGraphSetDBTest extends NamedGraphSetTest {
 	@Override
 	public void tearDown() throws Exception {
 		super.tearDown();
+		deleteTables();
+	}
+	
+	protected void deleteTables() {
 		DBConnectionHelper.deleteNamedGraphSetTables();
 	}
 	
@@ -73,6 +80,35 @@ public class NamedGraphSetDBTest extends NamedGraphSetTest {
 		assertTrue(this.set.isEmpty());
 	}
 	
+	public void testBatch() {
+		NamedGraphSetDB db = (NamedGraphSetDB) this.set;
+		db.startBatch(3);
+		for (int i = 0; i < 10; i++) {
+			db.addQuad(new Quad(node1, foo, bar, Node.createLiteral("" + i)));
+			db.addQuad(new Quad(node2, foo, bar, Node.createLiteral("" + (i % 5))));
+		}
+		assertEquals(2, this.set.countGraphs());
+		assertEquals(15, this.set.countQuads());
+		db.removeGraph(node2);
+		db.addQuad(new Quad(node2, foo, bar, baz));
+		db.endBatch();
+		assertEquals(2, this.set.countGraphs());
+		assertEquals(11, this.set.countQuads());
+	}
+
+	public void testFailedReadIsRolledBack() {
+		this.set.addQuad(new Quad(node1, foo, bar, baz));
+		try {
+			this.set.read(new StringReader("<" + uri2 + "> { <" + uri1 + "> <" + uri2 + "> <" + uri1 + "> . }\n"
+					+ "<http://example.org/graph3> { <" + uri1 + "> <" + uri2 + "> x:y . }"), "TRIG", "");
+			fail("undefined prefix must be reported");
+		} catch (JenaException ex) {
+			// expected
+		}
+		assertEquals(1, this.set.countGraphs());
+		assertEquals(1, this.set.countQuads());
+	}
+
 	public void testSPARQL() {
 		List<Quad> l = new ArrayList<Quad>();
 		l.add(new Quad(node1, foo, bar, baz));
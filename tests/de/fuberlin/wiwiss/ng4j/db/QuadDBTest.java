@@ -1,13 +1,16 @@
 // $Id: QuadDBTest.java,v 1.4 2009/02/11 15:14:06 jenpc Exp $
 package de.fuberlin.wiwiss.ng4j.db;
 
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 
 import junit.framework.TestCase;
 
 import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.rdf.model.AnonId;
+import com.hp.hpl.jena.util.iterator.ClosableIterator;
 
 import de.fuberlin.wiwiss.ng4j.Quad;
 
@@ -28,12 +31,16 @@ public class QuadDBTest extends TestCase {
 	private final static Node node4 = Node.createURI("http://example.org/node4");
 	private final static Node blank1 = Node.createAnon(new AnonId("blank1"));
 	private final static Node blank2 = Node.createAnon(new AnonId("blank2"));
-	private QuadDB db;
+	protected QuadDB db;
 
 	protected void setUp() throws Exception {
-		this.db = new QuadDB(DBConnectionHelper.getConnection(), "ng4j_test");
+		this.db = createQuadDB();
 		this.db.createTables();
 	}
+	
+	protected QuadDB createQuadDB() {
+		return new QuadDB(DBConnectionHelper.getConnection(), "ng4j_test");
+	}
 
 	protected void tearDown() throws Exception {
 		this.db.deleteTables();
@@ -191,4 +198,146 @@ public class QuadDBTest extends TestCase {
 		this.db.insert(graph1, node1, node2, node3);
 		assertEquals(1, this.db.count());
 	}
+	
+	public void testDontInsertDuplicateLiterals() {
+		this.db.insert(graph1, node1, node2, Node.createLiteral("foo", null, null));
+		this.db.insert(graph1, node1, node2, Node.createLiteral("foo", "en", null));
+		this.db.insert(graph1, node1, node2, Node.createLiteral("foo", null, XSDDatatype.XSDstring));
+		this.db.insert(graph1, node1, node2, Node.createLiteral("", null, null));
+		assertEquals(4, this.db.count());
+		this.db.insert(graph1, node1, node2, Node.createLiteral("foo", null, null));
+		this.db.insert(graph1, node1, node2, Node.createLiteral("foo", "en", null));
+		this.db.insert(graph1, node1, node2, Node.createLiteral("foo", null, XSDDatatype.XSDstring));
+		this.db.insert(graph1, node1, node2, Node.createLiteral("", null, null));
+		assertEquals(4, this.db.count());
+	}
+	
+	public void testBatch() {
+		this.db.insert(graph1, node1, node2, node3);
+		this.db.startBatch(2);
+		assertTrue(this.db.isInBatch());
+		this.db.insert(graph1, node1, node2, node3);
+		this.db.insert(graph1, node1, node2, node4);
+		this.db.insert(graph1, node1, node2, node4);
+		this.db.insert(graph2, blank1, node2, Node.createLiteral("foo", "en", null));
+		this.db.insert(graph2, blank1, node2, Node.createLiteral("foo", "en", null));
+		this.db.endBatch();
+		assertFalse(this.db.isInBatch());
+		assertEquals(3, this.db.count());
+		assertTrue(this.db.find(graph1, node1, node2, node4).hasNext());
+		assertTrue(this.db.find(graph2, blank1, node2, Node.createLiteral("foo", "en", null)).hasNext());
+	}
+	
+	public void testReadsDuringBatchSeePendingQuads() {
+		this.db.startBatch(100);
+		this.db.insert(graph1, node1, node2, node3);
+		assertTrue(this.db.find(graph1, node1, node2, node3).hasNext());
+		this.db.insert(graph1, node1, node2, node4);
+		assertEquals(2, this.db.count());
+		this.db.delete(graph1, node1, node2, node3);
+		this.db.insert(graph1, node1, node2, node3);
+		this.db.endBatch();
+		assertEquals(2, this.db.count());
+	}
+	
+	public void testAbortBatch() {
+		this.db.insert(graph1, node1, node2, node3);
+		this.db.startBatch(2);
+		this.db.insert(graph1, node1, node2, node4);
+		this.db.insert(graph2, node1, node2, node4);
+		this.db.insert(graph3, node1, node2, node4);
+		this.db.abortBatch();
+		assertFalse(this.db.isInBatch());
+		assertEquals(1, this.db.count());
+		this.db.insert(graph2, node1, node2, node4);
+		assertEquals(2, this.db.count());
+	}
+	
+	public void testStreamingFind() {
+		this.db.insert(graph1, node1, node2, node3);
+		this.db.insert(graph1, node1, node2, Node.createLiteral("foo", "en", null));
+		this.db.insert(graph2, blank1, node2, Node.createLiteral("2004", null, XSDDatatype.XSDgYear));
+		this.db.setStreaming(true);
+		this.db.setFetchSize(1);
+		Set<Quad> quads = new HashSet<Quad>();
+		Iterator<Quad> it = this.db.find(Node.ANY, Node.ANY, Node.ANY, Node.ANY);
+		while (it.hasNext()) {
+			quads.add(it.next());
+		}
+		assertFalse(it.hasNext());
+		assertEquals(3, quads.size());
+		assertTrue(quads.contains(new Quad(graph2, blank1, node2,
+				Node.createLiteral("2004", null, XSDDatatype.XSDgYear))));
+		assertTrue(this.db.find(graph1, node1, node2, node3).hasNext());
+		assertFalse(this.db.find(graph2, node1, node2, node3).hasNext());
+	}
+	
+	public void testCloseStreamingIterator() {
+		this.db.insert(graph1, node1, node2, node3);
+		this.db.insert(graph1, node1, node2, node4);
+		this.db.setStreaming(true);
+		Iterator<Quad> it = this.db.find(graph1, Node.ANY, Node.ANY, Node.ANY);
+		assertNotNull(it.next());
+		((ClosableIterator<Quad>) it).close();
+		assertFalse(it.hasNext());
+		((ClosableIterator<Quad>) it).close();
+		this.db.delete(graph1, Node.ANY, Node.ANY, Node.ANY);
+		assertEquals(0, this.db.count());
+	}
+	
+	public void testRemoveWhileStreaming() {
+		this.db.insert(graph1, node1, node2, node3);
+		this.db.insert(graph1, node1, node2, node4);
+		this.db.setStreaming(true);
+		Iterator<Quad> it = this.db.find(graph1, node1, node2, node3);
+		it.next();
+		it.remove();
+		assertFalse(it.hasNext());
+		assertEquals(1, this.db.count());
+	}
+	
+	public void testNestedStreamingFindsWithSameShape() {
+		this.db.insert(graph1, node1, node2, node3);
+		this.db.insert(graph1, node1, node2, node4);
+		this.db.insert(graph2, node1, node2, node3);
+		this.db.setStreaming(true);
+		int count = 0;
+		Iterator<Quad> outer = this.db.find(graph1, Node.ANY, Node.ANY, Node.ANY);
+		while (outer.hasNext()) {
+			Quad quad = outer.next();
+			Iterator<Quad> inner = this.db.find(graph2, quad.getSubject(), Node.ANY, Node.ANY);
+			while (inner.hasNext()) {
+				inner.next();
+				count++;
+			}
+		}
+		assertEquals(2, count);
+	}
+	
+	public void testNonStreamingFindWhileStreaming() {
+		this.db.insert(graph1, node1, node2, node3);
+		this.db.insert(graph1, node1, node2, node4);
+		this.db.setStreaming(true);
+		this.db.setFetchSize(1);
+		Iterator<Quad> streamed = this.db.find(graph1, Node.ANY, Node.ANY, Node.ANY);
+		assertNotNull(streamed.next());
+		this.db.setStreaming(false);
+		Iterator<Quad> copied = this.db.find(graph1, Node.ANY, Node.ANY, Node.ANY);
+		assertNotNull(copied.next());
+		assertNotNull(copied.next());
+		assertTrue(streamed.hasNext());
+		assertNotNull(streamed.next());
+		assertFalse(streamed.hasNext());
+	}
+	
+	public void testFindAfterRecreatingTables() {
+		this.db.insert(graph1, node1, node2, node3);
+		assertTrue(this.db.find(graph1, node1, Node.ANY, Node.ANY).hasNext());
+		this.db.deleteTables();
+		this.db.createTables();
+		assertFalse(this.db.find(graph1, node1, Node.ANY, Node.ANY).hasNext());
+		this.db.insert(graph1, node1, node2, node3);
+		this.db.delete(graph1, node1, Node.ANY, Node.ANY);
+		assertEquals(0, this.db.count());
+	}
 }
@@ -0,0 +1,22 @@
+package de.fuberlin.wiwiss.ng4j.impl.idbased;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Unit Test suite for the ID-based named graph sets
+ */
+public class AllTests {
+
+	public static Test suite() {
+		TestSuite suite = new TestSuite("Test for de.fuberlin.wiwiss.ng4j.impl.idbased");
+		//$JUnit-BEGIN$
+		suite.addTestSuite(IdBasedUnionGraphTest.class);
+		suite.addTestSuite(IdBasedNamedGraphSetQuadIndexTest.class);
+		suite.addTestSuite(QuadIndexTest.class);
+		suite.addTestSuite(IdBasedBulkLoaderTest.class);
+		suite.addTestSuite(IdBasedSnapshotTest.class);
+		//$JUnit-END$
+		return suite;
+	}
+}
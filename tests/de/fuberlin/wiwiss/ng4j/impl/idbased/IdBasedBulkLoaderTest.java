@@ -0,0 +1,195 @@
+package de.fuberlin.wiwiss.ng4j.impl.idbased;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.mem.GraphMem;
+import com.hp.hpl.jena.rdf.listeners.StatementListener;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Statement;
+
+import de.fuberlin.wiwiss.jenaext.GraphStatistics;
+import de.fuberlin.wiwiss.jenaext.IdBasedGraph;
+import de.fuberlin.wiwiss.jenaext.impl.NodeDictionaryImpl;
+import de.fuberlin.wiwiss.ng4j.NamedGraphSet;
+import de.fuberlin.wiwiss.ng4j.Quad;
+import de.fuberlin.wiwiss.ng4j.impl.NamedGraphImpl;
+
+/**
+ * Tests for {@link IdBasedBulkLoader}. The sets populated by the loader are
+ * compared to sets populated quad by quad.
+ *
+ * @author Olaf Hartig
+ */
+public class IdBasedBulkLoaderTest extends TestCase {
+	private List<Quad> quads;
+
+	protected void setUp() throws Exception {
+		this.quads = new ArrayList<Quad>();
+		for (int g = 0; g < 5; g++) {
+			for (int i = 0; i < 40; i++) {
+				this.quads.add(new Quad(uri("g" + g), uri("s" + (i % 7)),
+						uri("p" + (i % 3)), Node.createLiteral("o" + ((i * g) % 11))));
+			}
+		}
+	}
+
+	public void testLoadEqualsAddQuad() {
+		assertLoadEqualsAddQuad(new IdBasedNamedGraphSetImpl(new NodeDictionaryImpl(), false));
+	}
+
+	public void testLoadEqualsAddQuadColumnar() {
+		assertLoadEqualsAddQuad(new IdBasedNamedGraphSetImpl(new NodeDictionaryImpl(), true));
+	}
+
+	public void testSmallBatchesAndExistingQuads() {
+		IdBasedNamedGraphSetImpl set = new IdBasedNamedGraphSetImpl();
+		set.addQuad(this.quads.get(0));
+		set.addQuad(new Quad(uri("g0"), uri("x"), uri("y"), uri("z")));
+		IdBasedBulkLoader loader = new IdBasedBulkLoader(set, 3);
+		loader.addAll(this.quads.iterator());
+		// complete batches are added right away, the last one by finish()
+		assertTrue(set.containsGraph(uri("g1")));
+		assertFalse(set.containsQuad(this.quads.get(this.quads.size() - 1)));
+		long added = loader.finish();
+		assertEquals(reference().countQuads() - 1, added);
+		assertEquals(reference().countQuads() + 1, set.countQuads());
+		assertTrue(set.containsQuad(new Quad(uri("g0"), uri("x"), uri("y"), uri("z"))));
+	}
+
+	public void testQuadIndexIsUpdated() {
+		IdBasedNamedGraphSetImpl set = new IdBasedNamedGraphSetImpl(new NodeDictionaryImpl(), false, true);
+		IdBasedBulkLoader loader = new IdBasedBulkLoader(set);
+		loader.addAll(this.quads.iterator());
+		loader.finish();
+		NamedGraphSet expected = reference();
+		Quad pattern = new Quad(Node.ANY, uri("s3"), Node.ANY, Node.ANY);
+		assertEquals(count(expected.findQuads(pattern)), count(set.findQuads(pattern)));
+		assertEquals(5, set.findGraphsMentioning(uri("p2")).size());
+	}
+
+	public void testGraphWithoutBulkSupport() {
+		IdBasedNamedGraphSetImpl set = new IdBasedNamedGraphSetImpl();
+		set.addGraph(new NamedGraphImpl(uri("g1"), new GraphMem()));
+		IdBasedBulkLoader loader = new IdBasedBulkLoader(set);
+		loader.addAll(this.quads.iterator());
+		assertEquals(reference().countQuads(), loader.finish());
+		assertEquals(reference().getGraph(uri("g1")).size(), set.getGraph(uri("g1")).size());
+	}
+
+	public void testRejectsInvalidQuads() {
+		IdBasedBulkLoader loader = new IdBasedBulkLoader(new IdBasedNamedGraphSetImpl());
+		try {
+			loader.add(new Quad(Node.ANY, uri("s"), uri("p"), uri("o")));
+			fail("wildcards must be rejected");
+		} catch (IllegalArgumentException ex) {
+			// expected
+		}
+		try {
+			loader.add(Node.createAnon(), uri("s"), uri("p"), uri("o"));
+			fail("blank graph names must be rejected");
+		} catch (IllegalArgumentException ex) {
+			// expected
+		}
+		loader.finish();
+		try {
+			loader.finish();
+			fail("a loader can be finished only once");
+		} catch (IllegalStateException ex) {
+			// expected
+		}
+	}
+
+	public void testBulkReadTriG() {
+		String trig = "@prefix ex: <http://example.org/#> .\n"
+				+ "ex:g1 { ex:a ex:b ex:c . ex:a ex:b \"d\" . ex:a ex:b ex:c . }\n"
+				+ "ex:g2 { ex:a ex:b ex:c . }\n"
+				+ "ex:g3 { }\n";
+		IdBasedNamedGraphSetImpl set = new IdBasedNamedGraphSetImpl();
+		set.bulkRead(new StringReader(trig), "TRIG", "http://example.org/");
+		assertEquals(3, set.countGraphs());
+		assertEquals(3, set.countQuads());
+		assertTrue(set.containsQuad(new Quad(uri("g1"), uri("a"), uri("b"), Node.createLiteral("d"))));
+		assertTrue(set.getGraph(uri("g3")).isEmpty());
+		// quads added after reading are added directly
+		set.addQuad(new Quad(uri("g3"), uri("a"), uri("b"), uri("c")));
+		assertEquals(1, set.getGraph(uri("g3")).size());
+	}
+
+	public void testReadNotifiesListeners() {
+		IdBasedNamedGraphSetImpl set = new IdBasedNamedGraphSetImpl();
+		set.createGraph(uri("g1"));
+		final List<Statement> added = new ArrayList<Statement>();
+		ModelFactory.createModelForGraph(set.getGraph(uri("g1"))).register(new StatementListener() {
+			public void addedStatement(Statement st) {
+				added.add(st);
+			}
+		});
+		set.read(new StringReader("@prefix ex: <http://example.org/#> .\n"
+				+ "ex:g1 { ex:a ex:b ex:c . ex:a ex:b \"d\" . }\n"), "TRIG", "http://example.org/");
+		assertEquals(2, added.size());
+	}
+
+	private void assertLoadEqualsAddQuad(IdBasedNamedGraphSetImpl set) {
+		IdBasedBulkLoader loader = new IdBasedBulkLoader(set);
+		loader.addAll(this.quads.iterator());
+		NamedGraphSet expected = reference();
+		assertEquals(expected.countQuads(), loader.finish());
+		assertEquals(expected.countGraphs(), set.countGraphs());
+		assertEquals(expected.countQuads(), set.countQuads());
+		for (Quad q : this.quads) {
+			assertTrue(set.containsQuad(q));
+		}
+		Iterator<Quad> it = set.findQuads(Node.ANY, Node.ANY, Node.ANY, Node.ANY);
+		while (it.hasNext()) {
+			assertTrue(expected.containsQuad(it.next()));
+		}
+		for (int g = 0; g < 5; g++) {
+			assertStatistics((IdBasedGraph) expected.getGraph(uri("g" + g)),
+					(IdBasedGraph) set.getGraph(uri("g" + g)));
+		}
+	}
+
+	private void assertStatistics(IdBasedGraph expectedGraph, IdBasedGraph actualGraph) {
+		GraphStatistics expected = expectedGraph.getStatistics();
+		GraphStatistics actual = actualGraph.getStatistics();
+		assertEquals(expected.getTripleCount(), actual.getTripleCount());
+		assertEquals(expected.getDistinctSubjectCount(), actual.getDistinctSubjectCount());
+		assertEquals(expected.getDistinctObjectCount(), actual.getDistinctObjectCount());
+		assertEquals(expected.getPredicates().length, actual.getPredicates().length);
+		for (int i = 0; i < 3; i++) {
+			Node p = uri("p" + i);
+			int expectedId = expectedGraph.getNodeDictionary().getId(p);
+			int actualId = actualGraph.getNodeDictionary().getId(p);
+			assertEquals(expected.getTripleCount(expectedId), actual.getTripleCount(actualId));
+			assertEquals(expected.getDistinctSubjectCount(expectedId), actual.getDistinctSubjectCount(actualId));
+			assertEquals(expected.getDistinctObjectCount(expectedId), actual.getDistinctObjectCount(actualId));
+		}
+	}
+
+	private NamedGraphSet reference() {
+		NamedGraphSet set = new IdBasedNamedGraphSetImpl();
+		for (Quad q : this.quads) {
+			set.addQuad(q);
+		}
+		return set;
+	}
+
+	private int count(Iterator<Quad> it) {
+		int result = 0;
+		while (it.hasNext()) {
+			it.next();
+			result++;
+		}
+		return result;
+	}
+
+	private static Node uri(String localName) {
+		return Node.createURI("http://example.org/#" + localName);
+	}
+}
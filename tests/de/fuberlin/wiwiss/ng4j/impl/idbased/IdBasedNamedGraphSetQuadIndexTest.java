@@ -0,0 +1,105 @@
+package de.fuberlin.wiwiss.ng4j.impl.idbased;
+
+import java.util.Iterator;
+import java.util.List;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.mem.GraphMem;
+
+import de.fuberlin.wiwiss.jenaext.impl.NodeDictionaryImpl;
+import de.fuberlin.wiwiss.ng4j.NamedGraph;
+import de.fuberlin.wiwiss.ng4j.NamedGraphSet;
+import de.fuberlin.wiwiss.ng4j.NamedGraphSetTest;
+import de.fuberlin.wiwiss.ng4j.Quad;
+import de.fuberlin.wiwiss.ng4j.impl.NamedGraphImpl;
+
+/**
+ * Runs the {@link NamedGraphSetTest} against an {@link IdBasedNamedGraphSetImpl}
+ * with a quad index and tests that the index follows changes of the graphs.
+ *
+ * @author Olaf Hartig
+ */
+public class IdBasedNamedGraphSetQuadIndexTest extends NamedGraphSetTest {
+
+	protected NamedGraphSet createNamedGraphSet() throws Exception {
+		return new IdBasedNamedGraphSetImpl(new NodeDictionaryImpl(), false, true);
+	}
+
+	public void testHasQuadIndex() {
+		assertTrue(((IdBasedNamedGraphSetImpl) this.set).hasQuadIndex());
+		assertFalse(new IdBasedNamedGraphSetImpl().hasQuadIndex());
+	}
+
+	public void testFindBySubjectAcrossGraphs() {
+		this.set.addQuad(new Quad(node1, foo, bar, baz));
+		this.set.addQuad(new Quad(node2, foo, bar, bar));
+		this.set.addQuad(new Quad(node2, bar, bar, foo));
+		assertEquals(2, count(this.set.findQuads(Node.ANY, foo, Node.ANY, Node.ANY)));
+		assertEquals(1, count(this.set.findQuads(Node.ANY, Node.ANY, Node.ANY, foo)));
+		assertEquals(3, count(this.set.findQuads(Node.ANY, Node.ANY, bar, Node.ANY)));
+		assertEquals(0, count(this.set.findQuads(Node.ANY, baz, Node.ANY, Node.ANY)));
+		assertEquals(0, count(this.set.findQuads(Node.ANY, Node.createURI("http://example.org/#unknown"), Node.ANY, Node.ANY)));
+	}
+
+	public void testFindGraphsMentioning() {
+		this.set.addQuad(new Quad(node1, foo, bar, baz));
+		this.set.addQuad(new Quad(node2, baz, bar, bar));
+		List<Node> graphs = ((IdBasedNamedGraphSetImpl) this.set).findGraphsMentioning(baz);
+		assertEquals(2, graphs.size());
+		assertTrue(graphs.contains(node1));
+		assertTrue(graphs.contains(node2));
+		assertEquals(1, ((IdBasedNamedGraphSetImpl) this.set).findGraphsMentioning(foo).size());
+	}
+
+	public void testIndexFollowsGraphChanges() {
+		NamedGraph g = this.set.createGraph(node1);
+		g.add(new Triple(foo, bar, baz));
+		g.add(new Triple(foo, bar, baz));
+		assertEquals(1, count(this.set.findQuads(Node.ANY, foo, Node.ANY, Node.ANY)));
+		g.delete(new Triple(foo, bar, baz));
+		assertFalse(this.set.containsQuad(new Quad(Node.ANY, foo, Node.ANY, Node.ANY)));
+	}
+
+	public void testIndexFollowsBulkUpdates() {
+		NamedGraph g = new NamedGraphImpl(node1, new GraphMem());
+		this.set.addGraph(g);
+		g.add(new Triple(foo, bar, baz));
+		g.getBulkUpdateHandler().removeAll();
+		assertFalse(this.set.containsQuad(new Quad(Node.ANY, foo, Node.ANY, Node.ANY)));
+		g.add(new Triple(foo, bar, baz));
+		g.add(new Triple(bar, bar, baz));
+		g.getBulkUpdateHandler().remove(foo, Node.ANY, Node.ANY);
+		assertFalse(this.set.containsQuad(new Quad(Node.ANY, foo, Node.ANY, Node.ANY)));
+		assertTrue(this.set.containsQuad(new Quad(Node.ANY, bar, Node.ANY, Node.ANY)));
+	}
+
+	public void testRemovedGraphIsDetached() {
+		NamedGraph g = this.set.createGraph(node1);
+		g.add(new Triple(foo, bar, baz));
+		this.set.removeGraph(node1);
+		assertFalse(this.set.containsQuad(new Quad(Node.ANY, foo, Node.ANY, Node.ANY)));
+		g.add(new Triple(bar, bar, baz));
+		assertFalse(this.set.containsQuad(new Quad(Node.ANY, bar, Node.ANY, Node.ANY)));
+	}
+
+	public void testReplacedAndForeignGraphs() {
+		this.set.addQuad(new Quad(node1, foo, bar, baz));
+		GraphMem mem = new GraphMem();
+		mem.add(new Triple(bar, bar, bar));
+		this.set.addGraph(new NamedGraphImpl(node1, mem));
+		assertFalse(this.set.containsQuad(new Quad(Node.ANY, foo, Node.ANY, Node.ANY)));
+		assertTrue(this.set.containsQuad(new Quad(Node.ANY, bar, Node.ANY, Node.ANY)));
+		mem.add(new Triple(baz, bar, bar));
+		assertTrue(this.set.containsQuad(new Quad(Node.ANY, baz, Node.ANY, Node.ANY)));
+	}
+
+	private static int count(Iterator<Quad> it) {
+		int n = 0;
+		while (it.hasNext()) {
+			it.next();
+			n++;
+		}
+		return n;
+	}
+}
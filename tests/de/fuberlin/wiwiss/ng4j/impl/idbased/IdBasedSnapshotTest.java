@@ -0,0 +1,116 @@
+package de.fuberlin.wiwiss.ng4j.impl.idbased;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import junit.framework.TestCase;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+
+import de.fuberlin.wiwiss.ng4j.NamedGraphSet;
+import de.fuberlin.wiwiss.ng4j.Quad;
+import de.fuberlin.wiwiss.ng4j.impl.NamedGraphSetImpl;
+
+/**
+ * Unit tests for {@link IdBasedSnapshotWriter} and {@link IdBasedSnapshotReader}.
+ *
+ * @author Olaf Hartig
+ */
+public class IdBasedSnapshotTest extends TestCase {
+	private IdBasedNamedGraphSetImpl set;
+	private File file;
+
+	protected void setUp() throws Exception {
+		this.set = new IdBasedNamedGraphSetImpl();
+		for (int g = 0; g < 3; g++) {
+			for (int i = 0; i < 40; i++) {
+				for (int j = 0; j < 5; j++) {
+					this.set.addQuad(new Quad(uri("g" + g), uri("s" + i), uri("p" + j), uri("o" + ((i * j + g) % 11))));
+				}
+			}
+		}
+		this.set.addQuad(new Quad(uri("g0"), Node.createAnon(), uri("p0"), Node.createLiteral("a", "en", false)));
+		this.set.addQuad(new Quad(uri("g1"), uri("s0"), uri("p1"), Node.createLiteral("42", null, XSDDatatype.XSDint)));
+		this.set.addQuad(new Quad(uri("g1"), uri("s0"), uri("p1"), Node.createLiteral("\u00e4\u20ac")));
+		this.set.createGraph(uri("empty"));
+
+		this.file = File.createTempFile("ng4j", ".bin");
+		OutputStream out = new FileOutputStream(this.file);
+		this.set.write(out, IdBasedSnapshotWriter.LANGUAGE, null);
+		out.close();
+	}
+
+	protected void tearDown() throws Exception {
+		this.file.delete();
+	}
+
+	public void testOpen() {
+		IdBasedNamedGraphSetImpl snapshot = new IdBasedSnapshotReader().open(this.file);
+		assertEquals(this.set.countGraphs(), snapshot.countGraphs());
+		assertEquals(this.set.countQuads(), snapshot.countQuads());
+		assertSameContent(this.set, snapshot);
+	}
+
+	public void testAddGraphToOpenedSnapshot() {
+		IdBasedNamedGraphSetImpl snapshot = new IdBasedSnapshotReader().open(this.file);
+		Quad q = new Quad(uri("new"), uri("s0"), uri("unknown"), Node.createLiteral("x"));
+		snapshot.addQuad(q);
+		assertTrue(snapshot.containsQuad(q));
+		assertEquals(this.set.countQuads() + 1, snapshot.countQuads());
+	}
+
+	public void testReadFromFileInputStream() throws Exception {
+		NamedGraphSet copy = new NamedGraphSetImpl();
+		FileInputStream in = new FileInputStream(this.file);
+		copy.read(in, IdBasedSnapshotWriter.LANGUAGE, null);
+		in.close();
+		assertEquals(this.set.countQuads(), copy.countQuads());
+		assertSameContent(this.set, copy);
+	}
+
+	public void testReadFromOtherInputStream() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new NamedGraphSetImpl().write(out, IdBasedSnapshotWriter.LANGUAGE, null);
+		NamedGraphSet copy = new IdBasedNamedGraphSetImpl();
+		copy.read(new ByteArrayInputStream(out.toByteArray()), IdBasedSnapshotWriter.LANGUAGE, null);
+		assertEquals(0, copy.countGraphs());
+
+		out = new ByteArrayOutputStream();
+		this.set.write(out, IdBasedSnapshotWriter.LANGUAGE, null);
+		copy.read(new ByteArrayInputStream(out.toByteArray()), IdBasedSnapshotWriter.LANGUAGE, null);
+		assertSameContent(this.set, copy);
+	}
+
+	private void assertSameContent(NamedGraphSet expected, NamedGraphSet actual) {
+		Node[] nodes = new Node[] { Node.ANY, uri("s3"), uri("s0"), uri("p0"), uri("p1"), uri("o0"), uri("o7") };
+		for (int g = 0; g < 3; g++) {
+			Graph expectedGraph = expected.getGraph(uri("g" + g));
+			Graph actualGraph = actual.getGraph(uri("g" + g));
+			for (Node s : nodes) {
+				for (Node p : nodes) {
+					for (Node o : nodes) {
+						int count = 0;
+						ExtendedIterator<Triple> it = expectedGraph.find(s, p, o);
+						while (it.hasNext()) {
+							assertTrue(actualGraph.contains(it.next()));
+							count++;
+						}
+						assertEquals(count, actualGraph.find(s, p, o).toList().size());
+					}
+				}
+			}
+		}
+	}
+
+	private static Node uri(String localName) {
+		return Node.createURI("http://example.org/#" + localName);
+	}
+}
@@ -0,0 +1,100 @@
+package de.fuberlin.wiwiss.ng4j.impl.idbased;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+
+import de.fuberlin.wiwiss.jenaext.IdBasedGraph;
+import de.fuberlin.wiwiss.jenaext.NodeDictionary;
+import de.fuberlin.wiwiss.jenaext.impl.NodeDictionaryImpl;
+import de.fuberlin.wiwiss.ng4j.Quad;
+
+/**
+ * Tests the duplicate elimination, the statistics, and the cardinalities of
+ * the {@link IdBasedUnionGraph}.
+ *
+ * @author Olaf Hartig
+ */
+public class IdBasedUnionGraphTest extends TestCase {
+	private IdBasedNamedGraphSetImpl set;
+
+	protected void setUp() {
+		this.set = new IdBasedNamedGraphSetImpl();
+	}
+
+	public void testDuplicatesAreReturnedOnce() {
+		for (int g = 0; g < 4; g++) {
+			for (int i = 0; i < 100; i++) {
+				this.set.addQuad(new Quad(uri("g" + g), uri("s" + ((i + g * 25) % 10)), uri("p"), uri("o" + (i + g * 25))));
+			}
+		}
+		// objects o0 .. o174 occur, most of them in two graphs
+		assertEquals(175, countDistinct(this.set.asJenaGraph(null), Node.ANY, uri("p"), Node.ANY));
+		assertEquals(18, countDistinct(this.set.asJenaGraph(null), uri("s3"), Node.ANY, Node.ANY));
+	}
+
+	public void testSingleGraph() {
+		this.set.addQuad(new Quad(uri("g"), uri("s"), uri("p"), uri("o1")));
+		this.set.addQuad(new Quad(uri("g"), uri("s"), uri("p"), uri("o2")));
+		assertEquals(2, countDistinct(this.set.asJenaGraph(null), Node.ANY, Node.ANY, Node.ANY));
+	}
+
+	public void testStatisticsFollowChanges() {
+		this.set.addQuad(new Quad(uri("g1"), uri("s"), uri("p"), uri("o1")));
+		this.set.addQuad(new Quad(uri("g2"), uri("s"), uri("p"), uri("o2")));
+		IdBasedGraph union = (IdBasedGraph) this.set.asJenaGraph(null);
+		int pId = this.set.getNodeDictionary().getId(uri("p"));
+		assertEquals(2, union.getStatistics().getTripleCount());
+		assertSame(union.getStatistics(), union.getStatistics());
+
+		this.set.addQuad(new Quad(uri("g2"), uri("s"), uri("p"), uri("o3")));
+		assertEquals(3, union.getStatistics().getTripleCount());
+		assertEquals(3, union.getStatistics().getTripleCount(pId));
+
+		this.set.getGraph(uri("g2")).delete(new Triple(uri("s"), uri("p"), uri("o2")));
+		assertEquals(2, union.getStatistics().getTripleCount());
+
+		this.set.removeGraph(uri("g1"));
+		assertEquals(1, union.getStatistics().getTripleCount());
+		assertEquals(1, union.getStatistics().getDistinctObjectCount(pId));
+	}
+
+	public void testCardinalityFromQuadIndex() {
+		NodeDictionary nodeDict = new NodeDictionaryImpl();
+		IdBasedNamedGraphSetImpl indexed = new IdBasedNamedGraphSetImpl(nodeDict, false, true);
+		for (int g = 0; g < 3; g++) {
+			indexed.addQuad(new Quad(uri("g" + g), uri("s"), uri("p"), uri("o" + g)));
+			indexed.addQuad(new Quad(uri("g" + g), uri("s"), uri("q"), uri("o")));
+		}
+		IdBasedGraph union = (IdBasedGraph) indexed.asJenaGraph(null);
+		int sId = nodeDict.getId(uri("s"));
+		int pId = nodeDict.getId(uri("p"));
+		int oId = nodeDict.getId(uri("o"));
+		assertEquals(6, union.getCardinality(-1, -1, -1));
+		assertEquals(6, union.getCardinality(sId, -1, -1));
+		assertEquals(3, union.getCardinality(sId, pId, -1));
+		assertEquals(3, union.getCardinality(-1, -1, oId));
+		assertEquals(0, union.getCardinality(-1, pId, oId));
+	}
+
+	private static int countDistinct(Graph g, Node s, Node p, Node o) {
+		Set<Triple> seen = new HashSet<Triple>();
+		int count = 0;
+		ExtendedIterator<Triple> it = g.find(s, p, o);
+		while (it.hasNext()) {
+			assertTrue(seen.add(it.next()));
+			count++;
+		}
+		return count;
+	}
+
+	private static Node uri(String localName) {
+		return Node.createURI("http://example.org/#" + localName);
+	}
+}
@@ -0,0 +1,129 @@
+package de.fuberlin.wiwiss.ng4j.impl.idbased;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link QuadIndex}; the index is compared with a set of
+ * quads after random additions and removals.
+ *
+ * @author Olaf Hartig
+ */
+public class QuadIndexTest extends TestCase {
+	private QuadIndex index;
+	private Set<String> expected;
+
+	protected void setUp() {
+		this.index = new QuadIndex();
+		this.expected = new HashSet<String>();
+	}
+
+	public void testAddAndContains() {
+		assertTrue(this.index.add(1, 2, 3, 4));
+		assertFalse(this.index.add(1, 2, 3, 4));
+		assertTrue(this.index.contains(1, 2, 3, 4));
+		assertFalse(this.index.contains(2, 2, 3, 4));
+		assertEquals(1, this.index.size());
+	}
+
+	public void testRemove() {
+		this.index.add(1, 2, 3, 4);
+		assertTrue(this.index.remove(1, 2, 3, 4));
+		assertFalse(this.index.remove(1, 2, 3, 4));
+		assertFalse(this.index.contains(1, 2, 3, 4));
+		assertEquals(0, this.index.size());
+		assertTrue(this.index.add(1, 2, 3, 4));
+		assertTrue(this.index.contains(1, 2, 3, 4));
+	}
+
+	public void testGetGraphs() {
+		this.index.add(7, 1, 2, 3);
+		this.index.add(5, 3, 2, 1);
+		this.index.add(5, 1, 1, 1);
+		this.index.add(6, 4, 4, 4);
+		int[] graphs = this.index.getGraphs(1);
+		assertEquals(2, graphs.length);
+		assertEquals(5, graphs[0]);
+		assertEquals(7, graphs[1]);
+	}
+
+	public void testCount() {
+		for (int i = 0; i < 1000; i++) {
+			this.index.add(i % 7, i % 11, i % 3, i);
+		}
+		assertEquals(1000, this.index.count(-1, -1, -1, -1));
+		assertEquals(91, this.index.count(-1, 5, -1, -1));
+		assertEquals(30, this.index.count(-1, 5, 1, -1));
+		assertEquals(13, this.index.count(2, 5, -1, -1));
+		assertEquals(1, this.index.count(-1, -1, -1, 42));
+		assertEquals(0, this.index.count(-1, 5, 1, 42));
+	}
+
+	public void testRandomOperations() {
+		Random random = new Random(42);
+		for (int i = 0; i < 20000; i++) {
+			int g = random.nextInt(20);
+			int s = random.nextInt(30);
+			int p = random.nextInt(5);
+			int o = random.nextInt(30);
+			String key = key(g, s, p, o);
+			if (random.nextInt(3) == 0) {
+				assertEquals(this.expected.remove(key), this.index.remove(g, s, p, o));
+			} else {
+				assertEquals(this.expected.add(key), this.index.add(g, s, p, o));
+			}
+			if (i % 2500 == 0) {
+				assertMatches(random.nextInt(30), -1, -1, -1);
+				assertMatches(-1, random.nextInt(30), -1, random.nextInt(30));
+			}
+			if (i == 15000) {
+				this.index.removeGraph(3);
+				for (String q : new ArrayList<String>(this.expected)) {
+					if (q.startsWith("3 ")) {
+						this.expected.remove(q);
+					}
+				}
+			}
+		}
+		assertEquals(this.expected.size(), this.index.size());
+		assertMatches(-1, -1, -1, -1);
+		assertMatches(4, -1, -1, -1);
+		assertMatches(-1, 7, -1, -1);
+		assertMatches(-1, -1, 2, -1);
+		assertMatches(-1, -1, -1, 9);
+		assertMatches(-1, 7, 2, -1);
+		assertMatches(-1, 7, -1, 9);
+		assertMatches(4, 7, -1, 9);
+		assertMatches(-1, -1, 2, 9);
+	}
+
+	private void assertMatches(int g, int s, int p, int o) {
+		List<String> wanted = new ArrayList<String>();
+		for (String q : this.expected) {
+			String[] c = q.split(" ");
+			if ((g == -1 || g == Integer.parseInt(c[0])) && (s == -1 || s == Integer.parseInt(c[1]))
+					&& (p == -1 || p == Integer.parseInt(c[2])) && (o == -1 || o == Integer.parseInt(c[3]))) {
+				wanted.add(q);
+			}
+		}
+		List<String> actual = new ArrayList<String>();
+		int[] quads = this.index.find(g, s, p, o);
+		for (int i = 0; i < quads.length; i += 4) {
+			actual.add(key(quads[i], quads[i + 1], quads[i + 2], quads[i + 3]));
+		}
+		Collections.sort(wanted);
+		Collections.sort(actual);
+		assertEquals(wanted, actual);
+		assertTrue(this.index.count(g, s, p, o) >= wanted.size());
+	}
+
+	private static String key(int g, int s, int p, int o) {
+		return g + " " + s + " " + p + " " + o;
+	}
+}
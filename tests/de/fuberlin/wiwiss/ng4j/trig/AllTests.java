@@ -19,6 +19,9 @@ public class AllTests {
 		suite.addTestSuite(SpecExamplesTest.class);
 		suite.addTestSuite(TriGParserTest.class);
 		suite.addTestSuite(PrettyNamespacePrefixMakerTest.class);
+		suite.addTestSuite(ParallelTriGReaderTest.class);
+		suite.addTestSuite(StreamingTriGParserTest.class);
+		suite.addTestSuite(TriGStreamWriterTest.class);
 		//$JUnit-END$
 		return suite;
 	}
@@ -0,0 +1,212 @@
+package de.fuberlin.wiwiss.ng4j.trig;
+
+import java.io.StringReader;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import com.hp.hpl.jena.graph.Node;
+
+import de.fuberlin.wiwiss.ng4j.NamedGraphSet;
+import de.fuberlin.wiwiss.ng4j.NamedGraphSetReader;
+import de.fuberlin.wiwiss.ng4j.Quad;
+import de.fuberlin.wiwiss.ng4j.impl.NamedGraphSetImpl;
+import de.fuberlin.wiwiss.ng4j.impl.idbased.IdBasedNamedGraphSetImpl;
+
+/**
+ * Tests {@link ParallelTriGReader} by comparing its results to those of
+ * {@link TriGReader}. A part size of 1 puts every graph into its own part.
+ *
+ * @author Richard Cyganiak (richard@cyganiak.de)
+ */
+public class ParallelTriGReaderTest extends TestCase {
+	private static final String BASE = "http://example.com/base";
+	private static final String DEFAULT = "http://example.com/default";
+	private static final String NS = "http://example.com/ns#";
+
+	private static final String DOCUMENT =
+			"@prefix : <http://example.com/ns#> .\n"
+			+ "@prefix x: <http://example.com/x#> .\n"
+			+ "@prefix sp: <http://example.com/ spaced#> .\n"
+			+ ":g1 { :a :b \"}\" . :a :b '{' . :a :b <http://example.com/}#{> . }\n"
+			+ "# a comment with a brace }\n"
+			+ ":g2 :- { :a :b \"\"\"a long \"\"string\"\" with }\n"
+			+ "and a line break\"\"\" . :a :b \"\" .\n"
+			+ "  :a :b \"escaped \\\" }\" . _:x :b x:c . }\n"
+			+ "@prefix x: <http://example.com/other#> .\n"
+			+ ":g3 { _:x :b x:c . :a :b [ :b :c ] . :a :b sp:c . }\n";
+
+	public void testTestFile() {
+		NamedGraphSet expected = new NamedGraphSetImpl();
+		new TriGReader().read(expected,
+				this.getClass().getResourceAsStream("tests/test.trig"), BASE, DEFAULT);
+		NamedGraphSet actual = new NamedGraphSetImpl();
+		new ParallelTriGReader(2, 1).read(actual,
+				this.getClass().getResourceAsStream("tests/test.trig"), BASE, DEFAULT);
+		assertSameQuads(expected, actual);
+	}
+
+	public void testSpecExamples() {
+		for (int i = 1; i <= 2; i++) {
+			NamedGraphSet expected = new NamedGraphSetImpl();
+			new TriGReader().read(expected, this.getClass().getResourceAsStream(
+					"tests/spec_example" + i + ".trig"), BASE, DEFAULT);
+			NamedGraphSet actual = new NamedGraphSetImpl();
+			new ParallelTriGReader(3, 1).read(actual, this.getClass().getResourceAsStream(
+					"tests/spec_example" + i + ".trig"), BASE, DEFAULT);
+			assertEquals(expected.countGraphs(), actual.countGraphs());
+			assertEquals(expected.countQuads(), actual.countQuads());
+			assertEquals(expected.listGraphs().next().getGraphName(),
+					actual.listGraphs().next().getGraphName());
+			assertEquals(predicates(expected), predicates(actual));
+		}
+	}
+
+	public void testSplitPoints() {
+		NamedGraphSet expected = read(new TriGReader(), DOCUMENT);
+		for (int partSize = 1; partSize < DOCUMENT.length(); partSize += 37) {
+			NamedGraphSet actual = read(new ParallelTriGReader(2, partSize), DOCUMENT);
+			assertEquals(expected.countGraphs(), actual.countGraphs());
+			assertEquals(expected.countQuads(), actual.countQuads());
+			assertTrue(actual.containsQuad(new Quad(uri("g1"), uri("a"), uri("b"),
+					Node.createURI("http://example.com/}#{"))));
+			assertTrue(actual.containsQuad(new Quad(uri("g2"), uri("a"), uri("b"),
+					Node.createLiteral("escaped \" }"))));
+			assertTrue(actual.containsQuad(new Quad(uri("g3"), Node.ANY, uri("b"),
+					Node.createURI("http://example.com/other#c"))));
+			assertTrue(actual.containsQuad(new Quad(uri("g3"), uri("a"), uri("b"),
+					Node.createURI("http://example.com/ spaced#c"))));
+		}
+	}
+
+	public void testLabelledBlankNodesAreSharedBetweenParts() {
+		NamedGraphSet set = read(new ParallelTriGReader(2, 1), DOCUMENT);
+		Node x2 = subject(set.findQuads(uri("g2"), Node.ANY, uri("b"),
+				Node.createURI("http://example.com/x#c")));
+		Node x3 = subject(set.findQuads(uri("g3"), Node.ANY, uri("b"),
+				Node.createURI("http://example.com/other#c")));
+		assertTrue(x2.isBlank());
+		assertEquals(x2, x3);
+	}
+
+	public void testLineNumbersInErrors() {
+		try {
+			read(new ParallelTriGReader(2, 1),
+					"@prefix : <http://example.com/ns#> .\n"
+					+ ":g1 { :a :b :c . }\n\n"
+					+ ":g2 {\n :a :b :c .\n :a :b y:c . }\n");
+			fail("undefined prefix must be reported");
+		} catch (TriGException ex) {
+			assertTrue(ex.getMessage(), ex.getMessage().startsWith("Line 6:"));
+		}
+	}
+
+	public void testPositionsInSyntaxErrors() {
+		try {
+			read(new ParallelTriGReader(2, 1),
+					"@prefix : <http://example.com/ns#> .\n"
+					+ ":g1 { :a :b :c . }\n"
+					+ ":g2 { :a :b :c . }\n\n"
+					+ ":g3 {\n :a :b :c ] }\n");
+			fail("syntax error must be reported");
+		} catch (TriGException ex) {
+			assertTrue(ex.getMessage(), ex.getMessage().startsWith("TriG error: [6:"));
+		}
+	}
+
+	public void testDuplicateGraphNamesInDifferentParts() {
+		try {
+			read(new ParallelTriGReader(2, 1),
+					"@prefix : <http://example.com/ns#> .\n"
+					+ ":g1 { :a :b :c . }\n:g1 { :a :b :d . }\n");
+			fail("graph names must be unique");
+		} catch (TriGException ex) {
+			// expected
+		}
+	}
+
+	public void testReadWithLanguage() {
+		NamedGraphSet expected = read(new TriGReader(), DOCUMENT);
+		NamedGraphSet set = new IdBasedNamedGraphSetImpl();
+		set.read(new StringReader(DOCUMENT), ParallelTriGReader.LANGUAGE, BASE);
+		assertEquals(expected.countGraphs(), set.countGraphs());
+		assertEquals(expected.countQuads(), set.countQuads());
+	}
+
+	public void testRedefinedPrefixWithDifferentWhitespace() throws Exception {
+		String document = "@prefix : <http://example.com/ns#> .\n"
+				+ "@prefix x: <http://example.com/x#> .\n"
+				+ ":g1 { :a :b x:c . }\n"
+				+ "@prefix  x:\n  <http://example.com/other#> .\n"
+				+ ":g2 { :a :b x:c . }\n:g3 { :a :b x:d . }\n";
+		assertSameQuads(read(new TriGReader(), document),
+				read(new ParallelTriGReader(2, 1), document));
+		assertEquals("@prefix : <http://example.com/ns#> . "
+				+ "@prefix x: <http://example.com/other#> .",
+				lastPrologue(document));
+	}
+
+	public void testBaseDirectivesStayBeforeDependentPrefixes() throws Exception {
+		assertEquals("@base <http://example.com/a/> . @prefix x: <x#> . "
+				+ "@base <b/> . @prefix y: <y#> .",
+				lastPrologue("@base <http://example.com/a/> .\n@prefix x: <x#> .\n"
+						+ "@base <b/> .\n@prefix y: <y#> .\n" + TWO_GRAPHS));
+		assertEquals("@base <http://example.com/c/> . @prefix x: <x#> .",
+				lastPrologue("@base <http://example.com/a/> .\n@prefix x: <x#> .\n"
+						+ "@base <http://example.com/c/> .\n@prefix x: <x#> .\n"
+						+ TWO_GRAPHS));
+	}
+
+	private static final String TWO_GRAPHS =
+			"<http://example.com/g1> { <a> <b> <c> . }\n"
+			+ "<http://example.com/g2> { <a> <b> <c> . }\n";
+
+	/**
+	 * Returns the directives in front of the last part of the document.
+	 */
+	private String lastPrologue(String document) throws Exception {
+		TriGSplitter splitter = new TriGSplitter(new StringReader(document), 1);
+		String last = null;
+		String part;
+		while ((part = splitter.next()) != null) {
+			last = part;
+		}
+		return last.substring(0, last.indexOf('\n')).trim();
+	}
+
+	private NamedGraphSet read(NamedGraphSetReader reader,
+			String document) {
+		NamedGraphSet result = new NamedGraphSetImpl();
+		reader.read(result, new StringReader(document), BASE, DEFAULT);
+		return result;
+	}
+
+	private void assertSameQuads(NamedGraphSet expected, NamedGraphSet actual) {
+		assertEquals(expected.countGraphs(), actual.countGraphs());
+		assertEquals(expected.countQuads(), actual.countQuads());
+		Iterator<Quad> it = expected.findQuads(Node.ANY, Node.ANY, Node.ANY, Node.ANY);
+		while (it.hasNext()) {
+			assertTrue(actual.containsQuad(it.next()));
+		}
+	}
+
+	private Set<Node> predicates(NamedGraphSet set) {
+		Set<Node> result = new HashSet<Node>();
+		Iterator<Quad> it = set.findQuads(Node.ANY, Node.ANY, Node.ANY, Node.ANY);
+		while (it.hasNext()) {
+			result.add(it.next().getPredicate());
+		}
+		return result;
+	}
+
+	private Node subject(Iterator<Quad> it) {
+		assertTrue(it.hasNext());
+		return it.next().getSubject();
+	}
+
+	private static Node uri(String localName) {
+		return Node.createURI(NS + localName);
+	}
+}
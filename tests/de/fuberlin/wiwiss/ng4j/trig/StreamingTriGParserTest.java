@@ -0,0 +1,129 @@
+package de.fuberlin.wiwiss.ng4j.trig;
+
+import java.io.StringReader;
+import java.util.Iterator;
+
+import com.hp.hpl.jena.graph.Node;
+
+import de.fuberlin.wiwiss.ng4j.NamedGraph;
+import de.fuberlin.wiwiss.ng4j.NamedGraphSet;
+import de.fuberlin.wiwiss.ng4j.NamedGraphSetReader;
+import de.fuberlin.wiwiss.ng4j.impl.NamedGraphSetImpl;
+
+/**
+ * Runs the {@link TriGParserTest}s against {@link StreamingTriGReader} and
+ * compares its results to those of {@link TriGReader}.
+ *
+ * @author Richard Cyganiak (richard@cyganiak.de)
+ */
+public class StreamingTriGParserTest extends TriGParserTest {
+	private static final String BASE = "http://example.com/base";
+	private static final String DEFAULT = "http://example.com/default";
+
+	private static final String N3_FEATURES =
+			"@prefix : <http://example.com/ex#> .\n"
+			+ "@prefix xsd: <http://www.w3.org/2001/XMLSchema#> .\n"
+			+ ":g1 :- {\n"
+			+ "  :a :b :c , :d ; :e \"x\" , \"y\"@en , \"z\"^^xsd:string , \"w\"@de^^xsd:int ,\n"
+			+ "      \"v\"^^<http://example.com/dt> , 12 , -3.5 , 1e10 , +7 , 2.5E-3 .\n"
+			+ "  :a a :C ; = :b ; => :c ; <= :d .\n"
+			+ "  :a is :b of :c , :d .\n"
+			+ "  :a has :b :c .\n"
+			+ "  :a :b [ :c :d ; :e [ :f :g ] ] .\n"
+			+ "  [ :c :d ] :e :f .\n"
+			+ "  :a :b ( :c \"d\" ( ) [ :e :f ] ) .\n"
+			+ "  :a!:b :c :d .\n"
+			+ "  :a^:b :c :d .\n"
+			+ "  :a :b \"\"\"long\nstring with \"quotes\" \"\"\" , 'single' , '''long 'single' ''' ,\n"
+			+ "      \"esc \\t \\u00e4 \\\" \\q\" , \"\" .\n"
+			+ "  _:x :b _:x . # a comment\n"
+			+ "  <> <#frag> <relative> .\n"
+			+ "  :a :b :c ; .\n"
+			+ "  :a :b .\n"
+			+ "  :a .\n"
+			+ "}\n"
+			+ "{ :a :b :c . . }\n"
+			+ "<http://example.com/ex#g3> { }\n";
+
+	protected NamedGraphSet parseTriG(String triG) throws Exception {
+		return read(new StreamingTriGReader(), triG);
+	}
+
+	protected NamedGraphSetReader createReader() {
+		return new StreamingTriGReader();
+	}
+
+	public void testN3Features() {
+		assertSameGraphs(read(new TriGReader(), N3_FEATURES),
+				read(new StreamingTriGReader(), N3_FEATURES));
+	}
+
+	public void testSpecExamples() {
+		for (int i = 1; i <= 2; i++) {
+			NamedGraphSet expected = new NamedGraphSetImpl();
+			new TriGReader().read(expected, this.getClass().getResourceAsStream(
+					"tests/spec_example" + i + ".trig"), BASE, DEFAULT);
+			NamedGraphSet actual = new NamedGraphSetImpl();
+			new StreamingTriGReader().read(actual, this.getClass().getResourceAsStream(
+					"tests/spec_example" + i + ".trig"), BASE, DEFAULT);
+			assertSameGraphs(expected, actual);
+		}
+	}
+
+	public void testLargeDocument() {
+		StringBuffer trig = new StringBuffer("@prefix : <http://example.com/ex#> .\n");
+		for (int g = 0; g < 20; g++) {
+			trig.append(":g" + g + " {\n");
+			for (int i = 0; i < 100; i++) {
+				trig.append(" :s" + (i % 7) + " :p" + (i % 3) + " \"literal " + g + " " + i + "\" .\n");
+			}
+			trig.append("}\n");
+		}
+		StringBuffer longLiteral = new StringBuffer();
+		for (int i = 0; i < 20000; i++) {
+			longLiteral.append((char) ('a' + i % 26));
+		}
+		trig.append(":g20 { :a :b \"" + longLiteral + "\" }\n");
+		assertSameGraphs(read(new TriGReader(), trig.toString()),
+				read(new StreamingTriGReader(), trig.toString()));
+	}
+
+	public void testErrorsHaveLineNumbers() {
+		assertError("Line 3:", "@prefix : <http://example.com/ex#> .\n"
+				+ ":g1 {\n :a :b x:c }");
+		assertError("Line 2:", "@prefix : <http://example.com/ex#> .\n"
+				+ ":g1 { ?x :b :c }");
+		assertError("TriG error: [3:", "@prefix : <http://example.com/ex#> .\n"
+				+ ":g1 {\n :a :b :c ] }");
+		assertError("TriG error: [2:", "@prefix : <http://example.com/ex#> .\n"
+				+ ":g1 { :a :b \"unterminated }");
+		assertError("Line 1:", ":g1 { <a> _:b <c> }");
+	}
+
+	private void assertError(String expectedStart, String trig) {
+		try {
+			read(new StreamingTriGReader(), trig);
+			fail("error expected: " + trig);
+		} catch (TriGException ex) {
+			assertTrue(ex.getMessage(), ex.getMessage().startsWith(expectedStart));
+		}
+	}
+
+	private NamedGraphSet read(NamedGraphSetReader reader, String triG) {
+		NamedGraphSet result = new NamedGraphSetImpl();
+		reader.read(result, new StringReader(triG), BASE, DEFAULT);
+		return result;
+	}
+
+	private void assertSameGraphs(NamedGraphSet expected, NamedGraphSet actual) {
+		assertEquals(expected.countGraphs(), actual.countGraphs());
+		assertEquals(expected.countQuads(), actual.countQuads());
+		Iterator<NamedGraph> it = expected.listGraphs();
+		while (it.hasNext()) {
+			NamedGraph graph = it.next();
+			Node name = graph.getGraphName();
+			assertTrue(name.toString(), actual.containsGraph(name));
+			assertTrue(name.toString(), graph.isIsomorphicWith(actual.getGraph(name)));
+		}
+	}
+}
@@ -30,7 +30,7 @@ public class TriGParserTest extends TestCase {
 	private static final Node graph2Node = Node.createURI(EX + "graph2");
 	private static final Node graph3Node = Node.createURI(EX + "graph3");
 
-	private NamedGraphSet parseTriG(String triG) throws Exception {
+	protected NamedGraphSet parseTriG(String triG) throws Exception {
 		Reader r = new StringReader(triG);
 		NamedGraphSetImpl ngs = new NamedGraphSetImpl();
 		NamedGraphSetPopulator h = 
@@ -40,6 +40,10 @@ public class TriGParserTest extends TestCase {
 		return ngs;
 	}
 
+	protected NamedGraphSetReader createReader() {
+		return new TriGReader();
+	}
+
 	public void testSimpleN3() throws Exception {
 		String n3 = "@prefix ex: <http://example.com/ex#> .\n" +
 				"ex:a ex:b ex:c .";
@@ -200,7 +204,7 @@ public class TriGParserTest extends TestCase {
 		String trig = "@prefix : <http://example.com/ns#> .\n" +
 				":graph1 { :a :a \"~J~Z~_\" . }";
 		Reader r = new StringReader(trig);
-		NamedGraphSetReader reader = new TriGReader();
+		NamedGraphSetReader reader = createReader();
 		NamedGraphSet set = new NamedGraphSetImpl();
 		reader.read(set, r, BASE, DEFAULT);
 		assertTrue(set.containsQuad(new Quad(Node.ANY, Node.ANY, Node.ANY,
@@ -0,0 +1,191 @@
+package de.fuberlin.wiwiss.ng4j.trig;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.Iterator;
+
+import junit.framework.TestCase;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.rdf.model.AnonId;
+import com.hp.hpl.jena.shared.JenaException;
+
+import de.fuberlin.wiwiss.ng4j.NamedGraph;
+import de.fuberlin.wiwiss.ng4j.NamedGraphSet;
+import de.fuberlin.wiwiss.ng4j.Quad;
+import de.fuberlin.wiwiss.ng4j.QuadSink;
+import de.fuberlin.wiwiss.ng4j.impl.NamedGraphSetImpl;
+import de.fuberlin.wiwiss.ng4j.impl.NamedGraphSetSink;
+import de.fuberlin.wiwiss.ng4j.trix.QuadSinkCallback;
+import de.fuberlin.wiwiss.ng4j.trix.TriXParser;
+import de.fuberlin.wiwiss.ng4j.trix.TriXReader;
+
+/**
+ * Tests {@link TriGStreamWriter} together with the parsers that push
+ * into {@link QuadSink}s.
+ *
+ * @author Richard Cyganiak (richard@cyganiak.de)
+ */
+public class TriGStreamWriterTest extends TestCase {
+	private static final String BASE = "http://example.com/base";
+	private static final String DEFAULT = "http://example.com/default";
+	private static final String TRIX_TESTS = "/de/fuberlin/wiwiss/ng4j/trix/tests/";
+
+	public void testRoundTrip() throws Exception {
+		NamedGraphSet expected = new NamedGraphSetImpl();
+		new TriGReader().read(expected,
+				this.getClass().getResourceAsStream("tests/test.trig"), BASE, DEFAULT);
+		StringWriter out = new StringWriter();
+		TriGStreamWriter writer = new TriGStreamWriter(out);
+		writer.addNamespace("ex", "http://example.org/");
+		new StreamingTriGParser(new StringReader(writeTriG(expected)), BASE,
+				DEFAULT, writer).parse();
+		writer.flush();
+		assertSameGraphs(expected, readTriG(out.toString()));
+	}
+
+	public void testTriXToTriG() throws Exception {
+		String[] files = {"objectNodeTypes.xml", "specialChars.xml",
+				"namedGraphs.xml", "emptyNamedGraph.xml", "blankNodes.xml"};
+		for (int i = 0; i < files.length; i++) {
+			NamedGraphSet expected = new NamedGraphSetImpl();
+			new TriXReader().read(expected, this.getClass().getResourceAsStream(
+					TRIX_TESTS + files[i]), BASE, DEFAULT);
+			StringWriter out = new StringWriter();
+			TriGStreamWriter writer = new TriGStreamWriter(out);
+			new TriXParser().parse(this.getClass().getResourceAsStream(
+					TRIX_TESTS + files[i]), new URI(BASE),
+					new QuadSinkCallback(DEFAULT, writer));
+			writer.flush();
+			assertSameGraphs(expected, readTriG(out.toString()));
+		}
+	}
+
+	public void testNodes() {
+		StringWriter out = new StringWriter();
+		TriGStreamWriter writer = new TriGStreamWriter(out);
+		writer.addNamespace("ex", "http://example.org/");
+		Node g = Node.createURI("http://example.org/g");
+		writer.startGraph(g);
+		writer.quad(new Quad(g, Node.createURI("http://example.org/a"),
+				Node.createURI("http://example.org/1"),
+				Node.createLiteral("a \"b\"\n\\c", "en", false)));
+		writer.quad(new Quad(g, Node.createAnon(new AnonId("x-1:y")),
+				Node.createURI("http://example.org/a-b"),
+				Node.createLiteral("1", null,
+						XSDDatatype.XSDint)));
+		writer.endGraph(g);
+		writer.flush();
+		assertEquals("@prefix ex: <http://example.org/> .\n\n"
+				+ "ex:g {\n"
+				+ "\tex:a <http://example.org/1> \"a \\\"b\\\"\\n\\\\c\"@en .\n"
+				+ "\t_:bx0078x002d1x003ay <http://example.org/a-b> "
+				+ "\"1\"^^<http://www.w3.org/2001/XMLSchema#int> .\n"
+				+ "}\n", out.toString());
+	}
+
+	public void testQuadsStartTheirGraph() {
+		StringWriter out = new StringWriter();
+		TriGStreamWriter writer = new TriGStreamWriter(out);
+		Node a = Node.createURI("http://example.org/a");
+		writer.quad(new Quad(a, a, a, a));
+		writer.quad(new Quad(Node.createURI("http://example.org/b"), a, a, a));
+		writer.flush();
+		NamedGraphSet set = readTriG(out.toString());
+		assertEquals(2, set.countGraphs());
+		assertEquals(2, set.countQuads());
+	}
+
+	public void testInterleavedGraphsAreRejected() {
+		TriGStreamWriter writer = new TriGStreamWriter(new StringWriter());
+		Node a = Node.createURI("http://example.org/a");
+		Node b = Node.createURI("http://example.org/b");
+		writer.quad(new Quad(a, a, a, a));
+		writer.quad(new Quad(b, a, a, a));
+		try {
+			writer.quad(new Quad(a, b, b, b));
+			fail("a graph must not be written twice");
+		} catch (IllegalStateException ex) {
+			// expected
+		}
+		try {
+			writer.startGraph(b);
+			fail("a graph must not be written twice");
+		} catch (IllegalStateException ex) {
+			// expected
+		}
+	}
+
+	public void testFilter() throws Exception {
+		final Node knows = Node.createURI("http://xmlns.com/foaf/0.1/knows");
+		final NamedGraphSet set = new NamedGraphSetImpl();
+		QuadSink filter = new NamedGraphSetSink(set) {
+			public void quad(Quad quad) {
+				if (knows.equals(quad.getPredicate())) {
+					super.quad(quad);
+				}
+			}
+		};
+		new StreamingTriGParser(new StringReader(
+				"@prefix foaf: <http://xmlns.com/foaf/0.1/> .\n"
+				+ "<http://example.org/g> { <#a> foaf:knows <#b> ; foaf:name \"A\" . "
+				+ "<#b> foaf:knows <#a> . }"), BASE, DEFAULT, filter).parse();
+		assertEquals(1, set.countGraphs());
+		assertEquals(2, set.countQuads());
+	}
+
+	public void testSinkCanAbortParsing() throws Exception {
+		QuadSink sink = new NamedGraphSetSink(new NamedGraphSetImpl()) {
+			public void quad(Quad quad) {
+				throw new JenaException("stop");
+			}
+		};
+		try {
+			new StreamingTriGParser(new StringReader("<http://example.org/g> { <#a> <#b> <#c> . }"),
+					BASE, DEFAULT, sink).parse();
+			fail("exception expected");
+		} catch (JenaException ex) {
+			assertEquals("stop", ex.getMessage());
+		}
+	}
+
+	public void testDuplicateTriXGraphNames() throws Exception {
+		try {
+			new TriXParser().parse(new StringReader(
+					"<TriX xmlns=\"http://www.w3.org/2004/03/trix/trix-1/\">"
+					+ "<graph><uri>http://example.org/g</uri></graph>"
+					+ "<graph><uri>http://example.org/g</uri></graph></TriX>"),
+					new URI(BASE),
+					new QuadSinkCallback(DEFAULT, new TriGStreamWriter(new StringWriter())));
+			fail("graph names must be unique");
+		} catch (JenaException ex) {
+			// expected
+		}
+	}
+
+	private String writeTriG(NamedGraphSet set) {
+		StringWriter out = new StringWriter();
+		set.write(out, "TRIG", BASE);
+		return out.toString();
+	}
+
+	private NamedGraphSet readTriG(String trig) {
+		NamedGraphSet result = new NamedGraphSetImpl();
+		new StreamingTriGReader().read(result, new StringReader(trig), BASE, DEFAULT);
+		return result;
+	}
+
+	private void assertSameGraphs(NamedGraphSet expected, NamedGraphSet actual) {
+		assertEquals(expected.countGraphs(), actual.countGraphs());
+		assertEquals(expected.countQuads(), actual.countQuads());
+		Iterator<NamedGraph> it = expected.listGraphs();
+		while (it.hasNext()) {
+			NamedGraph graph = it.next();
+			Node name = graph.getGraphName();
+			assertTrue(name.toString(), actual.containsGraph(name));
+			assertTrue(name.toString(), graph.isIsomorphicWith(actual.getGraph(name)));
+		}
+	}
+}